@@ -8,7 +8,7 @@ Page({
     modules: ['全部模块'],
     moduleIndex: 0,
     selectedModule: '',
-    page: 0,
+    cursor: '',
     size: 20,
     hasMore: true,
     loading: false
@@ -22,7 +22,7 @@ Page({
   },
 
   onPullDownRefresh() {
-    this.setData({ page: 0, logs: [], hasMore: true })
+    this.setData({ cursor: '', logs: [], hasMore: true })
     this.loadStatistics()
     this.loadLogs()
     wx.stopPullDownRefresh()
@@ -54,7 +54,10 @@ Page({
 
     this.setData({ loading: true })
     
-    let url = `/audit-logs?page=${this.data.page}&size=${this.data.size}`
+    let url = `/audit-logs?size=${this.data.size}`
+    if (this.data.cursor) {
+      url += `&cursor=${encodeURIComponent(this.data.cursor)}`
+    }
     if (this.data.selectedModule) {
       url += `&module=${encodeURIComponent(this.data.selectedModule)}`
     }
@@ -63,11 +66,12 @@ Page({
       .then(res => {
         const data = res.data || {}
         const logs = data.content || []
-        const allLogs = this.data.page === 0 ? logs : [...this.data.logs, ...logs]
+        const allLogs = this.data.cursor ? [...this.data.logs, ...logs] : logs
         
         this.setData({
           logs: allLogs,
-          hasMore: logs.length >= this.data.size,
+          cursor: data.nextCursor || '',
+          hasMore: !!data.hasMore,
           loading: false
         })
       })
@@ -79,7 +83,6 @@ Page({
   },
 
   loadMore() {
-    this.setData({ page: this.data.page + 1 })
     this.loadLogs()
   },
 
@@ -89,7 +92,7 @@ Page({
     this.setData({ 
       moduleIndex: index,
       selectedModule: module,
-      page: 0,
+      cursor: '',
       logs: [],
       hasMore: true
     })
@@ -100,7 +103,7 @@ Page({
     this.setData({
       moduleIndex: 0,
       selectedModule: '',
-      page: 0,
+      cursor: '',
       logs: [],
       hasMore: true
     })
@@ -0,0 +1,70 @@
+package com.wms.common;
+
+/**
+ * 已验证的登录身份（不可变）
+ * 由 AuthInterceptor 存入请求属性 {@link #REQUEST_ATTRIBUTE}，同一请求内不再重复解析 Token。
+ */
+public final class AuthPrincipal {
+
+    public static final String REQUEST_ATTRIBUTE = "principal";
+
+    private final String username;
+    private final String role;
+
+    /**
+     * 角色对应的位（未知角色为 0），鉴权时与接口允许的角色掩码做位运算
+     */
+    private final int roleBit;
+
+    /**
+     * Token 编号（jti），吊销单个 Token 时使用；旧版本签发的 Token 没有编号
+     */
+    private final String tokenId;
+
+    /**
+     * Token 签发时间（毫秒，JWT 中只精确到秒）
+     */
+    private final long issuedAt;
+
+    /**
+     * Token 过期时间（毫秒）
+     */
+    private final long expiresAt;
+
+    public AuthPrincipal(String username, String role, String tokenId, long issuedAt, long expiresAt) {
+        this.username = username;
+        this.role = role;
+        this.roleBit = Role.bitOf(role);
+        this.tokenId = tokenId;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public int getRoleBit() {
+        return roleBit;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
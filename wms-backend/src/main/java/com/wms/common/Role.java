@@ -0,0 +1,54 @@
+package com.wms.common;
+
+/**
+ * 用户角色
+ * 每个角色占一位，允许的角色集合用位掩码表示，鉴权时只需一次位运算。
+ */
+public enum Role {
+
+    ADMIN("ADMIN"),
+    USER("USER"),
+    OPERATOR("operator");
+
+    private final String code;
+    private final int bit;
+
+    Role(String code) {
+        this.code = code;
+        this.bit = 1 << ordinal();
+    }
+
+    /**
+     * 数据库和 Token 中保存的角色名
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public int getBit() {
+        return bit;
+    }
+
+    /**
+     * 按角色名查找，未知角色返回 null
+     */
+    public static Role of(String code) {
+        if (code == null) {
+            return null;
+        }
+        for (Role role : values()) {
+            if (role.code.equals(code)) {
+                return role;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 角色名对应的位，未知角色为 0
+     */
+    public static int bitOf(String code) {
+        Role role = of(code);
+        return role != null ? role.bit : 0;
+    }
+}
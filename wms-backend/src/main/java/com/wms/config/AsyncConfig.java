@@ -1,54 +1,14 @@
 package com.wms.config;
 
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-import org.springframework.context.annotation.Bean;
-
-import java.util.concurrent.Executor;
 
 /**
- * 异步任务配置
- * 支持备份等长时间运行的任务异步执行
+ * 定时任务配置
+ * 后台工作各自使用专用线程：备份由 BackupExecutionService 执行，审计日志由 AuditLogWriter 后台批量写库，
+ * 因此不再配置通用的 @Async 线程池
  */
 @Configuration
-@EnableAsync
 @EnableScheduling
 public class AsyncConfig {
-    
-    /**
-     * 配置异步任务线程池
-     */
-    @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        
-        // 核心线程数
-        executor.setCorePoolSize(2);
-        
-        // 最大线程数
-        executor.setMaxPoolSize(5);
-        
-        // 队列容量
-        executor.setQueueCapacity(100);
-        
-        // 线程名称前缀
-        executor.setThreadNamePrefix("async-backup-");
-        
-        // 拒绝策略：由调用线程处理
-        executor.setRejectedExecutionHandler(new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
-        
-        // 线程空闲时间（秒）
-        executor.setKeepAliveSeconds(60);
-        
-        // 等待所有任务结束后关闭线程池
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        
-        // 等待时间（秒）
-        executor.setAwaitTerminationSeconds(60);
-        
-        executor.initialize();
-        return executor;
-    }
 }
@@ -1,10 +1,11 @@
 package com.wms.config;
 
 import com.wms.annotation.Auditable;
+import com.wms.common.AuthPrincipal;
 import com.wms.entity.PieceWork;
 import com.wms.service.AuditService;
+import com.wms.service.TokenVerificationService;
 import com.wms.util.IpUtil;
-import com.wms.util.JwtUtil;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -26,7 +27,7 @@ public class AuditLogAspect {
     private AuditService auditService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private TokenVerificationService tokenVerificationService;
 
     @Around("@annotation(com.wms.annotation.Auditable)")
     public Object logAudit(ProceedingJoinPoint joinPoint) throws Throwable {
@@ -44,10 +45,14 @@ public class AuditLogAspect {
                 request = attrs.getRequest();
                 ipAddress = IpUtil.getRealIp(request);
 
+                // 认证拦截器已验证过的身份直接使用，否则按 Token 验证（结果有缓存）
+                AuthPrincipal principal = (AuthPrincipal) request.getAttribute(AuthPrincipal.REQUEST_ATTRIBUTE);
                 String token = request.getHeader("Authorization");
-                if (token != null && token.startsWith("Bearer ")) {
-                    token = token.substring(7);
-                    username = jwtUtil.getUsernameFromToken(token);
+                if (principal == null && token != null && token.startsWith("Bearer ")) {
+                    principal = tokenVerificationService.verify(token.substring(7));
+                }
+                if (principal != null) {
+                    username = principal.getUsername();
                 }
             }
         } catch (Exception e) {
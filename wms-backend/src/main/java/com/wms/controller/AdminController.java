@@ -2,7 +2,9 @@ package com.wms.controller;
 
 import com.wms.annotation.RequireAuth;
 import com.wms.annotation.RequireRole;
+import com.wms.interceptor.AuthPolicyRegistry;
 import com.wms.repository.*;
+import com.wms.service.AuditArchiveService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -30,6 +32,12 @@ public class AdminController {
     @Autowired
     private AuditLogRepository auditLogRepository;
 
+    @Autowired
+    private AuditArchiveService auditArchiveService;
+
+    @Autowired
+    private AuthPolicyRegistry authPolicyRegistry;
+
     /**
      * 清空计件记录
      */
@@ -103,29 +111,32 @@ public class AdminController {
     }
 
     /**
-     * 清空操作记录
+     * 归档操作记录：把早于保留期的月份导出为归档文件并从热表移除（归档后仍可查询）
      */
     @DeleteMapping("/cleanup/audit-logs")
-    @Transactional
     public ResponseEntity<?> cleanupAuditLogs() {
         try {
-            long count = auditLogRepository.count();
-            auditLogRepository.deleteAll();
-            
-            Map<String, Object> response = new HashMap<>();
+            Map<String, Object> response = new HashMap<>(auditArchiveService.applyRetention());
             response.put("success", true);
-            response.put("message", "操作记录已清空");
-            response.put("deletedCount", count);
+            response.put("message", "操作记录已归档");
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
-            response.put("message", "清空失败: " + e.getMessage());
+            response.put("message", "归档失败: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
         }
     }
 
+    /**
+     * 各接口的鉴权策略（启动时编译的策略表）
+     */
+    @GetMapping("/auth-policies")
+    public ResponseEntity<?> getAuthPolicies() {
+        return ResponseEntity.ok(authPolicyRegistry.getRoutes());
+    }
+
     /**
      * 获取服务器运行时间（毫秒）
      */
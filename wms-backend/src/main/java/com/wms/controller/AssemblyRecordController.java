@@ -3,7 +3,9 @@ package com.wms.controller;
 import com.wms.annotation.RequireAuth;
 import com.wms.dto.AssemblyCheckRequest;
 import com.wms.dto.AssemblyCheckResult;
+import com.wms.dto.AssemblyPlanResult;
 import com.wms.entity.AssemblyRecord;
+import com.wms.service.AssemblyPlanningService;
 import com.wms.service.AssemblyService;
 import com.wms.common.Result;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +20,9 @@ public class AssemblyRecordController {
     @Autowired
     private AssemblyService assemblyService;
     
+    @Autowired
+    private AssemblyPlanningService assemblyPlanningService;
+    
     @GetMapping
     public Result<List<AssemblyRecord>> getAll() {
         return Result.success(assemblyService.findAll());
@@ -43,6 +48,14 @@ public class AssemblyRecordController {
         return Result.success(assemblyService.checkAssembly(request));
     }
     
+    /**
+     * 批量计算装配可行性：多个产品共用一份库存快照，返回各自最大可装数量和按顺序分配共用零件后的可装数量
+     */
+    @PostMapping("/plan")
+    public Result<AssemblyPlanResult> plan(@RequestBody List<AssemblyCheckRequest> requests) {
+        return Result.success(assemblyPlanningService.plan(requests));
+    }
+    
     @DeleteMapping("/{id}")
     public Result<Void> delete(@PathVariable Long id) {
         assemblyService.deleteById(id);
@@ -1,15 +1,18 @@
 package com.wms.controller;
 
 import com.wms.annotation.RequireAuth;
+import com.wms.dto.AssemblyCheckRequest;
+import com.wms.dto.AssemblyRuleView;
+import com.wms.dto.BomExplosionResult;
 import com.wms.entity.AssemblyRule;
 import com.wms.repository.AssemblyRuleRepository;
 import com.wms.common.Result;
+import com.wms.service.AssemblyRuleRegistry;
+import com.wms.service.BomService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.HashMap;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/assembly-rules")
@@ -19,37 +22,21 @@ public class AssemblyRuleController {
     @Autowired
     private AssemblyRuleRepository repository;
 
-    @GetMapping
-    public Result<List<Map<String, Object>>> getAll() {
-        List<AssemblyRule> rules = repository.findAll();
-        List<Map<String, Object>> result = rules.stream().map(rule -> {
-            Map<String, Object> map = new HashMap<>();
-            map.put("id", rule.getId());
-            map.put("ruleName", rule.getRuleName());
-            map.put("productName", rule.getProductName());
-            map.put("description", rule.getDescription());
-            map.put("materialConstraint", rule.getMaterialConstraint());
-            map.put("isEnabled", rule.getIsEnabled());
-            map.put("createdAt", rule.getCreatedAt());
-
-            // 手动处理items，避免循环引用
-            if (rule.getItems() != null) {
-                List<Map<String, Object>> items = rule.getItems().stream().map(item -> {
-                    Map<String, Object> itemMap = new HashMap<>();
-                    itemMap.put("id", item.getId());
-                    itemMap.put("componentName", item.getComponentName());
-                    itemMap.put("quantity", item.getQuantity());
-                    itemMap.put("isRequired", item.getIsRequired());
-                    itemMap.put("sortOrder", item.getSortOrder());
-                    return itemMap;
-                }).collect(Collectors.toList());
-                map.put("items", items);
-            }
+    @Autowired
+    private AssemblyRuleRegistry ruleRegistry;
 
-            return map;
-        }).collect(Collectors.toList());
+    @Autowired
+    private BomService bomService;
 
-        return Result.success(result);
+    /**
+     * 规则列表（来自规则注册表），ETag 随注册表版本变化，未变化时返回 304
+     */
+    @GetMapping
+    public Result<List<AssemblyRuleView>> getAll(WebRequest request) {
+        if (request.checkNotModified(ruleRegistry.getETag())) {
+            return null;
+        }
+        return Result.success(ruleRegistry.getAll());
     }
 
     @GetMapping("/{id}")
@@ -63,7 +50,9 @@ public class AssemblyRuleController {
         if (rule.getItems() != null) {
             rule.getItems().forEach(item -> item.setAssemblyRule(rule));
         }
-        return Result.success(repository.save(rule));
+        AssemblyRule saved = repository.save(rule);
+        ruleRegistry.put(saved);
+        return Result.success(saved);
     }
 
     @PutMapping("/{id}")
@@ -90,7 +79,9 @@ public class AssemblyRuleController {
                 });
             }
             
-            return Result.success(repository.save(existing));
+            AssemblyRule saved = repository.save(existing);
+            ruleRegistry.put(saved);
+            return Result.success(saved);
         }
         return Result.error(404, "规则不存在");
     }
@@ -98,6 +89,7 @@ public class AssemblyRuleController {
     @DeleteMapping("/{id}")
     public Result<Void> delete(@PathVariable Long id) {
         repository.deleteById(id);
+        ruleRegistry.remove(id);
         return Result.success();
     }
 
@@ -106,10 +98,18 @@ public class AssemblyRuleController {
         AssemblyRule rule = repository.findById(id).orElse(null);
         if (rule != null) {
             rule.setIsEnabled(!Boolean.TRUE.equals(rule.getIsEnabled()));
-            repository.save(rule);
-            return Result.success(rule);
+            AssemblyRule saved = repository.save(rule);
+            ruleRegistry.put(saved);
+            return Result.success(saved);
         }
         return Result.error(404, "规则不存在");
     }
-}
 
+    /**
+     * 多级 BOM 展开：子装配件逐层展开到末级零件和毛坯，并计算按当前库存最多可装的数量
+     */
+    @PostMapping("/bom/explode")
+    public Result<BomExplosionResult> explode(@RequestBody AssemblyCheckRequest request) {
+        return Result.success(bomService.explode(request));
+    }
+}
@@ -3,27 +3,36 @@ package com.wms.controller;
 import com.wms.annotation.RequireAuth;
 import com.wms.annotation.Auditable;
 import com.wms.annotation.RequireRole;
+import com.wms.common.AuthPrincipal;
 import com.wms.common.BusinessException;
 import com.wms.common.Result;
 import com.wms.dto.ChangePasswordRequest;
 import com.wms.dto.LoginRequest;
 import com.wms.dto.RegisterRequest;
+import com.wms.dto.UserSummary;
 import com.wms.entity.User;
 import com.wms.repository.UserRepository;
 import com.wms.util.JwtUtil;
 import com.wms.util.IpUtil;
+import com.wms.service.LastLoginWriter;
 import com.wms.service.LoginRateLimiter;
+import com.wms.service.PasswordHashService;
+import com.wms.service.TokenRevocationService;
+import com.wms.service.TokenVerificationService;
+import com.wms.service.UserDirectoryService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * 认证控制器
@@ -43,18 +52,45 @@ public class AuthController {
     @Autowired
     private LoginRateLimiter rateLimiter;
 
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private PasswordHashService passwordHashService;
+
+    @Autowired
+    private LastLoginWriter lastLoginWriter;
+
+    @Autowired
+    private TokenVerificationService tokenVerificationService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    /**
+     * 可信的反向代理地址，登录限流只从这些代理转发的 X-Forwarded-For 中取客户端IP
+     */
+    @Value("${login.trusted-proxies:127.0.0.1,0:0:0:0:0:0:0:1,::1}")
+    private Set<String> trustedProxies;
     
     /**
      * 用户登录
      */
     @Auditable(module = "认证", action = "用户登录")
     @PostMapping("/login")
-    public Result<Map<String, Object>> login(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+    public Result<Map<String, Object>> login(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request,
+                                             HttpServletResponse response) {
         String username = loginRequest.getUsername();
         String password = loginRequest.getPassword();
-
-        // 检查是否被锁定
+        String ip = IpUtil.getRealIp(request);
+        // 限流按直连地址或可信代理转发的地址计数，不信任客户端自己填写的请求头
+        String clientIp = IpUtil.getClientIp(request, trustedProxies);
+
+        // 检查 IP 和账号是否被锁定
+        if (rateLimiter.isIpLocked(clientIp)) {
+            long remaining = rateLimiter.getRemainingIpLockTime(clientIp);
+            return Result.error("登录失败次数过多，请 " + (remaining / 60 + 1) + " 分钟后重试");
+        }
         if (rateLimiter.isLocked(username)) {
             long remaining = rateLimiter.getRemainingLockTime(username);
             return Result.error("账号已被锁定，请 " + (remaining / 60 + 1) + " 分钟后重试");
@@ -63,31 +99,28 @@ public class AuthController {
         // 查找用户
         Optional<User> userOpt = userRepository.findByUsername(username);
         if (!userOpt.isPresent()) {
-            rateLimiter.recordFailure(username);
+            rateLimiter.recordFailure(username, clientIp);
             int remaining = rateLimiter.getRemainingAttempts(username);
             return Result.error("用户名或密码错误" + (remaining > 0 ? "，剩余 " + remaining + " 次尝试机会" : ""));
         }
 
         User user = userOpt.get();
 
-        // 验证密码（支持BCrypt和明文密码的兼容模式）
-        boolean passwordValid = false;
-        boolean needMigration = false;
-
-        // 检查是否是BCrypt加密的密码（以$2a$、$2b$或$2y$开头）
-        if (user.getPassword().startsWith("$2a$") ||
-            user.getPassword().startsWith("$2b$") ||
-            user.getPassword().startsWith("$2y$")) {
-            // BCrypt密码验证
-            passwordValid = passwordEncoder.matches(password, user.getPassword());
-        } else {
-            // 明文密码验证（兼容旧数据）
-            passwordValid = password.equals(user.getPassword());
-            needMigration = true; // 标记需要迁移
+        // 验证密码（BCrypt 在专用线程池中校验，登录过多时返回 429）
+        boolean passwordValid;
+        try {
+            passwordValid = passwordHashService.matches(password, user.getPassword());
+        } catch (BusinessException e) {
+            if (e.getCode() == PasswordHashService.TOO_MANY_REQUESTS) {
+                response.setStatus(PasswordHashService.TOO_MANY_REQUESTS);
+                response.setHeader("Retry-After", "5");
+                return Result.error(e.getCode(), e.getMessage());
+            }
+            throw e;
         }
 
         if (!passwordValid) {
-            rateLimiter.recordFailure(username);
+            rateLimiter.recordFailure(username, clientIp);
             int remaining = rateLimiter.getRemainingAttempts(username);
             return Result.error("用户名或密码错误" + (remaining > 0 ? "，剩余 " + remaining + " 次尝试机会" : ""));
         }
@@ -100,15 +133,10 @@ public class AuthController {
             return Result.error("账号已被禁用，请联系管理员");
         }
 
-        // 如果是明文密码，自动迁移到BCrypt
-        if (needMigration) {
-            user.setPassword(passwordEncoder.encode(password));
-        }
-
-        // 更新最后登录时间和IP
+        // 更新最后登录时间和IP（合并后定时批量写入）
         user.setLastLogin(LocalDateTime.now());
-        user.setLastLoginIp(IpUtil.getRealIp(request));
-        userRepository.save(user);
+        user.setLastLoginIp(ip);
+        lastLoginWriter.record(user.getUsername(), user.getLastLogin(), user.getLastLoginIp());
 
         // 生成JWT token
         String token = "Bearer " + jwtUtil.generateToken(user.getUsername(), user.getRole());
@@ -146,13 +174,14 @@ public class AuthController {
         user.setStatus("active");
 
         // 【安全加固】使用BCrypt加密密码
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        user.setPassword(passwordHashService.encode(registerRequest.getPassword()));
 
         // 记录注册IP
         user.setLastLoginIp(IpUtil.getRealIp(request));
 
         // 保存用户
         User saved = userRepository.save(user);
+        userDirectoryService.put(saved);
         saved.setPassword("******");
 
         return Result.success(saved);
@@ -164,7 +193,7 @@ public class AuthController {
      */
     @GetMapping("/me")
     @RequireAuth
-    public Result<User> getCurrentUser(HttpServletRequest request) {
+    public Result<UserSummary> getCurrentUser(HttpServletRequest request) {
         // 从request中获取拦截器设置的用户名
         String username = (String) request.getAttribute("username");
 
@@ -172,13 +201,9 @@ public class AuthController {
             throw new BusinessException("未登录");
         }
 
-        Optional<User> userOpt = userRepository.findByUsername(username);
-        if (!userOpt.isPresent()) {
-            throw new BusinessException("用户不存在");
-        }
-
-        User user = userOpt.get();
-        user.setPassword("******");
+        // 从用户目录读取，不查询 users 表
+        UserSummary user = userDirectoryService.findByUsername(username)
+            .orElseThrow(() -> new BusinessException("用户不存在"));
         return Result.success(user);
     }
     
@@ -186,8 +211,16 @@ public class AuthController {
      * 登出
      */
     @PostMapping("/logout")
-    public Result<Void> logout() {
-        // 简化版本，实际应清除token
+    public Result<Void> logout(HttpServletRequest request) {
+        // 吊销当前 Token（各节点在几秒内同步），Token 无效时无需处理
+        String token = request.getHeader("Authorization");
+        if (token != null && token.startsWith("Bearer ")) {
+            token = token.substring(7);
+        }
+        AuthPrincipal principal = tokenVerificationService.verify(token);
+        if (principal != null) {
+            tokenRevocationService.revokeToken(principal);
+        }
         return Result.success();
     }
     
@@ -214,23 +247,14 @@ public class AuthController {
         User user = userOpt.get();
 
         // 验证旧密码（支持BCrypt和明文密码）
-        boolean oldPasswordValid = false;
-        if (user.getPassword().startsWith("$2a$") ||
-            user.getPassword().startsWith("$2b$") ||
-            user.getPassword().startsWith("$2y$")) {
-            // BCrypt密码验证
-            oldPasswordValid = passwordEncoder.matches(passwordRequest.getOldPassword(), user.getPassword());
-        } else {
-            // 明文密码验证（兼容旧数据）
-            oldPasswordValid = passwordRequest.getOldPassword().equals(user.getPassword());
-        }
+        boolean oldPasswordValid = passwordHashService.matches(passwordRequest.getOldPassword(), user.getPassword());
 
         if (!oldPasswordValid) {
             throw new BusinessException("原密码错误");
         }
 
         // 更新密码（使用BCrypt加密）
-        user.setPassword(passwordEncoder.encode(passwordRequest.getNewPassword()));
+        user.setPassword(passwordHashService.encode(passwordRequest.getNewPassword()));
         userRepository.save(user);
 
         return Result.success();
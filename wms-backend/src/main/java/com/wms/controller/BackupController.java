@@ -1,18 +1,32 @@
 package com.wms.controller;
 
+import com.wms.annotation.RequireAuth;
+import com.wms.annotation.RequireRole;
+import com.wms.common.BusinessException;
 import com.wms.common.Result;
 import com.wms.entity.BackupRecord;
+import com.wms.service.BackupExecutionService;
 import com.wms.service.BackupService;
+import com.wms.service.DatabaseBackupService;
+import com.wms.service.DownloadService;
+import com.wms.service.FileSnapshotService;
+import com.wms.service.LogFileService;
 import com.wms.dto.BackupScheduleConfig;
+import com.wms.dto.LogQuery;
+import com.wms.dto.RestoreReport;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.File;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +40,21 @@ public class BackupController {
     
     @Autowired
     private BackupService backupService;
+    
+    @Autowired
+    private FileSnapshotService fileSnapshotService;
+    
+    @Autowired
+    private DatabaseBackupService databaseBackupService;
+    
+    @Autowired
+    private DownloadService downloadService;
+    
+    @Autowired
+    private BackupExecutionService backupExecutionService;
+    
+    @Autowired
+    private LogFileService logFileService;
     @Autowired
     private com.wms.repository.PieceWorkRepository pieceWorkRepository;
     
@@ -83,6 +112,11 @@ public class BackupController {
             boolean includeFiles = (Boolean) request.getOrDefault("includeFiles", true);
             String description = (String) request.get("description");
             
+            // 已有备份在运行时直接拒绝，不排队
+            if (backupExecutionService.isRunning()) {
+                return Result.error(409, "已有备份任务正在运行，请稍后再试");
+            }
+            
             // 创建初始记录
             BackupRecord backup = new BackupRecord();
             backup.setName("backup-" + java.time.LocalDateTime.now().format(
@@ -103,48 +137,37 @@ public class BackupController {
             result.put("message", "备份任务已启动，请稍候刷新查看进度");
             
             return Result.success(result);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
         } catch (Exception e) {
             return Result.error("创建备份失败: " + e.getMessage());
         }
     }
     
     /**
-     * 下载备份文件
+     * 下载备份文件（支持断点续传和多段 Range，ETag 为文件 SHA-256）
      */
     @GetMapping("/download/{id}")
-    public ResponseEntity<Resource> downloadBackup(
+    public void downloadBackup(
             @PathVariable Long id,
-            @RequestParam(required = false) String token) {
-        try {
-            BackupRecord backup = backupService.getBackupById(id);
-            if (backup == null) {
-                return ResponseEntity.notFound().build();
-            }
-
-            File file = new File(backup.getFilePath());
-            if (!file.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            Resource resource = new FileSystemResource(file);
-            
-            // 确保文件名有.zip扩展名
-            String filename = backup.getName();
-            if (!filename.toLowerCase().endsWith(".zip")) {
-                filename = filename + ".zip";
-            }
+            @RequestParam(required = false) String token,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        BackupRecord backup = backupService.getBackupById(id);
+        if (backup == null || backup.getFilePath() == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "备份不存在");
+            return;
+        }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(file.length())
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + filename + "\"")
-                    .body(resource);
-        } catch (Exception e) {
-            System.err.println("下载备份失败: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().build();
+        Path file = Paths.get(backup.getFilePath());
+        if (!Files.isRegularFile(file)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "备份文件不存在");
+            return;
         }
+
+        String sha256 = backupService.ensureSha256(backup);
+        downloadService.sendFile(file, file.getFileName().toString(), MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            sha256, "backup", request, response);
     }
     
     /**
@@ -199,6 +222,14 @@ public class BackupController {
         }
     }
     
+    /**
+     * 当前备份任务和限速状态
+     */
+    @GetMapping("/execution")
+    public Result<Map<String, Object>> getExecutionStatus() {
+        return Result.success(backupExecutionService.getStatus());
+    }
+    
     /**
      * 清理过期备份
      */
@@ -207,11 +238,107 @@ public class BackupController {
         try {
             int count = backupService.cleanupOldBackups(days);
             return Result.success(count);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
         } catch (Exception e) {
             return Result.error("清理失败: " + e.getMessage());
         }
     }
     
+    /**
+     * 创建文件快照（默认增量，full=true 时重新校验全部文件）
+     */
+    @PostMapping("/snapshot")
+    @RequireAuth
+    @RequireRole({"ADMIN"})
+    public Result<BackupRecord> createSnapshot(@RequestBody(required = false) Map<String, Object> request) {
+        try {
+            boolean full = request != null && Boolean.TRUE.equals(request.get("full"));
+            String description = request != null ? (String) request.get("description") : null;
+            BackupRecord record = fileSnapshotService.createSnapshot(full, description);
+            if ("failed".equals(record.getStatus())) {
+                return Result.error("文件快照失败: " + record.getErrorMessage());
+            }
+            return Result.success(record);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            return Result.error("文件快照失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 将文件快照恢复到备份目录下 restore 子目录中的指定目录（不覆盖线上目录，默认以快照名为目录名）
+     */
+    @PostMapping("/{id}/restore-files")
+    @RequireAuth
+    @RequireRole({"ADMIN"})
+    public Result<Map<String, Object>> restoreSnapshot(@PathVariable Long id,
+                                                       @RequestBody(required = false) Map<String, Object> request) {
+        try {
+            String targetDirectory = request != null ? (String) request.get("targetDirectory") : null;
+            java.nio.file.Path target = fileSnapshotService.restoreSnapshot(id, targetDirectory);
+            
+            Map<String, Object> result = new java.util.HashMap<>();
+            result.put("id", id);
+            result.put("targetDirectory", target.toString());
+            return Result.success(result);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            return Result.error("恢复文件快照失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 创建数据库增量备份（没有可用的上一个备份时自动改为全量）
+     */
+    @PostMapping("/database/incremental")
+    @RequireAuth
+    @RequireRole({"ADMIN"})
+    public Result<BackupRecord> createDatabaseIncremental(@RequestBody(required = false) Map<String, Object> request) {
+        try {
+            String description = request != null ? (String) request.get("description") : null;
+            BackupRecord record = databaseBackupService.createIncrementalBackup(description);
+            if ("failed".equals(record.getStatus())) {
+                return Result.error("数据库增量备份失败: " + record.getErrorMessage());
+            }
+            return Result.success(record);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            return Result.error("数据库增量备份失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 恢复数据库备份（增量备份会自动回溯到全量备份并依次重放）
+     * 默认要求指定 targetSchema 恢复到独立库；恢复到当前库需要 overwrite=true；
+     * dryRun=true 时恢复到临时库核对后删除，只返回耗时和核对结果
+     */
+    @PostMapping("/{id}/restore-database")
+    @RequireAuth
+    @RequireRole({"ADMIN"})
+    public Result<RestoreReport> restoreDatabase(@PathVariable Long id,
+                                                 @RequestBody(required = false) Map<String, Object> request) {
+        try {
+            String targetSchema = request != null ? (String) request.get("targetSchema") : null;
+            boolean overwrite = request != null && Boolean.TRUE.equals(request.get("overwrite"));
+            boolean dryRun = request != null && Boolean.TRUE.equals(request.get("dryRun"));
+            RestoreReport report = databaseBackupService.restore(id, targetSchema, overwrite, dryRun);
+            if (Boolean.FALSE.equals(report.getVerified())) {
+                Result<RestoreReport> result = Result.error("数据库已恢复，但部分表与备份清单不一致");
+                result.setData(report);
+                return result;
+            }
+            return Result.success(report);
+        } catch (BusinessException e) {
+            return Result.error(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            return Result.error("恢复数据库失败: " + e.getMessage());
+        }
+    }
+    
     /**
      * 获取备份统计信息
      */
@@ -243,103 +370,35 @@ public class BackupController {
     /**
      * 下载系统日志
     /**
-     * 下载系统日志（TXT格式）
+     * 下载系统日志（gzip 压缩的 TXT）
+     * 只倒读每个日志文件的尾部并边读边压缩写出；可按时间范围、最低级别和记录器过滤，
+     * lines 为每个文件最多输出的行数，maxMb 为合计最多输出的未压缩大小
      */
     @GetMapping("/logs/download")
-    public ResponseEntity<Resource> downloadLogs() {
+    public void downloadLogs(@RequestParam(required = false) String from,
+                             @RequestParam(required = false) String to,
+                             @RequestParam(required = false) String level,
+                             @RequestParam(required = false) String logger,
+                             @RequestParam(defaultValue = "1000") int lines,
+                             @RequestParam(defaultValue = "16") int maxMb,
+                             @RequestParam(defaultValue = "true") boolean journal,
+                             HttpServletResponse response) throws IOException {
+        LogQuery query;
         try {
-            StringBuilder logContent = new StringBuilder();
-            logContent.append("=".repeat(80)).append("\n");
-            logContent.append("系统日志导出 - ").append(java.time.LocalDateTime.now()).append("\n");
-            logContent.append("=".repeat(80)).append("\n\n");
-            
-            // 1. 添加应用日志
-            logContent.append("\n").append("=".repeat(80)).append("\n");
-            logContent.append("应用日志 (Application Logs)\n");
-            logContent.append("=".repeat(80)).append("\n\n");
-            
-            java.nio.file.Path logsDir = java.nio.file.Paths.get("/opt/app/wms/logs");
-            if (java.nio.file.Files.exists(logsDir)) {
-                java.nio.file.Files.walk(logsDir)
-                    .filter(path -> path.toString().endsWith(".log"))
-                    .forEach(path -> {
-                        try {
-                            String filename = path.getFileName().toString();
-                            logContent.append("\n--- ").append(filename).append(" ---\n\n");
-                            
-                            // 读取最后1000行
-                            java.util.List<String> lines = java.nio.file.Files.readAllLines(path);
-                            int startLine = Math.max(0, lines.size() - 1000);
-                            for (int i = startLine; i < lines.size(); i++) {
-                                logContent.append(lines.get(i)).append("\n");
-                            }
-                            logContent.append("\n");
-                            
-                            System.out.println("已添加日志文件: " + filename + " (共" + (lines.size() - startLine) + "行)");
-                        } catch (Exception e) {
-                            logContent.append("读取失败: ").append(e.getMessage()).append("\n\n");
-                            System.err.println("读取日志文件失败: " + path + " - " + e.getMessage());
-                        }
-                    });
-            } else {
-                logContent.append("应用日志目录不存在\n\n");
-            }
-            
-            // 2. 添加系统日志
-            logContent.append("\n").append("=".repeat(80)).append("\n");
-            logContent.append("系统日志 (System Logs - wms-backend)\n");
-            logContent.append("=".repeat(80)).append("\n\n");
-            
-            try {
-                Process process = Runtime.getRuntime().exec(
-                    new String[]{"journalctl", "-u", "wms-backend", "--since", "1 day ago", "-n", "1000"});
-                
-                java.io.BufferedReader reader = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(process.getInputStream()));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    logContent.append(line).append("\n");
-                }
-                reader.close();
-                
-                System.out.println("已添加系统日志");
-            } catch (Exception e) {
-                logContent.append("无法获取系统日志: ").append(e.getMessage()).append("\n\n");
-                System.err.println("无法获取systemd日志: " + e.getMessage());
-            }
-            
-            // 3. 结束标记
-            logContent.append("\n").append("=".repeat(80)).append("\n");
-            logContent.append("日志导出完成\n");
-            logContent.append("=".repeat(80)).append("\n");
-            
-            // 转换为字节数组
-            byte[] logBytes = logContent.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
-            System.out.println("日志文件大小: " + logBytes.length + " 字节");
-            
-            if (logBytes.length == 0) {
-                System.err.println("警告：日志文件为空！");
-                return ResponseEntity.noContent().build();
-            }
-            
-            // 使用ByteArrayResource返回
-            org.springframework.core.io.ByteArrayResource resource = 
-                new org.springframework.core.io.ByteArrayResource(logBytes);
-            
-            String filename = "system-logs-" + 
-                java.time.LocalDateTime.now().format(
-                    java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt";
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.TEXT_PLAIN)
-                    .contentLength(logBytes.length)
-                    .body(resource);
-                    
-        } catch (Exception e) {
-            System.err.println("下载日志失败: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(500).build();
+            query = LogFileService.buildQuery(from, to, level, logger, lines, maxMb * 1024L * 1024);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        
+        String filename = "system-logs-" + 
+            java.time.LocalDateTime.now().format(
+                java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt.gz";
+        response.setContentType("application/gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        try (java.util.zip.GZIPOutputStream gzip =
+                 new java.util.zip.GZIPOutputStream(response.getOutputStream(), 64 * 1024)) {
+            logFileService.writeTail(query, journal, gzip);
         }
     }
     /**
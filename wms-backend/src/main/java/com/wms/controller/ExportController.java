@@ -2,11 +2,14 @@ package com.wms.controller;
 
 import com.wms.entity.*;
 import com.wms.repository.*;
+import com.wms.service.ColumnarExportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -31,6 +34,9 @@ public class ExportController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ColumnarExportService columnarExportService;
+    
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
     /**
@@ -214,6 +220,30 @@ public class ExportController {
         writer.flush();
     }
     
+    /**
+     * 导出列式二进制快照（供BI分析使用）
+     * table: piecework / inventory-logs / inventory
+     * 可通过 sinceId 或 since（更新时间）增量导出，文件结尾记录本次的最大ID和最大时间水位
+     */
+    @GetMapping("/columnar/{table}")
+    public void exportColumnar(@PathVariable String table,
+                               @RequestParam(required = false) Long sinceId,
+                               @RequestParam(required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                               HttpServletResponse response) throws IOException {
+        if (!columnarExportService.getSupportedTables().contains(table)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "不支持的导出类型: " + table);
+            return;
+        }
+        
+        response.setContentType("application/octet-stream");
+        response.setHeader("Content-Disposition", "attachment; filename=" + table + "_" + System.currentTimeMillis() + ".wcol");
+        
+        OutputStream out = response.getOutputStream();
+        columnarExportService.export(table, sinceId, since, out);
+        out.flush();
+    }
+    
     /**
      * CSV转义
      */
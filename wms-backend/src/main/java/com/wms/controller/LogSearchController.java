@@ -0,0 +1,49 @@
+package com.wms.controller;
+
+import com.wms.annotation.RequireAuth;
+import com.wms.annotation.RequireRole;
+import com.wms.common.Result;
+import com.wms.dto.LogQuery;
+import com.wms.service.LogFileService;
+import com.wms.service.LogSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 应用日志检索（管理员）
+ */
+@RestController
+@RequestMapping("/admin/logs")
+@RequireAuth
+@RequireRole({"ADMIN"})
+public class LogSearchController {
+
+    @Autowired
+    private LogSearchService logSearchService;
+
+    /**
+     * 按时间范围、最低级别、记录器和全文检索应用日志，结果按时间先后排列
+     * 每页最多 size 条，nextCursor 不为空时把它作为 cursor 参数取下一页
+     */
+    @GetMapping("/search")
+    public Result<Map<String, Object>> search(@RequestParam(required = false) String from,
+                                              @RequestParam(required = false) String to,
+                                              @RequestParam(required = false) String level,
+                                              @RequestParam(required = false) String logger,
+                                              @RequestParam(required = false) String text,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "100") int size) {
+        try {
+            LogQuery query = LogFileService.buildQuery(from, to, level, logger,
+                LogFileService.MAX_LINES, LogFileService.MAX_BYTES);
+            query.setText(text != null ? text.trim() : null);
+            return Result.success(logSearchService.search(query, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            return Result.error("日志检索失败: " + e.getMessage());
+        }
+    }
+}
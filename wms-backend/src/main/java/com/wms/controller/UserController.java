@@ -4,8 +4,11 @@ import com.wms.annotation.Auditable;
 import com.wms.annotation.RequireAuth;
 import com.wms.annotation.RequireRole;
 import com.wms.common.Result;
+import com.wms.dto.UserSummary;
 import com.wms.entity.User;
 import com.wms.repository.UserRepository;
+import com.wms.service.TokenRevocationService;
+import com.wms.service.UserDirectoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
@@ -13,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,19 +27,22 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
     // 【安全加固】使用BCrypt密码编码器
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     /**
-     * 获取所有用户列表（仅管理员）
+     * 获取所有用户列表（仅管理员，来自用户目录，不含密码）
      */
     @GetMapping
     @RequireRole({"ADMIN"})
-    public Result<List<User>> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        // 隐藏密码
-        users.forEach(u -> u.setPassword("******"));
-        return Result.success(users);
+    public Result<List<UserSummary>> getAllUsers() {
+        return Result.success(userDirectoryService.getAll());
     }
 
     /**
@@ -44,11 +51,10 @@ public class UserController {
      */
     @GetMapping("/workers")
     public Result<List<Map<String, String>>> getWorkerList() {
-        List<User> users = userRepository.findAll();
-        List<Map<String, String>> workers = users.stream().map(u -> {
+        List<Map<String, String>> workers = userDirectoryService.getAll().stream().map(u -> {
             Map<String, String> worker = new HashMap<>();
             worker.put("username", u.getUsername());
-            worker.put("displayName", u.getRealName() != null ? u.getRealName() : u.getUsername());
+            worker.put("displayName", u.getDisplayName());
             return worker;
         }).collect(Collectors.toList());
         return Result.success(workers);
@@ -75,6 +81,7 @@ public class UserController {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
 
         User saved = userRepository.save(user);
+        userDirectoryService.put(saved);
         saved.setPassword("******");
         return Result.success(saved);
     }
@@ -88,6 +95,10 @@ public class UserController {
             return Result.error("用户不存在");
         }
 
+        // 角色变更或被禁用时，已签发的 Token 失效
+        boolean revoke = !Objects.equals(existing.getRole(), user.getRole())
+            || ("active".equals(existing.getStatus()) && !"active".equals(user.getStatus()));
+
         // 更新字段（不更新密码）
         existing.setRealName(user.getRealName());
         existing.setEmail(user.getEmail());
@@ -96,6 +107,10 @@ public class UserController {
         existing.setStatus(user.getStatus());
 
         User updated = userRepository.save(existing);
+        userDirectoryService.put(updated);
+        if (revoke) {
+            tokenRevocationService.revokeUser(updated.getUsername());
+        }
         updated.setPassword("******");
         return Result.success(updated);
     }
@@ -103,10 +118,13 @@ public class UserController {
     @DeleteMapping("/{id}")
     @RequireRole({"ADMIN"})
     public Result<Void> deleteUser(@PathVariable Long id) {
-        if (!userRepository.existsById(id)) {
+        User user = userRepository.findById(id).orElse(null);
+        if (user == null) {
             return Result.error("用户不存在");
         }
         userRepository.deleteById(id);
+        userDirectoryService.remove(id);
+        tokenRevocationService.revokeUser(user.getUsername());
         return Result.success();
     }
 
@@ -122,6 +140,8 @@ public class UserController {
         // 【安全加固】使用BCrypt加密密码
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        // 旧密码登录得到的 Token 一并失效
+        tokenRevocationService.revokeUser(user.getUsername());
         return Result.success();
     }
 
@@ -135,6 +155,11 @@ public class UserController {
 
         user.setStatus("active".equals(user.getStatus()) ? "inactive" : "active");
         userRepository.save(user);
+        userDirectoryService.put(user);
+        // 禁用后已签发的 Token 立即失效，不必等到过期
+        if (!"active".equals(user.getStatus())) {
+            tokenRevocationService.revokeUser(user.getUsername());
+        }
         return Result.success();
     }
 
@@ -151,8 +176,14 @@ public class UserController {
             return Result.error("角色必须是ADMIN、USER或operator");
         }
 
+        boolean changed = !role.equals(user.getRole());
         user.setRole(role);
         userRepository.save(user);
+        userDirectoryService.put(user);
+        // Token 中带有角色，角色变更后让用户重新登录
+        if (changed) {
+            tokenRevocationService.revokeUser(user.getUsername());
+        }
         return Result.success();
     }
 }
@@ -0,0 +1,106 @@
+package com.wms.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量装配可行性计算结果
+ * 所有请求基于同一份库存快照计算；共用零件按请求顺序分配，排在前面的请求优先。
+ */
+@Data
+public class AssemblyPlanResult {
+
+    private List<Line> lines = new ArrayList<>();
+
+    /**
+     * 被多个请求共用的库存
+     */
+    private List<SharedPart> sharedParts = new ArrayList<>();
+
+    /**
+     * 计算耗时（毫秒，含加载规则和库存）
+     */
+    private Long elapsedMs;
+
+    @Data
+    public static class Line {
+        private Long assemblyRuleId;
+        private String productName;
+        private String specification;
+        private String material;
+        private String connectionType;
+        private Integer quantity;
+
+        /**
+         * 单独装配时最多可装的数量（不考虑其它请求），规则没有零件时为空
+         */
+        private Integer maxBuildable;
+
+        /**
+         * 前面的请求分配共用零件后，本请求可装的数量（不超过 quantity）
+         */
+        private Integer allocated;
+
+        /**
+         * allocated 是否达到 quantity
+         */
+        private Boolean canAssemble;
+
+        /**
+         * 规则不存在、已禁用或数量无效时的原因
+         */
+        private String error;
+
+        private List<Part> parts = new ArrayList<>();
+        private List<String> insufficientParts = new ArrayList<>();
+    }
+
+    @Data
+    public static class Part {
+        private String componentName;
+
+        /**
+         * 匹配到的库存，没有匹配时为空
+         */
+        private Long inventoryId;
+
+        private Integer perUnit;
+        private Integer required;
+
+        /**
+         * 快照中的库存数量
+         */
+        private Integer available;
+
+        /**
+         * 前面的请求分配后剩余的数量
+         */
+        private Integer remaining;
+
+        private Boolean sufficient;
+    }
+
+    @Data
+    public static class SharedPart {
+        private Long inventoryId;
+        private String componentName;
+        private String specification;
+        private String material;
+        private String connectionType;
+        private Integer available;
+
+        /**
+         * 所有请求按申请数量的需求合计
+         */
+        private Long required;
+
+        private Long shortage;
+
+        /**
+         * 使用该库存的请求序号（从 0 开始）
+         */
+        private List<Integer> lines = new ArrayList<>();
+    }
+}
@@ -0,0 +1,53 @@
+package com.wms.dto;
+
+import com.wms.entity.AssemblyRule;
+import com.wms.entity.AssemblyRuleItem;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 规则注册表中的组装规则及其零件（不可变，与实体脱离）
+ */
+@Data
+public class AssemblyRuleView {
+
+    private final Long id;
+    private final String ruleName;
+    private final String productName;
+    private final String description;
+    private final String materialConstraint;
+    private final Boolean isEnabled;
+    private final LocalDateTime createdAt;
+    private final List<Item> items;
+
+    public AssemblyRuleView(AssemblyRule rule) {
+        this.id = rule.getId();
+        this.ruleName = rule.getRuleName();
+        this.productName = rule.getProductName();
+        this.description = rule.getDescription();
+        this.materialConstraint = rule.getMaterialConstraint();
+        this.isEnabled = rule.getIsEnabled();
+        this.createdAt = rule.getCreatedAt();
+        List<Item> list = new ArrayList<>();
+        if (rule.getItems() != null) {
+            for (AssemblyRuleItem item : rule.getItems()) {
+                list.add(new Item(item.getId(), item.getComponentName(), item.getQuantity(),
+                    item.getIsRequired(), item.getSortOrder()));
+            }
+        }
+        this.items = Collections.unmodifiableList(list);
+    }
+
+    @Data
+    public static class Item {
+        private final Long id;
+        private final String componentName;
+        private final Integer quantity;
+        private final Boolean isRequired;
+        private final Integer sortOrder;
+    }
+}
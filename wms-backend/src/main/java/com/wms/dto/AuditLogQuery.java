@@ -0,0 +1,44 @@
+package com.wms.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 操作日志查询条件
+ */
+@Data
+public class AuditLogQuery {
+
+    private String username;
+
+    private String module;
+
+    /**
+     * 操作名称包含的文本
+     */
+    private String action;
+
+    /**
+     * 时间范围 [from, to)，为空表示不限
+     */
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    /**
+     * 上一页返回的 nextCursor，为空表示第一页
+     */
+    private String cursor;
+
+    /**
+     * 兼容旧的页码分页（没有 cursor 时使用，深翻页较慢）
+     */
+    private int page;
+
+    private int size = 20;
+
+    /**
+     * 总数：none 不统计，estimate 按执行计划估算，exact 精确计数（均缓存一分钟）
+     */
+    private String count = "none";
+}
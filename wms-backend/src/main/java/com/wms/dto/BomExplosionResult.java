@@ -0,0 +1,78 @@
+package com.wms.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多级 BOM 展开结果
+ * 子装配件先用自身库存抵扣，不足的部分继续展开到下一层；末级零件的缺口可以按计件入库规则换算为毛坯需求。
+ */
+@Data
+public class BomExplosionResult {
+    private Long assemblyRuleId;
+    private String productName;
+    private String specification;
+    private String material;
+    private String connectionType;
+    private Integer quantity;
+
+    /**
+     * 末级零件库存是否足够
+     */
+    private Boolean canAssemble;
+
+    /**
+     * 按当前库存最多可装的数量（不含毛坯），规则没有零件时为空
+     */
+    private Integer maxBuildable;
+
+    /**
+     * 子装配件（父项在前）和末级零件
+     */
+    private List<Requirement> requirements = new ArrayList<>();
+
+    private List<String> insufficientParts = new ArrayList<>();
+
+    /**
+     * 补齐末级零件缺口需要的毛坯
+     */
+    private List<Blank> blanks = new ArrayList<>();
+
+    @Data
+    public static class Requirement {
+        private String componentName;
+
+        /**
+         * 是否为子装配件（另一条启用规则的产品）
+         */
+        private Boolean intermediate;
+
+        /**
+         * 不抵扣任何库存时的需求
+         */
+        private Long totalRequired;
+
+        /**
+         * 上层子装配件库存抵扣后的需求
+         */
+        private Long required;
+
+        private Integer available;
+
+        /**
+         * 库存不足的数量：子装配件为需要组装的数量，末级零件为缺口
+         */
+        private Long net;
+    }
+
+    @Data
+    public static class Blank {
+        private String blankProductName;
+        private List<String> parts = new ArrayList<>();
+        private Long required;
+        private Integer available;
+        private Long shortage;
+    }
+}
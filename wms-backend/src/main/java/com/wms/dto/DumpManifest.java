@@ -0,0 +1,93 @@
+package com.wms.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 数据库逻辑导出清单（manifest.json）
+ * 记录每张表的建表语句文件、数据分片文件、行数和校验值，恢复时据此并行加载和校验
+ */
+@Data
+public class DumpManifest {
+
+    /**
+     * 导出时间
+     */
+    private String createdAt;
+
+    /**
+     * 数据库产品名称（MySQL / H2 等）
+     */
+    private String databaseProduct;
+
+    /**
+     * 标识符引号字符
+     */
+    private String identifierQuote;
+
+    /**
+     * 字符串字面量是否使用反斜杠转义（MySQL 默认开启）
+     */
+    private Boolean backslashEscapes;
+
+    /**
+     * 是否为覆盖写入语句（增量导出）
+     */
+    private Boolean upsert;
+
+    /**
+     * 增量导出的起始水位（全量导出为空）
+     */
+    private String since;
+
+    /**
+     * 所有表是否在同一个一致性快照内导出
+     */
+    private Boolean consistentSnapshot;
+
+    /**
+     * 导出线程数
+     */
+    private Integer threads;
+
+    /**
+     * 导出耗时（毫秒）
+     */
+    private Long durationMs;
+
+    private List<TableDump> tables = new ArrayList<>();
+
+    @Data
+    public static class TableDump {
+        private String name;
+
+        /**
+         * 建表语句文件
+         */
+        private String schemaFile;
+
+        private Long rowCount = 0L;
+
+        /**
+         * 行校验和：每行 VALUES 元组文本 CRC32 之和，与行顺序无关
+         */
+        private Long rowChecksum = 0L;
+
+        private Long durationMs;
+
+        private List<ChunkFile> chunks = new ArrayList<>();
+    }
+
+    @Data
+    public static class ChunkFile {
+        private String file;
+        private Long rows;
+
+        /**
+         * 压缩文件的 SHA-256
+         */
+        private String sha256;
+    }
+}
@@ -0,0 +1,30 @@
+package com.wms.dto;
+
+import lombok.Data;
+
+/**
+ * 日志检索结果中的一条日志
+ */
+@Data
+public class LogHit {
+
+    /**
+     * 所在日志文件名和日志头部行在文件中的偏移
+     */
+    private String file;
+    private Long offset;
+
+    private String time;
+    private String level;
+    private String logger;
+
+    /**
+     * 日志全文（头部行和异常堆栈等续行）
+     */
+    private String message;
+
+    /**
+     * 续行过多被截断
+     */
+    private Boolean truncated = false;
+}
@@ -0,0 +1,43 @@
+package com.wms.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 应用日志查询条件
+ */
+@Data
+public class LogQuery {
+
+    /**
+     * 起止时间（含），为空表示不限
+     */
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    /**
+     * 最低级别在 LogLines.LEVELS 中的下标（如 WARN 表示 WARN 和 ERROR），默认不过滤
+     */
+    private int level = 4;
+
+    /**
+     * 日志记录器名称包含的文本（不区分大小写）
+     */
+    private String logger;
+
+    /**
+     * 日志内容（含异常堆栈）包含的文本（不区分大小写），仅日志检索使用
+     */
+    private String text;
+
+    /**
+     * 每个文件最多返回的行数（含异常堆栈行）
+     */
+    private int maxLines = 1000;
+
+    /**
+     * 全部文件合计最多返回的字节数（未压缩）
+     */
+    private long maxBytes = 16L * 1024 * 1024;
+}
@@ -0,0 +1,82 @@
+package com.wms.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 数据库恢复报告
+ * 记录各阶段耗时和每张表的行数、校验和比对结果
+ */
+@Data
+public class RestoreReport {
+
+    /**
+     * 恢复到的库/模式（为空表示当前库）
+     */
+    private String targetSchema;
+
+    /**
+     * 是否为演练（恢复到临时库，校验后删除）
+     */
+    private Boolean dryRun = false;
+
+    /**
+     * 恢复的备份链（从全量到最新增量）
+     */
+    private List<Long> chain = new ArrayList<>();
+
+    private Integer threads;
+
+    /**
+     * 所有表的行数、校验和是否都与清单一致
+     */
+    private Boolean verified;
+
+    private Long totalRows = 0L;
+
+    /**
+     * 建表耗时（毫秒）
+     */
+    private Long prepareMs = 0L;
+
+    /**
+     * 全量数据加载耗时
+     */
+    private Long loadMs = 0L;
+
+    /**
+     * 延后创建二级索引和外键的耗时
+     */
+    private Long indexMs = 0L;
+
+    /**
+     * 行数、校验和核对耗时
+     */
+    private Long verifyMs = 0L;
+
+    /**
+     * 重放增量备份耗时
+     */
+    private Long incrementalMs = 0L;
+
+    private Long durationMs = 0L;
+
+    private List<TableResult> tables = new ArrayList<>();
+
+    @Data
+    public static class TableResult {
+        private String name;
+        private Long expectedRows;
+        private Long actualRows;
+        private Long expectedChecksum;
+        private Long actualChecksum;
+        private Boolean verified;
+
+        /**
+         * 该表所有分片的加载耗时之和
+         */
+        private Long loadMs = 0L;
+    }
+}
@@ -0,0 +1,31 @@
+package com.wms.dto;
+
+import lombok.Data;
+
+/**
+ * 用户目录中的用户（不含密码、联系方式等字段，不可变）
+ */
+@Data
+public class UserSummary {
+
+    private final Long id;
+    private final String username;
+    private final String realName;
+    private final String role;
+    private final String status;
+
+    public boolean isAdmin() {
+        return "ADMIN".equals(role);
+    }
+
+    public boolean isActive() {
+        return "active".equals(status);
+    }
+
+    /**
+     * 显示名：没有真实姓名时用用户名
+     */
+    public String getDisplayName() {
+        return realName != null ? realName : username;
+    }
+}
@@ -24,7 +24,8 @@ public class BackupRecord {
     private String name;
     
     /**
-     * 备份类型: full(完整), database(数据库), files(文件), incremental(增量)
+     * 备份类型: full(完整), database(数据库), files(文件), snapshot(文件快照), incremental(增量文件快照),
+     * database-incremental(数据库增量)
      */
     @Column(nullable = false, length = 50)
     private String type;
@@ -36,10 +37,31 @@ public class BackupRecord {
     private String filePath;
     
     /**
-     * 文件大小（字节）
+     * 文件大小（字节），文件快照为本次新增块和清单的大小
      */
     private Long size;
     
+    /**
+     * 文件的 SHA-256（十六进制），用作下载的 ETag 和 Digest 头
+     */
+    @Column(length = 64)
+    private String sha256;
+    
+    /**
+     * 增量快照的基准备份ID（对比该备份的清单得出变化文件）
+     */
+    private Long baseBackupId;
+    
+    /**
+     * 数据库增量备份的上一个备份ID（恢复时沿此链回溯到全量备份）
+     */
+    private Long parentBackupId;
+    
+    /**
+     * 数据库水位：本次导出开始的时间，下一次增量备份导出此后变化的行
+     */
+    private LocalDateTime watermark;
+    
     /**
      * 状态: pending(等待), running(进行中), completed(完成), failed(失败)
      */
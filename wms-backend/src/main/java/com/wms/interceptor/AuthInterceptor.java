@@ -1,10 +1,9 @@
 package com.wms.interceptor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.wms.annotation.RequireAuth;
-import com.wms.annotation.RequireRole;
+import com.wms.common.AuthPrincipal;
 import com.wms.common.Result;
-import com.wms.util.JwtUtil;
+import com.wms.service.TokenVerificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
@@ -13,7 +12,6 @@ import org.springframework.web.servlet.HandlerInterceptor;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Arrays;
 
 /**
  * JWT认证拦截器
@@ -22,7 +20,10 @@ import java.util.Arrays;
 public class AuthInterceptor implements HandlerInterceptor {
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private TokenVerificationService tokenVerificationService;
+
+    @Autowired
+    private AuthPolicyRegistry authPolicyRegistry;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -38,18 +39,9 @@ public class AuthInterceptor implements HandlerInterceptor {
             return true;
         }
 
-        HandlerMethod handlerMethod = (HandlerMethod) handler;
-
-        // 检查方法或类上是否有@RequireAuth注解
-        RequireAuth methodAuth = handlerMethod.getMethodAnnotation(RequireAuth.class);
-        RequireAuth classAuth = handlerMethod.getBeanType().getAnnotation(RequireAuth.class);
-
-        // 如果没有@RequireAuth注解，或者value=false，则不需要认证
-        if (methodAuth == null && classAuth == null) {
-            return true;
-        }
-
-        if ((methodAuth != null && !methodAuth.value()) || (classAuth != null && !classAuth.value())) {
+        // 鉴权策略在启动时已编译好，这里只查表
+        AuthPolicy policy = authPolicyRegistry.policy((HandlerMethod) handler);
+        if (!policy.isAuthRequired()) {
             return true;
         }
 
@@ -64,33 +56,20 @@ public class AuthInterceptor implements HandlerInterceptor {
             token = token.substring(7);
         }
 
-        // 验证token
-        if (!jwtUtil.validateToken(token)) {
+        // 验证token（已验证过的 Token 直接取缓存的身份）
+        AuthPrincipal principal = tokenVerificationService.verify(token);
+        if (principal == null) {
             return unauthorized(response, "Token无效或已过期");
         }
 
-        // 获取用户信息
-        String username = jwtUtil.getUsernameFromToken(token);
-        String role = jwtUtil.getRoleFromToken(token);
-
-        if (username == null) {
-            return unauthorized(response, "Token解析失败");
-        }
-
-        // 将用户信息存入request，供Controller使用
-        request.setAttribute("username", username);
-        request.setAttribute("role", role);
+        // 将用户信息存入request，供Controller和审计切面使用
+        request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
+        request.setAttribute("username", principal.getUsername());
+        request.setAttribute("role", principal.getRole());
 
         // 检查角色权限
-        RequireRole methodRole = handlerMethod.getMethodAnnotation(RequireRole.class);
-        RequireRole classRole = handlerMethod.getBeanType().getAnnotation(RequireRole.class);
-
-        if (methodRole != null || classRole != null) {
-            String[] requiredRoles = methodRole != null ? methodRole.value() : classRole.value();
-            
-            if (role == null || !Arrays.asList(requiredRoles).contains(role)) {
-                return forbidden(response, "权限不足，需要角色: " + Arrays.toString(requiredRoles));
-            }
+        if (!policy.allows(principal.getRoleBit())) {
+            return forbidden(response, "权限不足，需要角色: " + policy.getRoles());
         }
 
         return true;
@@ -0,0 +1,61 @@
+package com.wms.interceptor;
+
+import com.wms.common.Role;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单个接口的鉴权策略（不可变）
+ * 由 @RequireAuth / @RequireRole 在启动时编译得到，方法上的注解优先于类上的注解。
+ */
+public final class AuthPolicy {
+
+    public static final AuthPolicy PUBLIC = new AuthPolicy(false, 0);
+
+    private final boolean authRequired;
+
+    /**
+     * 允许的角色位掩码，0 表示任何已登录用户
+     */
+    private final int roleMask;
+
+    private final List<String> roles;
+
+    public AuthPolicy(boolean authRequired, int roleMask) {
+        this.authRequired = authRequired;
+        this.roleMask = roleMask;
+        List<String> names = new ArrayList<>();
+        for (Role role : Role.values()) {
+            if ((roleMask & role.getBit()) != 0) {
+                names.add(role.getCode());
+            }
+        }
+        this.roles = Collections.unmodifiableList(names);
+    }
+
+    public boolean isAuthRequired() {
+        return authRequired;
+    }
+
+    public int getRoleMask() {
+        return roleMask;
+    }
+
+    /**
+     * 允许的角色名，为空表示不限角色
+     */
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    /**
+     * 角色是否满足要求
+     *
+     * @param roleBit 用户角色对应的位（见 {@link Role#getBit()}）
+     */
+    public boolean allows(int roleBit) {
+        return roleMask == 0 || (roleMask & roleBit) != 0;
+    }
+}
@@ -0,0 +1,118 @@
+package com.wms.interceptor;
+
+import com.wms.annotation.RequireAuth;
+import com.wms.annotation.RequireRole;
+import com.wms.common.Role;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * 鉴权策略表
+ * 启动时遍历所有请求映射，把每个处理方法的 @RequireAuth / @RequireRole 编译成 {@link AuthPolicy}，
+ * 请求时只需按处理方法查一次表。注解中出现未知角色名会让启动失败；
+ * 只写了 @RequireRole 而不需要登录的接口（角色限制不会生效）在启动时给出警告。
+ */
+@Component
+public class AuthPolicyRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthPolicyRegistry.class);
+
+    /**
+     * 处理方法 -> 策略（请求时的 HandlerMethod 是按请求解析过 bean 的新实例，因此以 Method 为键）
+     */
+    private volatile Map<Method, AuthPolicy> policies = Collections.emptyMap();
+
+    private volatile List<Map<String, Object>> routes = Collections.emptyList();
+
+    /**
+     * 上下文刷新后编译（请求映射在此之前已注册完毕；拦截器参与创建映射，因此不能直接注入映射 bean）
+     */
+    @EventListener
+    public void compile(ContextRefreshedEvent event) {
+        RequestMappingHandlerMapping handlerMapping = event.getApplicationContext()
+            .getBean("requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        Map<Method, AuthPolicy> compiled = new HashMap<>();
+        List<Map<String, Object>> described = new ArrayList<>();
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> entry : handlerMapping.getHandlerMethods().entrySet()) {
+            HandlerMethod handlerMethod = entry.getValue();
+            AuthPolicy policy = compile(handlerMethod);
+            compiled.put(handlerMethod.getMethod(), policy);
+            described.add(describe(entry.getKey(), handlerMethod, policy));
+        }
+        described.sort(Comparator.comparing(route -> route.get("patterns").toString()));
+        policies = Collections.unmodifiableMap(compiled);
+        routes = Collections.unmodifiableList(described);
+        logger.info("鉴权策略表已编译: {} 个接口", compiled.size());
+    }
+
+    /**
+     * 处理方法的鉴权策略；不在表中的处理方法（如运行时动态注册的）现场编译
+     */
+    public AuthPolicy policy(HandlerMethod handlerMethod) {
+        AuthPolicy policy = policies.get(handlerMethod.getMethod());
+        return policy != null ? policy : compile(handlerMethod);
+    }
+
+    /**
+     * 所有接口的鉴权策略，供管理端查看
+     */
+    public List<Map<String, Object>> getRoutes() {
+        return routes;
+    }
+
+    static AuthPolicy compile(HandlerMethod handlerMethod) {
+        RequireAuth methodAuth = handlerMethod.getMethodAnnotation(RequireAuth.class);
+        RequireAuth classAuth = handlerMethod.getBeanType().getAnnotation(RequireAuth.class);
+        RequireRole methodRole = handlerMethod.getMethodAnnotation(RequireRole.class);
+        RequireRole classRole = handlerMethod.getBeanType().getAnnotation(RequireRole.class);
+        RequireRole requireRole = methodRole != null ? methodRole : classRole;
+
+        // 没有 @RequireAuth，或方法/类上任一处为 false 时不需要登录
+        boolean authRequired = (methodAuth != null || classAuth != null)
+            && (methodAuth == null || methodAuth.value()) && (classAuth == null || classAuth.value());
+        if (!authRequired) {
+            if (requireRole != null) {
+                logger.warn("接口 {} 声明了 @RequireRole 但不需要登录，角色限制不会生效", handlerMethod.getShortLogMessage());
+            }
+            return AuthPolicy.PUBLIC;
+        }
+
+        int mask = 0;
+        if (requireRole != null) {
+            for (String name : requireRole.value()) {
+                Role role = Role.of(name);
+                if (role == null) {
+                    throw new IllegalStateException("接口 " + handlerMethod.getShortLogMessage() + " 的 @RequireRole 包含未知角色: " + name);
+                }
+                mask |= role.getBit();
+            }
+        }
+        return new AuthPolicy(true, mask);
+    }
+
+    private static Map<String, Object> describe(RequestMappingInfo info, HandlerMethod handlerMethod, AuthPolicy policy) {
+        Map<String, Object> route = new LinkedHashMap<>();
+        route.put("patterns", new TreeSet<>(info.getPatternValues()));
+        route.put("methods", info.getMethodsCondition().getMethods());
+        route.put("handler", handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName());
+        route.put("authRequired", policy.isAuthRequired());
+        route.put("roles", policy.getRoles());
+        return route;
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 备份记录数据访问接口
@@ -33,6 +34,16 @@ public interface BackupRecordRepository extends JpaRepository<BackupRecord, Long
      */
     List<BackupRecord> findByCreatedAtBefore(LocalDateTime dateTime);
     
+    /**
+     * 查询最近一个带数据库水位的备份（增量备份的上一个备份）
+     */
+    Optional<BackupRecord> findFirstByStatusAndWatermarkIsNotNullOrderByWatermarkDesc(String status);
+    
+    /**
+     * 查询引用指定备份作为上一个备份的记录
+     */
+    List<BackupRecord> findByParentBackupId(Long parentBackupId);
+    
     /**
      * 查询自动备份
      */
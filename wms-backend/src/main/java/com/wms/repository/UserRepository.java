@@ -1,12 +1,21 @@
 package com.wms.repository;
 
+import com.wms.dto.UserSummary;
 import com.wms.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    /**
+     * 所有用户的摘要（只查询目录需要的列，不加载密码）
+     */
+    @Query("SELECT new com.wms.dto.UserSummary(u.id, u.username, u.realName, u.role, u.status) FROM User u ORDER BY u.id")
+    List<UserSummary> findAllSummaries();
 }
@@ -1,15 +1,20 @@
 package com.wms.scheduled;
 
+import com.wms.service.BackupExecutionService;
 import com.wms.service.BackupService;
+import com.wms.service.DatabaseBackupService;
+import com.wms.service.FileSnapshotService;
 import com.wms.dto.BackupScheduleConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 /**
  * 定时备份任务
+ * 任务交给备份专用线程执行，不占用定时任务线程；已有备份任务在运行时排队，等其结束后再执行，不会叠加运行也不会丢失
  */
 @Component
 public class BackupScheduledTask {
@@ -19,12 +24,37 @@ public class BackupScheduledTask {
     @Autowired
     private BackupService backupService;
     
+    @Autowired
+    private FileSnapshotService fileSnapshotService;
+    
+    @Autowired
+    private DatabaseBackupService databaseBackupService;
+    
+    @Autowired
+    private BackupExecutionService backupExecutionService;
+    
+    /**
+     * 文件部分是否使用增量快照（关闭时仍整体打包前后端目录）
+     */
+    @Value("${backup.files.incremental:true}")
+    private boolean incrementalFiles;
+    
+    /**
+     * 数据库部分是否按水位做增量备份（每周仍做一次全量）
+     */
+    @Value("${backup.database.incremental:true}")
+    private boolean incrementalDatabase;
+    
     /**
      * 每天凌晨2点执行自动备份
      * cron表达式: 秒 分 时 日 月 周
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void executeScheduledBackup() {
+        submit("定时备份", this::runScheduledBackup);
+    }
+    
+    private void runScheduledBackup() {
         try {
             logger.info("开始执行定时备份任务");
             
@@ -38,11 +68,31 @@ public class BackupScheduledTask {
             }
             
             // 执行备份
-            backupService.createBackup(
-                config.getIncludeDatabase(),
-                config.getIncludeFiles(),
-                "自动备份 - " + java.time.LocalDateTime.now()
-            );
+            String description = "自动备份 - " + java.time.LocalDateTime.now();
+            boolean filesIncremental = incrementalFiles && config.getIncludeFiles();
+            boolean databaseIncremental = incrementalDatabase && config.getIncludeDatabase();
+            if (filesIncremental || databaseIncremental) {
+                if (config.getIncludeDatabase()) {
+                    if (databaseIncremental) {
+                        databaseBackupService.createIncrementalBackup(description);
+                    } else {
+                        backupService.createBackup(true, false, description);
+                    }
+                }
+                if (config.getIncludeFiles()) {
+                    if (filesIncremental) {
+                        fileSnapshotService.createSnapshot(false, description);
+                    } else {
+                        backupService.createBackup(false, true, description);
+                    }
+                }
+            } else {
+                backupService.createBackup(
+                    config.getIncludeDatabase(),
+                    config.getIncludeFiles(),
+                    description
+                );
+            }
             
             logger.info("定时备份任务完成");
             
@@ -62,14 +112,26 @@ public class BackupScheduledTask {
      */
     @Scheduled(cron = "0 0 3 ? * SUN")
     public void executeWeeklyFullBackup() {
+        submit("每周完整备份", this::runWeeklyFullBackup);
+    }
+    
+    private void runWeeklyFullBackup() {
         try {
             logger.info("开始执行每周完整备份");
             
-            backupService.createBackup(
-                true, // 包含数据库
-                true, // 包含文件
-                "每周完整备份 - " + java.time.LocalDateTime.now()
-            );
+            String description = "每周完整备份 - " + java.time.LocalDateTime.now();
+            if (incrementalFiles) {
+                // 文件部分做一次全量快照，重新校验所有文件内容，作为之后增量快照的基准
+                // 数据库全量备份同时成为之后增量备份链的起点
+                backupService.createBackup(true, false, description);
+                fileSnapshotService.createSnapshot(true, description);
+            } else {
+                backupService.createBackup(
+                    true, // 包含数据库
+                    true, // 包含文件
+                    description
+                );
+            }
             
             logger.info("每周完整备份任务完成");
             
@@ -83,6 +145,10 @@ public class BackupScheduledTask {
      */
     @Scheduled(cron = "0 0 4 * * ?")
     public void cleanupOldBackups() {
+        submit("清理过期备份", this::runCleanup);
+    }
+    
+    private void runCleanup() {
         try {
             logger.info("开始清理过期备份");
             
@@ -94,4 +160,8 @@ public class BackupScheduledTask {
             logger.error("清理过期备份失败", e);
         }
     }
+    
+    private void submit(String task, Runnable action) {
+        backupExecutionService.submitOrQueue(task, action);
+    }
 }
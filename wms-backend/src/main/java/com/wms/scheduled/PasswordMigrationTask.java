@@ -0,0 +1,59 @@
+package com.wms.scheduled;
+
+import com.wms.service.PasswordHashService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 明文密码迁移任务
+ * 旧数据中的明文密码在启动后和每天凌晨统一改为 BCrypt 哈希，不再在登录请求中迁移。
+ * 更新时带上原密码作为条件，迁移期间用户自己修改过的密码不会被覆盖。
+ */
+@Component
+public class PasswordMigrationTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordMigrationTask.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordHashService passwordHashService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        migrate();
+    }
+
+    @Scheduled(cron = "0 15 4 * * ?")
+    public void migrate() {
+        try {
+            List<Map<String, Object>> users = jdbcTemplate.queryForList(
+                "SELECT id, password FROM users WHERE password NOT LIKE '$2a$%' "
+                    + "AND password NOT LIKE '$2b$%' AND password NOT LIKE '$2y$%'");
+            int migrated = 0;
+            for (Map<String, Object> user : users) {
+                String plain = (String) user.get("password");
+                if (plain == null || PasswordHashService.isHashed(plain)) {
+                    continue;
+                }
+                migrated += jdbcTemplate.update("UPDATE users SET password = ? WHERE id = ? AND password = ?",
+                    passwordHashService.encode(plain), user.get("id"), plain);
+            }
+            if (migrated > 0) {
+                logger.info("已将 {} 个用户的明文密码迁移为 BCrypt", migrated);
+            }
+        } catch (Exception e) {
+            logger.error("明文密码迁移失败", e);
+        }
+    }
+}
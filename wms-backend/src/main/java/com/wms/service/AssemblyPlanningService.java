@@ -0,0 +1,181 @@
+package com.wms.service;
+
+import com.wms.common.BusinessException;
+import com.wms.dto.AssemblyCheckRequest;
+import com.wms.dto.AssemblyPlanResult;
+import com.wms.dto.AssemblyRuleView;
+import com.wms.entity.InventoryItem;
+import com.wms.repository.InventoryItemRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量装配可行性计算
+ * 规则取自规则注册表，只加载一份库存快照，对多个（规则、规格、材质、连接类型、数量）请求计算每个零件的库存情况、
+ * 单独装配时的最大可装数量，以及按请求顺序分配共用零件后各请求实际可装的数量。
+ * 只读计算，不锁库存：结果是计划参考，实际装配时仍以扣减时的库存为准。
+ */
+@Service
+public class AssemblyPlanningService {
+
+    private static final int MAX_REQUESTS = 500;
+
+    @Autowired
+    private AssemblyRuleRegistry ruleRegistry;
+
+    @Autowired
+    private InventoryItemRepository inventoryRepository;
+
+    @Transactional(readOnly = true)
+    public AssemblyPlanResult plan(List<AssemblyCheckRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new BusinessException("请求不能为空");
+        }
+        if (requests.size() > MAX_REQUESTS) {
+            throw new BusinessException("一次最多计算 " + MAX_REQUESTS + " 个装配请求");
+        }
+        long start = System.nanoTime();
+
+        InventorySnapshot snapshot = new InventorySnapshot(inventoryRepository.findAll());
+
+        // 库存 id -> 前面的请求分配后剩余数量
+        Map<Long, Long> remaining = new HashMap<>();
+        Map<Long, AssemblyPlanResult.SharedPart> usage = new LinkedHashMap<>();
+
+        AssemblyPlanResult result = new AssemblyPlanResult();
+        for (int index = 0; index < requests.size(); index++) {
+            AssemblyCheckRequest request = requests.get(index);
+            AssemblyPlanResult.Line line = evaluate(index, request, snapshot, remaining, usage);
+            result.getLines().add(line);
+        }
+
+        for (AssemblyPlanResult.SharedPart part : usage.values()) {
+            if (part.getLines().size() > 1) {
+                part.setShortage(Math.max(0, part.getRequired() - part.getAvailable()));
+                result.getSharedParts().add(part);
+            }
+        }
+        result.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private AssemblyPlanResult.Line evaluate(int index, AssemblyCheckRequest request, InventorySnapshot snapshot, Map<Long, Long> remaining,
+                                             Map<Long, AssemblyPlanResult.SharedPart> usage) {
+        AssemblyPlanResult.Line line = new AssemblyPlanResult.Line();
+        line.setCanAssemble(false);
+        line.setMaxBuildable(0);
+        line.setAllocated(0);
+        if (request == null) {
+            line.setError("请求不能为空");
+            return line;
+        }
+        line.setAssemblyRuleId(request.getAssemblyRuleId());
+        line.setSpecification(request.getSpecification());
+        line.setMaterial(request.getMaterial());
+        line.setConnectionType(request.getConnectionType());
+        line.setQuantity(request.getQuantity());
+
+        AssemblyRuleView rule = ruleRegistry.findById(request.getAssemblyRuleId());
+        if (rule == null) {
+            line.setError("组装规则不存在");
+            return line;
+        }
+        line.setProductName(rule.getProductName());
+        if (!Boolean.TRUE.equals(rule.getIsEnabled())) {
+            line.setError("组装规则已禁用");
+            return line;
+        }
+        if (request.getQuantity() == null || request.getQuantity() <= 0) {
+            line.setError("数量必须大于0");
+            return line;
+        }
+        long quantity = request.getQuantity();
+
+        // 同一库存可能被规则中的多个零件匹配到，按库存合并每件用量
+        Map<Long, Long> perUnitByInventory = new LinkedHashMap<>();
+        Map<Long, InventoryItem> matched = new HashMap<>();
+        boolean missing = false;
+        for (AssemblyRuleView.Item item : rule.getItems()) {
+            int perUnit = item.getQuantity() == null ? 1 : item.getQuantity();
+            if (perUnit <= 0) {
+                continue;
+            }
+            AssemblyPlanResult.Part part = new AssemblyPlanResult.Part();
+            part.setComponentName(item.getComponentName());
+            part.setPerUnit(perUnit);
+            part.setRequired(clamp(perUnit * quantity));
+
+            InventoryItem inventory = snapshot.match(item.getComponentName(),
+                request.getSpecification(), request.getMaterial(), request.getConnectionType());
+            if (inventory == null) {
+                missing = true;
+                part.setAvailable(0);
+                part.setRemaining(0);
+            } else {
+                part.setInventoryId(inventory.getId());
+                part.setAvailable(InventorySnapshot.quantityOf(inventory));
+                part.setRemaining(clamp(remaining.computeIfAbsent(inventory.getId(),
+                    id -> (long) InventorySnapshot.quantityOf(inventory))));
+                perUnitByInventory.merge(inventory.getId(), (long) perUnit, Long::sum);
+                matched.put(inventory.getId(), inventory);
+            }
+            line.getParts().add(part);
+        }
+
+        long maxBuildable = missing ? 0 : Integer.MAX_VALUE;
+        long allocatable = maxBuildable;
+        for (Map.Entry<Long, Long> entry : perUnitByInventory.entrySet()) {
+            long perUnit = entry.getValue();
+            maxBuildable = Math.min(maxBuildable, InventorySnapshot.quantityOf(matched.get(entry.getKey())) / perUnit);
+            allocatable = Math.min(allocatable, remaining.get(entry.getKey()) / perUnit);
+        }
+        long allocated = Math.min(quantity, allocatable);
+
+        for (AssemblyPlanResult.Part part : line.getParts()) {
+            Long inventoryId = part.getInventoryId();
+            boolean sufficient = inventoryId != null
+                && remaining.get(inventoryId) >= perUnitByInventory.get(inventoryId) * quantity;
+            part.setSufficient(sufficient);
+            if (!sufficient) {
+                line.getInsufficientParts().add(part.getComponentName());
+            }
+        }
+
+        for (Map.Entry<Long, Long> entry : perUnitByInventory.entrySet()) {
+            Long inventoryId = entry.getKey();
+            remaining.merge(inventoryId, -allocated * entry.getValue(), Long::sum);
+
+            InventoryItem inventory = matched.get(inventoryId);
+            AssemblyPlanResult.SharedPart shared = usage.computeIfAbsent(inventoryId, id -> {
+                AssemblyPlanResult.SharedPart part = new AssemblyPlanResult.SharedPart();
+                part.setInventoryId(id);
+                part.setComponentName(inventory.getProductName());
+                part.setSpecification(inventory.getSpecification());
+                part.setMaterial(inventory.getMaterial());
+                part.setConnectionType(inventory.getConnectionType());
+                part.setAvailable(InventorySnapshot.quantityOf(inventory));
+                part.setRequired(0L);
+                return part;
+            });
+            shared.setRequired(shared.getRequired() + entry.getValue() * quantity);
+            shared.getLines().add(index);
+        }
+
+        // 规则没有零件时不受库存限制
+        line.setMaxBuildable(missing || !perUnitByInventory.isEmpty() ? clamp(maxBuildable) : null);
+        line.setAllocated(clamp(allocated));
+        line.setCanAssemble(allocated >= quantity);
+        return line;
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, value));
+    }
+}
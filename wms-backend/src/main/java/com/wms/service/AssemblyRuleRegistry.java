@@ -0,0 +1,138 @@
+package com.wms.service;
+
+import com.wms.dto.AssemblyRuleView;
+import com.wms.entity.AssemblyRule;
+import com.wms.repository.AssemblyRuleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 组装规则注册表
+ * 在内存中保存所有组装规则及零件的不可变快照，带版本号；装配、装配检查、批量计划、BOM 展开和规则列表都从快照读取，
+ * 不再每次按 id 查询规则并 EAGER 加载零件。
+ * 本节点新增、修改、删除、启停规则后整体替换快照（写时复制），其它节点的修改由定时全量刷新同步；
+ * 内容没有变化的刷新不增加版本号，规则列表的 ETag 由版本号和内容摘要组成。
+ */
+@Service
+public class AssemblyRuleRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssemblyRuleRegistry.class);
+
+    @Autowired
+    private AssemblyRuleRepository ruleRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(0, Collections.emptyList());
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("加载组装规则失败，将在下次刷新时重试", e);
+        }
+    }
+
+    /**
+     * 从数据库全量刷新
+     */
+    @Scheduled(fixedDelayString = "${assembly.rules.refresh-ms:60000}")
+    public synchronized void reload() {
+        List<AssemblyRuleView> rules = ruleRepository.findAll().stream()
+            .map(AssemblyRuleView::new)
+            .collect(Collectors.toList());
+        replace(rules);
+    }
+
+    /**
+     * 规则新增、修改或启停后更新快照
+     */
+    public synchronized void put(AssemblyRule rule) {
+        Map<Long, AssemblyRuleView> rules = new HashMap<>(snapshot.byId);
+        rules.put(rule.getId(), new AssemblyRuleView(rule));
+        replace(rules.values());
+    }
+
+    /**
+     * 规则删除后更新快照
+     */
+    public synchronized void remove(Long id) {
+        if (!snapshot.byId.containsKey(id)) {
+            return;
+        }
+        Map<Long, AssemblyRuleView> rules = new HashMap<>(snapshot.byId);
+        rules.remove(id);
+        replace(rules.values());
+    }
+
+    private void replace(Collection<AssemblyRuleView> rules) {
+        Snapshot current = snapshot;
+        Snapshot next = new Snapshot(current.version + 1, rules);
+        if (current.version > 0 && next.fingerprint == current.fingerprint && next.all.equals(current.all)) {
+            return;
+        }
+        snapshot = next;
+        logger.debug("组装规则快照已更新: 版本 {}，{} 条规则", next.version, next.all.size());
+    }
+
+    /**
+     * 快照版本号，规则内容每变化一次加一
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * 规则列表的 ETag：版本号和内容摘要（不同节点的版本号可能相同，内容摘要避免误判未修改）
+     */
+    public String getETag() {
+        Snapshot current = snapshot;
+        return "\"" + current.version + "-" + Integer.toHexString(current.fingerprint) + "\"";
+    }
+
+    /**
+     * 所有规则（含禁用的，按 id 排序）
+     */
+    public List<AssemblyRuleView> getAll() {
+        return snapshot.all;
+    }
+
+    /**
+     * 按 id 查找规则，不存在时返回 null
+     */
+    public AssemblyRuleView findById(Long id) {
+        return id == null ? null : snapshot.byId.get(id);
+    }
+
+    private static final class Snapshot {
+        final long version;
+        final List<AssemblyRuleView> all;
+        final Map<Long, AssemblyRuleView> byId;
+        final int fingerprint;
+
+        Snapshot(long version, Collection<AssemblyRuleView> rules) {
+            List<AssemblyRuleView> sorted = new ArrayList<>(rules);
+            sorted.sort(Comparator.comparing(AssemblyRuleView::getId));
+            Map<Long, AssemblyRuleView> ids = new HashMap<>();
+            for (AssemblyRuleView rule : sorted) {
+                ids.put(rule.getId(), rule);
+            }
+            this.version = version;
+            this.all = Collections.unmodifiableList(sorted);
+            this.byId = Collections.unmodifiableMap(ids);
+            this.fingerprint = sorted.hashCode();
+        }
+    }
+}
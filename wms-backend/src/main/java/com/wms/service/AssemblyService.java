@@ -3,25 +3,40 @@ package com.wms.service;
 import com.wms.common.BusinessException;
 import com.wms.dto.AssemblyCheckRequest;
 import com.wms.dto.AssemblyCheckResult;
+import com.wms.dto.AssemblyRuleView;
 import com.wms.entity.*;
 import com.wms.repository.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class AssemblyService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AssemblyService.class);
+
     @Autowired
     private AssemblyRecordRepository recordRepository;
 
     @Autowired
-    private AssemblyRuleRepository ruleRepository;
+    private AssemblyRuleRegistry ruleRegistry;
 
     @Autowired
     private InventoryItemRepository inventoryRepository;
@@ -32,69 +47,35 @@ public class AssemblyService {
     @Autowired
     private AssemblyDefectRepository defectRepository;
 
-    private boolean isBlank(String s) {
-        return s == null || s.trim().isEmpty();
-    }
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
-    private boolean equalsOrBlankEquals(String a, String b) {
-        if (isBlank(a) && isBlank(b)) return true;
-        if (a == null || b == null) return false;
-        return a.equals(b);
-    }
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-    private boolean nameMatches(String invName, String partName) {
-        if (isBlank(invName) || isBlank(partName)) return false;
-        return invName.equals(partName);
-    }
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BACKOFF_MS = 50;
 
-    private boolean isZhongTouGaiPart(String partName) {
-        return !isBlank(partName) && partName.contains("中头盖");
-    }
+    private TransactionTemplate transactionTemplate;
 
-    private boolean connectionTypeMatches(String invCt, String reqCt, String partName) {
-        // 需求没填连接类型：不约束
-        if (isBlank(reqCt)) return true;
-        // 仅“中头盖”类零件允许库存连接类型为空（兼容历史库存不填螺纹）
-        if (isBlank(invCt)) return isZhongTouGaiPart(partName);
-        return invCt.equals(reqCt);
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    private InventoryItem findMatchingInventoryItem(String componentName, String specification, String material, String connectionType) {
-        List<InventoryItem> candidates = inventoryRepository.findAll();
-        InventoryItem best = null;
-        int bestScore = -1;
-
-        for (InventoryItem inv : candidates) {
-            if (inv == null) continue;
-            if (!nameMatches(inv.getProductName(), componentName)) continue;
-            if (!equalsOrBlankEquals(inv.getSpecification(), specification)) continue;
-            if (!equalsOrBlankEquals(inv.getMaterial(), material)) continue;
-            if (!connectionTypeMatches(inv.getConnectionType(), connectionType, componentName)) continue;
-
-            int score = 0;
-            if (inv.getProductName() != null && inv.getProductName().equals(componentName)) score += 10;
-            if (equalsOrBlankEquals(inv.getConnectionType(), connectionType)) {
-                score += 2;
-            } else if (isBlank(inv.getConnectionType()) && isZhongTouGaiPart(componentName)) {
-                // 中头盖允许库存 connectionType 为空匹配，但优先级略低于完全匹配
-                score += 1;
-            }
-            int qty = inv.getQuantity() == null ? 0 : inv.getQuantity();
-            score += Math.min(qty, 1000);
-
-            if (score > bestScore) {
-                bestScore = score;
-                best = inv;
-            }
-        }
-
-        return best;
+    /**
+     * 当前库存快照（按品名索引，每次装配/检查只查询一次库存表）
+     */
+    private InventorySnapshot inventorySnapshot() {
+        return new InventorySnapshot(inventoryRepository.findAll());
     }
 
     /**
      * 执行装配：扣减零件、保存记录、记录废品、成品入库
+     * 先把规则中的零件解析为库存记录并按库存 id 合并需要的数量，再用一条带库存条件的 UPDATE 按 id 顺序扣减全部零件：
+     * 行锁总是按同一顺序获取，共用零件的并发装配不会互相死锁；任一零件库存不足时整条语句不满足条件，事务回滚，不会扣成负数。
+     * 偶发的锁等待超时/死锁在短暂退避后重试，最多 {@link #MAX_ATTEMPTS} 次。
      */
-    @Transactional
     public AssemblyRecord executeAssembly(AssemblyRecord record) {
         System.out.println("=== 开始装配 ===");
         System.out.println("产品: " + record.getProductName());
@@ -106,20 +87,48 @@ public class AssemblyService {
             throw new RuntimeException("组装规则ID不能为空");
         }
         
-        // 验证组装规则存在
-        AssemblyRule rule = ruleRepository.findById(record.getAssemblyRuleId()).orElse(null);
-        if (rule == null || !rule.getIsEnabled()) {
+        // 验证组装规则存在（取自规则注册表，不查询数据库）
+        AssemblyRuleView rule = ruleRegistry.findById(record.getAssemblyRuleId());
+        if (rule == null || !Boolean.TRUE.equals(rule.getIsEnabled())) {
             throw new RuntimeException("组装规则不存在或已禁用");
         }
 
+        for (int attempt = 1; ; attempt++) {
+            // 上一次尝试回滚后，记录上可能残留已分配的 id
+            record.setId(null);
+            try {
+                return transactionTemplate.execute(status -> doExecuteAssembly(record, rule));
+            } catch (StockShortageException e) {
+                throw new RuntimeException(shortageMessage(e.demand, e.names));
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new RuntimeException("库存正在被其它装配占用，请稍后重试");
+                }
+                long backoff = BACKOFF_MS << (attempt - 1);
+                logger.warn("扣减库存锁冲突，{}ms 后第 {} 次尝试: {}", backoff, attempt + 1, e.getMessage());
+                try {
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("装配被中断");
+                }
+            }
+        }
+    }
+
+    private AssemblyRecord doExecuteAssembly(AssemblyRecord record, AssemblyRuleView rule) {
         // 扣减零件库存
-        if (rule.getItems() != null && !rule.getItems().isEmpty()) {
+        if (!rule.getItems().isEmpty()) {
             System.out.println("=== 扣减零件库存 ===");
-            for (AssemblyRuleItem item : rule.getItems()) {
+            InventorySnapshot snapshot = inventorySnapshot();
+            // 库存 id（升序，即加锁顺序）-> 需要数量
+            Map<Long, Integer> demand = new TreeMap<>();
+            Map<Long, String> names = new HashMap<>();
+            for (AssemblyRuleView.Item item : rule.getItems()) {
                 int requiredQty = item.getQuantity() * record.getQuantity();
                 System.out.println("零件: " + item.getComponentName() + ", 需要: " + requiredQty);
 
-                InventoryItem inventory = findMatchingInventoryItem(
+                InventoryItem inventory = snapshot.match(
                     item.getComponentName(),
                     record.getSpecification(),
                     record.getMaterial(),
@@ -129,19 +138,14 @@ public class AssemblyService {
                 if (inventory == null) {
                     throw new RuntimeException("零件库存不存在: " + item.getComponentName());
                 }
-                
-                // 检查库存是否充足
-                if (inventory.getQuantity() < requiredQty) {
-                    throw new RuntimeException("零件库存不足: " + item.getComponentName() + 
-                        " (需要: " + requiredQty + ", 库存: " + inventory.getQuantity() + ")");
-                }
-                
-                // 扣减库存
-                int newQty = inventory.getQuantity() - requiredQty;
-                inventory.setQuantity(newQty);
-                inventoryRepository.save(inventory);
-                System.out.println("✓ 已扣减: " + item.getComponentName() + ", 剩余: " + newQty);
+                demand.merge(inventory.getId(), requiredQty, Integer::sum);
+                names.merge(inventory.getId(), item.getComponentName(), (a, b) -> a + "/" + b);
             }
+
+            if (deductInventory(demand) != demand.size()) {
+                throw new StockShortageException(demand, names);
+            }
+            logger.debug("已扣减 {} 种零件: {}", demand.size(), demand);
         }
 
         // 保存装配记录
@@ -186,6 +190,64 @@ public class AssemblyService {
         return savedRecord;
     }
 
+    /**
+     * 按 id 顺序一次扣减多种零件，只扣减库存充足的行
+     *
+     * @return 满足条件的行数，小于零件种数表示有零件库存不足（调用方回滚事务）
+     */
+    private int deductInventory(Map<Long, Integer> demand) {
+        StringBuilder cases = new StringBuilder("CASE id");
+        List<Object> caseArgs = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : demand.entrySet()) {
+            cases.append(" WHEN ? THEN ?");
+            caseArgs.add(entry.getKey());
+            caseArgs.add(entry.getValue());
+        }
+        cases.append(" END");
+        String placeholders = String.join(", ", Collections.nCopies(demand.size(), "?"));
+
+        List<Object> args = new ArrayList<>(caseArgs);
+        args.add(Timestamp.valueOf(LocalDateTime.now()));
+        args.addAll(demand.keySet());
+        args.addAll(caseArgs);
+        return jdbcTemplate.update("UPDATE inventory_items SET quantity = quantity - " + cases + ", updated_time = ? "
+            + "WHERE id IN (" + placeholders + ") AND quantity >= " + cases + " ORDER BY id", args.toArray());
+    }
+
+    /**
+     * 事务回滚后读取当前库存，生成库存不足的提示
+     */
+    private String shortageMessage(Map<Long, Integer> demand, Map<Long, String> names) {
+        String placeholders = String.join(", ", Collections.nCopies(demand.size(), "?"));
+        Map<Long, Integer> current = new HashMap<>();
+        jdbcTemplate.query("SELECT id, quantity FROM inventory_items WHERE id IN (" + placeholders + ")",
+            rs -> {
+                current.put(rs.getLong("id"), rs.getInt("quantity"));
+            }, demand.keySet().toArray());
+        for (Map.Entry<Long, Integer> entry : demand.entrySet()) {
+            int stock = current.getOrDefault(entry.getKey(), 0);
+            if (stock < entry.getValue()) {
+                return "零件库存不足: " + names.get(entry.getKey()) +
+                    " (需要: " + entry.getValue() + ", 库存: " + stock + ")";
+            }
+        }
+        return "零件库存不足，请刷新库存后重试";
+    }
+
+    /**
+     * 有零件库存不足，用于回滚扣减事务
+     */
+    private static class StockShortageException extends RuntimeException {
+        private final Map<Long, Integer> demand;
+        private final Map<Long, String> names;
+
+        StockShortageException(Map<Long, Integer> demand, Map<Long, String> names) {
+            super("零件库存不足", null, false, false);
+            this.demand = demand;
+            this.names = names;
+        }
+    }
+
     public AssemblyCheckResult checkAssembly(AssemblyCheckRequest request) {
         if (request == null) {
             throw new BusinessException("请求不能为空");
@@ -197,7 +259,7 @@ public class AssemblyService {
             throw new BusinessException("数量必须大于0");
         }
 
-        AssemblyRule rule = ruleRepository.findById(request.getAssemblyRuleId()).orElse(null);
+        AssemblyRuleView rule = ruleRegistry.findById(request.getAssemblyRuleId());
         if (rule == null) {
             throw new BusinessException("组装规则不存在");
         }
@@ -210,11 +272,12 @@ public class AssemblyService {
         result.setParts(new ArrayList<>());
         result.setInsufficientParts(new ArrayList<>());
 
-        if (rule.getItems() == null || rule.getItems().isEmpty()) {
+        if (rule.getItems().isEmpty()) {
             return result;
         }
 
-        for (AssemblyRuleItem item : rule.getItems()) {
+        InventorySnapshot snapshot = inventorySnapshot();
+        for (AssemblyRuleView.Item item : rule.getItems()) {
             int requiredQty = (item.getQuantity() == null ? 1 : item.getQuantity()) * request.getQuantity();
 
             AssemblyCheckResult.PartStatus ps = new AssemblyCheckResult.PartStatus();
@@ -222,7 +285,7 @@ public class AssemblyService {
             ps.setRequired(requiredQty);
 
             int available = 0;
-            InventoryItem inventory = findMatchingInventoryItem(
+            InventoryItem inventory = snapshot.match(
                 item.getComponentName(),
                 request.getSpecification(),
                 request.getMaterial(),
@@ -0,0 +1,491 @@
+package com.wms.service;
+
+import com.wms.dto.AuditLogQuery;
+import com.wms.util.ColumnarFormat.Column;
+import com.wms.util.ColumnarFormat.Schema;
+import com.wms.util.ColumnarFormat.Type;
+import com.wms.util.ColumnarReader;
+import com.wms.util.ColumnarWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * 操作日志保留与冷归档
+ * audit_logs 按月分区（见 sql/audit_log_partitions.sql），每天检查一次：
+ * 提前建好下个月的分区；早于保留期（audit.retention.hot-months 个月）的月份逐月导出为列式压缩文件，
+ * 校验行数后直接 DROP PARTITION（跨月的历史分区或未分区的表按时间范围分批删除）。
+ * 热表只保留最近几个月，索引可以常驻内存；归档月份的日志仍可通过查询接口读取，统计汇总不受影响。
+ */
+@Service
+public class AuditArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditArchiveService.class);
+
+    static final Schema SCHEMA = new Schema("audit_logs",
+        new Column("id", Type.LONG),
+        new Column("username", Type.DICT_STRING),
+        new Column("module", Type.DICT_STRING),
+        new Column("action", Type.DICT_STRING),
+        new Column("details", Type.STRING),
+        new Column("ip_address", Type.DICT_STRING),
+        new Column("created_at", Type.TIMESTAMP)
+    );
+
+    private static final String FILE_PREFIX = "audit_logs-";
+    private static final String FILE_SUFFIX = ".wmsc";
+    private static final int DELETE_CHUNK = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ColumnarExportService columnarExportService;
+
+    @Value("${audit.archive.directory:./audit-archive}")
+    private String archiveDirectory;
+
+    @Value("${audit.retention.hot-months:6}")
+    private int hotMonths;
+
+    @Value("${spring.datasource.url}")
+    private String dbUrl;
+
+    /**
+     * 已归档的月份
+     */
+    private volatile NavigableSet<YearMonth> archivedMonths = Collections.emptyNavigableSet();
+
+    @PostConstruct
+    public void init() {
+        try {
+            refreshArchivedMonths();
+        } catch (IOException e) {
+            logger.warn("读取审计归档目录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 热表的起始时间：最后一个归档月份的下个月第一天，没有归档时返回 null
+     * 查询热表时总是加上 created_at >= 该时间，归档与删除之间的短暂重叠不会出现重复记录
+     */
+    public LocalDateTime getHotStart() {
+        NavigableSet<YearMonth> months = archivedMonths;
+        return months.isEmpty() ? null : months.last().plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    /**
+     * 与 [from, to) 有交集的归档月份，从新到旧排列
+     */
+    public List<YearMonth> archivedMonths(LocalDateTime from, LocalDateTime to) {
+        List<YearMonth> result = new ArrayList<>();
+        for (YearMonth month : archivedMonths.descendingSet()) {
+            if (to != null && !month.atDay(1).atStartOfDay().isBefore(to)) {
+                continue;
+            }
+            if (from != null && !month.plusMonths(1).atDay(1).atStartOfDay().isAfter(from)) {
+                break;
+            }
+            result.add(month);
+        }
+        return result;
+    }
+
+    /**
+     * 从归档月份中读取满足条件、且排在游标之后的最多 limit 条日志，按 (created_at, id) 从新到旧排列
+     *
+     * @param actions    操作名称需在其中（为 null 表示不过滤）
+     * @param cursorTime 游标时间（为 null 表示从该月最新的一条开始）
+     */
+    public List<Map<String, Object>> read(YearMonth month, AuditLogQuery query, Collection<String> actions,
+                                          LocalDateTime cursorTime, long cursorId, int limit) throws IOException {
+        Deque<Object[]> newest = new ArrayDeque<>(limit);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(archiveFile(month)))) {
+            ColumnarReader reader = new ColumnarReader(in);
+            List<Object[]> batch;
+            // 文件按 (created_at, id) 升序写入，只需保留最后 limit 条满足条件的记录
+            while ((batch = reader.nextBatch()) != null) {
+                for (Object[] row : batch) {
+                    if (!matches(row, query, actions, cursorTime, cursorId)) {
+                        continue;
+                    }
+                    if (newest.size() == limit) {
+                        newest.pollFirst();
+                    }
+                    newest.addLast(row);
+                }
+            }
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(newest.size());
+        for (Iterator<Object[]> it = newest.descendingIterator(); it.hasNext(); ) {
+            Object[] row = it.next();
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int c = 0; c < SCHEMA.getColumns().size(); c++) {
+                map.put(SCHEMA.getColumns().get(c).getName(), row[c]);
+            }
+            rows.add(map);
+        }
+        return rows;
+    }
+
+    private static boolean matches(Object[] row, AuditLogQuery query, Collection<String> actions,
+                                   LocalDateTime cursorTime, long cursorId) {
+        if (query.getUsername() != null && !query.getUsername().isEmpty() && !query.getUsername().equals(row[1])) {
+            return false;
+        }
+        if (query.getModule() != null && !query.getModule().isEmpty() && !query.getModule().equals(row[2])) {
+            return false;
+        }
+        if (actions != null && !actions.contains(row[3])) {
+            return false;
+        }
+        LocalDateTime time = (LocalDateTime) row[6];
+        if (query.getFrom() != null && time.isBefore(query.getFrom())) {
+            return false;
+        }
+        if (query.getTo() != null && !time.isBefore(query.getTo())) {
+            return false;
+        }
+        if (cursorTime != null) {
+            int cmp = time.compareTo(cursorTime);
+            return cmp < 0 || (cmp == 0 && (Long) row[0] < cursorId);
+        }
+        return true;
+    }
+
+    // ===== 保留期处理 =====
+
+    @Scheduled(cron = "${audit.retention.cron:0 30 3 * * ?}")
+    public void scheduledRetention() {
+        try {
+            applyRetention();
+        } catch (Exception e) {
+            logger.error("审计日志归档失败", e);
+        }
+    }
+
+    /**
+     * 建好后续月份的分区，并把早于保留期的月份归档后从热表移除
+     *
+     * @return 归档的月份和行数
+     */
+    public synchronized Map<String, Object> applyRetention() throws IOException {
+        boolean partitioned = isPartitioned();
+        if (partitioned) {
+            ensureFuturePartitions();
+        }
+        LocalDateTime cutoff = YearMonth.now().minusMonths(hotMonths).atDay(1).atStartOfDay();
+
+        Map<String, Long> archived = new LinkedHashMap<>();
+        YearMonth previous = null;
+        while (true) {
+            Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM audit_logs", Timestamp.class);
+            if (oldest == null || !oldest.toLocalDateTime().isBefore(cutoff)) {
+                break;
+            }
+            YearMonth month = YearMonth.from(oldest.toLocalDateTime());
+            if (month.equals(previous)) {
+                throw new IllegalStateException("归档后 " + month + " 的日志未能从热表移除");
+            }
+            archived.put(month.toString(), archiveMonth(month));
+            purgeMonth(month, partitioned);
+            refreshArchivedMonths();
+            previous = month;
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("cutoff", cutoff.toLocalDate());
+        result.put("archived", archived);
+        result.put("archivedMonths", archivedMonths.size());
+        if (!archived.isEmpty()) {
+            logger.info("审计日志归档完成: {}", archived);
+        }
+        return result;
+    }
+
+    /**
+     * 把一个月的日志写入归档文件，校验行数后原子替换
+     * 已有归档文件时（例如从备份恢复后热表又出现了已归档月份的部分日志），与热表中的日志按 (created_at, id) 合并去重，
+     * 归档文件只会增加记录，不会被热表中更少的记录替换。
+     *
+     * @return 归档文件中该月的行数
+     */
+    private long archiveMonth(YearMonth month) throws IOException {
+        Timestamp start = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp end = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        Long expected = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM audit_logs WHERE created_at >= ? AND created_at < ?", Long.class, start, end);
+        long rows = expected != null ? expected : 0;
+
+        Path file = archiveFile(month);
+        long existing = Files.exists(file) ? countRows(file) : -1;
+        if (Files.exists(file) && existing < 0) {
+            throw new IOException("归档文件已损坏，请人工处理后再归档: " + file);
+        }
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        String sql = "SELECT id, username, module, action, details, ip_address, created_at FROM audit_logs "
+            + "WHERE created_at >= ? AND created_at < ? ORDER BY created_at, id";
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             OutputStream out = new BufferedOutputStream(fos, 256 * 1024)) {
+            columnarExportService.writeQuery(SCHEMA, "created_at", sql, Arrays.asList(start, end), out);
+            out.flush();
+            fos.getChannel().force(true);
+        }
+        long written = countRows(tmp);
+        if (written != rows) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("归档 " + month + " 行数不一致: 数据库 " + rows + ", 文件 " + written);
+        }
+        if (existing < 0) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        }
+
+        Path merged = file.resolveSibling(file.getFileName() + ".merge");
+        long total;
+        try {
+            total = merge(file, tmp, merged);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        if (total < existing || total < rows || countRows(merged) != total) {
+            Files.deleteIfExists(merged);
+            throw new IOException("合并归档 " + month + " 行数异常: 原文件 " + existing + ", 数据库 " + rows + ", 合并后 " + total);
+        }
+        if (total == existing) {
+            // 热表中的日志都已在归档文件中
+            Files.deleteIfExists(merged);
+            return existing;
+        }
+        Files.move(merged, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("审计归档 {} 已合并热表日志: {} -> {} 行", month, existing, total);
+        return total;
+    }
+
+    /**
+     * 合并两个按 (created_at, id) 升序的归档文件，相同记录只保留一条
+     *
+     * @return 写入的行数
+     */
+    private static long merge(Path first, Path second, Path target) throws IOException {
+        try (InputStream in1 = new BufferedInputStream(Files.newInputStream(first));
+             InputStream in2 = new BufferedInputStream(Files.newInputStream(second));
+             FileOutputStream fos = new FileOutputStream(target.toFile());
+             OutputStream out = new BufferedOutputStream(fos, 256 * 1024)) {
+            RowCursor a = new RowCursor(new ColumnarReader(in1));
+            RowCursor b = new RowCursor(new ColumnarReader(in2));
+            ColumnarWriter writer = new ColumnarWriter(out, SCHEMA, 4096, "created_at");
+            while (a.peek() != null || b.peek() != null) {
+                int cmp = a.peek() == null ? 1 : b.peek() == null ? -1 : compareKey(a.peek(), b.peek());
+                if (cmp < 0) {
+                    writer.writeRow(a.next());
+                } else if (cmp > 0) {
+                    writer.writeRow(b.next());
+                } else {
+                    writer.writeRow(a.next());
+                    b.next();
+                }
+            }
+            writer.finish();
+            fos.getChannel().force(true);
+            return writer.getTotalRows();
+        }
+    }
+
+    private static int compareKey(Object[] x, Object[] y) {
+        int cmp = ((LocalDateTime) x[6]).compareTo((LocalDateTime) y[6]);
+        return cmp != 0 ? cmp : Long.compare((Long) x[0], (Long) y[0]);
+    }
+
+    /**
+     * 逐行读取归档文件
+     */
+    private static final class RowCursor {
+        private final ColumnarReader reader;
+        private Iterator<Object[]> batch = Collections.emptyIterator();
+        private Object[] current;
+
+        RowCursor(ColumnarReader reader) throws IOException {
+            this.reader = reader;
+            advance();
+        }
+
+        Object[] peek() {
+            return current;
+        }
+
+        Object[] next() throws IOException {
+            Object[] row = current;
+            advance();
+            return row;
+        }
+
+        private void advance() throws IOException {
+            while (!batch.hasNext()) {
+                List<Object[]> rows = reader.nextBatch();
+                if (rows == null) {
+                    current = null;
+                    return;
+                }
+                batch = rows.iterator();
+            }
+            current = batch.next();
+        }
+    }
+
+    private static long countRows(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            ColumnarReader reader = new ColumnarReader(in);
+            long rows = 0;
+            List<Object[]> batch;
+            while ((batch = reader.nextBatch()) != null) {
+                rows += batch.size();
+            }
+            return rows == reader.getTotalRows() ? rows : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 从热表移除已归档月份：整个落在已归档范围内的分区直接删除，其余按时间范围分批删除
+     */
+    private void purgeMonth(YearMonth month, boolean partitioned) {
+        LocalDate end = month.plusMonths(1).atDay(1);
+        if (partitioned) {
+            for (Map.Entry<String, LocalDate> partition : partitionBounds().entrySet()) {
+                if (partition.getValue() != null && !partition.getValue().isAfter(end)) {
+                    jdbcTemplate.execute("ALTER TABLE audit_logs DROP PARTITION " + partition.getKey());
+                    logger.info("已删除审计日志分区 {}", partition.getKey());
+                }
+            }
+        }
+        Timestamp start = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp endTime = Timestamp.valueOf(end.atStartOfDay());
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM audit_logs WHERE created_at >= ? AND created_at < ? "
+                + "ORDER BY created_at LIMIT " + DELETE_CHUNK, start, endTime);
+        } while (deleted == DELETE_CHUNK);
+    }
+
+    // ===== 分区维护 =====
+
+    private boolean isPartitioned() {
+        if (dbUrl == null || !dbUrl.startsWith("jdbc:mysql")) {
+            return false;
+        }
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() "
+                + "AND TABLE_NAME = 'audit_logs' AND PARTITION_NAME IS NOT NULL", Integer.class);
+        return count != null && count > 0;
+    }
+
+    /**
+     * 分区名 -> 上界（不含），MAXVALUE 分区的上界为 null
+     */
+    private Map<String, LocalDate> partitionBounds() {
+        Map<String, LocalDate> bounds = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_logs' AND PARTITION_NAME IS NOT NULL "
+                + "ORDER BY PARTITION_ORDINAL_POSITION",
+            rs -> {
+                String description = rs.getString(2).replace("'", "");
+                bounds.put(rs.getString(1),
+                    "MAXVALUE".equalsIgnoreCase(description) ? null : LocalDate.parse(description.substring(0, 10)));
+            });
+        return bounds;
+    }
+
+    /**
+     * 保证当前月和下个月都有独立分区：从 MAXVALUE 分区（此时为空）中拆出缺少的月份
+     */
+    private void ensureFuturePartitions() {
+        Map<String, LocalDate> bounds = partitionBounds();
+        String maxPartition = null;
+        LocalDate highest = null;
+        for (Map.Entry<String, LocalDate> entry : bounds.entrySet()) {
+            if (entry.getValue() == null) {
+                maxPartition = entry.getKey();
+            } else if (highest == null || entry.getValue().isAfter(highest)) {
+                highest = entry.getValue();
+            }
+        }
+        if (maxPartition == null || highest == null) {
+            return;
+        }
+        LocalDate target = YearMonth.now().plusMonths(2).atDay(1);
+        if (!highest.isBefore(target)) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("ALTER TABLE audit_logs REORGANIZE PARTITION ")
+            .append(maxPartition).append(" INTO (");
+        for (YearMonth month = YearMonth.from(highest); month.atDay(1).isBefore(target); month = month.plusMonths(1)) {
+            sql.append("PARTITION p").append(month.toString().replace("-", ""))
+                .append(" VALUES LESS THAN ('").append(month.plusMonths(1).atDay(1)).append("'), ");
+        }
+        sql.append("PARTITION ").append(maxPartition).append(" VALUES LESS THAN (MAXVALUE))");
+        jdbcTemplate.execute(sql.toString());
+        logger.info("已创建审计日志分区至 {}", target);
+    }
+
+    // ===== 归档文件 =====
+
+    private Path archiveFile(YearMonth month) {
+        return Paths.get(archiveDirectory).resolve(FILE_PREFIX + month + FILE_SUFFIX);
+    }
+
+    private void refreshArchivedMonths() throws IOException {
+        Path dir = Paths.get(archiveDirectory);
+        NavigableSet<YearMonth> months = new TreeSet<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    try {
+                        months.add(YearMonth.parse(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())));
+                    } catch (DateTimeParseException e) {
+                        logger.warn("忽略无法识别的审计归档文件: {}", name);
+                    }
+                }
+            }
+        }
+        archivedMonths = Collections.unmodifiableNavigableSet(months);
+    }
+}
@@ -0,0 +1,270 @@
+package com.wms.service;
+
+import com.wms.entity.AuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 审计日志后写（write-behind）
+ * 业务线程只把日志放入有界的无锁队列，由后台线程攒够一批或到达刷新间隔后用多行 INSERT 批量写库，
+ * 审计不再占用业务请求的数据库往返；同一事务中累加 audit_log_daily 统计汇总。
+ * 队列满时调用方最多等待 offer-timeout-ms（背压），仍然满则在调用线程直接写库，日志不会丢弃；
+ * 应用关闭时先停止入队，再把队列中剩余的日志全部写完。
+ */
+@Service
+public class AuditLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO audit_logs (username, action, module, details, ip_address, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?)";
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditStatsService auditStatsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${audit.writer.capacity:10000}")
+    private int capacity;
+
+    @Value("${audit.writer.batch-size:200}")
+    private int batchSize;
+
+    @Value("${audit.writer.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${audit.writer.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${audit.writer.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private final ConcurrentLinkedQueue<AuditLog> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 队列中的日志条数，入队前先用 CAS 占位，保证不超过容量
+     */
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private volatile boolean closed;
+    private Thread writer;
+    private TransactionTemplate transactionTemplate;
+
+    private Timer flushTimer;
+    private DistributionSummary batchSizes;
+    private Counter queuedCounter;
+    private Counter directCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("wms.audit.queue.depth", depth, AtomicInteger::get)
+            .description("等待写库的审计日志条数")
+            .register(meterRegistry);
+        flushTimer = Timer.builder("wms.audit.flush")
+            .description("审计日志批量写库耗时")
+            .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("wms.audit.flush.batch")
+            .description("每次批量写库的条数")
+            .register(meterRegistry);
+        queuedCounter = meterRegistry.counter("wms.audit.events", "path", "queued");
+        directCounter = meterRegistry.counter("wms.audit.events", "path", "direct");
+        failedCounter = meterRegistry.counter("wms.audit.events", "path", "failed");
+
+        writer = new Thread(this::runWriter, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 提交一条审计日志
+     * 正常情况下立即返回；队列满时最多等待 offer-timeout-ms，之后在调用线程直接写库。
+     */
+    public void submit(AuditLog log) {
+        if (!closed && offer(log)) {
+            queuedCounter.increment();
+            if (closed) {
+                // 与关闭并发入队的日志可能错过最后一次写入，由调用方补写
+                drain(new ArrayList<>());
+            }
+            return;
+        }
+        directCounter.increment();
+        write(Collections.singletonList(log));
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    private boolean offer(AuditLog log) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        while (true) {
+            int current = depth.get();
+            if (current < capacity) {
+                if (depth.compareAndSet(current, current + 1)) {
+                    queue.offer(log);
+                    if (current + 1 >= batchSize) {
+                        LockSupport.unpark(writer);
+                    }
+                    return true;
+                }
+                continue;
+            }
+            if (closed || System.nanoTime() >= deadline) {
+                return false;
+            }
+            // 队列已满：叫醒写线程并稍等，让调用方感受到写库的速度
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private void runWriter() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (!closed) {
+            // 攒够一批时由入队方提前唤醒，否则等到刷新间隔
+            if (depth.get() < batchSize) {
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+            drain(batch);
+        }
+    }
+
+    /**
+     * 把队列中当前的日志按批写完
+     */
+    private void drain(List<AuditLog> batch) {
+        AuditLog log;
+        while ((log = queue.poll()) != null) {
+            depth.decrementAndGet();
+            batch.add(log);
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 用一条多行 INSERT 写入整批日志并累加统计汇总（同一事务），失败时重试；仍然失败则逐条写入，只丢弃本身有问题的记录
+     */
+    private void write(List<AuditLog> logs) {
+        long start = System.nanoTime();
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                insert(logs);
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                batchSizes.record(logs.size());
+                return;
+            } catch (Exception e) {
+                logger.warn("审计日志批量写入失败（第 {} 次，{} 条）: {}", attempt, logs.size(), e.getMessage());
+                if (attempt < MAX_ATTEMPTS) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200L * attempt));
+                }
+            }
+        }
+        if (logs.size() == 1) {
+            failed(logs.get(0));
+            return;
+        }
+        for (AuditLog log : logs) {
+            try {
+                insert(Collections.singletonList(log));
+            } catch (Exception e) {
+                failed(log);
+            }
+        }
+    }
+
+    private void insert(List<AuditLog> logs) {
+        transactionTemplate.executeWithoutResult(status -> {
+            insertLogs(logs);
+            auditStatsService.record(logs);
+        });
+    }
+
+    private void insertLogs(List<AuditLog> logs) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + logs.size() * (ROW_PLACEHOLDER.length() + 2));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[logs.size() * 6];
+        int i = 0;
+        for (AuditLog log : logs) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = log.getUsername();
+            args[i++] = log.getAction();
+            args[i++] = log.getModule();
+            args[i++] = log.getDetails();
+            args[i++] = log.getIpAddress();
+            args[i++] = Timestamp.valueOf(log.getCreatedAt());
+        }
+        jdbcTemplate.update(sql.toString(), args);
+    }
+
+    private void failed(AuditLog log) {
+        failedCounter.increment();
+        logger.error("审计日志写入失败，已丢弃: time={}, user={}, module={}, action={}, details={}",
+            log.getCreatedAt(), log.getUsername(), log.getModule(), log.getAction(), log.getDetails());
+    }
+
+    /**
+     * 停止入队并写完剩余日志；之后提交的日志直接在调用线程写库
+     */
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(shutdownTimeoutMs);
+            if (writer.isAlive()) {
+                logger.warn("审计日志写线程 {}ms 内未结束，剩余 {} 条由关闭线程写入", shutdownTimeoutMs, depth.get());
+                writer.interrupt();
+                writer.join(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain(new ArrayList<>(batchSize));
+        logger.info("审计日志写线程已停止");
+    }
+}
@@ -0,0 +1,263 @@
+package com.wms.service;
+
+import com.wms.common.BusinessException;
+import com.wms.dto.AuditLogQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 操作日志查询
+ * 条件都写成可走索引的形式：时间用半开区间 created_at >= ? AND created_at < ?，
+ * 操作名称的模糊匹配先在已知操作列表中展开成 action IN (...)；
+ * 按 (created_at, id) 倒序做游标分页，任意深度的翻页都只读取一页的数据。
+ * 早于热表的月份由 AuditArchiveService 从归档文件读取，游标在热表和归档之间通用。
+ * 索引见 sql/audit_log_indexes.sql。
+ */
+@Service
+public class AuditQueryService {
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final String COLUMNS = "id, username, module, action, details, ip_address, created_at";
+    private static final long COUNT_TTL_MS = 60_000;
+    private static final int COUNT_CACHE_SIZE = 256;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditStatsService auditStatsService;
+
+    @Autowired
+    private AuditArchiveService auditArchiveService;
+
+    /**
+     * 条件 -> {总数, 过期时间}
+     */
+    private final Map<String, long[]> countCache = new ConcurrentHashMap<>();
+
+    /**
+     * 查询一页操作日志，按时间从新到旧排列
+     * nextCursor 不为空时把它作为 cursor 参数取下一页；热表不足一页且时间范围早于热表时继续读取归档月份。
+     * 总数只统计热表，旧的页码分页也只读热表。
+     */
+    public Map<String, Object> query(AuditLogQuery query) {
+        int size = Math.max(1, Math.min(MAX_PAGE_SIZE, query.getSize()));
+        List<String> actions = notEmpty(query.getAction()) ? matchActions(query.getAction()) : null;
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("size", size);
+        if (actions != null && actions.isEmpty()) {
+            result.put("content", Collections.emptyList());
+            result.put("hasMore", false);
+            result.put("nextCursor", null);
+            putTotal(result, query.getCount(), 0, size);
+            return result;
+        }
+
+        StringBuilder where = new StringBuilder(" WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilters(query, actions, where, params);
+
+        Object[] cursor = query.getCursor() != null && !query.getCursor().isEmpty()
+            ? decodeCursor(query.getCursor()) : null;
+        boolean offsetPaging = cursor == null && query.getPage() > 0;
+        LocalDateTime hotStart = auditArchiveService.getHotStart();
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        if (hotStart == null || query.getTo() == null || query.getTo().isAfter(hotStart)) {
+            StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM audit_logs").append(where);
+            List<Object> pageParams = new ArrayList<>(params);
+            if (hotStart != null) {
+                sql.append(" AND created_at >= ?");
+                pageParams.add(Timestamp.valueOf(hotStart));
+            }
+            if (cursor != null) {
+                // created_at <= ? 给出范围扫描的上界，OR 部分只在同一时间的几行上判断
+                sql.append(" AND created_at <= ? AND (created_at < ? OR id < ?)");
+                pageParams.add(cursor[0]);
+                pageParams.add(cursor[0]);
+                pageParams.add(cursor[1]);
+                sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+                pageParams.add(size + 1);
+            } else {
+                sql.append(" ORDER BY created_at DESC, id DESC LIMIT ? OFFSET ?");
+                pageParams.add(size + 1);
+                pageParams.add(Math.max(0, query.getPage()) * size);
+                result.put("number", Math.max(0, query.getPage()));
+            }
+            rows.addAll(jdbcTemplate.queryForList(sql.toString(), pageParams.toArray()));
+        }
+
+        if (!offsetPaging && hotStart != null && rows.size() <= size
+                && (query.getFrom() == null || query.getFrom().isBefore(hotStart))) {
+            readArchive(query, actions, cursor, size + 1, rows);
+        }
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+        result.put("content", rows);
+        result.put("hasMore", hasMore);
+        result.put("nextCursor", hasMore ? encodeCursor(rows.get(rows.size() - 1)) : null);
+
+        String mode = query.getCount();
+        if ("exact".equals(mode) || "estimate".equals(mode)) {
+            putTotal(result, mode, cachedCount(mode, where.toString(), params), size);
+        }
+        return result;
+    }
+
+    /**
+     * 从新到旧依次读取归档月份，直到凑满 limit 条
+     */
+    private void readArchive(AuditLogQuery query, List<String> actions, Object[] cursor, int limit,
+                             List<Map<String, Object>> rows) {
+        LocalDateTime cursorTime = cursor != null ? ((Timestamp) cursor[0]).toLocalDateTime() : null;
+        long cursorId = cursor != null ? (Long) cursor[1] : 0;
+        try {
+            for (YearMonth month : auditArchiveService.archivedMonths(query.getFrom(), query.getTo())) {
+                if (rows.size() >= limit) {
+                    break;
+                }
+                if (cursorTime != null && month.atDay(1).atStartOfDay().isAfter(cursorTime)) {
+                    continue;
+                }
+                rows.addAll(auditArchiveService.read(month, query, actions, cursorTime, cursorId, limit - rows.size()));
+            }
+        } catch (IOException e) {
+            throw new BusinessException(500, "读取审计归档失败: " + e.getMessage());
+        }
+    }
+
+    private static void putTotal(Map<String, Object> result, String mode, long total, int size) {
+        if ("exact".equals(mode)) {
+            result.put("totalElements", total);
+            result.put("totalPages", (int) Math.ceil((double) total / size));
+        } else if ("estimate".equals(mode)) {
+            result.put("estimatedTotal", total);
+        }
+    }
+
+    /**
+     * 拼接过滤条件
+     *
+     * @param actions 操作名称模糊匹配展开后的列表（为 null 表示不过滤）
+     */
+    private void appendFilters(AuditLogQuery query, List<String> actions, StringBuilder where, List<Object> params) {
+        if (notEmpty(query.getUsername())) {
+            where.append(" AND username = ?");
+            params.add(query.getUsername());
+        }
+        if (notEmpty(query.getModule())) {
+            where.append(" AND module = ?");
+            params.add(query.getModule());
+        }
+        if (actions != null) {
+            where.append(" AND action IN (")
+                .append(actions.stream().map(a -> "?").collect(Collectors.joining(", ")))
+                .append(")");
+            params.addAll(actions);
+        }
+        if (query.getFrom() != null) {
+            where.append(" AND created_at >= ?");
+            params.add(Timestamp.valueOf(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            where.append(" AND created_at < ?");
+            params.add(Timestamp.valueOf(query.getTo()));
+        }
+    }
+
+    private static boolean notEmpty(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    /**
+     * 包含指定文本的操作名称（不区分大小写，与原来的 LIKE 过滤一致）
+     * 操作名称来自 @Auditable 注解，种类很少，取自统计服务缓存的操作名称集合
+     */
+    private List<String> matchActions(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        return auditStatsService.actions().stream()
+            .filter(a -> a != null && a.toLowerCase(Locale.ROOT).contains(lower))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * 总数（缓存一分钟）：exact 为 COUNT(*)，estimate 取执行计划中的估算行数
+     */
+    private long cachedCount(String mode, String where, List<Object> params) {
+        String key = mode + where + params;
+        long now = System.currentTimeMillis();
+        long[] cached = countCache.get(key);
+        if (cached != null && cached[1] > now) {
+            return cached[0];
+        }
+        long total;
+        if ("exact".equals(mode)) {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_logs" + where, Long.class, params.toArray());
+            total = count != null ? count : 0;
+        } else {
+            total = 0;
+            for (Map<String, Object> row : jdbcTemplate.queryForList("EXPLAIN SELECT id FROM audit_logs" + where, params.toArray())) {
+                Object rows = row.get("rows");
+                if (rows instanceof Number) {
+                    total = Math.max(total, ((Number) rows).longValue());
+                }
+            }
+        }
+        if (countCache.size() >= COUNT_CACHE_SIZE) {
+            countCache.entrySet().removeIf(e -> e.getValue()[1] <= now);
+            if (countCache.size() >= COUNT_CACHE_SIZE) {
+                countCache.clear();
+            }
+        }
+        countCache.put(key, new long[]{total, now + COUNT_TTL_MS});
+        return total;
+    }
+
+    // ===== 游标 =====
+
+    private static String encodeCursor(Map<String, Object> row) {
+        Object createdAt = row.get("created_at");
+        LocalDateTime time = createdAt instanceof Timestamp
+            ? ((Timestamp) createdAt).toLocalDateTime() : (LocalDateTime) createdAt;
+        String raw = time + "|" + ((Number) row.get("id")).longValue();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return {created_at 时间戳, id}
+     */
+    private static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new Object[]{
+                Timestamp.valueOf(LocalDateTime.parse(raw.substring(0, separator))),
+                Long.parseLong(raw.substring(separator + 1))
+            };
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+}
@@ -1,10 +1,10 @@
 package com.wms.service;
 
 import com.wms.entity.AuditLog;
-import com.wms.repository.AuditLogRepository;
 import com.wms.util.IpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
@@ -12,38 +12,26 @@ import java.time.LocalDateTime;
 
 /**
  * 审计日志服务
+ * 日志交给 AuditLogWriter 后台批量写库，调用方不等待数据库。
  */
 @Service
 public class AuditService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuditService.class);
+
     @Autowired
-    private AuditLogRepository auditLogRepository;
+    private AuditLogWriter auditLogWriter;
 
     /**
-     * 异步记录审计日志
+     * 记录审计日志（IP 在调用线程中从请求取出）
      */
-    @Async
     public void log(String username, String module, String action, String details, HttpServletRequest request) {
-        try {
-            AuditLog log = new AuditLog();
-            log.setUsername(username != null ? username : "system");
-            log.setModule(module);
-            log.setAction(action);
-            log.setDetails(details);
-            log.setCreatedAt(LocalDateTime.now());
-            
-            if (request != null) {
-                log.setIpAddress(IpUtil.getRealIp(request));
-            }
-            
-            auditLogRepository.save(log);
-        } catch (Exception e) {
-            System.err.println("记录审计日志失败: " + e.getMessage());
-        }
+        logSync(username, module, action, details, request != null ? IpUtil.getRealIp(request) : null);
     }
 
     /**
-     * 同步记录审计日志
+     * 记录审计日志
+     * 时间取调用时刻；日志进入写入队列后立即返回，队列满时短暂等待或直接写库。
      */
     public void logSync(String username, String module, String action, String details, String ipAddress) {
         try {
@@ -54,10 +42,10 @@ public class AuditService {
             log.setDetails(details);
             log.setCreatedAt(LocalDateTime.now());
             log.setIpAddress(ipAddress);
-            
-            auditLogRepository.save(log);
+
+            auditLogWriter.submit(log);
         } catch (Exception e) {
-            System.err.println("记录审计日志失败: " + e.getMessage());
+            logger.error("记录审计日志失败: {}", e.getMessage());
         }
     }
 }
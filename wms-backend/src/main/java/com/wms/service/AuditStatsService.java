@@ -0,0 +1,163 @@
+package com.wms.service;
+
+import com.wms.entity.AuditLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 操作日志统计
+ * 审计写入时按 (日期, 用户, 模块, 操作) 累加到 audit_log_daily，与日志在同一事务中提交；
+ * 统计、趋势和模块列表都只读这张汇总表，耗时与日志总量无关。
+ * 操作名称集合缓存在内存中：本节点写入新操作时立即加入，其它节点写入的操作在缓存过期（五分钟）后重新读取。
+ * 建表和历史数据回填见 sql/audit_log_daily.sql。
+ */
+@Service
+public class AuditStatsService {
+
+    private static final String UPSERT_PREFIX =
+        "INSERT INTO audit_log_daily (stat_date, username, module, action, cnt) VALUES ";
+    private static final String UPSERT_SUFFIX = " ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt)";
+    private static final long ACTIONS_TTL_MS = 300_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile Set<String> knownActions;
+    private volatile long actionsExpireAt;
+
+    /**
+     * 把一批日志累加到汇总表，需要在写入日志的事务中调用
+     */
+    public void record(List<AuditLog> logs) {
+        Map<List<Object>, Integer> counts = new LinkedHashMap<>();
+        for (AuditLog log : logs) {
+            List<Object> key = List.of(Date.valueOf(log.getCreatedAt().toLocalDate()),
+                log.getUsername(), log.getModule(), log.getAction());
+            counts.merge(key, 1, Integer::sum);
+        }
+        StringBuilder sql = new StringBuilder(UPSERT_PREFIX);
+        List<Object> args = new ArrayList<>(counts.size() * 5);
+        for (Map.Entry<List<Object>, Integer> entry : counts.entrySet()) {
+            if (!args.isEmpty()) {
+                sql.append(", ");
+            }
+            sql.append("(?, ?, ?, ?, ?)");
+            args.addAll(entry.getKey());
+            args.add(entry.getValue());
+        }
+        sql.append(UPSERT_SUFFIX);
+        jdbcTemplate.update(sql.toString(), args.toArray());
+        addActions(logs);
+    }
+
+    /**
+     * 新出现的操作名称加入缓存（写时复制），写入后即可按操作名称搜索；缓存尚未加载时由下次读取从汇总表加载
+     */
+    private synchronized void addActions(List<AuditLog> logs) {
+        if (knownActions == null) {
+            return;
+        }
+        Set<String> next = null;
+        for (AuditLog log : logs) {
+            String action = log.getAction();
+            if (action != null && !knownActions.contains(action)) {
+                if (next == null) {
+                    next = new HashSet<>(knownActions);
+                }
+                next.add(action);
+            }
+        }
+        if (next != null) {
+            knownActions = Collections.unmodifiableSet(next);
+        }
+    }
+
+    /**
+     * 操作统计：总数、今日数、按模块和按操作的前十名
+     *
+     * @param username 只统计该用户，为空表示全部
+     */
+    public Map<String, Object> statistics(String username) {
+        String where = username != null ? " WHERE username = ?" : "";
+        Object[] args = username != null ? new Object[]{username} : new Object[0];
+
+        Long total = jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(cnt), 0) FROM audit_log_daily" + where, Long.class, args);
+
+        List<Object> todayArgs = new ArrayList<>();
+        todayArgs.add(Date.valueOf(LocalDate.now()));
+        if (username != null) {
+            todayArgs.add(username);
+        }
+        Long today = jdbcTemplate.queryForObject(
+            "SELECT COALESCE(SUM(cnt), 0) FROM audit_log_daily WHERE stat_date = ?"
+                + (username != null ? " AND username = ?" : ""), Long.class, todayArgs.toArray());
+
+        List<Map<String, Object>> byModule = jdbcTemplate.queryForList(
+            "SELECT module, SUM(cnt) AS count FROM audit_log_daily" + where
+                + " GROUP BY module ORDER BY count DESC LIMIT 10", args);
+        List<Map<String, Object>> byAction = jdbcTemplate.queryForList(
+            "SELECT action, SUM(cnt) AS count FROM audit_log_daily" + where
+                + " GROUP BY action ORDER BY count DESC LIMIT 10", args);
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("total", total);
+        stats.put("today", today);
+        stats.put("byModule", byModule);
+        stats.put("byAction", byAction);
+        return stats;
+    }
+
+    /**
+     * 最近若干天每天的操作数（只含有操作的日期）
+     */
+    public List<Map<String, Object>> trend(String username, int days) {
+        List<Object> args = new ArrayList<>();
+        args.add(Date.valueOf(LocalDate.now().minusDays(days)));
+        if (username != null) {
+            args.add(username);
+        }
+        return jdbcTemplate.queryForList(
+            "SELECT stat_date AS date, SUM(cnt) AS count FROM audit_log_daily WHERE stat_date >= ?"
+                + (username != null ? " AND username = ?" : "")
+                + " GROUP BY stat_date ORDER BY date ASC", args.toArray());
+    }
+
+    public List<String> modules() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT module FROM audit_log_daily ORDER BY module", String.class);
+    }
+
+    /**
+     * 所有出现过的操作名称（缓存）
+     */
+    public Set<String> actions() {
+        long now = System.currentTimeMillis();
+        Set<String> current = knownActions;
+        if (current == null || now >= actionsExpireAt) {
+            Set<String> loaded = new HashSet<>(
+                jdbcTemplate.queryForList("SELECT DISTINCT action FROM audit_log_daily", String.class));
+            synchronized (this) {
+                // 保留已知的操作：本节点刚写入、事务尚未提交的操作在汇总表中还读不到
+                if (knownActions != null) {
+                    loaded.addAll(knownActions);
+                }
+                current = Collections.unmodifiableSet(loaded);
+                knownActions = current;
+                actionsExpireAt = now + ACTIONS_TTL_MS;
+            }
+        }
+        return current;
+    }
+}
@@ -23,6 +23,9 @@ public class AutoStorageRuleService {
     @Autowired
     private BlankInventoryRepository blankInventoryRepository;
 
+    @Autowired
+    private BomService bomService;
+
     @Autowired
     private PieceWorkRepository pieceWorkRepository;
 
@@ -76,6 +79,7 @@ public class AutoStorageRuleService {
         }
 
         System.out.println("=== Recalculation complete ===");
+        bomService.rebuild();
         return savedRule;
     }
 
@@ -209,11 +213,14 @@ public class AutoStorageRuleService {
     }
 
     public AutoStorageRule save(AutoStorageRule rule) {
-        return ruleRepository.save(rule);
+        AutoStorageRule saved = ruleRepository.save(rule);
+        bomService.rebuild();
+        return saved;
     }
 
     public void deleteById(Long id) {
         ruleRepository.deleteById(id);
+        bomService.rebuild();
     }
 
     public List<AutoStorageRule> findAll() {
@@ -0,0 +1,353 @@
+package com.wms.service;
+
+import com.wms.common.BusinessException;
+import com.wms.util.CountingDataSource;
+import com.wms.util.IoThrottle;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 备份执行服务
+ * 所有备份任务（定时、手动、异步）共用一个许可，同一时刻只运行一个：正在运行时手动发起的任务直接拒绝，
+ * 定时任务则排队（同名任务只排一个），在当前任务结束、许可释放后按提交顺序执行，避免每周全量备份等被静默跳过；
+ * 异步任务在专用的低优先级线程上执行，不占用 HTTP 线程和定时任务线程。
+ * 备份读写磁盘经过令牌桶限速，并根据连接池占用率和接口平均耗时自动退让：
+ * 检测到压力时限速减半，压力消失后每个周期恢复一成（AIMD）。
+ * 备份和恢复通过 {@link #getDataSource()} 取连接，计算连接池占用率时扣除这些连接，避免备份因自己占用的连接而退让。
+ */
+@Service
+public class BackupExecutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackupExecutionService.class);
+
+    private static final double RECOVERY_STEP = 0.1;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 读取源文件 / 数据库导出流的限速（字节/秒，0 表示不限速）
+     */
+    @Value("${backup.io.read-bytes-per-second:52428800}")
+    private long readBytesPerSecond;
+
+    /**
+     * 写入备份文件的限速（字节/秒，0 表示不限速）
+     */
+    @Value("${backup.io.write-bytes-per-second:31457280}")
+    private long writeBytesPerSecond;
+
+    @Value("${backup.io.adaptive.enabled:true}")
+    private boolean adaptiveEnabled;
+
+    /**
+     * 业务占用的连接（不含备份自己借出的连接）占比超过该值时退让
+     */
+    @Value("${backup.io.adaptive.pool-usage-threshold:0.7}")
+    private double poolUsageThreshold;
+
+    /**
+     * 接口平均耗时超过该值（毫秒）时退让
+     */
+    @Value("${backup.io.adaptive.latency-threshold-ms:300}")
+    private long latencyThresholdMs;
+
+    /**
+     * 退让的下限（相对配置限速的比例）
+     */
+    @Value("${backup.io.adaptive.min-factor:0.1}")
+    private double minFactor;
+
+    private final Semaphore permit = new Semaphore(1);
+    private final ThreadLocal<Boolean> holding = ThreadLocal.withInitial(() -> false);
+    private volatile String currentTask;
+    private volatile LocalDateTime currentStartedAt;
+
+    /** 等待许可的定时任务：任务名 -> 任务，按提交顺序 */
+    private final Map<String, Runnable> queued = new LinkedHashMap<>();
+
+    private CountingDataSource backupDataSource;
+    private IoThrottle readThrottle;
+    private IoThrottle writeThrottle;
+    private ThreadPoolExecutor executor;
+
+    private long lastRequestCount = -1;
+    private double lastRequestNanos;
+    private volatile String lastPressure;
+
+    @PostConstruct
+    public void init() {
+        backupDataSource = new CountingDataSource(dataSource);
+        readThrottle = new IoThrottle(readBytesPerSecond);
+        writeThrottle = new IoThrottle(writeBytesPerSecond);
+        // 单线程、队列容量 1：许可保证同一时刻最多提交一个任务，队列只为许可释放后线程尚未空闲的瞬间兜底
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), r -> {
+            Thread t = new Thread(r, "backup-runner");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("wms.backup.io.factor", readThrottle, IoThrottle::getFactor)
+            .description("备份限速自适应系数")
+            .register(meterRegistry);
+        Gauge.builder("wms.backup.running", permit, p -> p.availablePermits() == 0 ? 1 : 0)
+            .register(meterRegistry);
+        logger.info("备份限速: 读 {} 字节/秒, 写 {} 字节/秒, 自适应退让: {}",
+            readBytesPerSecond, writeBytesPerSecond, adaptiveEnabled);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 备份、恢复使用的数据源（与业务共用连接池，借出的连接单独计数）
+     */
+    public DataSource getDataSource() {
+        return backupDataSource;
+    }
+
+    public IoThrottle getReadThrottle() {
+        return readThrottle;
+    }
+
+    public IoThrottle getWriteThrottle() {
+        return writeThrottle;
+    }
+
+    public boolean isRunning() {
+        return permit.availablePermits() == 0;
+    }
+
+    /**
+     * 在当前线程独占执行备份任务；已有任务在运行时抛出 409
+     * 同一线程内嵌套调用（如增量备份回退为全量备份）直接执行
+     */
+    public <T> T runExclusive(String task, Supplier<T> action) {
+        if (holding.get()) {
+            return action.get();
+        }
+        if (!permit.tryAcquire()) {
+            throw busy(task);
+        }
+        return runHolding(task, action);
+    }
+
+    /**
+     * 在备份线程上异步执行；已有任务在运行时抛出 409，不排队
+     */
+    public void submit(String task, Runnable action) {
+        if (!permit.tryAcquire()) {
+            throw busy(task);
+        }
+        try {
+            executor.execute(() -> runHolding(task, () -> {
+                action.run();
+                return null;
+            }));
+        } catch (RejectedExecutionException e) {
+            permit.release();
+            throw busy(task);
+        }
+    }
+
+    /**
+     * 在备份线程上异步执行；已有任务在运行时排队，许可释放后执行（同名任务已在排队时不重复加入）
+     */
+    public void submitOrQueue(String task, Runnable action) {
+        synchronized (queued) {
+            if (queued.containsKey(task)) {
+                logger.warn("{} 已在等待执行，忽略本次提交", task);
+                return;
+            }
+            queued.put(task, action);
+        }
+        if (!runQueued() && currentTask != null) {
+            logger.warn("已有备份任务正在运行({})，{} 排队等待", currentTask, task);
+        }
+    }
+
+    /**
+     * 许可空闲时取出最早排队的任务提交到备份线程
+     *
+     * @return 是否提交了任务
+     */
+    private boolean runQueued() {
+        synchronized (queued) {
+            Iterator<Map.Entry<String, Runnable>> it = queued.entrySet().iterator();
+            if (!it.hasNext() || !permit.tryAcquire()) {
+                return false;
+            }
+            Map.Entry<String, Runnable> next = it.next();
+            it.remove();
+            String task = next.getKey();
+            Runnable action = next.getValue();
+            try {
+                executor.execute(() -> runHolding(task, () -> {
+                    action.run();
+                    return null;
+                }));
+                return true;
+            } catch (RejectedExecutionException e) {
+                permit.release();
+                // 线程池已关闭
+                logger.error("备份线程不可用，{} 未执行", task);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 当前备份任务和限速状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", isRunning());
+        status.put("task", currentTask);
+        status.put("startedAt", currentStartedAt);
+        status.put("factor", readThrottle.getFactor());
+        status.put("readBytesPerSecond", (long) readThrottle.getEffectiveRate());
+        status.put("writeBytesPerSecond", (long) writeThrottle.getEffectiveRate());
+        status.put("readBytes", readThrottle.getBytes());
+        status.put("writtenBytes", writeThrottle.getBytes());
+        status.put("throttledMs", TimeUnit.NANOSECONDS.toMillis(
+            readThrottle.getThrottledNanos() + writeThrottle.getThrottledNanos()));
+        status.put("pressure", lastPressure);
+        synchronized (queued) {
+            status.put("queued", new ArrayList<>(queued.keySet()));
+        }
+        return status;
+    }
+
+    private <T> T runHolding(String task, Supplier<T> action) {
+        holding.set(true);
+        currentTask = task;
+        currentStartedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+        long throttled = readThrottle.getThrottledNanos() + writeThrottle.getThrottledNanos();
+        try {
+            return action.get();
+        } finally {
+            throttled = readThrottle.getThrottledNanos() + writeThrottle.getThrottledNanos() - throttled;
+            logger.info("备份任务结束: {}, 耗时 {} ms, 其中限速等待 {} ms", task,
+                System.currentTimeMillis() - start, TimeUnit.NANOSECONDS.toMillis(throttled));
+            currentTask = null;
+            currentStartedAt = null;
+            holding.remove();
+            permit.release();
+            runQueued();
+        }
+    }
+
+    private BusinessException busy(String task) {
+        logger.warn("已有备份任务正在运行({})，拒绝: {}", currentTask, task);
+        return new BusinessException(409, "已有备份任务正在运行: " + (currentTask != null ? currentTask : "未知"));
+    }
+
+    /**
+     * 自适应退让：每 2 秒采样一次连接池和接口耗时
+     */
+    @Scheduled(fixedDelayString = "${backup.io.adaptive.interval-ms:2000}")
+    public void adjustThrottle() {
+        String pressure = adaptiveEnabled ? detectPressure() : null;
+        if (!isRunning()) {
+            setFactor(1.0);
+            lastPressure = null;
+            return;
+        }
+        double factor = readThrottle.getFactor();
+        double next = pressure != null ? Math.max(minFactor, factor / 2) : Math.min(1.0, factor + RECOVERY_STEP);
+        if (next != factor) {
+            if (pressure != null && lastPressure == null) {
+                logger.info("业务压力上升({})，备份限速降为 {}%", pressure, Math.round(next * 100));
+            } else if (next == 1.0) {
+                logger.info("业务压力解除，备份限速恢复");
+            }
+            setFactor(next);
+        }
+        lastPressure = pressure;
+    }
+
+    private void setFactor(double factor) {
+        readThrottle.setFactor(factor);
+        writeThrottle.setFactor(factor);
+    }
+
+    /**
+     * 返回压力原因，没有压力时返回 null
+     */
+    private String detectPressure() {
+        String pressure = null;
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+                if (pool != null) {
+                    // 只看业务占用的连接：扣除备份自己借出的连接，占用率相对于留给业务的连接数
+                    int held = backupDataSource.getOpenConnections();
+                    int foreground = Math.max(0, pool.getActiveConnections() - held);
+                    int capacity = Math.max(1, hikari.getMaximumPoolSize() - held);
+                    double usage = (double) foreground / capacity;
+                    if (pool.getThreadsAwaitingConnection() > 0) {
+                        pressure = "连接池有 " + pool.getThreadsAwaitingConnection() + " 个线程等待连接";
+                    } else if (usage >= poolUsageThreshold) {
+                        pressure = "连接池占用 " + Math.round(usage * 100) + "%";
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.debug("读取连接池状态失败", e);
+        }
+
+        // 接口平均耗时：按采样间隔内的增量计算，备份下载等长请求不计入
+        long count = 0;
+        double totalNanos = 0;
+        for (Timer timer : meterRegistry.find("http.server.requests").timers()) {
+            String uri = timer.getId().getTag("uri");
+            if (uri != null && uri.startsWith("/backups")) {
+                continue;
+            }
+            count += timer.count();
+            totalNanos += timer.totalTime(TimeUnit.NANOSECONDS);
+        }
+        if (lastRequestCount >= 0 && count > lastRequestCount && pressure == null) {
+            double meanMs = (totalNanos - lastRequestNanos) / (count - lastRequestCount) / 1_000_000.0;
+            if (meanMs >= latencyThresholdMs) {
+                pressure = "接口平均耗时 " + Math.round(meanMs) + " ms";
+            }
+        }
+        lastRequestCount = count;
+        lastRequestNanos = totalNanos;
+        return pressure;
+    }
+}
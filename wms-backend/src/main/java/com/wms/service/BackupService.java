@@ -1,13 +1,15 @@
 package com.wms.service;
 
+import com.wms.common.BusinessException;
 import com.wms.entity.BackupRecord;
 import com.wms.repository.BackupRecordRepository;
 import com.wms.dto.BackupScheduleConfig;
+import com.wms.util.BackupArchiveWriter;
+import com.wms.util.DatabaseDumper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,7 +22,7 @@ import java.util.stream.Collectors;
 
 /**
  * 备份服务
- * 性能优化：支持异步备份，避免阻塞HTTP线程
+ * 性能优化：支持异步备份，避免阻塞HTTP线程；备份任务互斥执行，读写磁盘按配置限速
  */
 @Service
 public class BackupService {
@@ -31,6 +33,12 @@ public class BackupService {
     @Autowired
     private BackupRecordRepository backupRepository;
     
+    @Autowired
+    private FileSnapshotService fileSnapshotService;
+    
+    @Autowired
+    private BackupExecutionService backupExecutionService;
+    
     @Value("${backup.directory:/opt/app/wms/backups}")
     private String backupDirectory;
     
@@ -49,6 +57,24 @@ public class BackupService {
     @Value("${backup.backend.path:/opt/app/wms/backend}")
     private String backendPath;
     
+    /**
+     * 压缩线程数（0 表示使用全部CPU核心）
+     */
+    @Value("${backup.compression.threads:0}")
+    private int compressionThreads;
+    
+    @Value("${backup.compression.level:6}")
+    private int compressionLevel;
+    
+    /**
+     * 数据库导出方式：jdbc（内置并行逻辑导出）或 mysqldump
+     */
+    @Value("${backup.database.engine:jdbc}")
+    private String databaseEngine;
+    
+    @Value("${backup.database.threads:4}")
+    private int databaseThreads;
+    
     /**
      * 获取所有备份记录（按创建时间倒序）
      */
@@ -72,9 +98,15 @@ public class BackupService {
     
     /**
      * 创建新备份
+     * 不在事务中执行：备份记录的每次保存各自是一个短事务，限速进行的备份过程中不占用连接池的连接
      */
-    @Transactional
     public BackupRecord createBackup(boolean includeDatabase, boolean includeFiles, String description) {
+        String backupType = determineBackupType(includeDatabase, includeFiles);
+        return backupExecutionService.runExclusive("备份(" + backupType + ")",
+            () -> doCreateBackup(includeDatabase, includeFiles, description));
+    }
+    
+    private BackupRecord doCreateBackup(boolean includeDatabase, boolean includeFiles, String description) {
         logger.info("开始创建备份 - 数据库: {}, 文件: {}", includeDatabase, includeFiles);
         
         // 确保备份目录存在
@@ -96,37 +128,18 @@ public class BackupService {
         record = backupRepository.save(record);
         
         try {
-            List<String> backupFiles = new ArrayList<>();
-            
-            // 备份数据库
-            if (includeDatabase) {
-                String dbBackupFile = backupDatabase(timestamp);
-                if (dbBackupFile != null) {
-                    backupFiles.add(dbBackupFile);
-                }
-            }
-            
-            // 备份文件
-            if (includeFiles) {
-                String filesBackupFile = backupFiles(timestamp);
-                if (filesBackupFile != null) {
-                    backupFiles.add(filesBackupFile);
-                }
-            }
-            
-            // 创建最终压缩包
-            String finalBackupPath = createFinalBackup(timestamp, backupFiles);
+            // 水位取导出开始前的时间，导出期间的修改会由下一次增量备份覆盖
+            LocalDateTime snapshotTime = LocalDateTime.now();
+            writeArchive(record, timestamp, includeDatabase, includeFiles);
             
             // 更新记录
-            record.setFilePath(finalBackupPath);
-            record.setSize(new File(finalBackupPath).length());
+            if (includeDatabase && isJdbcDatabaseEngine()) {
+                record.setWatermark(snapshotTime);
+            }
             record.setStatus("completed");
             record.setCompletedAt(LocalDateTime.now());
             
-            // 清理临时文件
-            cleanupTemporaryFiles(backupFiles);
-            
-            logger.info("备份创建成功: {}", finalBackupPath);
+            logger.info("备份创建成功: {}", record.getFilePath());
             
         } catch (Exception e) {
             logger.error("备份创建失败", e);
@@ -139,10 +152,23 @@ public class BackupService {
     
     /**
      * 异步创建备份（性能优化）
-     * 不阻塞HTTP请求线程，适合大文件备份
+     * 在备份专用线程上执行，不阻塞HTTP请求线程；已有备份在运行时记录标记为失败并抛出 409
      */
-    @Async
     public void createBackupAsync(Long backupId, boolean includeDatabase, boolean includeFiles) {
+        try {
+            backupExecutionService.submit("备份 #" + backupId,
+                () -> runBackup(backupId, includeDatabase, includeFiles));
+        } catch (BusinessException e) {
+            backupRepository.findById(backupId).ifPresent(record -> {
+                record.setStatus("failed");
+                record.setErrorMessage(e.getMessage());
+                backupRepository.save(record);
+            });
+            throw e;
+        }
+    }
+    
+    private void runBackup(Long backupId, boolean includeDatabase, boolean includeFiles) {
         logger.info("异步备份任务开始: backupId={}", backupId);
         
         try {
@@ -152,39 +178,19 @@ public class BackupService {
             record.setStatus("processing");
             backupRepository.save(record);
             
-            String timestamp = LocalDateTime.now().format(DATE_FORMAT);
-            List<String> backupFiles = new ArrayList<>();
-            
-            // 备份数据库
-            if (includeDatabase) {
-                String dbBackupFile = backupDatabase(timestamp);
-                if (dbBackupFile != null) {
-                    backupFiles.add(dbBackupFile);
-                }
-            }
-            
-            // 备份文件
-            if (includeFiles) {
-                String filesBackupFile = backupFiles(timestamp);
-                if (filesBackupFile != null) {
-                    backupFiles.add(filesBackupFile);
-                }
-            }
-            
-            // 创建最终压缩包
-            String finalBackupPath = createFinalBackup(timestamp, backupFiles);
+            LocalDateTime snapshotTime = LocalDateTime.now();
+            String timestamp = snapshotTime.format(DATE_FORMAT);
+            writeArchive(record, timestamp, includeDatabase, includeFiles);
             
             // 更新记录
-            record.setFilePath(finalBackupPath);
-            record.setSize(new File(finalBackupPath).length());
+            if (includeDatabase && isJdbcDatabaseEngine()) {
+                record.setWatermark(snapshotTime);
+            }
             record.setStatus("completed");
             record.setCompletedAt(LocalDateTime.now());
             backupRepository.save(record);
             
-            // 清理临时文件
-            cleanupTemporaryFiles(backupFiles);
-            
-            logger.info("异步备份任务完成: backupId={}, path={}", backupId, finalBackupPath);
+            logger.info("异步备份任务完成: backupId={}, path={}", backupId, record.getFilePath());
             
         } catch (Exception e) {
             logger.error("异步备份失败: backupId={}", backupId, e);
@@ -202,134 +208,175 @@ public class BackupService {
     }
     
     /**
-     * 备份数据库
-     * 安全优化：使用环境变量传递密码，避免密码暴露在命令行
+     * 返回备份文件的 SHA-256，旧记录第一次下载时补算并保存
      */
-    private String backupDatabase(String timestamp) {
-        try {
-            // 从JDBC URL中提取数据库名
-            String dbName = extractDatabaseName(dbUrl);
-            String backupFile = backupDirectory + "/db-" + timestamp + ".sql";
-            
-            logger.info("开始备份数据库: {} -> {}", dbName, backupFile);
-            
-            // 构建mysqldump命令（不在命令行传递密码）
-            ProcessBuilder pb = new ProcessBuilder(
-                "mysqldump",
-                "-u" + dbUsername,
-                "--single-transaction",
-                "--routines",
-                "--triggers",
-                dbName
-            );
-            
-            // 使用环境变量传递密码，避免在进程列表中暴露
-            Map<String, String> env = pb.environment();
-            env.put("MYSQL_PWD", dbPassword);
-            
-            pb.redirectOutput(new File(backupFile));
-            pb.redirectErrorStream(true);
-            
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            
-            if (exitCode == 0) {
-                logger.info("数据库备份成功: {}", backupFile);
-                return backupFile;
-            } else {
-                logger.error("数据库备份失败，退出码: {}", exitCode);
-                return null;
+    public String ensureSha256(BackupRecord backup) throws IOException {
+        if (backup.getSha256() == null) {
+            backup.setSha256(DownloadService.sha256(Paths.get(backup.getFilePath())));
+            backupRepository.save(backup);
+        }
+        return backup.getSha256();
+    }
+    
+    /**
+     * 数据库是否使用内置 JDBC 导出（只有这种导出可以作为增量备份的基准并由程序恢复）
+     */
+    public boolean isJdbcDatabaseEngine() {
+        return !"mysqldump".equalsIgnoreCase(databaseEngine);
+    }
+    
+    /**
+     * 单趟流式生成备份包
+     * 数据库导出和前后端文件直接写入同一个 tar 流，由多线程分块 gzip 压缩，
+     * 每个字节只读一次、压缩一次、写盘一次；包内附带 SHA256SUMS 校验清单。
+     * 备份包的路径、大小和 SHA-256 写入 record，SHA-256 在写盘时计算，不再重读备份包
+     * （mysqldump 导出的头部需要回填，只有这种情况在写完后补算）
+     */
+    private void writeArchive(BackupRecord record, String timestamp, boolean includeDatabase, boolean includeFiles)
+            throws IOException {
+        File backupDir = new File(backupDirectory);
+        if (!backupDir.exists()) {
+            backupDir.mkdirs();
+        }
+        
+        Path archivePath = Paths.get(backupDirectory, "wms-backup-" + timestamp + ".tar.gz");
+        int threads = compressionThreads > 0 ? compressionThreads : Runtime.getRuntime().availableProcessors();
+        long start = System.currentTimeMillis();
+        
+        boolean success = false;
+        String sha256;
+        try (BackupArchiveWriter archive = new BackupArchiveWriter(archivePath, threads, compressionLevel)) {
+            archive.setThrottles(backupExecutionService.getReadThrottle(), backupExecutionService.getWriteThrottle());
+            if (includeDatabase) {
+                if (isJdbcDatabaseEngine()) {
+                    dumpDatabaseJdbc(archive, timestamp);
+                } else {
+                    dumpDatabase(archive, timestamp);
+                }
+            }
+            if (includeFiles) {
+                addDirectoryIfExists(archive, frontendPath);
+                addDirectoryIfExists(archive, backendPath);
             }
+            List<BackupArchiveWriter.Entry> entries = archive.finish();
+            sha256 = archive.getSha256();
+            success = true;
             
-        } catch (Exception e) {
-            logger.error("数据库备份异常", e);
-            return null;
+            logger.info("备份包生成完成: {}, 条目 {} 个, 原始 {} 字节, 压缩后 {} 字节, {} 线程, 耗时 {} ms",
+                archivePath, entries.size(), archive.getUncompressedBytes(),
+                Files.size(archivePath), threads, System.currentTimeMillis() - start);
+        } finally {
+            if (!success) {
+                Files.deleteIfExists(archivePath);
+            }
         }
+        
+        record.setFilePath(archivePath.toString());
+        record.setSize(Files.size(archivePath));
+        record.setSha256(sha256 != null ? sha256 : DownloadService.sha256(archivePath));
     }
     
     /**
-     * 备份文件（前端+后端）
+     * 备份数据库：内置 JDBC 逻辑导出，多连接在一致性快照内并行导出各表
+     * 分片文件本身已是 gzip，放入备份包时只存储不再压缩
      */
-    private String backupFiles(String timestamp) {
+    private void dumpDatabaseJdbc(BackupArchiveWriter archive, String timestamp) throws IOException {
+        Path staging = Paths.get(backupDirectory, ".db-" + timestamp);
         try {
-            String backupFile = backupDirectory + "/files-" + timestamp + ".tar.gz";
-            
-            logger.info("开始备份文件 -> {}", backupFile);
-            
-            // 使用tar命令打包
-            ProcessBuilder pb = new ProcessBuilder(
-                "tar",
-                "-czf",
-                backupFile,
-                "-C", "/www/wwwroot", "vue3-wms",
-                "-C", "/opt/app/wms", "backend"
-            );
-            
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            int exitCode = process.waitFor();
-            
-            if (exitCode == 0) {
-                logger.info("文件备份成功: {}", backupFile);
-                return backupFile;
-            } else {
-                logger.error("文件备份失败，退出码: {}", exitCode);
-                return null;
-            }
-            
-        } catch (Exception e) {
-            logger.error("文件备份异常", e);
-            return null;
+            DatabaseDumper dumper = new DatabaseDumper(backupExecutionService.getDataSource());
+            dumper.setThreads(databaseThreads);
+            dumper.setThrottle(backupExecutionService.getWriteThrottle());
+            dumper.dump(staging);
+            archive.addPrecompressedDirectory("db-" + timestamp, staging);
+        } catch (java.sql.SQLException e) {
+            throw new IOException("数据库导出失败: " + e.getMessage(), e);
+        } finally {
+            deleteDirectory(staging);
         }
     }
     
     /**
-     * 创建最终备份包
+     * 递归删除目录
      */
-    private String createFinalBackup(String timestamp, List<String> files) throws IOException {
-        String finalBackupPath = backupDirectory + "/wms-backup-" + timestamp + ".tar.gz";
+    static void deleteDirectory(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (java.util.stream.Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    logger.warn("删除临时文件失败: {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("清理临时目录失败: {}", directory, e);
+        }
+    }
+    
+    /**
+     * 备份数据库：mysqldump 的输出直接流入备份包，不再生成中间 .sql 文件
+     * 安全优化：使用环境变量传递密码，避免密码暴露在命令行
+     */
+    private void dumpDatabase(BackupArchiveWriter archive, String timestamp) throws IOException {
+        // 从JDBC URL中提取数据库名
+        String dbName = extractDatabaseName(dbUrl);
+        String entryName = "db-" + timestamp + ".sql";
         
-        if (files.size() == 1) {
-            // 只有一个文件，直接重命名
-            Files.move(
-                Paths.get(files.get(0)), 
-                Paths.get(finalBackupPath),
-                StandardCopyOption.REPLACE_EXISTING
-            );
-        } else {
-            // 多个文件，打包在一起
-            ProcessBuilder pb = new ProcessBuilder();
-            List<String> command = new ArrayList<>();
-            command.add("tar");
-            command.add("-czf");
-            command.add(finalBackupPath);
-            command.addAll(files);
-            
-            pb.command(command);
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            try {
-                process.waitFor();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IOException("备份打包被中断", e);
+        logger.info("开始备份数据库: {} -> {}", dbName, entryName);
+        
+        // 构建mysqldump命令（不在命令行传递密码）
+        ProcessBuilder pb = new ProcessBuilder(
+            "mysqldump",
+            "-u" + dbUsername,
+            "--single-transaction",
+            "--routines",
+            "--triggers",
+            dbName
+        );
+        
+        // 使用环境变量传递密码，避免在进程列表中暴露
+        Map<String, String> env = pb.environment();
+        env.put("MYSQL_PWD", dbPassword);
+        
+        // 错误输出不能混入SQL内容
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        
+        Process process = pb.start();
+        long size;
+        try (InputStream dump = process.getInputStream()) {
+            size = archive.addStream(entryName, dump);
+        } catch (IOException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("数据库备份失败，mysqldump 退出码: " + exitCode);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            throw new IOException("数据库备份被中断", e);
         }
         
-        return finalBackupPath;
+        logger.info("数据库备份成功: {} ({} 字节)", entryName, size);
     }
     
     /**
-     * 清理临时文件
+     * 将目录按其目录名加入备份包（目录不存在时跳过）
      */
-    private void cleanupTemporaryFiles(List<String> files) {
-        for (String file : files) {
-            try {
-                Files.deleteIfExists(Paths.get(file));
-            } catch (IOException e) {
-                logger.warn("清理临时文件失败: {}", file, e);
-            }
+    private void addDirectoryIfExists(BackupArchiveWriter archive, String directory) throws IOException {
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            logger.warn("备份目录不存在，跳过: {}", directory);
+            return;
         }
+        logger.info("开始备份文件: {}", directory);
+        archive.addDirectory(dir.getFileName().toString(), dir);
     }
     
     /**
@@ -373,11 +420,35 @@ public class BackupService {
      */
     @Transactional
     public int cleanupOldBackups(int retentionDays) {
+        return backupExecutionService.runExclusive("清理过期备份", () -> doCleanupOldBackups(retentionDays));
+    }
+    
+    private int doCleanupOldBackups(int retentionDays) {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(retentionDays);
         List<BackupRecord> oldBackups = backupRepository.findByCreatedAtBefore(cutoffDate);
         
+        // 仍被未过期增量备份引用的备份（增量链上的祖先）需要保留，否则增量备份无法恢复
+        Set<Long> expiredIds = oldBackups.stream().map(BackupRecord::getId).collect(Collectors.toSet());
+        Set<Long> referenced = new HashSet<>();
+        Map<Long, BackupRecord> byId = backupRepository.findAll().stream()
+                .collect(Collectors.toMap(BackupRecord::getId, b -> b));
+        for (BackupRecord backup : byId.values()) {
+            if (expiredIds.contains(backup.getId())) {
+                continue;
+            }
+            BackupRecord current = backup;
+            while (current != null && current.getParentBackupId() != null
+                    && referenced.add(current.getParentBackupId())) {
+                current = byId.get(current.getParentBackupId());
+            }
+        }
+        
         int count = 0;
         for (BackupRecord backup : oldBackups) {
+            if (referenced.contains(backup.getId())) {
+                logger.debug("备份仍被增量备份引用，暂不清理: id={}", backup.getId());
+                continue;
+            }
             try {
                 deleteBackup(backup.getId());
                 count++;
@@ -387,6 +458,9 @@ public class BackupService {
         }
         
         logger.info("清理了 {} 个过期备份", count);
+        
+        // 文件快照清单删除后，回收不再被引用的数据块
+        fileSnapshotService.collectGarbage();
         return count;
     }
     
@@ -0,0 +1,365 @@
+package com.wms.service;
+
+import com.wms.dto.AssemblyRuleView;
+import com.wms.entity.AutoStorageRule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * 装配 BOM 图
+ * 启用的组装规则构成“产品 -> 零件”的有向图：零件名与另一条启用规则的产品名相同时视为子装配件，否则为末级零件。
+ * 构建时检查循环引用，并为每个产品预先计算展开到末级零件的单件用量（记忆化，每个子装配件只展开一次）和子装配件的拓扑顺序，
+ * 查询时不再逐层递归查询数据库。
+ * 计件半成品入库规则（成品且配置了毛坯）记录“零件 -> 毛坯”的用量，用于估算补齐零件缺口需要的毛坯。
+ * 构建后不可变，可在多个线程间共享。
+ */
+public class BomGraph {
+
+    /**
+     * 可装数量的查找上限
+     */
+    static final long MAX_BUILDABLE = Integer.MAX_VALUE;
+
+    private final long ruleVersion;
+    private final Map<Long, String> productByRuleId = new HashMap<>();
+    private final Set<Long> enabledRuleIds = new HashSet<>();
+
+    /** 产品 -> 零件 -> 单件用量（同一零件出现多次时合并） */
+    private final Map<String, Map<String, Long>> children = new HashMap<>();
+
+    /** 产品 -> 末级零件 -> 单件用量 */
+    private final Map<String, Map<String, Long>> flattened = new HashMap<>();
+
+    /** 产品 -> 产品本身及其下所有子装配件，父项总在子项之前 */
+    private final Map<String, List<String>> assemblyOrder = new HashMap<>();
+
+    /** 零件（入库规则的目标位置）-> 毛坯来源 */
+    private final Map<String, BlankSource> blankSources = new HashMap<>();
+
+    /** 无法展开的产品（循环引用、用量溢出）-> 原因 */
+    private final Map<String, String> errors = new LinkedHashMap<>();
+
+    /**
+     * @param ruleVersion  组装规则注册表的版本号
+     * @param rules        所有组装规则（含禁用的，禁用规则的产品按普通零件处理）
+     * @param storageRules 启用的入库规则，按优先级从高到低；同一零件有多条毛坯规则时取第一条
+     */
+    public BomGraph(long ruleVersion, List<AssemblyRuleView> rules, List<AutoStorageRule> storageRules) {
+        this.ruleVersion = ruleVersion;
+        for (AssemblyRuleView rule : rules) {
+            if (rule == null || rule.getId() == null) {
+                continue;
+            }
+            productByRuleId.put(rule.getId(), rule.getProductName());
+            if (!Boolean.TRUE.equals(rule.getIsEnabled()) || isBlank(rule.getProductName())) {
+                continue;
+            }
+            enabledRuleIds.add(rule.getId());
+            Map<String, Long> components = children.computeIfAbsent(rule.getProductName(), k -> new LinkedHashMap<>());
+            for (AssemblyRuleView.Item item : rule.getItems()) {
+                int perUnit = item.getQuantity() == null ? 1 : item.getQuantity();
+                if (isBlank(item.getComponentName()) || perUnit <= 0) {
+                    continue;
+                }
+                components.merge(item.getComponentName(), (long) perUnit, Long::sum);
+            }
+        }
+
+        for (AutoStorageRule rule : storageRules) {
+            if (rule == null || !Boolean.TRUE.equals(rule.getIsEnabled())
+                || !Boolean.TRUE.equals(rule.getIsFinishedProduct())
+                || isBlank(rule.getTargetLocation()) || isBlank(rule.getBlankProductName())) {
+                continue;
+            }
+            blankSources.putIfAbsent(rule.getTargetLocation(), new BlankSource(rule));
+        }
+
+        for (String product : children.keySet()) {
+            try {
+                flatten(product, new LinkedHashSet<>());
+            } catch (BomException e) {
+                // 已记录到 errors
+            }
+        }
+        for (String product : flattened.keySet()) {
+            assemblyOrder.put(product, topologicalOrder(product));
+        }
+    }
+
+    /**
+     * 构建时组装规则注册表的版本号
+     */
+    public long getRuleVersion() {
+        return ruleVersion;
+    }
+
+    /**
+     * 规则对应的产品名，规则不存在时返回 null
+     */
+    public String productOf(Long ruleId) {
+        return productByRuleId.get(ruleId);
+    }
+
+    public boolean isEnabled(Long ruleId) {
+        return enabledRuleIds.contains(ruleId);
+    }
+
+    /**
+     * 是否为启用规则的产品（作为零件时即子装配件）
+     */
+    public boolean isAssembly(String name) {
+        return children.containsKey(name);
+    }
+
+    /**
+     * 产品无法展开的原因，可以展开时返回 null
+     */
+    public String errorOf(String product) {
+        return errors.get(product);
+    }
+
+    public Map<String, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * 展开到末级零件的单件用量，产品不存在或无法展开时为空
+     */
+    public Map<String, Long> getLeafDemand(String product) {
+        return flattened.getOrDefault(product, Collections.emptyMap());
+    }
+
+    /**
+     * 产品本身及其下所有子装配件，父项总在子项之前
+     */
+    public List<String> getAssemblyOrder(String product) {
+        return assemblyOrder.getOrDefault(product, Collections.emptyList());
+    }
+
+    public BlankSource blankSourceOf(String part) {
+        return blankSources.get(part);
+    }
+
+    /**
+     * 按库存逐层计算净需求（MRP）：按拓扑顺序处理子装配件，先用子装配件自身的库存抵扣，不足的部分再展开到下一层；
+     * 顶层产品不抵扣库存。
+     *
+     * @param available 零件名 -> 可用库存；传入恒为 0 的函数即得到不抵扣任何库存的完全展开
+     * @return 零件（含子装配件，不含顶层产品）-> 抵扣上层库存后的需求数量
+     */
+    public Map<String, Long> netRequirements(String product, long quantity, ToLongFunction<String> available) {
+        Map<String, Long> gross = new HashMap<>();
+        gross.put(product, quantity);
+        for (String node : getAssemblyOrder(product)) {
+            long demand = gross.getOrDefault(node, 0L);
+            long net = node.equals(product) ? demand : Math.max(0, demand - available.applyAsLong(node));
+            if (net == 0) {
+                continue;
+            }
+            for (Map.Entry<String, Long> entry : children.get(node).entrySet()) {
+                gross.merge(entry.getKey(), saturatedMultiply(net, entry.getValue()), BomGraph::saturatedAdd);
+            }
+        }
+        gross.remove(product);
+        return gross;
+    }
+
+    /**
+     * 末级零件库存是否足够装配指定数量（子装配件库存先抵扣）
+     */
+    public boolean isBuildable(String product, long quantity, ToLongFunction<String> available) {
+        Map<String, Long> required = netRequirements(product, quantity, available);
+        for (String leaf : getLeafDemand(product).keySet()) {
+            if (required.getOrDefault(leaf, 0L) > available.applyAsLong(leaf)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按当前库存最多可装的数量（倍增确定范围后二分查找，最多 {@link #MAX_BUILDABLE}）
+     */
+    public long maxBuildable(String product, ToLongFunction<String> available) {
+        if (!isBuildable(product, 1, available)) {
+            return 0;
+        }
+        long low = 1;
+        long high = 2;
+        while (high <= MAX_BUILDABLE && isBuildable(product, high, available)) {
+            low = high;
+            high <<= 1;
+        }
+        if (high > MAX_BUILDABLE) {
+            if (isBuildable(product, MAX_BUILDABLE, available)) {
+                return MAX_BUILDABLE;
+            }
+            high = MAX_BUILDABLE;
+        }
+        // low 可装，high 不可装
+        while (high - low > 1) {
+            long mid = (low + high) >>> 1;
+            if (isBuildable(product, mid, available)) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Map<String, Long> flatten(String product, LinkedHashSet<String> path) {
+        Map<String, Long> done = flattened.get(product);
+        if (done != null) {
+            return done;
+        }
+        String error = errors.get(product);
+        if (error != null) {
+            throw new BomException(error);
+        }
+        if (path.contains(product)) {
+            List<String> cycle = new ArrayList<>();
+            boolean inCycle = false;
+            for (String node : path) {
+                inCycle |= node.equals(product);
+                if (inCycle) {
+                    cycle.add(node);
+                }
+            }
+            cycle.add(product);
+            throw new BomException("组装规则存在循环引用: " + String.join(" -> ", cycle));
+        }
+
+        path.add(product);
+        try {
+            Map<String, Long> leaves = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> entry : children.get(product).entrySet()) {
+                String component = entry.getKey();
+                long perUnit = entry.getValue();
+                if (!children.containsKey(component)) {
+                    leaves.merge(component, perUnit, Math::addExact);
+                    continue;
+                }
+                for (Map.Entry<String, Long> leaf : flatten(component, path).entrySet()) {
+                    leaves.merge(leaf.getKey(), Math.multiplyExact(leaf.getValue(), perUnit), Math::addExact);
+                }
+            }
+            Map<String, Long> result = Collections.unmodifiableMap(leaves);
+            flattened.put(product, result);
+            return result;
+        } catch (BomException e) {
+            errors.put(product, e.getMessage());
+            throw e;
+        } catch (ArithmeticException e) {
+            String message = "组装规则零件用量超出范围: " + product;
+            errors.put(product, message);
+            throw new BomException(message);
+        } finally {
+            path.remove(product);
+        }
+    }
+
+    /**
+     * 深度优先后序的逆序，保证每个子装配件排在所有用到它的父项之后
+     */
+    private List<String> topologicalOrder(String product) {
+        List<String> postOrder = new ArrayList<>();
+        visit(product, new HashSet<>(), postOrder);
+        Collections.reverse(postOrder);
+        return Collections.unmodifiableList(postOrder);
+    }
+
+    private void visit(String node, Set<String> visited, List<String> postOrder) {
+        if (!visited.add(node)) {
+            return;
+        }
+        for (String component : children.get(node).keySet()) {
+            if (children.containsKey(component)) {
+                visit(component, visited, postOrder);
+            }
+        }
+        postOrder.add(node);
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        long hi = Math.multiplyHigh(a, b);
+        long lo = a * b;
+        return (hi == 0 && lo >= 0) ? lo : Long.MAX_VALUE;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    /**
+     * 计件入库规则中零件的毛坯来源
+     * 入库比例 n:d 表示 n 件计件产出入库 d 个零件，每件计件消耗 blankQuantityPerUnit 个毛坯。
+     */
+    public static final class BlankSource {
+        private final String blankProductName;
+        private final long pieces;
+        private final long units;
+        private final long blanksPerPiece;
+
+        BlankSource(AutoStorageRule rule) {
+            this.blankProductName = rule.getBlankProductName();
+            this.blanksPerPiece = rule.getBlankQuantityPerUnit() == null ? 1 : Math.max(0, rule.getBlankQuantityPerUnit());
+            long n = 1;
+            long d = 1;
+            String ratio = rule.getStorageRatio();
+            if (ratio != null) {
+                String[] parts = ratio.split(":");
+                if (parts.length == 2) {
+                    try {
+                        n = Long.parseLong(parts[0].trim());
+                        d = Long.parseLong(parts[1].trim());
+                    } catch (NumberFormatException e) {
+                        n = d = 1;
+                    }
+                }
+            }
+            // 与计件入库一致，比例无效时按 1:1
+            if (n <= 0 || d <= 0) {
+                n = d = 1;
+            }
+            this.pieces = n;
+            this.units = d;
+        }
+
+        public String getBlankProductName() {
+            return blankProductName;
+        }
+
+        /**
+         * 入库 units 个零件需要的毛坯数：计件数量 ceil(units * n / d)，每件消耗 blankQuantityPerUnit 个毛坯
+         */
+        public long blanksFor(long partUnits) {
+            if (partUnits <= 0) {
+                return 0;
+            }
+            long work = saturatedMultiply(partUnits, pieces);
+            long piecework = work / units + (work % units == 0 ? 0 : 1);
+            return saturatedMultiply(piecework, blanksPerPiece);
+        }
+    }
+
+    private static final class BomException extends RuntimeException {
+        BomException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.wms.service;
+
+import com.wms.common.BusinessException;
+import com.wms.dto.AssemblyCheckRequest;
+import com.wms.dto.BomExplosionResult;
+import com.wms.entity.AutoStorageRule;
+import com.wms.entity.BlankInventory;
+import com.wms.repository.AutoStorageRuleRepository;
+import com.wms.repository.BlankInventoryRepository;
+import com.wms.repository.InventoryItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * 多级 BOM 展开
+ * 组装规则取自 {@link AssemblyRuleRegistry} 的快照，计件入库规则缓存在内存中，二者构成 {@link BomGraph}；
+ * 注册表版本变化后下次使用时重建，入库规则在本节点修改后立即重新加载，其它节点的修改由定时刷新同步。
+ * 展开时只查询一次库存：规格、材质、连接类型沿用请求的值匹配每一层零件，与执行装配时一致。
+ */
+@Service
+public class BomService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BomService.class);
+
+    @Autowired
+    private AssemblyRuleRegistry ruleRegistry;
+
+    @Autowired
+    private AutoStorageRuleRepository storageRuleRepository;
+
+    @Autowired
+    private InventoryItemRepository inventoryRepository;
+
+    @Autowired
+    private BlankInventoryRepository blankInventoryRepository;
+
+    private volatile List<AutoStorageRule> storageRules = Collections.emptyList();
+
+    private volatile BomGraph graph;
+
+    @PostConstruct
+    public void init() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.error("构建装配 BOM 失败，将在下次刷新时重试", e);
+        }
+    }
+
+    /**
+     * 重新加载计件入库规则并重建 BOM 图
+     */
+    @Scheduled(fixedDelayString = "${assembly.bom.refresh-ms:60000}")
+    public synchronized void rebuild() {
+        storageRules = storageRuleRepository.findByIsEnabledOrderByPriorityDesc(true);
+        build(true);
+    }
+
+    /**
+     * 当前 BOM 图，组装规则注册表版本变化时先重建
+     */
+    public BomGraph getGraph() {
+        BomGraph current = graph;
+        if (current == null || current.getRuleVersion() != ruleRegistry.getVersion()) {
+            current = build(false);
+        }
+        return current;
+    }
+
+    private synchronized BomGraph build(boolean force) {
+        long version = ruleRegistry.getVersion();
+        BomGraph current = graph;
+        if (!force && current != null && current.getRuleVersion() == version) {
+            return current;
+        }
+        BomGraph rebuilt = new BomGraph(version, ruleRegistry.getAll(), storageRules);
+        rebuilt.getErrors().forEach((product, error) -> logger.warn("装配 BOM 无法展开 {}: {}", product, error));
+        graph = rebuilt;
+        return rebuilt;
+    }
+
+    /**
+     * 将装配数量展开为各层零件需求和毛坯需求，并计算按当前库存最多可装的数量
+     */
+    @Transactional(readOnly = true)
+    public BomExplosionResult explode(AssemblyCheckRequest request) {
+        if (request == null) {
+            throw new BusinessException("请求不能为空");
+        }
+        if (request.getAssemblyRuleId() == null) {
+            throw new BusinessException("组装规则ID不能为空");
+        }
+        if (request.getQuantity() == null || request.getQuantity() <= 0) {
+            throw new BusinessException("数量必须大于0");
+        }
+
+        BomGraph bom = getGraph();
+        String product = bom.productOf(request.getAssemblyRuleId());
+        if (product == null) {
+            throw new BusinessException("组装规则不存在");
+        }
+        if (!bom.isEnabled(request.getAssemblyRuleId())) {
+            throw new BusinessException("组装规则已禁用");
+        }
+        String error = bom.errorOf(product);
+        if (error != null) {
+            throw new BusinessException(error);
+        }
+
+        InventorySnapshot snapshot = new InventorySnapshot(inventoryRepository.findAll());
+        Map<String, Long> stock = new HashMap<>();
+        ToLongFunction<String> available = name -> stock.computeIfAbsent(name, n -> (long) InventorySnapshot.quantityOf(
+            snapshot.match(n, request.getSpecification(), request.getMaterial(), request.getConnectionType())));
+
+        long quantity = request.getQuantity();
+        Map<String, Long> total = bom.netRequirements(product, quantity, name -> 0L);
+        Map<String, Long> required = bom.netRequirements(product, quantity, available);
+
+        BomExplosionResult result = new BomExplosionResult();
+        result.setAssemblyRuleId(request.getAssemblyRuleId());
+        result.setProductName(product);
+        result.setSpecification(request.getSpecification());
+        result.setMaterial(request.getMaterial());
+        result.setConnectionType(request.getConnectionType());
+        result.setQuantity(request.getQuantity());
+        result.setCanAssemble(true);
+
+        List<String> components = new ArrayList<>(bom.getAssemblyOrder(product));
+        components.remove(product);
+        components.addAll(bom.getLeafDemand(product).keySet());
+
+        Map<String, BomExplosionResult.Blank> blanks = new LinkedHashMap<>();
+        for (String component : components) {
+            boolean intermediate = bom.isAssembly(component);
+            long need = required.getOrDefault(component, 0L);
+            long stockQty = available.applyAsLong(component);
+            long net = Math.max(0, need - stockQty);
+
+            BomExplosionResult.Requirement requirement = new BomExplosionResult.Requirement();
+            requirement.setComponentName(component);
+            requirement.setIntermediate(intermediate);
+            requirement.setTotalRequired(total.getOrDefault(component, 0L));
+            requirement.setRequired(need);
+            requirement.setAvailable((int) stockQty);
+            requirement.setNet(net);
+            result.getRequirements().add(requirement);
+
+            if (intermediate || net == 0) {
+                continue;
+            }
+            result.setCanAssemble(false);
+            result.getInsufficientParts().add(component);
+
+            BomGraph.BlankSource source = bom.blankSourceOf(component);
+            if (source != null) {
+                BomExplosionResult.Blank blank = blanks.computeIfAbsent(source.getBlankProductName(), name -> {
+                    BomExplosionResult.Blank b = new BomExplosionResult.Blank();
+                    b.setBlankProductName(name);
+                    b.setRequired(0L);
+                    return b;
+                });
+                blank.getParts().add(component);
+                blank.setRequired(blank.getRequired() + source.blanksFor(net));
+            }
+        }
+
+        for (BomExplosionResult.Blank blank : blanks.values()) {
+            int blankStock = blankInventoryRepository.findByProductNameAndSpecificationAndMaterial(
+                    blank.getBlankProductName(), request.getSpecification(), request.getMaterial())
+                .map(BlankInventory::getQuantity)
+                .orElse(0);
+            blank.setAvailable(blankStock);
+            blank.setShortage(Math.max(0, blank.getRequired() - blankStock));
+            result.getBlanks().add(blank);
+        }
+
+        result.setMaxBuildable(bom.getLeafDemand(product).isEmpty() ? null
+            : (int) bom.maxBuildable(product, available));
+        return result;
+    }
+}
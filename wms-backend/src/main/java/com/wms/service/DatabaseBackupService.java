@@ -0,0 +1,365 @@
+package com.wms.service;
+
+import com.wms.common.BusinessException;
+import com.wms.dto.RestoreReport;
+import com.wms.entity.BackupRecord;
+import com.wms.repository.BackupRecordRepository;
+import com.wms.util.BackupArchiveReader;
+import com.wms.util.BackupArchiveWriter;
+import com.wms.util.DatabaseDumper;
+import com.wms.util.DatabaseRestorer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 数据库增量备份服务
+ * 每次数据库备份记录一个水位（导出开始时间）。增量备份只导出更新时间列不早于上一个水位的行，
+ * 以覆盖写入语句保存；被删除的行由触发器记入 backup_deletions 表，随增量一起导出。
+ * 恢复时从全量备份开始，沿 parentBackupId 链依次重放各个增量。
+ */
+@Service
+public class DatabaseBackupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseBackupService.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final DateTimeFormatter SQL_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern SCHEMA_NAME = Pattern.compile("[A-Za-z0-9_]{1,64}");
+
+    public static final String TYPE_INCREMENTAL = "database-incremental";
+
+    /**
+     * 行更新时间列（按优先级）
+     */
+    private static final List<String> UPDATE_COLUMNS = Arrays.asList("updated_time", "updated_at", "update_time");
+
+    /**
+     * 行创建时间列，只用于只追加不修改的表
+     */
+    private static final List<String> CREATE_COLUMNS = Arrays.asList("created_time", "created_at", "create_time");
+
+    @Autowired
+    private BackupRecordRepository backupRepository;
+
+    @Autowired
+    private BackupService backupService;
+
+    @Autowired
+    private BackupExecutionService backupExecutionService;
+
+    @Value("${backup.directory:/opt/app/wms/backups}")
+    private String backupDirectory;
+
+    @Value("${backup.compression.threads:0}")
+    private int compressionThreads;
+
+    @Value("${backup.compression.level:6}")
+    private int compressionLevel;
+
+    @Value("${backup.database.threads:4}")
+    private int databaseThreads;
+
+    /**
+     * 水位回退的分钟数：事务提交时间晚于更新时间列的行不会因为时钟边界被漏掉，重复导出的行由覆盖写入消化
+     */
+    @Value("${backup.database.incremental.overlap-minutes:10}")
+    private int overlapMinutes;
+
+    /**
+     * 只追加的表（按创建时间列做增量），其它没有更新时间列的表每次都全量导出
+     */
+    @Value("${backup.database.incremental.append-only-tables:audit_logs,inventory_logs}")
+    private String appendOnlyTables;
+
+    /**
+     * 创建数据库增量备份
+     * 没有可用的上一个备份（或数据库导出方式为 mysqldump）时改为创建全量数据库备份
+     */
+    public BackupRecord createIncrementalBackup(String description) {
+        if (!backupService.isJdbcDatabaseEngine()) {
+            logger.info("数据库导出方式不是 jdbc，改为全量数据库备份");
+            return backupService.createBackup(true, false, description);
+        }
+
+        return backupExecutionService.runExclusive("数据库增量备份", () -> {
+            BackupRecord parent = backupRepository
+                .findFirstByStatusAndWatermarkIsNotNullOrderByWatermarkDesc("completed")
+                .orElse(null);
+            if (parent == null) {
+                logger.info("没有带水位的数据库备份，改为全量数据库备份");
+                return backupService.createBackup(true, false, description);
+            }
+            return createIncremental(parent, description);
+        });
+    }
+
+    private BackupRecord createIncremental(BackupRecord parent, String description) {
+        LocalDateTime snapshotTime = LocalDateTime.now();
+        String timestamp = snapshotTime.format(DATE_FORMAT);
+
+        BackupRecord record = new BackupRecord();
+        record.setName("db-incr-" + timestamp);
+        record.setType(TYPE_INCREMENTAL);
+        record.setStatus("running");
+        record.setDescription(description);
+        record.setParentBackupId(parent.getId());
+        record.setBaseBackupId(TYPE_INCREMENTAL.equals(parent.getType()) ? parent.getBaseBackupId() : parent.getId());
+        record.setCreatedAt(snapshotTime);
+        record = backupRepository.save(record);
+
+        Path archivePath = Paths.get(backupDirectory, "wms-db-incr-" + timestamp + ".tar.gz");
+        Path staging = Paths.get(backupDirectory, ".db-" + timestamp);
+        try {
+            long start = System.currentTimeMillis();
+            Files.createDirectories(Paths.get(backupDirectory));
+            String since = parent.getWatermark().minusMinutes(overlapMinutes).format(SQL_TIMESTAMP);
+
+            DatabaseDumper dumper = new DatabaseDumper(backupExecutionService.getDataSource());
+            dumper.setThreads(databaseThreads);
+            dumper.setUpsert(true);
+            dumper.setSince(since);
+            dumper.setTableFilters(buildFilters(since));
+            dumper.setThrottle(backupExecutionService.getWriteThrottle());
+            long rows = dumper.dump(staging).getTables().stream().mapToLong(t -> t.getRowCount()).sum();
+
+            int threads = compressionThreads > 0 ? compressionThreads : Runtime.getRuntime().availableProcessors();
+            String sha256;
+            try (BackupArchiveWriter archive = new BackupArchiveWriter(archivePath, threads, compressionLevel)) {
+                archive.setThrottles(backupExecutionService.getReadThrottle(), backupExecutionService.getWriteThrottle());
+                archive.addPrecompressedDirectory("db-" + timestamp, staging);
+                archive.finish();
+                sha256 = archive.getSha256();
+            }
+
+            record.setFilePath(archivePath.toString());
+            record.setSize(Files.size(archivePath));
+            record.setSha256(sha256);
+            record.setWatermark(snapshotTime);
+            record.setStatus("completed");
+            record.setCompletedAt(LocalDateTime.now());
+
+            logger.info("数据库增量备份完成: {}, 上一个备份={}, 起始水位={}, 导出 {} 行, {} 字节, 耗时 {} ms",
+                record.getName(), parent.getName(), since, rows, record.getSize(),
+                System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("数据库增量备份失败", e);
+            record.setStatus("failed");
+            record.setErrorMessage(e.getMessage());
+            try {
+                Files.deleteIfExists(archivePath);
+            } catch (IOException ex) {
+                logger.warn("删除不完整的备份包失败: {}", archivePath, ex);
+            }
+        } finally {
+            BackupService.deleteDirectory(staging);
+        }
+        return backupRepository.save(record);
+    }
+
+    /**
+     * 按表生成增量过滤条件：有更新时间列的表按更新时间过滤，只追加的表按创建时间过滤，
+     * 删除记录表按删除时间过滤；其它表不加条件（全量导出）
+     */
+    private Map<String, String> buildFilters(String since) throws SQLException {
+        Set<String> appendOnly = Arrays.stream(appendOnlyTables.split(","))
+            .map(s -> s.trim().toLowerCase(Locale.ROOT))
+            .filter(s -> !s.isEmpty())
+            .collect(Collectors.toSet());
+
+        Map<String, String> filters = new HashMap<>();
+        List<String> fullTables = new ArrayList<>();
+        try (Connection connection = backupExecutionService.getDataSource().getConnection()) {
+            for (String table : DatabaseDumper.listTables(connection)) {
+                Set<String> columns = columnNames(connection, table);
+                String lower = table.toLowerCase(Locale.ROOT);
+                String column = null;
+                if (DatabaseRestorer.TOMBSTONE_TABLE.equals(lower)) {
+                    column = "deleted_at";
+                } else {
+                    column = firstPresent(UPDATE_COLUMNS, columns);
+                    if (column == null && appendOnly.contains(lower)) {
+                        column = firstPresent(CREATE_COLUMNS, columns);
+                    }
+                }
+                if (column == null) {
+                    fullTables.add(table);
+                    continue;
+                }
+                // 更新时间为空的行无法判断是否变化，一并导出
+                filters.put(table, "(" + column + " >= TIMESTAMP '" + since + "' OR " + column + " IS NULL)");
+            }
+        }
+        if (!fullTables.isEmpty()) {
+            logger.info("以下表没有可用的时间列，增量备份时全量导出: {}", fullTables);
+        }
+        return filters;
+    }
+
+    private static Set<String> columnNames(Connection connection, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(),
+            escapePattern(table, metaData.getSearchStringEscape()), null)) {
+            while (rs.next()) {
+                columns.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+            }
+        }
+        return columns;
+    }
+
+    private static String escapePattern(String name, String escape) {
+        if (escape == null || escape.isEmpty()) {
+            return name;
+        }
+        return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
+    private static String firstPresent(List<String> candidates, Set<String> columns) {
+        for (String candidate : candidates) {
+            if (columns.contains(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 恢复数据库备份（全量备份或增量备份）到指定库
+     * 增量备份沿 parentBackupId 回溯到全量备份，先并行加载全量导出并核对清单，再按顺序重放每个增量；
+     * 与备份、清理共用执行许可，恢复期间不会有备份写入或清理删除备份链中的文件，已有任务在运行时抛出 409
+     *
+     * @param targetSchema 目标库名；为空时恢复到当前库，此时必须显式指定 overwrite
+     * @param dryRun       演练：恢复到临时库，核对行数和校验和、统计耗时后删除临时库
+     * @return 恢复报告（各阶段耗时、各表核对结果）
+     */
+    public RestoreReport restore(Long backupId, String targetSchema, boolean overwrite, boolean dryRun)
+            throws IOException {
+        try {
+            return backupExecutionService.runExclusive("数据库恢复 #" + backupId, () -> {
+                try {
+                    return doRestore(backupId, targetSchema, overwrite, dryRun);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private RestoreReport doRestore(Long backupId, String targetSchema, boolean overwrite, boolean dryRun)
+            throws IOException {
+        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
+        if (dryRun) {
+            targetSchema = "wms_restore_check_" + timestamp.replace("-", "_");
+        }
+        boolean currentSchema = targetSchema == null || targetSchema.trim().isEmpty();
+        if (currentSchema && !overwrite) {
+            throw new BusinessException(400, "恢复到当前数据库会覆盖线上数据，请指定目标库或确认覆盖");
+        }
+        if (!currentSchema && !SCHEMA_NAME.matcher(targetSchema).matches()) {
+            throw new BusinessException(400, "目标库名只能包含字母、数字和下划线");
+        }
+
+        List<BackupRecord> chain = resolveChain(backupId);
+        Path workDirectory = Paths.get(backupDirectory, ".restore-" + timestamp);
+        DatabaseRestorer restorer = new DatabaseRestorer(backupExecutionService.getDataSource());
+        restorer.setThreads(databaseThreads);
+        try {
+            long start = System.currentTimeMillis();
+            List<Path> dumps = new ArrayList<>();
+            for (int i = 0; i < chain.size(); i++) {
+                BackupRecord record = chain.get(i);
+                Path directory = workDirectory.resolve(String.valueOf(i));
+                if (BackupArchiveReader.extract(Paths.get(record.getFilePath()), "db-", directory) == 0) {
+                    throw new IOException("备份包中没有数据库导出: " + record.getName());
+                }
+                dumps.add(findDumpDirectory(directory, record));
+            }
+            long extractMs = System.currentTimeMillis() - start;
+
+            RestoreReport report = restorer.restore(dumps, currentSchema ? null : targetSchema);
+            report.setDryRun(dryRun);
+            report.setChain(chain.stream().map(BackupRecord::getId).collect(Collectors.toList()));
+            report.setDurationMs(System.currentTimeMillis() - start);
+            logger.info("数据库恢复完成: 备份={}, 目标库={}, 链长度={}, 解包 {} ms, 总耗时 {} ms, 校验结果={}", backupId,
+                currentSchema ? "当前库" : targetSchema, chain.size(), extractMs, report.getDurationMs(),
+                report.getVerified());
+            return report;
+        } catch (SQLException e) {
+            throw new IOException("数据库恢复失败: " + e.getMessage(), e);
+        } finally {
+            BackupService.deleteDirectory(workDirectory);
+            if (dryRun) {
+                try {
+                    restorer.dropSchema(targetSchema);
+                } catch (SQLException e) {
+                    logger.warn("删除演练临时库失败: {}", targetSchema, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 从指定备份回溯到全量备份，返回从全量到指定备份的顺序
+     */
+    private List<BackupRecord> resolveChain(Long backupId) {
+        List<BackupRecord> chain = new ArrayList<>();
+        Set<Long> visited = new HashSet<>();
+        Long id = backupId;
+        while (id != null) {
+            if (!visited.add(id)) {
+                throw new BusinessException(500, "备份链存在循环引用: " + id);
+            }
+            final Long currentId = id;
+            BackupRecord record = backupRepository.findById(id)
+                .orElseThrow(() -> new BusinessException(404, "备份链中的备份不存在: " + currentId));
+            if (!"completed".equals(record.getStatus()) || record.getWatermark() == null
+                || record.getFilePath() == null) {
+                throw new BusinessException(400, "备份不可用于数据库恢复: " + record.getName());
+            }
+            chain.add(record);
+            id = TYPE_INCREMENTAL.equals(record.getType()) ? record.getParentBackupId() : null;
+        }
+        if (TYPE_INCREMENTAL.equals(chain.get(chain.size() - 1).getType())) {
+            throw new BusinessException(400, "备份链缺少全量备份");
+        }
+        Collections.reverse(chain);
+        return chain;
+    }
+
+    private static Path findDumpDirectory(Path directory, BackupRecord record) throws IOException {
+        try (Stream<Path> children = Files.list(directory)) {
+            return children
+                .filter(p -> Files.exists(p.resolve(DatabaseDumper.MANIFEST_FILE)))
+                .findFirst()
+                .orElseThrow(() -> new IOException("备份包中缺少导出清单: " + record.getName()));
+        }
+    }
+}
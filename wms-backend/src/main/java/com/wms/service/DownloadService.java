@@ -0,0 +1,305 @@
+package com.wms.service;
+
+import com.wms.util.ByteRanges;
+import com.wms.util.ByteRanges.Range;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大文件下载服务
+ * 支持断点续传（单段/多段 Range）、ETag / Last-Modified 条件请求和 SHA-256 摘要头。
+ * 整文件和单段范围优先交给 Tomcat sendfile 由内核直接发送；多段范围或不支持 sendfile 时
+ * 用 FileChannel.transferTo 写出，不经过应用层缓冲区拷贝。
+ */
+@Service
+public class DownloadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadService.class);
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 发送文件
+     *
+     * @param category    指标分类（backup / export 等）
+     * @param sha256      文件的 SHA-256（十六进制），为空时用大小和修改时间生成 ETag
+     */
+    public void sendFile(Path file, String filename, String contentType, String sha256, String category,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis() / 1000 * 1000;
+        String etag = sha256 != null
+            ? "\"" + sha256 + "\""
+            : "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        if (sha256 != null) {
+            response.setHeader("Digest", "sha-256=" + Base64.getEncoder().encodeToString(fromHex(sha256)));
+        }
+
+        // 条件请求
+        String ifMatch = request.getHeader("If-Match");
+        long ifUnmodifiedSince = dateHeader(request, "If-Unmodified-Since");
+        boolean preconditionFailed = ifMatch != null
+            ? !matches(ifMatch, etag, false)
+            : ifUnmodifiedSince >= 0 && lastModified > ifUnmodifiedSince;
+        if (preconditionFailed) {
+            response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+            return;
+        }
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null ? matches(ifNoneMatch, etag, true)
+            : dateHeader(request, "If-Modified-Since") >= lastModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        List<Range> ranges = ByteRanges.parse(request.getHeader("Range"), size);
+        if (ranges != null && !ifRangeSatisfied(request, etag, lastModified)) {
+            ranges = null;
+        }
+        if (ranges != null && ranges.isEmpty()) {
+            response.setHeader("Content-Range", "bytes */" + size);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + asciiName(filename)
+            + "\"; filename*=UTF-8''" + URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20"));
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (ranges != null && ranges.size() > 1) {
+            sendMultipart(file, size, contentType, ranges, head, category, response);
+            return;
+        }
+
+        Range range = ranges != null ? ranges.get(0) : new Range(0, size - 1);
+        if (ranges != null) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", range.contentRange(size));
+        }
+        response.setContentType(contentType);
+        long length = size == 0 ? 0 : range.length();
+        response.setContentLengthLong(length);
+        if (head || length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 交给 Tomcat 在请求结束后用 sendfile 发送，数据不进入 JVM
+            request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, range.getStart());
+            request.setAttribute(SENDFILE_END, range.getEnd() + 1);
+            counter(category, "sendfile").increment(length);
+            return;
+        }
+
+        long start = System.nanoTime();
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, range.getStart(), length, Channels.newChannel(out));
+        } catch (IOException e) {
+            counter(category, "aborted").increment();
+            throw e;
+        }
+        out.flush();
+        record(category, length, System.nanoTime() - start);
+    }
+
+    /**
+     * 多段范围：multipart/byteranges 响应
+     */
+    private void sendMultipart(Path file, long size, String contentType, List<Range> ranges, boolean head,
+                               String category, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long length = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType
+                + "\r\nContent-Range: " + range.contentRange(size) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            length += partHeaders[i].length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        length += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(length);
+        if (head) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        long sent = 0;
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders[i]);
+                transfer(channel, ranges.get(i).getStart(), ranges.get(i).length(), target);
+                sent += ranges.get(i).length();
+            }
+            out.write(closing);
+        } catch (IOException e) {
+            counter(category, "aborted").increment();
+            throw e;
+        }
+        out.flush();
+        record(category, sent, System.nanoTime() - start);
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        while (count > 0) {
+            long n = channel.transferTo(position, count, target);
+            if (n <= 0) {
+                throw new IOException("文件在传输过程中被截断");
+            }
+            position += n;
+            count -= n;
+        }
+    }
+
+    private void record(String category, long bytes, long nanos) {
+        counter(category, "stream").increment(bytes);
+        Timer.builder("wms.download.duration")
+            .tag("category", category)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+        if (nanos > 0) {
+            DistributionSummary.builder("wms.download.throughput")
+                .baseUnit("bytes_per_second")
+                .tag("category", category)
+                .register(meterRegistry)
+                .record(bytes * 1_000_000_000.0 / nanos);
+        }
+        logger.debug("下载完成: {} 字节, 耗时 {} ms", bytes, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private Counter counter(String category, String mode) {
+        return Counter.builder("wms.download.bytes")
+            .baseUnit("bytes")
+            .tag("category", category)
+            .tag("mode", mode)
+            .register(meterRegistry);
+    }
+
+    /**
+     * If-Range：ETag 或日期与当前文件一致时才按范围返回，否则返回整个文件
+     */
+    private static boolean ifRangeSatisfied(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = dateHeader(request, "If-Range");
+        return date >= 0 && date == lastModified;
+    }
+
+    private static boolean matches(String header, String etag, boolean weak) {
+        String opaque = etag.substring(1, etag.length() - 1);
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if ("*".equals(candidate)) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                if (!weak) {
+                    continue;
+                }
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static String asciiName(String filename) {
+        StringBuilder sb = new StringBuilder(filename.length());
+        for (char c : filename.toCharArray()) {
+            sb.append(c >= 0x20 && c < 0x7F && c != '"' && c != '\\' ? c : '_');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 计算文件的 SHA-256（十六进制）
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[1024 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
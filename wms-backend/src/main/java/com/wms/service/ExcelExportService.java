@@ -11,7 +11,6 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Excel导出服务
@@ -35,7 +34,7 @@ public class ExcelExportService {
         createDataSheet(workbook, records, filters, summary, styles);
         
         // 创建统计表
-        createSummarySheet(workbook, records, styles);
+        createSummarySheet(workbook, PieceworkStatistics.of(records), styles);
         
         // 输出到字节流
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
@@ -62,17 +61,20 @@ public class ExcelExportService {
         createDataSheet(workbook, records, filters, null, styles);
         
         if (includeStatistics) {
+            // 一次遍历完成所有统计
+            PieceworkStatistics statistics = PieceworkStatistics.of(records);
+            
             // 创建统计表
-            createSummarySheet(workbook, records, styles);
+            createSummarySheet(workbook, statistics, styles);
             
             // 创建工人统计表
-            createWorkerStatisticsSheet(workbook, records, styles);
+            createWorkerStatisticsSheet(workbook, statistics, styles);
             
             // 创建产品统计表
-            createProductStatisticsSheet(workbook, records, styles);
+            createProductStatisticsSheet(workbook, statistics, styles);
             
             // 创建月度统计表
-            createMonthlyStatisticsSheet(workbook, records, styles);
+            createMonthlyStatisticsSheet(workbook, statistics, styles);
         }
         
         // 输出到字节流
@@ -297,7 +299,7 @@ public class ExcelExportService {
     /**
      * 创建汇总统计表
      */
-    private void createSummarySheet(Workbook workbook, List<Map<String, Object>> records, 
+    private void createSummarySheet(Workbook workbook, PieceworkStatistics statistics, 
                                    Map<String, CellStyle> styles) {
         
         Sheet sheet = workbook.createSheet("汇总统计");
@@ -318,12 +320,12 @@ public class ExcelExportService {
         basicStatsTitle.createCell(0).setCellValue("基本统计");
         basicStatsTitle.getCell(0).setCellStyle(styles.get("header"));
         
-        // 计算统计数据
-        int totalRecords = records.size();
-        int totalQuantity = records.stream().mapToInt(r -> getIntValue(r, "quantity")).sum();
-        double totalAmount = records.stream().mapToDouble(r -> getDoubleValue(r, "totalAmount")).sum();
-        int defectRecords = (int) records.stream().filter(r -> getIntValue(r, "defectQuantity") > 0).count();
-        int semiFinishedRecords = (int) records.stream().filter(r -> "是".equals(getStringValue(r, "semiFinished"))).count();
+        // 统计数据（已由累加器一次遍历计算）
+        int totalRecords = statistics.getTotalRecords();
+        long totalQuantity = statistics.getTotalQuantity();
+        double totalAmount = statistics.getTotalAmount();
+        int defectRecords = statistics.getDefectRecords();
+        int semiFinishedRecords = statistics.getSemiFinishedRecords();
         
         Row statsRow1 = sheet.createRow(rowNum++);
         statsRow1.createCell(0).setCellValue("总记录数");
@@ -363,14 +365,13 @@ public class ExcelExportService {
     /**
      * 创建工人统计表
      */
-    private void createWorkerStatisticsSheet(Workbook workbook, List<Map<String, Object>> records, 
+    private void createWorkerStatisticsSheet(Workbook workbook, PieceworkStatistics statistics, 
                                            Map<String, CellStyle> styles) {
         
         Sheet sheet = workbook.createSheet("工人统计");
         
         // 按工人分组统计
-        Map<String, List<Map<String, Object>>> workerGroups = records.stream()
-            .collect(Collectors.groupingBy(r -> getStringValue(r, "workerName", "未知")));
+        Map<String, PieceworkStatistics.Group> workerGroups = statistics.getByWorker();
         
         int rowNum = 0;
         
@@ -393,14 +394,14 @@ public class ExcelExportService {
         }
         
         // 数据行
-        for (Map.Entry<String, List<Map<String, Object>>> entry : workerGroups.entrySet()) {
+        for (Map.Entry<String, PieceworkStatistics.Group> entry : workerGroups.entrySet()) {
             String workerName = entry.getKey();
-            List<Map<String, Object>> workerRecords = entry.getValue();
+            PieceworkStatistics.Group workerStats = entry.getValue();
             
-            int recordCount = workerRecords.size();
-            int totalQuantity = workerRecords.stream().mapToInt(r -> getIntValue(r, "quantity")).sum();
-            double totalAmount = workerRecords.stream().mapToDouble(r -> getDoubleValue(r, "totalAmount")).sum();
-            double avgPrice = totalQuantity > 0 ? totalAmount / totalQuantity : 0;
+            int recordCount = workerStats.getRecordCount();
+            long totalQuantity = workerStats.getTotalQuantity();
+            double totalAmount = workerStats.getTotalAmount();
+            double avgPrice = workerStats.getAveragePrice();
             
             Row dataRow = sheet.createRow(rowNum++);
             
@@ -433,14 +434,13 @@ public class ExcelExportService {
     /**
      * 创建产品统计表
      */
-    private void createProductStatisticsSheet(Workbook workbook, List<Map<String, Object>> records, 
+    private void createProductStatisticsSheet(Workbook workbook, PieceworkStatistics statistics, 
                                             Map<String, CellStyle> styles) {
         
         Sheet sheet = workbook.createSheet("产品统计");
         
         // 按产品分组统计
-        Map<String, List<Map<String, Object>>> productGroups = records.stream()
-            .collect(Collectors.groupingBy(r -> getStringValue(r, "productName", "未知")));
+        Map<String, PieceworkStatistics.Group> productGroups = statistics.getByProduct();
         
         int rowNum = 0;
         
@@ -463,14 +463,14 @@ public class ExcelExportService {
         }
         
         // 数据行
-        for (Map.Entry<String, List<Map<String, Object>>> entry : productGroups.entrySet()) {
+        for (Map.Entry<String, PieceworkStatistics.Group> entry : productGroups.entrySet()) {
             String productName = entry.getKey();
-            List<Map<String, Object>> productRecords = entry.getValue();
+            PieceworkStatistics.Group productStats = entry.getValue();
             
-            int recordCount = productRecords.size();
-            int totalQuantity = productRecords.stream().mapToInt(r -> getIntValue(r, "quantity")).sum();
-            double totalAmount = productRecords.stream().mapToDouble(r -> getDoubleValue(r, "totalAmount")).sum();
-            double avgPrice = totalQuantity > 0 ? totalAmount / totalQuantity : 0;
+            int recordCount = productStats.getRecordCount();
+            long totalQuantity = productStats.getTotalQuantity();
+            double totalAmount = productStats.getTotalAmount();
+            double avgPrice = productStats.getAveragePrice();
             
             Row dataRow = sheet.createRow(rowNum++);
             
@@ -503,20 +503,13 @@ public class ExcelExportService {
     /**
      * 创建月度统计表
      */
-    private void createMonthlyStatisticsSheet(Workbook workbook, List<Map<String, Object>> records, 
+    private void createMonthlyStatisticsSheet(Workbook workbook, PieceworkStatistics statistics, 
                                             Map<String, CellStyle> styles) {
         
         Sheet sheet = workbook.createSheet("月度统计");
         
-        // 按月份分组统计
-        Map<String, List<Map<String, Object>>> monthlyGroups = records.stream()
-            .collect(Collectors.groupingBy(r -> {
-                String workDate = getStringValue(r, "workDate");
-                if (workDate.length() >= 7) {
-                    return workDate.substring(0, 7); // YYYY-MM
-                }
-                return "未知";
-            }));
+        // 按月份分组统计（YYYY-MM，已按月份排序）
+        Map<String, PieceworkStatistics.MonthGroup> monthlyGroups = statistics.getByMonth();
         
         int rowNum = 0;
         
@@ -539,20 +532,16 @@ public class ExcelExportService {
         }
         
         // 数据行（按月份排序）
-        List<String> sortedMonths = monthlyGroups.keySet().stream().sorted().collect(Collectors.toList());
-        
-        for (String month : sortedMonths) {
-            List<Map<String, Object>> monthlyRecords = monthlyGroups.get(month);
+        for (Map.Entry<String, PieceworkStatistics.MonthGroup> entry : monthlyGroups.entrySet()) {
+            String month = entry.getKey();
+            PieceworkStatistics.MonthGroup monthlyStats = entry.getValue();
             
-            int recordCount = monthlyRecords.size();
-            int totalQuantity = monthlyRecords.stream().mapToInt(r -> getIntValue(r, "quantity")).sum();
-            double totalAmount = monthlyRecords.stream().mapToDouble(r -> getDoubleValue(r, "totalAmount")).sum();
+            int recordCount = monthlyStats.getRecordCount();
+            long totalQuantity = monthlyStats.getTotalQuantity();
+            double totalAmount = monthlyStats.getTotalAmount();
             
-            // 计算该月的工作天数
-            Set<String> workDays = monthlyRecords.stream()
-                .map(r -> getStringValue(r, "workDate").substring(0, 10))
-                .collect(Collectors.toSet());
-            double avgDailyQuantity = workDays.size() > 0 ? (double) totalQuantity / workDays.size() : 0;
+            // 该月平均日产量（按工作天数）
+            double avgDailyQuantity = monthlyStats.getAverageDailyQuantity();
             
             Row dataRow = sheet.createRow(rowNum++);
             
@@ -0,0 +1,559 @@
+package com.wms.service;
+
+import com.wms.common.BusinessException;
+import com.wms.entity.BackupRecord;
+import com.wms.repository.BackupRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * 文件增量快照服务
+ * 前后端目录按内容寻址分块存储：文件切成固定大小的块，以 SHA-256 为文件名存入块仓库，相同内容只存一份。
+ * 每个快照对应一份完整清单（路径、大小、修改时间、内容哈希、块列表），恢复任意快照只需清单和块仓库。
+ * 增量快照对比上一个快照的清单，大小和修改时间都未变的文件直接复用块列表，不再读取文件内容。
+ */
+@Service
+public class FileSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSnapshotService.class);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * 快照类型：全量快照（重新计算全部文件哈希）、增量快照
+     */
+    public static final String TYPE_SNAPSHOT = "snapshot";
+    public static final String TYPE_INCREMENTAL = "incremental";
+
+    private static final String MANIFEST_HEADER = "WMS-MANIFEST 1";
+    private static final String MANIFEST_SUFFIX = ".manifest.gz";
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final byte CHUNK_RAW = 0;
+    private static final byte CHUNK_DEFLATE = 1;
+
+    @Autowired
+    private BackupRecordRepository backupRepository;
+
+    @Autowired
+    private BackupExecutionService backupExecutionService;
+
+    @Value("${backup.directory:/opt/app/wms/backups}")
+    private String backupDirectory;
+
+    @Value("${backup.frontend.path:/www/wwwroot/vue3-wms}")
+    private String frontendPath;
+
+    @Value("${backup.backend.path:/opt/app/wms/backend}")
+    private String backendPath;
+
+    /**
+     * 快照写入和块回收互斥，避免回收掉正在被新快照引用的块
+     */
+    private final ReentrantLock storeLock = new ReentrantLock();
+
+    /**
+     * 创建文件快照
+     *
+     * @param full        true 时重新读取并哈希所有文件（作为新的基准），false 时只处理变化的文件
+     * @param description 备份描述
+     */
+    public BackupRecord createSnapshot(boolean full, String description) {
+        return backupExecutionService.runExclusive(full ? "全量文件快照" : "增量文件快照",
+            () -> doCreateSnapshot(full, description));
+    }
+
+    private BackupRecord doCreateSnapshot(boolean full, String description) {
+        String timestamp = LocalDateTime.now().format(DATE_FORMAT);
+
+        BackupRecord record = new BackupRecord();
+        record.setName("files-" + timestamp);
+        record.setType(full ? TYPE_SNAPSHOT : TYPE_INCREMENTAL);
+        record.setStatus("running");
+        record.setDescription(description);
+        record.setCreatedAt(LocalDateTime.now());
+        record = backupRepository.save(record);
+
+        storeLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            BackupRecord base = full ? null : findLatestSnapshot();
+            Map<String, FileEntry> baseEntries = base != null
+                ? readManifest(Paths.get(base.getFilePath())) : Collections.emptyMap();
+
+            SnapshotBuilder builder = new SnapshotBuilder(baseEntries);
+            try {
+                builder.addRoot(Paths.get(frontendPath));
+                builder.addRoot(Paths.get(backendPath));
+            } finally {
+                builder.close();
+            }
+
+            Path manifest = manifestDirectory().resolve(record.getName() + MANIFEST_SUFFIX);
+            writeManifest(manifest, builder.entries.values());
+
+            record.setBaseBackupId(base != null ? base.getId() : null);
+            record.setFilePath(manifest.toString());
+            record.setSize(builder.storedBytes + Files.size(manifest));
+            record.setStatus("completed");
+            record.setCompletedAt(LocalDateTime.now());
+
+            logger.info("文件快照完成: {}, 基准={}, 文件 {} 个, 变化 {} 个, 新增块 {} 个 ({} 字节), 耗时 {} ms",
+                record.getName(), base != null ? base.getName() : "无", builder.fileCount, builder.changedFiles,
+                builder.storedChunks, builder.storedBytes, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("文件快照失败", e);
+            record.setStatus("failed");
+            record.setErrorMessage(e.getMessage());
+        } finally {
+            storeLock.unlock();
+        }
+        return backupRepository.save(record);
+    }
+
+    /**
+     * 将快照恢复到指定目录，按清单重建目录结构并逐个校验文件哈希
+     * 与备份、清理共用执行许可，恢复期间块仓库不会被写入或回收，已有任务在运行时抛出 409
+     *
+     * @param targetDirectory 恢复目录（相对 备份目录/restore），为空时恢复到 备份目录/restore/快照名
+     * @return 实际恢复到的目录
+     */
+    public Path restoreSnapshot(Long backupId, String targetDirectory) throws IOException {
+        try {
+            return backupExecutionService.runExclusive("文件快照恢复 #" + backupId, () -> {
+                try {
+                    return doRestoreSnapshot(backupId, targetDirectory);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Path doRestoreSnapshot(Long backupId, String targetDirectory) throws IOException {
+        BackupRecord record = backupRepository.findById(backupId)
+            .orElseThrow(() -> new BusinessException(404, "备份记录不存在"));
+        if (!isSnapshot(record) || record.getFilePath() == null) {
+            throw new BusinessException(400, "该备份不是文件快照: " + record.getName());
+        }
+
+        // 恢复目录限定在 备份目录/restore 之下，不能借此写到服务账号可写的任意位置
+        Path restoreBase = Paths.get(backupDirectory, "restore").toAbsolutePath().normalize();
+        Path root = restoreBase.resolve(targetDirectory != null && !targetDirectory.trim().isEmpty()
+            ? targetDirectory.trim() : record.getName()).normalize();
+        if (!root.startsWith(restoreBase) || root.equals(restoreBase)) {
+            throw new BusinessException(400, "恢复目录必须位于 " + restoreBase + " 之下");
+        }
+
+        Map<String, FileEntry> entries = readManifest(Paths.get(record.getFilePath()));
+        long start = System.currentTimeMillis();
+        int restored = 0;
+
+        for (FileEntry entry : entries.values()) {
+            Path path = root.resolve(entry.path).normalize();
+            if (!path.startsWith(root)) {
+                throw new IOException("清单路径越界: " + entry.path);
+            }
+            if (entry.directory) {
+                Files.createDirectories(path);
+                continue;
+            }
+            Files.createDirectories(path.getParent());
+            MessageDigest digest = sha256();
+            try (OutputStream out = Files.newOutputStream(path)) {
+                for (String chunk : entry.chunks) {
+                    byte[] data = readChunk(chunk);
+                    out.write(data);
+                    digest.update(data);
+                }
+            }
+            if (!hex(digest.digest()).equals(entry.hash)) {
+                throw new IOException("文件校验失败: " + entry.path);
+            }
+            Files.setLastModifiedTime(path, FileTime.fromMillis(entry.mtime));
+            restored++;
+        }
+
+        logger.info("文件快照恢复完成: {} -> {}, 文件 {} 个, 耗时 {} ms",
+            record.getName(), root, restored, System.currentTimeMillis() - start);
+        return root;
+    }
+
+    /**
+     * 回收块仓库中不再被任何快照清单引用的块
+     *
+     * @return 删除的块数
+     */
+    public int collectGarbage() {
+        storeLock.lock();
+        try {
+            Path chunks = chunkDirectory();
+            if (!Files.isDirectory(chunks)) {
+                return 0;
+            }
+
+            Set<String> referenced = new HashSet<>();
+            try (Stream<Path> manifests = Files.list(manifestDirectory())) {
+                for (Path manifest : (Iterable<Path>) manifests::iterator) {
+                    if (manifest.getFileName().toString().endsWith(MANIFEST_SUFFIX)) {
+                        for (FileEntry entry : readManifest(manifest).values()) {
+                            referenced.addAll(entry.chunks);
+                        }
+                    }
+                }
+            }
+
+            int deleted = 0;
+            long freed = 0;
+            try (Stream<Path> files = Files.walk(chunks)) {
+                for (Path chunk : (Iterable<Path>) files::iterator) {
+                    if (Files.isRegularFile(chunk) && !referenced.contains(chunk.getFileName().toString())) {
+                        freed += Files.size(chunk);
+                        Files.delete(chunk);
+                        deleted++;
+                    }
+                }
+            }
+
+            logger.info("块仓库回收完成: 引用块 {} 个, 删除 {} 个, 释放 {} 字节", referenced.size(), deleted, freed);
+            return deleted;
+        } catch (IOException e) {
+            logger.error("块仓库回收失败", e);
+            return 0;
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    /**
+     * 是否为文件快照记录
+     */
+    public static boolean isSnapshot(BackupRecord record) {
+        return TYPE_SNAPSHOT.equals(record.getType()) || TYPE_INCREMENTAL.equals(record.getType());
+    }
+
+    private BackupRecord findLatestSnapshot() {
+        for (BackupRecord record : backupRepository.findAllByOrderByCreatedAtDesc()) {
+            if (isSnapshot(record) && "completed".equals(record.getStatus())
+                && record.getFilePath() != null && Files.exists(Paths.get(record.getFilePath()))) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    // ===== 块仓库 =====
+
+    private Path chunkDirectory() {
+        return Paths.get(backupDirectory, "chunks");
+    }
+
+    private Path manifestDirectory() throws IOException {
+        return Files.createDirectories(Paths.get(backupDirectory, "manifests"));
+    }
+
+    private Path chunkPath(String hash) {
+        return chunkDirectory().resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * 写入块（已存在则跳过），返回实际写入的字节数
+     */
+    private long storeChunk(String hash, byte[] data, int length, Deflater deflater) throws IOException {
+        Path path = chunkPath(hash);
+        if (Files.exists(path)) {
+            return 0;
+        }
+        Files.createDirectories(path.getParent());
+
+        deflater.reset();
+        deflater.setInput(data, 0, length);
+        deflater.finish();
+        byte[] compressed = new byte[length + 1];
+        int size = 1;
+        while (!deflater.finished() && size < compressed.length) {
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+        byte[] content;
+        if (deflater.finished() && size < length + 1) {
+            compressed[0] = CHUNK_DEFLATE;
+            content = Arrays.copyOf(compressed, size);
+        } else {
+            // 压缩无收益（如 jar、图片），原样存储
+            content = new byte[length + 1];
+            content[0] = CHUNK_RAW;
+            System.arraycopy(data, 0, content, 1, length);
+        }
+
+        Path tmp = path.resolveSibling(hash + ".tmp");
+        backupExecutionService.getWriteThrottle().acquire(content.length);
+        Files.write(tmp, content);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return content.length;
+    }
+
+    private byte[] readChunk(String hash) throws IOException {
+        Path path = chunkPath(hash);
+        if (!Files.exists(path)) {
+            throw new IOException("数据块缺失: " + hash);
+        }
+        byte[] content = Files.readAllBytes(path);
+        if (content[0] == CHUNK_RAW) {
+            return Arrays.copyOfRange(content, 1, content.length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(content, 1, content.length - 1);
+            byte[] data = new byte[CHUNK_SIZE];
+            int length = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(data, length, data.length - length);
+                if (n == 0 && (inflater.needsInput() || length == data.length)) {
+                    throw new IOException("数据块损坏: " + hash);
+                }
+                length += n;
+            }
+            return Arrays.copyOf(data, length);
+        } catch (DataFormatException e) {
+            throw new IOException("数据块损坏: " + hash, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // ===== 清单 =====
+
+    /**
+     * 清单每行一个条目（制表符分隔）：
+     * D  路径  修改时间
+     * F  路径  大小  修改时间  文件SHA-256  块哈希(逗号分隔)
+     */
+    private static void writeManifest(Path manifest, Collection<FileEntry> entries) throws IOException {
+        Path tmp = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+            new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            writer.write(MANIFEST_HEADER);
+            writer.newLine();
+            for (FileEntry entry : entries) {
+                if (entry.directory) {
+                    writer.write("D\t" + escape(entry.path) + "\t" + entry.mtime);
+                } else {
+                    writer.write("F\t" + escape(entry.path) + "\t" + entry.size + "\t" + entry.mtime
+                        + "\t" + entry.hash + "\t" + String.join(",", entry.chunks));
+                }
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Map<String, FileEntry> readManifest(Path manifest) throws IOException {
+        Map<String, FileEntry> entries = new LinkedHashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(manifest)), StandardCharsets.UTF_8))) {
+            if (!MANIFEST_HEADER.equals(reader.readLine())) {
+                throw new IOException("清单格式错误: " + manifest);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                FileEntry entry = new FileEntry();
+                entry.path = unescape(parts[1]);
+                if ("D".equals(parts[0])) {
+                    entry.directory = true;
+                    entry.mtime = Long.parseLong(parts[2]);
+                } else {
+                    entry.size = Long.parseLong(parts[2]);
+                    entry.mtime = Long.parseLong(parts[3]);
+                    entry.hash = parts[4];
+                    entry.chunks = parts[5].isEmpty()
+                        ? Collections.emptyList() : Arrays.asList(parts[5].split(","));
+                }
+                entries.put(entry.path, entry);
+            }
+        }
+        return entries;
+    }
+
+    private static String escape(String path) {
+        return path.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String path) {
+        StringBuilder sb = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '\\' && i + 1 < path.length()) {
+                char next = path.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 清单条目
+     */
+    private static final class FileEntry {
+        String path;
+        boolean directory;
+        long size;
+        long mtime;
+        String hash;
+        List<String> chunks = Collections.emptyList();
+    }
+
+    /**
+     * 遍历目录生成清单，未变化的文件直接沿用基准清单中的条目
+     */
+    private final class SnapshotBuilder {
+        private final Map<String, FileEntry> baseEntries;
+        private final Map<String, FileEntry> entries = new LinkedHashMap<>();
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+        private int fileCount;
+        private int changedFiles;
+        private int storedChunks;
+        private long storedBytes;
+
+        SnapshotBuilder(Map<String, FileEntry> baseEntries) {
+            this.baseEntries = baseEntries;
+        }
+
+        void addRoot(Path root) throws IOException {
+            if (!Files.isDirectory(root)) {
+                logger.warn("备份目录不存在，跳过: {}", root);
+                return;
+            }
+            Path parent = root.getParent();
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    FileEntry entry = new FileEntry();
+                    entry.path = relative(parent, dir);
+                    entry.directory = true;
+                    entry.mtime = attrs.lastModifiedTime().toMillis();
+                    entries.put(entry.path, entry);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile()) {
+                        addFile(relative(parent, file), file, attrs);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        void close() {
+            deflater.end();
+        }
+
+        private void addFile(String path, Path file, BasicFileAttributes attrs) throws IOException {
+            fileCount++;
+            long mtime = attrs.lastModifiedTime().toMillis();
+            FileEntry previous = baseEntries.get(path);
+            if (previous != null && !previous.directory
+                && previous.size == attrs.size() && previous.mtime == mtime) {
+                entries.put(path, previous);
+                return;
+            }
+
+            changedFiles++;
+            FileEntry entry = new FileEntry();
+            entry.path = path;
+            entry.mtime = mtime;
+            entry.chunks = new ArrayList<>();
+            MessageDigest fileDigest = sha256();
+            MessageDigest chunkDigest = sha256();
+            long size = 0;
+
+            try (InputStream in = Files.newInputStream(file)) {
+                int length;
+                while ((length = in.readNBytes(buffer, 0, CHUNK_SIZE)) > 0) {
+                    backupExecutionService.getReadThrottle().acquire(length);
+                    fileDigest.update(buffer, 0, length);
+                    chunkDigest.update(buffer, 0, length);
+                    String hash = hex(chunkDigest.digest());
+                    long written = storeChunk(hash, buffer, length, deflater);
+                    if (written > 0) {
+                        storedChunks++;
+                        storedBytes += written;
+                    }
+                    entry.chunks.add(hash);
+                    size += length;
+                }
+            }
+            entry.size = size;
+            entry.hash = hex(fileDigest.digest());
+            entries.put(path, entry);
+        }
+
+        private String relative(Path parent, Path path) {
+            return (parent != null ? parent.relativize(path) : path).toString().replace('\\', '/');
+        }
+    }
+}
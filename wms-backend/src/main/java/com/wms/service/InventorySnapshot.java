@@ -0,0 +1,88 @@
+package com.wms.service;
+
+import com.wms.entity.InventoryItem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 零件库存快照
+ * 一次查询得到的库存按品名建索引，装配检查时每个零件只在同名库存中匹配，不再每个零件全表扫描一次。
+ * 匹配规则：品名相同；规格、材质相同（都为空也算相同）；需求填了连接类型时连接类型相同，
+ * 只有“中头盖”类零件允许库存连接类型为空。多条匹配时优先连接类型完全相同、库存多的。
+ */
+public class InventorySnapshot {
+
+    private final Map<String, List<InventoryItem>> byName = new HashMap<>();
+
+    public InventorySnapshot(List<InventoryItem> items) {
+        for (InventoryItem item : items) {
+            if (item == null || isBlank(item.getProductName())) {
+                continue;
+            }
+            byName.computeIfAbsent(item.getProductName(), k -> new ArrayList<>()).add(item);
+        }
+    }
+
+    /**
+     * 与零件需求匹配的库存，没有匹配时返回 null
+     */
+    public InventoryItem match(String componentName, String specification, String material, String connectionType) {
+        if (isBlank(componentName)) {
+            return null;
+        }
+        InventoryItem best = null;
+        int bestScore = -1;
+
+        for (InventoryItem inv : byName.getOrDefault(componentName, Collections.emptyList())) {
+            if (!equalsOrBlankEquals(inv.getSpecification(), specification)) continue;
+            if (!equalsOrBlankEquals(inv.getMaterial(), material)) continue;
+            if (!connectionTypeMatches(inv.getConnectionType(), connectionType, componentName)) continue;
+
+            int score = 10;
+            if (equalsOrBlankEquals(inv.getConnectionType(), connectionType)) {
+                score += 2;
+            } else if (isBlank(inv.getConnectionType()) && isZhongTouGaiPart(componentName)) {
+                // 中头盖允许库存 connectionType 为空匹配，但优先级略低于完全匹配
+                score += 1;
+            }
+            score += Math.min(quantityOf(inv), 1000);
+
+            if (score > bestScore) {
+                bestScore = score;
+                best = inv;
+            }
+        }
+
+        return best;
+    }
+
+    public static int quantityOf(InventoryItem inv) {
+        return inv == null || inv.getQuantity() == null ? 0 : inv.getQuantity();
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    private static boolean equalsOrBlankEquals(String a, String b) {
+        if (isBlank(a) && isBlank(b)) return true;
+        if (a == null || b == null) return false;
+        return a.equals(b);
+    }
+
+    private static boolean isZhongTouGaiPart(String partName) {
+        return !isBlank(partName) && partName.contains("中头盖");
+    }
+
+    private static boolean connectionTypeMatches(String invCt, String reqCt, String partName) {
+        // 需求没填连接类型：不约束
+        if (isBlank(reqCt)) return true;
+        // 仅“中头盖”类零件允许库存连接类型为空（兼容历史库存不填螺纹）
+        if (isBlank(invCt)) return isZhongTouGaiPart(partName);
+        return invCt.equals(reqCt);
+    }
+}
@@ -0,0 +1,72 @@
+package com.wms.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 最后登录时间/IP 的合并写入
+ * 登录成功时只记录到内存，同一用户多次登录只保留最后一次，定时用一条批量 UPDATE 写入，
+ * 登录请求不再等待 users 表的写入。
+ */
+@Service
+public class LastLoginWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LastLoginWriter.class);
+
+    private static final String UPDATE_SQL = "UPDATE users SET last_login = ?, last_login_ip = ? WHERE username = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Object[]> pending = new ConcurrentHashMap<>();
+
+    public void record(String username, LocalDateTime time, String ip) {
+        pending.put(username, new Object[]{Timestamp.valueOf(time), ip});
+    }
+
+    /**
+     * 批量写入待更新的登录记录；写入失败的记录放回队列（不覆盖期间更新的记录），下次再试
+     */
+    @Scheduled(fixedDelayString = "${login.last-login.flush-ms:5000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        Map<String, Object[]> taken = new HashMap<>();
+        for (Map.Entry<String, Object[]> entry : pending.entrySet()) {
+            Object[] value = entry.getValue();
+            if (pending.remove(entry.getKey(), value)) {
+                taken.put(entry.getKey(), value);
+                batch.add(new Object[]{value[0], value[1], entry.getKey()});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+        } catch (Exception e) {
+            logger.warn("最后登录时间写入失败（{} 个用户），稍后重试: {}", batch.size(), e.getMessage());
+            taken.forEach(pending::putIfAbsent);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
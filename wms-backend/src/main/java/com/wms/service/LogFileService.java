@@ -0,0 +1,384 @@
+package com.wms.service;
+
+import com.wms.dto.LogQuery;
+import com.wms.util.LogLines;
+import com.wms.util.ReverseLineReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 应用日志读取服务
+ * 日志下载只读取每个文件的尾部：先用 {@link ReverseLineReader} 从文件末尾向前找到需要输出的起始偏移，
+ * 再从该偏移顺序读出并直接写入响应流，内存占用与日志大小无关。
+ */
+@Service
+public class LogFileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogFileService.class);
+
+    /**
+     * 每个文件的行数上限和总字节数上限的最大允许值
+     */
+    public static final int MAX_LINES = 100_000;
+    public static final long MAX_BYTES = 128L * 1024 * 1024;
+
+    /**
+     * 当前日志和未压缩的滚动日志（如 wms-application.log.2024-01-01.0）
+     */
+    private static final Pattern LOG_FILE = Pattern.compile(".*\\.log(\\.[0-9][0-9.\\-]*)?");
+    private static final Pattern COMPRESSED_LOG_FILE = Pattern.compile(".*\\.log(\\.[0-9][0-9.\\-]*)?\\.gz");
+
+    private static final String SEPARATOR = "=".repeat(80);
+
+    @Value("${logs.directory:/opt/app/wms/logs}")
+    private String logsDirectory;
+
+    @Value("${logs.journal-unit:wms-backend}")
+    private String journalUnit;
+
+    /**
+     * 由请求参数生成查询条件，参数不合法时抛出 IllegalArgumentException
+     */
+    public static LogQuery buildQuery(String from, String to, String level, String loggerName,
+                                      int maxLines, long maxBytes) {
+        LogQuery query = new LogQuery();
+        query.setFrom(LogLines.parseTime(from));
+        query.setTo(LogLines.parseTime(to));
+        if (query.getFrom() != null && query.getTo() != null && query.getFrom().isAfter(query.getTo())) {
+            throw new IllegalArgumentException("开始时间不能晚于结束时间");
+        }
+        query.setLevel(LogLines.parseLevel(level));
+        query.setLogger(loggerName != null && !loggerName.trim().isEmpty()
+            ? loggerName.trim().toLowerCase(Locale.ROOT) : null);
+        query.setMaxLines(Math.max(1, Math.min(MAX_LINES, maxLines)));
+        query.setMaxBytes(Math.max(1024, Math.min(MAX_BYTES, maxBytes)));
+        return query;
+    }
+
+    /**
+     * 日志文件列表（不含 gzip 压缩的滚动日志），按修改时间从新到旧排列
+     */
+    public List<Path> listLogFiles() throws IOException {
+        return listLogFiles(false);
+    }
+
+    /**
+     * 日志文件列表，按修改时间从新到旧排列
+     *
+     * @param includeCompressed 是否包含 gzip 压缩的滚动日志
+     */
+    public List<Path> listLogFiles(boolean includeCompressed) throws IOException {
+        Path dir = Paths.get(logsDirectory);
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                .filter(p -> LOG_FILE.matcher(p.getFileName().toString()).matches()
+                    || includeCompressed && isCompressed(p))
+                .sorted(Comparator.comparingLong(LogFileService::lastModified).reversed())
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 导出日志尾部：各应用日志文件按时间顺序输出，最后附上 systemd 日志
+     * 字节预算从最新的文件开始分配，超出预算时丢弃较早的日志
+     */
+    public void writeTail(LogQuery query, boolean includeJournal, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(SEPARATOR + "\n系统日志导出 - " + LocalDateTime.now() + "\n" + SEPARATOR + "\n\n");
+        writer.write("\n" + SEPARATOR + "\n应用日志 (Application Logs)\n" + SEPARATOR + "\n\n");
+
+        long start = System.currentTimeMillis();
+        List<Path> files = listLogFiles();
+        if (files.isEmpty()) {
+            writer.write("应用日志目录不存在\n\n");
+        }
+
+        List<TailRange> ranges = new ArrayList<>();
+        long budget = query.getMaxBytes();
+        long scanned = 0;
+        for (Path file : files) {
+            if (budget <= 0) {
+                break;
+            }
+            if (query.getFrom() != null && lastModified(file) < toEpochMilli(query.getFrom())) {
+                // 之后的文件更早，最后写入时间都在查询范围之前
+                break;
+            }
+            try {
+                TailRange range = locateTail(file, query, budget);
+                budget -= range.bytes;
+                scanned += range.scannedBytes;
+                ranges.add(range);
+            } catch (IOException e) {
+                logger.warn("读取日志文件失败: {}", file, e);
+            }
+        }
+        Collections.reverse(ranges);
+
+        long written = 0;
+        for (TailRange range : ranges) {
+            writer.write("\n--- " + range.file.getFileName() + " ---\n\n");
+            if (range.lines == 0) {
+                writer.write("（无匹配的日志）\n");
+                continue;
+            }
+            try {
+                written += copyRange(range, query, writer);
+            } catch (IOException e) {
+                writer.write("读取失败: " + e.getMessage() + "\n\n");
+            }
+            writer.write("\n");
+        }
+
+        if (includeJournal) {
+            writer.write("\n" + SEPARATOR + "\n系统日志 (System Logs - " + journalUnit + ")\n" + SEPARATOR + "\n\n");
+            writeJournal(query, writer);
+        }
+
+        writer.write("\n" + SEPARATOR + "\n日志导出完成\n" + SEPARATOR + "\n");
+        writer.flush();
+        logger.info("日志导出完成: 文件 {} 个, 倒读 {} 字节, 输出 {} 字节, 耗时 {} ms",
+            ranges.size(), scanned, written, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 从文件末尾向前扫描，确定需要输出的范围 [start, end)
+     */
+    private TailRange locateTail(Path file, LogQuery query, long budget) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ReverseLineReader reader = new ReverseLineReader(channel, size);
+            TailRange range = new TailRange(file, size);
+            long entryEnd = size;
+            int entryLines = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                entryLines++;
+                LocalDateTime time = LogLines.timestamp(line);
+                if (time == null) {
+                    // 异常堆栈等续行，归属于上面的日志头
+                    continue;
+                }
+                long entryStart = reader.getLineStart();
+                long entryBytes = entryEnd - entryStart;
+                int lines = entryLines;
+                entryEnd = entryStart;
+                entryLines = 0;
+
+                if (query.getTo() != null && time.isAfter(query.getTo())) {
+                    range.end = entryStart;
+                    range.start = entryStart;
+                    continue;
+                }
+                if (query.getFrom() != null && time.isBefore(query.getFrom())) {
+                    break;
+                }
+                if (!matches(line, query)) {
+                    continue;
+                }
+                if (range.lines + lines > query.getMaxLines() || range.bytes + entryBytes > budget) {
+                    break;
+                }
+                range.lines += lines;
+                range.bytes += entryBytes;
+                range.start = entryStart;
+            }
+            range.scannedBytes = reader.getBytesRead();
+            return range;
+        }
+    }
+
+    /**
+     * 顺序读出 [start, end) 中匹配的日志，返回写出的字节数
+     */
+    private long copyRange(TailRange range, LogQuery query, Writer writer) throws IOException {
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(range.file, StandardOpenOption.READ)) {
+            channel.position(range.start);
+            InputStream in = limit(Channels.newInputStream(channel), range.end - range.start);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+            boolean include = false;
+            int lines = 0;
+            String line;
+            while ((line = reader.readLine()) != null && lines < range.lines) {
+                LocalDateTime time = LogLines.timestamp(line);
+                if (time != null) {
+                    include = inRange(time, query) && matches(line, query);
+                }
+                if (include) {
+                    writer.write(line);
+                    writer.write('\n');
+                    written += line.length() + 1;
+                    lines++;
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 附加 systemd 日志，直接把 journalctl 的输出写入响应流
+     */
+    private void writeJournal(LogQuery query, Writer writer) throws IOException {
+        List<String> command = new ArrayList<>();
+        Collections.addAll(command, "journalctl", "-u", journalUnit, "--no-pager",
+            "-n", String.valueOf(query.getMaxLines()),
+            "--since", query.getFrom() != null ? query.getFrom().format(LogLines.TIMESTAMP) : "1 day ago");
+        if (query.getTo() != null) {
+            Collections.addAll(command, "--until", query.getTo().format(LogLines.TIMESTAMP));
+        }
+        if (query.getLevel() < LogLines.LEVELS.length - 1) {
+            // syslog 优先级：3=err 4=warning 6=info 7=debug
+            int[] priorities = {3, 4, 6, 7, 7};
+            Collections.addAll(command, "-p", String.valueOf(priorities[query.getLevel()]));
+        }
+
+        Process process;
+        try {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            process = pb.start();
+        } catch (IOException e) {
+            writer.write("无法获取系统日志: " + e.getMessage() + "\n\n");
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            long bytes = 0;
+            String line;
+            while ((line = reader.readLine()) != null && bytes < query.getMaxBytes()) {
+                if (query.getLogger() != null && !line.toLowerCase(Locale.ROOT).contains(query.getLogger())) {
+                    continue;
+                }
+                writer.write(line);
+                writer.write('\n');
+                bytes += line.length() + 1;
+            }
+        } finally {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * 日志头部行是否满足级别和记录器条件
+     */
+    static boolean matches(String line, LogQuery query) {
+        if (query.getLevel() < LogLines.LEVELS.length - 1) {
+            int level = LogLines.level(line);
+            if (level < 0 || level > query.getLevel()) {
+                return false;
+            }
+        }
+        return query.getLogger() == null
+            || LogLines.logger(line).toLowerCase(Locale.ROOT).contains(query.getLogger());
+    }
+
+    static boolean inRange(LocalDateTime time, LogQuery query) {
+        return (query.getFrom() == null || !time.isBefore(query.getFrom()))
+            && (query.getTo() == null || !time.isAfter(query.getTo()));
+    }
+
+    static boolean isCompressed(Path file) {
+        return COMPRESSED_LOG_FILE.matcher(file.getFileName().toString()).matches();
+    }
+
+    static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static InputStream limit(InputStream in, long limit) {
+        return new FilterInputStream(in) {
+            private long remaining = limit;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = super.read(b, off, (int) Math.min(len, remaining));
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * 单个文件需要输出的范围
+     */
+    private static final class TailRange {
+        private final Path file;
+        private long start;
+        private long end;
+        private int lines;
+        private long bytes;
+        private long scannedBytes;
+
+        TailRange(Path file, long size) {
+            this.file = file;
+            this.start = size;
+            this.end = size;
+        }
+    }
+}
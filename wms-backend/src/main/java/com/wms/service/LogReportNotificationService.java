@@ -4,10 +4,8 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wms.entity.AuditLog;
 import com.wms.entity.PieceWork;
-import com.wms.entity.User;
 import com.wms.repository.AuditLogRepository;
 import com.wms.repository.PieceWorkRepository;
-import com.wms.repository.UserRepository;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
@@ -51,7 +49,7 @@ public class LogReportNotificationService {
     private PieceWorkRepository pieceWorkRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserDirectoryService userDirectoryService;
 
     @Autowired
     private WeChatWorkService weChatWorkService;
@@ -642,10 +640,7 @@ public class LogReportNotificationService {
      * 获取管理员用户名列表
      */
     private Set<String> getAdminUsernames() {
-        return userRepository.findAll().stream()
-            .filter(u -> "ADMIN".equals(u.getRole()))
-            .map(User::getUsername)
-            .collect(Collectors.toSet());
+        return userDirectoryService.getAdminUsernames();
     }
 
     /**
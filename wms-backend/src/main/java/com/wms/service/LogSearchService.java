@@ -0,0 +1,426 @@
+package com.wms.service;
+
+import com.wms.dto.LogHit;
+import com.wms.dto.LogQuery;
+import com.wms.util.ByteLineReader;
+import com.wms.util.LogIndex;
+import com.wms.util.LogLines;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 应用日志检索服务
+ * 每个日志文件维护一份 {@link LogIndex} 旁路索引，索引以文件第一行的哈希命名，
+ * Logback 滚动重命名文件后仍沿用原索引，只需为新增内容增量建立。
+ * 检索时按索引直接定位到时间范围和级别匹配的区间，不再全量扫描。
+ */
+@Service
+public class LogSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogSearchService.class);
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * 单次检索最多读取的字节数，超过后返回游标由下一页继续
+     */
+    private static final long MAX_SCAN_BYTES = 256L * 1024 * 1024;
+
+    private static final int MAX_ENTRY_LINES = 200;
+    private static final int FINGERPRINT_BYTES = 1024;
+    private static final String INDEX_SUFFIX = ".idx";
+
+    @Autowired
+    private LogFileService logFileService;
+
+    @Value("${logs.directory:/opt/app/wms/logs}")
+    private String logsDirectory;
+
+    /**
+     * 索引目录，为空时使用日志目录下的 .index
+     */
+    @Value("${logs.index.directory:}")
+    private String indexDirectory;
+
+    /**
+     * 指纹 -> 索引
+     */
+    private final Map<String, LogIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 本次运行中已完整建立索引的 gzip 文件（压缩文件不会再变化）
+     */
+    private final Set<String> completedCompressed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 定时为新写入的日志建立索引
+     */
+    @Scheduled(fixedDelayString = "${logs.index.refresh-ms:60000}", initialDelay = 30000)
+    public void refreshIndexes() {
+        try {
+            refresh();
+        } catch (IOException e) {
+            logger.warn("更新日志索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 检索日志，结果按时间先后排列
+     *
+     * @param cursor 上一页返回的 nextCursor，为空表示从头开始
+     * @param size   每页条数
+     */
+    public Map<String, Object> search(LogQuery query, String cursor, int size) throws IOException {
+        long start = System.nanoTime();
+        int pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+        String text = query.getText() != null && !query.getText().isEmpty()
+            ? query.getText().toLowerCase(Locale.ROOT) : null;
+
+        String cursorFile = null;
+        long cursorOffset = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            int colon = cursor.lastIndexOf(':');
+            try {
+                cursorFile = cursor.substring(0, colon);
+                cursorOffset = Long.parseLong(cursor.substring(colon + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的游标: " + cursor);
+            }
+        }
+
+        List<IndexedFile> files;
+        synchronized (this) {
+            // 刷新索引和计算区间在同一把锁内，避免定时刷新同时修改索引
+            files = refresh();
+            for (IndexedFile file : files) {
+                file.regions = file.index.regions(query.getFrom(), query.getTo(), query.getLevel());
+                if (!file.compressed && file.size > file.index.getIndexedBytes()) {
+                    // 尚未索引的尾部（最后一次刷新后新写入的内容）
+                    file.regions.add(new long[]{file.index.getIndexedBytes(), file.size});
+                }
+            }
+        }
+        files.sort(Comparator.comparingInt((IndexedFile f) -> f.index.getFirstMinute())
+            .thenComparing(f -> f.path.getFileName().toString()));
+
+        Scan scan = new Scan(query, text, pageSize);
+        boolean skipping = cursorFile != null;
+        for (IndexedFile file : files) {
+            if (skipping) {
+                if (!file.index.getFingerprint().equals(cursorFile)) {
+                    continue;
+                }
+                skipping = false;
+            } else {
+                cursorOffset = 0;
+            }
+            for (long[] region : file.regions) {
+                long from = Math.max(region[0], cursorOffset);
+                if (from >= region[1]) {
+                    continue;
+                }
+                scanRegion(file, from, region[1], scan);
+                if (scan.nextCursor != null) {
+                    break;
+                }
+            }
+            if (scan.nextCursor != null) {
+                break;
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("content", scan.hits);
+        result.put("size", scan.hits.size());
+        result.put("nextCursor", scan.nextCursor);
+        result.put("scannedBytes", scan.scannedBytes);
+        result.put("files", files.size());
+        result.put("tookMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * 读取区间 [from, end)，逐条匹配
+     */
+    private void scanRegion(IndexedFile file, long from, long end, Scan scan) throws IOException {
+        try (InputStream in = open(file, from)) {
+            ByteLineReader reader = new ByteLineReader(in, from);
+            Entry entry = null;
+            while (reader.next()) {
+                long offset = reader.getLineOffset();
+                if (offset >= end) {
+                    break;
+                }
+                boolean header = reader.getLength() > 20 && reader.byteAt(4) == '-' && reader.byteAt(19) == ' ';
+                String line = header || entry != null ? reader.text(StandardCharsets.UTF_8, Integer.MAX_VALUE) : null;
+                LocalDateTime time = header ? LogLines.timestamp(line) : null;
+                if (time != null) {
+                    if (finish(entry, scan, file)) {
+                        return;
+                    }
+                    entry = LogFileService.inRange(time, scan.query) && LogFileService.matches(line, scan.query)
+                        ? new Entry(offset, time, line) : null;
+                } else if (entry != null) {
+                    entry.append(line);
+                }
+                scan.scannedBytes += reader.getNextOffset() - offset;
+                if (scan.scannedBytes > MAX_SCAN_BYTES) {
+                    finish(entry, scan, file);
+                    if (scan.nextCursor == null) {
+                        scan.nextCursor = file.index.getFingerprint() + ":" + reader.getNextOffset();
+                    }
+                    return;
+                }
+            }
+            finish(entry, scan, file);
+        }
+    }
+
+    /**
+     * 一条日志读完后按全文过滤并加入结果；本页已满时记录游标并返回 true
+     */
+    private boolean finish(Entry entry, Scan scan, IndexedFile file) {
+        if (entry == null || scan.nextCursor != null) {
+            return scan.nextCursor != null;
+        }
+        if (scan.text != null && !entry.message.toString().toLowerCase(Locale.ROOT).contains(scan.text)) {
+            return false;
+        }
+        if (scan.hits.size() == scan.pageSize) {
+            // 本页已满，把这条匹配日志作为下一页的起点
+            scan.nextCursor = file.index.getFingerprint() + ":" + entry.offset;
+            return true;
+        }
+        LogHit hit = new LogHit();
+        hit.setFile(file.path.getFileName().toString());
+        hit.setOffset(entry.offset);
+        hit.setTime(entry.time.format(LogLines.TIMESTAMP));
+        int level = LogLines.level(entry.header);
+        hit.setLevel(level >= 0 ? LogLines.LEVELS[level] : null);
+        hit.setLogger(LogLines.logger(entry.header));
+        hit.setMessage(entry.message.toString());
+        hit.setTruncated(entry.truncated);
+        scan.hits.add(hit);
+        return false;
+    }
+
+    // ===== 索引维护 =====
+
+    /**
+     * 为所有日志文件建立或增量更新索引，并删除已不对应任何文件的索引
+     */
+    private synchronized List<IndexedFile> refresh() throws IOException {
+        Path indexDir = indexDirectory != null && !indexDirectory.isEmpty()
+            ? Paths.get(indexDirectory) : Paths.get(logsDirectory, ".index");
+        List<IndexedFile> files = new ArrayList<>();
+        Set<String> live = new HashSet<>();
+        for (Path path : logFileService.listLogFiles(true)) {
+            try {
+                IndexedFile file = index(path, indexDir);
+                if (file != null) {
+                    files.add(file);
+                    live.add(file.index.getFingerprint());
+                }
+            } catch (IOException e) {
+                logger.warn("建立日志索引失败: {}", path, e);
+            }
+        }
+
+        indexes.keySet().retainAll(live);
+        if (Files.isDirectory(indexDir)) {
+            try (Stream<Path> stale = Files.list(indexDir)) {
+                stale.filter(p -> p.getFileName().toString().endsWith(INDEX_SUFFIX))
+                    .filter(p -> !live.contains(p.getFileName().toString().replace(INDEX_SUFFIX, "")))
+                    .forEach(p -> {
+                        try {
+                            Files.deleteIfExists(p);
+                        } catch (IOException e) {
+                            logger.debug("删除过期日志索引失败: {}", p, e);
+                        }
+                    });
+            }
+        }
+        return files;
+    }
+
+    private IndexedFile index(Path path, Path indexDir) throws IOException {
+        boolean compressed = LogFileService.isCompressed(path);
+        String fingerprint = fingerprint(path, compressed);
+        if (fingerprint == null) {
+            // 文件还没有完整的第一行
+            return null;
+        }
+        Path indexFile = indexDir.resolve(fingerprint + INDEX_SUFFIX);
+        LogIndex index = indexes.get(fingerprint);
+        if (index == null) {
+            index = LogIndex.load(indexFile, fingerprint);
+            if (index == null) {
+                index = new LogIndex(fingerprint);
+            }
+            indexes.put(fingerprint, index);
+        }
+
+        long size = compressed ? -1 : Files.size(path);
+        boolean stale = compressed ? !completedCompressed.contains(fingerprint) : size > index.getIndexedBytes();
+        if (stale) {
+            long start = System.currentTimeMillis();
+            long added;
+            try (InputStream in = open(path, compressed, index.getIndexedBytes())) {
+                added = index.update(in);
+            }
+            if (compressed) {
+                completedCompressed.add(fingerprint);
+            }
+            if (added > 0) {
+                Files.createDirectories(indexDir);
+                index.save(indexFile);
+                logger.debug("日志索引已更新: {}, 新增 {} 字节, 共 {} 个桶, 耗时 {} ms",
+                    path.getFileName(), added, index.getBucketCount(), System.currentTimeMillis() - start);
+            }
+        }
+        return new IndexedFile(path, index, compressed, size);
+    }
+
+    /**
+     * 文件指纹：第一行内容（最多 1KB）的 SHA-256，文件被重命名或压缩后保持不变
+     */
+    private static String fingerprint(Path path, boolean compressed) throws IOException {
+        byte[] head = new byte[FINGERPRINT_BYTES];
+        int length = 0;
+        try (InputStream in = open(path, compressed, 0)) {
+            int n;
+            while (length < head.length && (n = in.read(head, length, head.length - length)) > 0) {
+                length += n;
+            }
+        }
+        int newline = -1;
+        for (int i = 0; i < length; i++) {
+            if (head[i] == '\n') {
+                newline = i;
+                break;
+            }
+        }
+        if (newline < 0 && length < head.length) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(head, 0, newline >= 0 ? newline : length);
+            StringBuilder sb = new StringBuilder(32);
+            byte[] hash = digest.digest();
+            for (int i = 0; i < 16; i++) {
+                sb.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static InputStream open(IndexedFile file, long offset) throws IOException {
+        return open(file.path, file.compressed, offset);
+    }
+
+    /**
+     * 打开文件并定位到偏移：普通文件直接 seek，gzip 文件解压跳过（偏移按解压后计算）
+     */
+    private static InputStream open(Path path, boolean compressed, long offset) throws IOException {
+        if (compressed) {
+            InputStream in = new GZIPInputStream(Files.newInputStream(path), 64 * 1024);
+            try {
+                in.skipNBytes(offset);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            return in;
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        channel.position(offset);
+        return new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+    }
+
+    private static final class IndexedFile {
+        private final Path path;
+        private final LogIndex index;
+        private final boolean compressed;
+        private final long size;
+        private List<long[]> regions;
+
+        IndexedFile(Path path, LogIndex index, boolean compressed, long size) {
+            this.path = path;
+            this.index = index;
+            this.compressed = compressed;
+            this.size = size;
+        }
+    }
+
+    private static final class Entry {
+        private final long offset;
+        private final LocalDateTime time;
+        private final String header;
+        private final StringBuilder message;
+        private int lines = 1;
+        private boolean truncated;
+
+        Entry(long offset, LocalDateTime time, String header) {
+            this.offset = offset;
+            this.time = time;
+            this.header = header;
+            this.message = new StringBuilder(header);
+        }
+
+        void append(String line) {
+            if (lines++ >= MAX_ENTRY_LINES) {
+                truncated = true;
+                return;
+            }
+            message.append('\n').append(line);
+        }
+    }
+
+    private static final class Scan {
+        private final LogQuery query;
+        private final String text;
+        private final int pageSize;
+        private final List<LogHit> hits = new ArrayList<>();
+        private String nextCursor;
+        private long scannedBytes;
+
+        Scan(LogQuery query, String text, int pageSize) {
+            this.query = query;
+            this.text = text;
+            this.pageSize = pageSize;
+        }
+    }
+}
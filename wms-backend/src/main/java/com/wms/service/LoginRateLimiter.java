@@ -2,121 +2,331 @@ package com.wms.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 
 /**
  * 登录限流器
- * 防止暴力破解攻击
+ * 防止暴力破解攻击：按用户名和客户端 IP 两个维度统计最近 15 分钟内的登录失败次数（滑动窗口），
+ * 用户名连续失败 5 次或同一 IP 失败 50 次后锁定 15 分钟。
+ * 计数器按时间分桶、用 CAS 无锁累加；记录数有硬上限，超出时淘汰未锁定、失败次数少且最久未访问的记录，
+ * 并由定时任务清理窗口内已没有失败记录的条目，随机用户名的撞库流量不会让内存无限增长。
  */
 @Component
 public class LoginRateLimiter {
 
     private static final Logger log = LoggerFactory.getLogger(LoginRateLimiter.class);
 
-    // 最大尝试次数
+    // 用户名最大尝试次数
     private static final int MAX_ATTEMPTS = 5;
-    // 锁定时间（分钟）
+    // 同一 IP 最大失败次数
+    private static final int MAX_IP_ATTEMPTS = 50;
+    // 锁定时间（分钟），同时也是统计窗口长度
     private static final int LOCK_DURATION_MINUTES = 15;
+    // 窗口分桶数
+    private static final int BUCKETS = 5;
+    // 最多保留的记录数
+    private static final int DEFAULT_CAPACITY = 50_000;
 
-    // 存储失败记录：username -> FailedAttempt
-    private final Map<String, FailedAttempt> failedAttempts = new ConcurrentHashMap<>();
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final int capacity;
+    private final int maxAttempts;
+    private final int maxIpAttempts;
+    private final long windowMillis;
+    private final long bucketMillis;
+    private final LongSupplier clock;
+
+    // 失败记录："u:用户名" 或 "ip:地址" -> 窗口计数
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public LoginRateLimiter() {
+        this(DEFAULT_CAPACITY, MAX_ATTEMPTS, MAX_IP_ATTEMPTS, System::currentTimeMillis);
+    }
+
+    LoginRateLimiter(int capacity, int maxAttempts, int maxIpAttempts, LongSupplier clock) {
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.maxIpAttempts = maxIpAttempts;
+        this.windowMillis = TimeUnit.MINUTES.toMillis(LOCK_DURATION_MINUTES);
+        this.bucketMillis = windowMillis / BUCKETS;
+        this.clock = clock;
+    }
 
     /**
      * 检查用户是否被锁定
      */
     public boolean isLocked(String username) {
-        FailedAttempt attempt = failedAttempts.get(username);
-        if (attempt == null) {
-            return false;
-        }
-
-        // 检查锁定是否过期
-        if (attempt.isExpired()) {
-            failedAttempts.remove(username);
-            return false;
-        }
+        return isKeyLocked(userKey(username));
+    }
 
-        return attempt.getAttempts() >= MAX_ATTEMPTS;
+    /**
+     * 检查 IP 是否被锁定
+     */
+    public boolean isIpLocked(String ip) {
+        return ip != null && isKeyLocked(ipKey(ip));
     }
 
     /**
      * 获取剩余锁定时间（秒）
      */
     public long getRemainingLockTime(String username) {
-        FailedAttempt attempt = failedAttempts.get(username);
-        if (attempt == null || attempt.isExpired()) {
-            return 0;
-        }
-        return Math.max(0, (attempt.getLockUntil() - System.currentTimeMillis()) / 1000);
+        return remainingLockTime(userKey(username));
+    }
+
+    public long getRemainingIpLockTime(String ip) {
+        return ip != null ? remainingLockTime(ipKey(ip)) : 0;
     }
 
     /**
      * 记录登录失败
      */
     public void recordFailure(String username) {
-        FailedAttempt attempt = failedAttempts.computeIfAbsent(username, k -> new FailedAttempt());
-        attempt.increment();
+        recordFailure(username, null);
+    }
 
-        if (attempt.getAttempts() >= MAX_ATTEMPTS) {
-            attempt.setLockUntil(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(LOCK_DURATION_MINUTES));
-            log.warn("用户 {} 因连续 {} 次登录失败被锁定 {} 分钟", username, MAX_ATTEMPTS, LOCK_DURATION_MINUTES);
+    /**
+     * 记录登录失败（用户名和 IP 各计一次）
+     */
+    public void recordFailure(String username, String ip) {
+        if (record(userKey(username), maxAttempts)) {
+            log.warn("用户 {} 因连续 {} 次登录失败被锁定 {} 分钟", username, maxAttempts, LOCK_DURATION_MINUTES);
+        }
+        if (ip != null && record(ipKey(ip), maxIpAttempts)) {
+            log.warn("IP {} 因 {} 分钟内 {} 次登录失败被锁定 {} 分钟",
+                ip, LOCK_DURATION_MINUTES, maxIpAttempts, LOCK_DURATION_MINUTES);
         }
     }
 
     /**
-     * 登录成功，清除失败记录
+     * 登录成功，清除失败记录（只清除用户名维度，IP 的失败记录保留）
      */
     public void clearFailures(String username) {
-        failedAttempts.remove(username);
+        windows.remove(userKey(username));
     }
 
     /**
      * 获取剩余尝试次数
      */
     public int getRemainingAttempts(String username) {
-        FailedAttempt attempt = failedAttempts.get(username);
-        if (attempt == null || attempt.isExpired()) {
-            return MAX_ATTEMPTS;
+        return Math.max(0, maxAttempts - failureCount(username));
+    }
+
+    /**
+     * 窗口内的失败次数
+     */
+    int failureCount(String username) {
+        Window window = windows.get(userKey(username));
+        if (window == null) {
+            return 0;
         }
-        return Math.max(0, MAX_ATTEMPTS - attempt.getAttempts());
+        long now = clock.getAsLong();
+        if (window.lockExpired(now)) {
+            windows.remove(userKey(username), window);
+            return 0;
+        }
+        return window.count(now / bucketMillis);
+    }
+
+    int size() {
+        return windows.size();
     }
 
     /**
-     * 失败尝试记录
+     * 清理窗口内已没有失败记录且未锁定的条目，以及锁定已过期的条目
      */
-    private static class FailedAttempt {
-        private int attempts = 0;
-        private long lockUntil = 0;
-        private long lastAttempt = System.currentTimeMillis();
-
-        public void increment() {
-            // 如果距离上次尝试超过锁定时间，重置计数
-            if (System.currentTimeMillis() - lastAttempt > TimeUnit.MINUTES.toMillis(LOCK_DURATION_MINUTES)) {
-                attempts = 0;
-                lockUntil = 0;
+    @Scheduled(fixedDelay = 60_000)
+    public void sweep() {
+        long now = clock.getAsLong();
+        long bucket = now / bucketMillis;
+        windows.entrySet().removeIf(e -> e.getValue().lockExpired(now)
+            || (!e.getValue().isLocked(now) && e.getValue().count(bucket) == 0));
+    }
+
+    // ===== 内部实现 =====
+
+    private static String userKey(String username) {
+        return "u:" + username;
+    }
+
+    private static String ipKey(String ip) {
+        return "ip:" + ip;
+    }
+
+    private boolean isKeyLocked(String key) {
+        Window window = windows.get(key);
+        if (window == null) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        // 锁定过期后清空计数，重新开始统计
+        if (window.lockExpired(now)) {
+            windows.remove(key, window);
+            return false;
+        }
+        window.touch();
+        return window.isLocked(now);
+    }
+
+    private long remainingLockTime(String key) {
+        Window window = windows.get(key);
+        if (window == null) {
+            return 0;
+        }
+        return Math.max(0, (window.lockUntil.get() - clock.getAsLong()) / 1000);
+    }
+
+    /**
+     * 累加一次失败，达到上限时锁定
+     *
+     * @return 本次是否触发锁定
+     */
+    private boolean record(String key, int max) {
+        long now = clock.getAsLong();
+        Window window = windows.get(key);
+        if (window == null) {
+            Window created = new Window();
+            window = windows.putIfAbsent(key, created);
+            if (window == null) {
+                window = created;
+                if (windows.size() > capacity) {
+                    evict();
+                }
             }
-            attempts++;
-            lastAttempt = System.currentTimeMillis();
         }
+        window.touch();
+        int count = window.increment(now / bucketMillis);
+        return count >= max && window.lock(now + windowMillis);
+    }
 
-        public int getAttempts() {
-            return attempts;
+    /**
+     * 超出容量时淘汰记录：先淘汰未锁定的、再淘汰失败次数少的，同等条件下淘汰最久未访问的；
+     * 随机用户名的撞库流量只会挤掉彼此，差一次就要锁定的账号不会被挤出。一次多淘汰十分之一，避免每次插入都排序
+     * 只有一个线程执行淘汰，其它线程不等待
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            // 淘汰期间其它线程插入的记录拿不到锁，由这里循环处理
+            while (windows.size() > capacity) {
+                long now = clock.getAsLong();
+                long bucket = now / bucketMillis;
+                // 先取快照再排序：排序期间其它线程仍在更新访问时间和计数
+                List<Candidate> candidates = new ArrayList<>(windows.size());
+                windows.forEach((key, window) -> candidates.add(
+                    new Candidate(key, window, window.isLocked(now), window.count(bucket), window.lastAccess)));
+                candidates.sort(Comparator.comparing((Candidate c) -> c.locked)
+                    .thenComparingInt(c -> c.count)
+                    .thenComparingLong(c -> c.lastAccess));
+                int target = Math.min(candidates.size(), candidates.size() - capacity + capacity / 10);
+                for (int i = 0; i < target; i++) {
+                    windows.remove(candidates.get(i).key, candidates.get(i).window);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Candidate {
+        final String key;
+        final Window window;
+        final boolean locked;
+        final int count;
+        final long lastAccess;
+
+        Candidate(String key, Window window, boolean locked, int count, long lastAccess) {
+            this.key = key;
+            this.window = window;
+            this.locked = locked;
+            this.count = count;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * 滑动窗口计数
+     * 每个槽位把桶序号和计数打包在一个 long 中（高位为桶序号，低 24 位为计数），用 CAS 更新
+     */
+    private static final class Window {
+        private final AtomicLongArray slots = new AtomicLongArray(BUCKETS);
+        private final AtomicLong lockUntil = new AtomicLong();
+        // 用 nanoTime 排序淘汰顺序，毫秒精度下同一时刻的记录太多
+        private volatile long lastAccess = System.nanoTime();
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+
+        int increment(long bucket) {
+            int index = (int) (bucket % BUCKETS);
+            while (true) {
+                long current = slots.get(index);
+                long next;
+                if ((current >>> COUNT_BITS) == bucket) {
+                    if ((current & COUNT_MASK) == COUNT_MASK) {
+                        // 计数已饱和
+                        break;
+                    }
+                    next = current + 1;
+                } else {
+                    // 槽位里是已滑出窗口的旧桶，重新开始计数
+                    next = (bucket << COUNT_BITS) | 1;
+                }
+                if (slots.compareAndSet(index, current, next)) {
+                    break;
+                }
+            }
+            return count(bucket);
+        }
+
+        /**
+         * 最近 BUCKETS 个桶（含当前桶）的计数之和
+         */
+        int count(long bucket) {
+            int total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long slot = slots.get(i);
+                long slotBucket = slot >>> COUNT_BITS;
+                if (slotBucket <= bucket && bucket - slotBucket < BUCKETS) {
+                    total += (int) (slot & COUNT_MASK);
+                }
+            }
+            return total;
         }
 
-        public long getLockUntil() {
-            return lockUntil;
+        /**
+         * 设置锁定截止时间（已锁定时不延长）
+         *
+         * @return 是否是本次调用加的锁
+         */
+        boolean lock(long until) {
+            return lockUntil.compareAndSet(0, until);
         }
 
-        public void setLockUntil(long lockUntil) {
-            this.lockUntil = lockUntil;
+        boolean isLocked(long now) {
+            long until = lockUntil.get();
+            return until != 0 && now < until;
         }
 
-        public boolean isExpired() {
-            return lockUntil > 0 && System.currentTimeMillis() > lockUntil;
+        boolean lockExpired(long now) {
+            long until = lockUntil.get();
+            return until != 0 && now >= until;
         }
     }
 }
@@ -0,0 +1,155 @@
+package com.wms.service;
+
+import com.wms.common.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码校验
+ * BCrypt 校验在专用的有界线程池中执行，登录高峰时最多占用 login.hash.threads 个 CPU，
+ * 其它接口的请求线程不受影响。队列已满或排队超过 login.hash.max-queue-ms 的请求直接以 429 拒绝，
+ * 不再继续消耗 CPU。
+ */
+@Service
+public class PasswordHashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashService.class);
+
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${login.hash.threads:0}")
+    private int threads;
+
+    @Value("${login.hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${login.hash.max-queue-ms:2000}")
+    private long maxQueueMs;
+
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    private ThreadPoolExecutor executor;
+    private Timer hashTimer;
+    private Timer queueTimer;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread thread = new Thread(r, "password-hash-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+
+        hashTimer = Timer.builder("wms.login.hash")
+            .description("BCrypt 校验耗时")
+            .register(meterRegistry);
+        queueTimer = Timer.builder("wms.login.hash.queue")
+            .description("密码校验排队时间")
+            .register(meterRegistry);
+        rejectedCounter = meterRegistry.counter("wms.login.hash.rejected");
+        Gauge.builder("wms.login.hash.queue.depth", executor, e -> e.getQueue().size())
+            .description("等待校验的登录请求数")
+            .register(meterRegistry);
+        Gauge.builder("wms.login.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+            .register(meterRegistry);
+    }
+
+    /**
+     * 校验密码，支持 BCrypt 和尚未迁移的明文密码
+     *
+     * @throws BusinessException 429：校验队列已满或排队超时
+     */
+    public boolean matches(String raw, String stored) {
+        if (raw == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            // 明文密码（旧数据，由 PasswordMigrationTask 在后台迁移）
+            return MessageDigest.isEqual(raw.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        long submitted = System.nanoTime();
+        Future<Boolean> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - submitted;
+                queueTimer.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > TimeUnit.MILLISECONDS.toNanos(maxQueueMs)) {
+                    // 调用方已放弃等待，不再做无用的计算
+                    return null;
+                }
+                return hashTimer.recordCallable(() -> passwordEncoder.matches(raw, stored));
+            });
+        } catch (RejectedExecutionException e) {
+            throw busy();
+        }
+
+        try {
+            // 等待时间 = 最长排队时间 + 一次校验的余量
+            Boolean result = future.get(maxQueueMs + 1000, TimeUnit.MILLISECONDS);
+            if (result == null) {
+                throw busy();
+            }
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("密码校验失败", e.getCause());
+        }
+    }
+
+    public String encode(String raw) {
+        return passwordEncoder.encode(raw);
+    }
+
+    /**
+     * 是否为 BCrypt 哈希（以 $2a$、$2b$ 或 $2y$ 开头）
+     */
+    public static boolean isHashed(String stored) {
+        return stored.startsWith("$2a$") || stored.startsWith("$2b$") || stored.startsWith("$2y$");
+    }
+
+    private BusinessException busy() {
+        rejectedCounter.increment();
+        logger.warn("登录请求过多，密码校验队列 {} 个，已拒绝", executor.getQueue().size());
+        return new BusinessException(TOO_MANY_REQUESTS, "登录人数较多，请稍后重试");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
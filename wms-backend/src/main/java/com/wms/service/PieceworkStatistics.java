@@ -0,0 +1,312 @@
+package com.wms.service;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 计件统计累加器
+ * 每条记录只转换一次为类型化的行，一次遍历同时更新汇总、工人、产品、月度统计；
+ * 记录数较多时按区间拆分到 ForkJoinPool 并行累加后合并
+ */
+public final class PieceworkStatistics {
+
+    /**
+     * 超过该记录数时启用并行累加
+     */
+    static final int PARALLEL_THRESHOLD = 20_000;
+
+    /**
+     * 单个子任务处理的最大记录数
+     */
+    private static final int SPLIT_SIZE = 5_000;
+
+    private static final String UNKNOWN = "未知";
+
+    private int totalRecords;
+    private long totalQuantity;
+    private double totalAmount;
+    private int defectRecords;
+    private int semiFinishedRecords;
+
+    private final Map<String, Group> byWorker = new LinkedHashMap<>();
+    private final Map<String, Group> byProduct = new LinkedHashMap<>();
+    private final Map<String, MonthGroup> byMonth = new TreeMap<>();
+
+    private PieceworkStatistics() {
+    }
+
+    /**
+     * 统计记录（大数据量时自动并行）
+     */
+    public static PieceworkStatistics of(List<Map<String, Object>> records) {
+        if (records == null || records.isEmpty()) {
+            return new PieceworkStatistics();
+        }
+        if (records.size() < PARALLEL_THRESHOLD) {
+            return accumulate(records, 0, records.size());
+        }
+        return ForkJoinPool.commonPool().invoke(new AccumulateTask(records, 0, records.size()));
+    }
+
+    /**
+     * 顺序累加 [from, to) 区间内的记录
+     */
+    static PieceworkStatistics accumulate(List<Map<String, Object>> records, int from, int to) {
+        PieceworkStatistics stats = new PieceworkStatistics();
+        for (int i = from; i < to; i++) {
+            stats.add(Row.from(records.get(i)));
+        }
+        return stats;
+    }
+
+    private void add(Row row) {
+        totalRecords++;
+        totalQuantity += row.quantity;
+        totalAmount += row.amount;
+        if (row.defectQuantity > 0) {
+            defectRecords++;
+        }
+        if (row.semiFinished) {
+            semiFinishedRecords++;
+        }
+
+        byWorker.computeIfAbsent(row.workerName, k -> new Group()).add(row);
+        byProduct.computeIfAbsent(row.productName, k -> new Group()).add(row);
+        byMonth.computeIfAbsent(row.month, k -> new MonthGroup()).add(row);
+    }
+
+    /**
+     * 合并另一个区间的统计结果（other 中的记录位于本区间之后）
+     */
+    private PieceworkStatistics merge(PieceworkStatistics other) {
+        totalRecords += other.totalRecords;
+        totalQuantity += other.totalQuantity;
+        totalAmount += other.totalAmount;
+        defectRecords += other.defectRecords;
+        semiFinishedRecords += other.semiFinishedRecords;
+
+        other.byWorker.forEach((k, v) -> byWorker.merge(k, v, Group::merge));
+        other.byProduct.forEach((k, v) -> byProduct.merge(k, v, Group::merge));
+        other.byMonth.forEach((k, v) -> byMonth.merge(k, v, MonthGroup::merge));
+        return this;
+    }
+
+    public int getTotalRecords() {
+        return totalRecords;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public double getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getDefectRecords() {
+        return defectRecords;
+    }
+
+    public int getSemiFinishedRecords() {
+        return semiFinishedRecords;
+    }
+
+    /**
+     * 按工人分组（按首次出现顺序）
+     */
+    public Map<String, Group> getByWorker() {
+        return Collections.unmodifiableMap(byWorker);
+    }
+
+    /**
+     * 按产品分组（按首次出现顺序）
+     */
+    public Map<String, Group> getByProduct() {
+        return Collections.unmodifiableMap(byProduct);
+    }
+
+    /**
+     * 按月份分组（yyyy-MM 升序）
+     */
+    public Map<String, MonthGroup> getByMonth() {
+        return Collections.unmodifiableMap(byMonth);
+    }
+
+    /**
+     * 分组统计值
+     */
+    public static class Group {
+        private int recordCount;
+        private long totalQuantity;
+        private double totalAmount;
+
+        void add(Row row) {
+            recordCount++;
+            totalQuantity += row.quantity;
+            totalAmount += row.amount;
+        }
+
+        Group merge(Group other) {
+            recordCount += other.recordCount;
+            totalQuantity += other.totalQuantity;
+            totalAmount += other.totalAmount;
+            return this;
+        }
+
+        public int getRecordCount() {
+            return recordCount;
+        }
+
+        public long getTotalQuantity() {
+            return totalQuantity;
+        }
+
+        public double getTotalAmount() {
+            return totalAmount;
+        }
+
+        /**
+         * 平均单价 = 总金额 / 总数量
+         */
+        public double getAveragePrice() {
+            return totalQuantity > 0 ? totalAmount / totalQuantity : 0;
+        }
+    }
+
+    /**
+     * 月度统计值，额外记录工作天数
+     */
+    public static class MonthGroup extends Group {
+        private final Set<String> workDays = new HashSet<>();
+
+        @Override
+        void add(Row row) {
+            super.add(row);
+            workDays.add(row.day);
+        }
+
+        MonthGroup merge(MonthGroup other) {
+            super.merge(other);
+            workDays.addAll(other.workDays);
+            return this;
+        }
+
+        public int getWorkDayCount() {
+            return workDays.size();
+        }
+
+        /**
+         * 平均日产量 = 总数量 / 工作天数
+         */
+        public double getAverageDailyQuantity() {
+            return workDays.isEmpty() ? 0 : (double) getTotalQuantity() / workDays.size();
+        }
+    }
+
+    /**
+     * 类型化的计件行，每条记录只解析一次
+     */
+    static final class Row {
+        final String workerName;
+        final String productName;
+        final String month;
+        final String day;
+        final int quantity;
+        final double amount;
+        final int defectQuantity;
+        final boolean semiFinished;
+
+        private Row(String workerName, String productName, String month, String day,
+                    int quantity, double amount, int defectQuantity, boolean semiFinished) {
+            this.workerName = workerName;
+            this.productName = productName;
+            this.month = month;
+            this.day = day;
+            this.quantity = quantity;
+            this.amount = amount;
+            this.defectQuantity = defectQuantity;
+            this.semiFinished = semiFinished;
+        }
+
+        static Row from(Map<String, Object> record) {
+            Object workDateValue = record.get("workDate");
+            String workDate = workDateValue != null ? workDateValue.toString() : "";
+            String month = workDate.length() >= 7 ? workDate.substring(0, 7) : UNKNOWN;
+            String day = workDate.length() >= 10 ? workDate.substring(0, 10) : workDate;
+
+            return new Row(
+                stringOrDefault(record.get("workerName"), UNKNOWN),
+                stringOrDefault(record.get("productName"), UNKNOWN),
+                month,
+                day,
+                toInt(record.get("quantity")),
+                toDouble(record.get("totalAmount")),
+                toInt(record.get("defectQuantity")),
+                "是".equals(stringOrDefault(record.get("semiFinished"), ""))
+            );
+        }
+
+        private static String stringOrDefault(Object value, String defaultValue) {
+            return value != null ? value.toString() : defaultValue;
+        }
+
+        private static int toInt(Object value) {
+            if (value == null) return 0;
+            if (value instanceof Number) {
+                return ((Number) value).intValue();
+            }
+            try {
+                return Integer.parseInt(value.toString());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        private static double toDouble(Object value) {
+            if (value == null) return 0.0;
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            try {
+                return Double.parseDouble(value.toString());
+            } catch (NumberFormatException e) {
+                return 0.0;
+            }
+        }
+    }
+
+    /**
+     * Fork/Join 累加任务：区间过大时二分，左右结果按顺序合并
+     */
+    private static final class AccumulateTask extends RecursiveTask<PieceworkStatistics> {
+        private final List<Map<String, Object>> records;
+        private final int from;
+        private final int to;
+
+        AccumulateTask(List<Map<String, Object>> records, int from, int to) {
+            this.records = records;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PieceworkStatistics compute() {
+            if (to - from <= SPLIT_SIZE) {
+                return accumulate(records, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            AccumulateTask left = new AccumulateTask(records, from, mid);
+            AccumulateTask right = new AccumulateTask(records, mid, to);
+            left.fork();
+            PieceworkStatistics rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.wms.service;
+
+import com.wms.common.AuthPrincipal;
+import com.wms.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token 吊销
+ * 吊销记录保存在 token_revocations 表：退出登录时按 jti 吊销单个 Token，禁用用户等操作按用户吊销此前签发的全部 Token。
+ * 每个节点在内存中保存未过期记录的精确集合，外加一个布隆过滤器：绝大多数请求的 Token 没有被吊销，
+ * 过滤器几次位运算即可放行，只有过滤器命中时才查精确集合确认。
+ * 其它节点的吊销记录按 id 增量同步（同时重读最近一分钟写入的记录，弥补自增 id 提交顺序不一致漏掉的行），
+ * 过期记录定时清理并重建过滤器。
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long REFRESH_OVERLAP_MS = 60_000;
+    private static final String TOKEN_KEY = "t:";
+    private static final String USER_KEY = "u:";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${jwt.expiration:86400000}")
+    private long tokenLifetime;
+
+    @Value("${token.revocation.expected-entries:10000}")
+    private int expectedEntries;
+
+    /**
+     * jti -> Token 过期时间（毫秒）
+     */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    /**
+     * 用户名 -> 签发时间早于该时刻（毫秒）的 Token 均失效
+     */
+    private final Map<String, Long> userNotBefore = new ConcurrentHashMap<>();
+
+    /**
+     * 读取无锁；加入元素和重建在 this 上同步
+     */
+    private volatile BloomFilter filter;
+    private int filterCapacity;
+    private long lastId;
+
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void init() {
+        filterCapacity = Math.max(1, expectedEntries);
+        filter = new BloomFilter(filterCapacity, FALSE_POSITIVE_RATE);
+        falsePositives = meterRegistry.counter("wms.token.revocation.false-positive");
+        Gauge.builder("wms.token.revocation.entries", this, s -> s.revokedTokens.size() + s.userNotBefore.size())
+            .description("内存中的 Token 吊销记录数")
+            .register(meterRegistry);
+        try {
+            refresh();
+        } catch (Exception e) {
+            logger.error("加载 Token 吊销记录失败，将在下次同步时重试", e);
+        }
+    }
+
+    /**
+     * Token 是否已被吊销
+     */
+    public boolean isRevoked(AuthPrincipal principal) {
+        BloomFilter current = filter;
+        String tokenId = principal.getTokenId();
+        if (tokenId != null && current.mightContain(TOKEN_KEY + tokenId)) {
+            if (revokedTokens.containsKey(tokenId)) {
+                return true;
+            }
+            falsePositives.increment();
+        }
+        if (current.mightContain(USER_KEY + principal.getUsername())) {
+            Long notBefore = userNotBefore.get(principal.getUsername());
+            // JWT 的签发时间只精确到秒：吊销后同一秒内签发的新 Token 也会失效，需要重新登录
+            return notBefore != null && principal.getIssuedAt() < notBefore;
+        }
+        return false;
+    }
+
+    /**
+     * 吊销单个 Token（退出登录）
+     */
+    public void revokeToken(AuthPrincipal principal) {
+        String tokenId = principal.getTokenId();
+        if (tokenId == null) {
+            // 旧版本签发的 Token 没有 jti，只能吊销该用户此前签发的全部 Token
+            revokeUser(principal.getUsername());
+            return;
+        }
+        applyToken(tokenId, principal.getExpiresAt());
+        jdbcTemplate.update("INSERT INTO token_revocations (jti, expires_at) VALUES (?, ?)",
+            tokenId, new Timestamp(principal.getExpiresAt()));
+    }
+
+    /**
+     * 吊销用户此前签发的全部 Token（禁用、删除用户，重置密码，修改角色）
+     */
+    public void revokeUser(String username) {
+        long now = System.currentTimeMillis();
+        applyUser(username, now);
+        jdbcTemplate.update("INSERT INTO token_revocations (username, not_before, expires_at) VALUES (?, ?, ?)",
+            username, now, new Timestamp(now + tokenLifetime));
+        logger.info("已吊销用户 {} 此前签发的全部 Token", username);
+    }
+
+    /**
+     * 增量同步其它节点写入的吊销记录
+     */
+    @Scheduled(fixedDelayString = "${token.revocation.refresh-ms:5000}")
+    public synchronized void refresh() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+            "SELECT id, jti, username, not_before, expires_at FROM token_revocations "
+                + "WHERE (id > ? OR created_at >= ?) AND expires_at > ? ORDER BY id",
+            lastId, new Timestamp(now - REFRESH_OVERLAP_MS), new Timestamp(now));
+        for (Map<String, Object> row : rows) {
+            String tokenId = (String) row.get("jti");
+            String username = (String) row.get("username");
+            if (tokenId != null) {
+                applyToken(tokenId, ((Timestamp) row.get("expires_at")).getTime());
+            } else if (username != null && row.get("not_before") != null) {
+                applyUser(username, ((Number) row.get("not_before")).longValue());
+            }
+            lastId = Math.max(lastId, ((Number) row.get("id")).longValue());
+        }
+    }
+
+    /**
+     * 清理已过期的吊销记录（相关 Token 都已自然过期），并按剩余记录重建过滤器
+     */
+    @Scheduled(cron = "0 20 * * * ?")
+    public synchronized void purge() {
+        long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        userNotBefore.values().removeIf(notBefore -> notBefore + tokenLifetime <= now);
+        rebuild();
+        try {
+            int deleted = jdbcTemplate.update("DELETE FROM token_revocations WHERE expires_at <= ?", new Timestamp(now));
+            if (deleted > 0) {
+                logger.info("已清理 {} 条过期的 Token 吊销记录", deleted);
+            }
+        } catch (Exception e) {
+            logger.warn("清理 Token 吊销记录失败: {}", e.getMessage());
+        }
+    }
+
+    // ===== 内部实现 =====
+
+    /**
+     * 先写精确集合再写过滤器：并发读取时过滤器命中就一定能在精确集合中查到
+     */
+    private synchronized void applyToken(String tokenId, long expiresAt) {
+        if (revokedTokens.put(tokenId, expiresAt) == null) {
+            filter.put(TOKEN_KEY + tokenId);
+            ensureCapacity();
+        }
+    }
+
+    private synchronized void applyUser(String username, long notBefore) {
+        long merged = userNotBefore.merge(username, notBefore, Math::max);
+        if (merged == notBefore) {
+            filter.put(USER_KEY + username);
+            ensureCapacity();
+        }
+    }
+
+    /**
+     * 记录数超过过滤器容量时误报率会上升，按两倍容量重建
+     */
+    private void ensureCapacity() {
+        if (revokedTokens.size() + userNotBefore.size() > filterCapacity) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        int entries = revokedTokens.size() + userNotBefore.size();
+        filterCapacity = Math.max(expectedEntries, entries * 2);
+        BloomFilter rebuilt = new BloomFilter(filterCapacity, FALSE_POSITIVE_RATE);
+        revokedTokens.keySet().forEach(tokenId -> rebuilt.put(TOKEN_KEY + tokenId));
+        userNotBefore.keySet().forEach(username -> rebuilt.put(USER_KEY + username));
+        filter = rebuilt;
+    }
+}
@@ -0,0 +1,94 @@
+package com.wms.service;
+
+import com.wms.common.AuthPrincipal;
+import com.wms.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token 验证
+ * 每个 Token 只做一次签名校验：验证通过后以 Token 的 SHA-256 摘要为键缓存不可变的登录身份，
+ * 缓存按最近使用淘汰（LRU），条目在 Token 的 exp 时间失效。
+ * 缓存中不保存 Token 原文。吊销检查不缓存，每次验证都通过 {@link TokenRevocationService} 判断。
+ */
+@Service
+public class TokenVerificationService {
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Value("${jwt.cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<String, AuthPrincipal> cache = new LinkedHashMap<String, AuthPrincipal>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AuthPrincipal> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * 验证 Token 并返回登录身份
+     *
+     * @param token 不含 "Bearer " 前缀的 Token
+     * @return 签名无效、已过期、已吊销或缺少用户名时返回 null
+     */
+    public AuthPrincipal verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            AuthPrincipal cached = cache.get(digest);
+            if (cached != null) {
+                if (!cached.isExpired(now)) {
+                    return tokenRevocationService.isRevoked(cached) ? null : cached;
+                }
+                cache.remove(digest);
+                return null;
+            }
+        }
+
+        AuthPrincipal principal;
+        try {
+            Claims claims = jwtUtil.parseClaims(token);
+            Date expiration = claims.getExpiration();
+            if (claims.getSubject() == null || expiration == null || expiration.getTime() <= now) {
+                return null;
+            }
+            Date issuedAt = claims.getIssuedAt();
+            principal = new AuthPrincipal(claims.getSubject(), (String) claims.get("role"), claims.getId(),
+                issuedAt != null ? issuedAt.getTime() : 0L, expiration.getTime());
+        } catch (JwtException | IllegalArgumentException | ClassCastException e) {
+            return null;
+        }
+        synchronized (cache) {
+            cache.put(digest, principal);
+        }
+        return tokenRevocationService.isRevoked(principal) ? null : principal;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
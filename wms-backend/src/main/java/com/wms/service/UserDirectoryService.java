@@ -0,0 +1,133 @@
+package com.wms.service;
+
+import com.wms.dto.UserSummary;
+import com.wms.entity.User;
+import com.wms.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 用户目录
+ * 在内存中保存所有用户摘要（id、用户名、真实姓名、角色、状态）的不可变快照，以及按 id、用户名的索引和管理员集合。
+ * 用户列表、工人名单、当前用户信息和报表不再查询 users 表。
+ * 本节点新增、修改、删除用户后立即更新快照（写时复制），其它节点的修改由定时全量刷新同步。
+ */
+@Service
+public class UserDirectoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectoryService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            logger.error("加载用户目录失败，将在下次刷新时重试", e);
+        }
+    }
+
+    /**
+     * 从数据库全量刷新
+     */
+    @Scheduled(fixedDelayString = "${user.directory.refresh-ms:60000}")
+    public synchronized void reload() {
+        snapshot = new Snapshot(userRepository.findAllSummaries());
+    }
+
+    /**
+     * 用户新增或修改后更新快照
+     */
+    public synchronized void put(User user) {
+        UserSummary summary = new UserSummary(user.getId(), user.getUsername(), user.getRealName(),
+            user.getRole(), user.getStatus());
+        Map<Long, UserSummary> users = new HashMap<>(snapshot.byId);
+        users.put(summary.getId(), summary);
+        snapshot = new Snapshot(users.values());
+    }
+
+    /**
+     * 用户删除后更新快照
+     */
+    public synchronized void remove(Long id) {
+        if (!snapshot.byId.containsKey(id)) {
+            return;
+        }
+        Map<Long, UserSummary> users = new HashMap<>(snapshot.byId);
+        users.remove(id);
+        snapshot = new Snapshot(users.values());
+    }
+
+    /**
+     * 所有用户（按 id 排序）
+     */
+    public List<UserSummary> getAll() {
+        return snapshot.all;
+    }
+
+    public Optional<UserSummary> findById(Long id) {
+        return Optional.ofNullable(snapshot.byId.get(id));
+    }
+
+    public Optional<UserSummary> findByUsername(String username) {
+        return Optional.ofNullable(snapshot.byUsername.get(username));
+    }
+
+    /**
+     * 管理员用户名（报表统计时排除管理员的记录）
+     */
+    public Set<String> getAdminUsernames() {
+        return snapshot.adminUsernames;
+    }
+
+    public int size() {
+        return snapshot.all.size();
+    }
+
+    private static final class Snapshot {
+        final List<UserSummary> all;
+        final Map<Long, UserSummary> byId;
+        final Map<String, UserSummary> byUsername;
+        final Set<String> adminUsernames;
+
+        Snapshot(Collection<UserSummary> users) {
+            List<UserSummary> sorted = new ArrayList<>(users);
+            sorted.sort(Comparator.comparing(UserSummary::getId));
+            Map<Long, UserSummary> ids = new HashMap<>();
+            Map<String, UserSummary> usernames = new HashMap<>();
+            for (UserSummary user : sorted) {
+                ids.put(user.getId(), user);
+                usernames.put(user.getUsername(), user);
+            }
+            this.all = Collections.unmodifiableList(sorted);
+            this.byId = Collections.unmodifiableMap(ids);
+            this.byUsername = Collections.unmodifiableMap(usernames);
+            Set<String> admins = new HashSet<>();
+            for (UserSummary user : sorted) {
+                if (user.isAdmin()) {
+                    admins.add(user.getUsername());
+                }
+            }
+            this.adminUsernames = Collections.unmodifiableSet(admins);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.wms.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 备份包读取器
+ * 顺序读取 {@link BackupArchiveWriter} 生成的 .tar.gz（也兼容 GNU tar 生成的普通归档），
+ * 把指定前缀下的条目解压到目录，用于从备份包中取出数据库导出等内容
+ */
+public final class BackupArchiveReader {
+
+    private static final int RECORD_SIZE = 512;
+
+    private BackupArchiveReader() {
+    }
+
+    /**
+     * 解压名称以 prefix 开头的条目到 targetDirectory（保留相对路径）
+     *
+     * @return 解压的文件数
+     */
+    public static int extract(Path archive, String prefix, Path targetDirectory) throws IOException {
+        Path root = targetDirectory.toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        int extracted = 0;
+
+        try (InputStream in = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(archive), 64 * 1024),
+            256 * 1024)) {
+            byte[] header = new byte[RECORD_SIZE];
+            byte[] buffer = new byte[64 * 1024];
+            String longName = null;
+
+            while (readRecord(in, header)) {
+                if (isZero(header)) {
+                    break;
+                }
+                char type = (char) header[156];
+                long size = parseSize(header);
+                String name = longName != null ? longName : parseName(header);
+                longName = null;
+
+                if (type == 'L') {
+                    byte[] nameBytes = new byte[(int) size];
+                    readFully(in, nameBytes, nameBytes.length);
+                    skip(in, padding(size));
+                    longName = trimNul(new String(nameBytes, StandardCharsets.UTF_8));
+                    continue;
+                }
+
+                boolean wanted = name.startsWith(prefix);
+                Path path = root.resolve(name).normalize();
+                if (wanted && !path.startsWith(root)) {
+                    throw new IOException("归档路径越界: " + name);
+                }
+
+                if (wanted && type == '5') {
+                    Files.createDirectories(path);
+                } else if (wanted && (type == '0' || type == 0)) {
+                    Files.createDirectories(path.getParent());
+                    try (OutputStream out = Files.newOutputStream(path)) {
+                        long remaining = size;
+                        while (remaining > 0) {
+                            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                            if (n < 0) {
+                                throw new IOException("归档不完整: " + name);
+                            }
+                            out.write(buffer, 0, n);
+                            remaining -= n;
+                        }
+                    }
+                    skip(in, padding(size));
+                    extracted++;
+                    continue;
+                }
+                skip(in, size + padding(size));
+            }
+        }
+        return extracted;
+    }
+
+    private static String parseName(byte[] header) {
+        String name = trimNul(new String(header, 0, 100, StandardCharsets.UTF_8));
+        String magic = new String(header, 257, 5, StandardCharsets.US_ASCII);
+        if ("ustar".equals(magic)) {
+            String prefix = trimNul(new String(header, 345, 155, StandardCharsets.UTF_8));
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static long parseSize(byte[] header) {
+        if ((header[124] & 0x80) != 0) {
+            // GNU base-256 编码
+            long size = 0;
+            for (int i = 128; i < 136; i++) {
+                size = (size << 8) | (header[i] & 0xFF);
+            }
+            return size;
+        }
+        long size = 0;
+        for (int i = 124; i < 136; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (size > 0) {
+                    break;
+                }
+                continue;
+            }
+            size = (size << 3) + (b - '0');
+        }
+        return size;
+    }
+
+    private static long padding(long size) {
+        long remainder = size % RECORD_SIZE;
+        return remainder == 0 ? 0 : RECORD_SIZE - remainder;
+    }
+
+    private static boolean readRecord(InputStream in, byte[] record) throws IOException {
+        int read = 0;
+        while (read < record.length) {
+            int n = in.read(record, read, record.length - read);
+            if (n < 0) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new IOException("归档不完整");
+            }
+            read += n;
+        }
+        return true;
+    }
+
+    private static void readFully(InputStream in, byte[] bytes, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            int n = in.read(bytes, read, length - read);
+            if (n < 0) {
+                throw new IOException("归档不完整");
+            }
+            read += n;
+        }
+    }
+
+    private static void skip(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long n = in.skip(bytes);
+            if (n <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("归档不完整");
+                }
+                n = 1;
+            }
+            bytes -= n;
+        }
+    }
+
+    private static boolean isZero(byte[] record) {
+        for (byte b : record) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String trimNul(String s) {
+        int end = s.indexOf('\0');
+        return end >= 0 ? s.substring(0, end) : s;
+    }
+}
@@ -0,0 +1,347 @@
+package com.wms.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * 流式备份归档写入器
+ * 直接在 Java 中生成 tar 流并经 {@link ParallelGzipOutputStream} 多线程压缩写入 .tar.gz，
+ * 每个文件只读一次、只压缩一次；写入时同时计算每个条目的 SHA-256，
+ * 最后在归档末尾追加 SHA256SUMS 清单（可用 sha256sum -c 校验解压结果）。
+ */
+public class BackupArchiveWriter implements Closeable {
+
+    public static final String CHECKSUM_ENTRY = "SHA256SUMS";
+
+    private static final int RECORD_SIZE = 512;
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * 八进制 11 位可表示的最大文件大小，超过后改用 base-256 编码
+     */
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+
+    private final FileChannel channel;
+    private final ExecutorService executor;
+    private final ParallelGzipOutputStream out;
+    private final int level;
+    private final byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+    private final List<Entry> entries = new ArrayList<>();
+    private IoThrottle readThrottle;
+    private boolean finished = false;
+
+    /**
+     * @param target  目标 .tar.gz 文件
+     * @param threads 压缩线程数
+     * @param level   gzip 压缩级别 1-9
+     */
+    public BackupArchiveWriter(Path target, int threads, int level) throws IOException {
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "backup-gzip-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.level = level;
+        this.out = new ParallelGzipOutputStream(channel, executor, threads, level, BLOCK_SIZE);
+    }
+
+    /**
+     * 设置读写限速：读取源文件/流按 read 限速，写入归档文件（压缩后）按 write 限速，为空表示不限速
+     */
+    public void setThrottles(IoThrottle read, IoThrottle write) {
+        this.readThrottle = read;
+        out.setThrottle(write);
+    }
+
+    /**
+     * 添加单个文件
+     */
+    public void addFile(String entryName, Path file) throws IOException {
+        long size = Files.size(file);
+        long mtime = Files.getLastModifiedTime(file).toMillis() / 1000;
+        out.write(header(entryName, size, mtime, '0'));
+        MessageDigest digest = sha256();
+        long copied = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while (copied < size && (n = in.read(copyBuffer, 0, (int) Math.min(copyBuffer.length, size - copied))) > 0) {
+                throttleRead(n);
+                out.write(copyBuffer, 0, n);
+                digest.update(copyBuffer, 0, n);
+                copied += n;
+            }
+        }
+        if (copied < size) {
+            // 文件在备份过程中被截断，补零保证 tar 结构完整
+            byte[] zeros = new byte[COPY_BUFFER_SIZE];
+            while (copied < size) {
+                int n = (int) Math.min(zeros.length, size - copied);
+                out.write(zeros, 0, n);
+                digest.update(zeros, 0, n);
+                copied += n;
+            }
+        }
+        pad(size);
+        entries.add(new Entry(entryName, size, hex(digest.digest())));
+    }
+
+    /**
+     * 递归添加目录，条目名以 prefix 开头（符号链接和特殊文件会被跳过）
+     */
+    public void addDirectory(String prefix, Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException {
+                String name = entryName(prefix, dir, d) + "/";
+                out.write(header(name, 0, attrs.lastModifiedTime().toMillis() / 1000, '5'));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile()) {
+                    addFile(entryName(prefix, dir, file), file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 递归添加内容已经压缩过的目录（如数据库导出的 .sql.gz 分片），这些条目只存储不再压缩
+     */
+    public void addPrecompressedDirectory(String prefix, Path dir) throws IOException {
+        out.setLevel(Deflater.NO_COMPRESSION);
+        try {
+            addDirectory(prefix, dir);
+        } finally {
+            out.setLevel(level);
+        }
+    }
+
+    /**
+     * 添加长度未知的流式条目（如数据库导出）
+     * 先写入占位头部，数据写完后再原地回填真实大小，数据本身不落临时文件
+     */
+    public long addStream(String entryName, InputStream in) throws IOException {
+        long mtime = System.currentTimeMillis() / 1000;
+        // 头部单独写成存储块 gzip 成员，回填大小时成员长度不变
+        long headerPosition = out.writeStoredMember(header(entryName, 0, mtime, '0'));
+
+        MessageDigest digest = sha256();
+        long size = 0;
+        int n;
+        while ((n = in.read(copyBuffer)) > 0) {
+            throttleRead(n);
+            out.write(copyBuffer, 0, n);
+            digest.update(copyBuffer, 0, n);
+            size += n;
+        }
+        pad(size);
+
+        out.drain();
+        out.rewriteStoredMember(headerPosition, header(entryName, size, mtime, '0'));
+        entries.add(new Entry(entryName, size, hex(digest.digest())));
+        return size;
+    }
+
+    /**
+     * 写入校验清单和 tar 结束标记，并把所有数据刷到磁盘
+     */
+    public List<Entry> finish() throws IOException {
+        if (finished) {
+            return getEntries();
+        }
+        StringBuilder sums = new StringBuilder();
+        for (Entry entry : entries) {
+            sums.append(entry.getSha256()).append("  ").append(entry.getName()).append('\n');
+        }
+        byte[] content = sums.toString().getBytes(StandardCharsets.UTF_8);
+        out.write(header(CHECKSUM_ENTRY, content.length, System.currentTimeMillis() / 1000, '0'));
+        out.write(content);
+        pad(content.length);
+
+        out.write(new byte[RECORD_SIZE * 2]);
+        out.close();
+        finished = true;
+        return getEntries();
+    }
+
+    /**
+     * 归档文件的 SHA-256，写入时顺带计算，{@link #finish()} 之后可用；
+     * 含长度未知的流式条目（{@link #addStream} 回填头部）时无法在写入时得到，返回 null
+     */
+    public String getSha256() {
+        return out.getSha256();
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 已写入的未压缩字节数
+     */
+    public long getUncompressedBytes() {
+        return out.getUncompressedBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            executor.shutdownNow();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void throttleRead(int n) throws IOException {
+        if (readThrottle != null) {
+            readThrottle.acquire(n);
+        }
+    }
+
+    // ===== tar 格式 =====
+
+    /**
+     * 生成条目头部；文件名超过 100 字节时前置 GNU ././@LongLink 记录
+     */
+    private static byte[] header(String name, long size, long mtime, char type) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length <= 100) {
+            return record(nameBytes, size, mtime, type);
+        }
+        int dataRecords = (nameBytes.length + 1 + RECORD_SIZE - 1) / RECORD_SIZE;
+        byte[] result = new byte[RECORD_SIZE * (2 + dataRecords)];
+        byte[] longLink = record("././@LongLink".getBytes(StandardCharsets.US_ASCII), nameBytes.length + 1, 0, 'L');
+        System.arraycopy(longLink, 0, result, 0, RECORD_SIZE);
+        System.arraycopy(nameBytes, 0, result, RECORD_SIZE, nameBytes.length);
+        byte[] truncated = new byte[100];
+        System.arraycopy(nameBytes, 0, truncated, 0, 100);
+        byte[] main = record(truncated, size, mtime, type);
+        System.arraycopy(main, 0, result, RECORD_SIZE * (1 + dataRecords), RECORD_SIZE);
+        return result;
+    }
+
+    private static byte[] record(byte[] name, long size, long mtime, char type) {
+        byte[] h = new byte[RECORD_SIZE];
+        System.arraycopy(name, 0, h, 0, Math.min(name.length, 100));
+        octal(h, 100, 8, type == '5' ? 0755 : 0644);
+        octal(h, 108, 8, 0);
+        octal(h, 116, 8, 0);
+        if (size > MAX_OCTAL_SIZE) {
+            // GNU base-256 编码：首字节最高位置 1
+            h[124] = (byte) 0x80;
+            for (int i = 0; i < 8; i++) {
+                h[135 - i] = (byte) (size >>> (8 * i));
+            }
+        } else {
+            octal(h, 124, 12, size);
+        }
+        octal(h, 136, 12, mtime);
+        h[156] = (byte) type;
+        byte[] magic = "ustar\u000000".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(magic, 0, h, 257, magic.length);
+        byte[] owner = "root".getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(owner, 0, h, 265, owner.length);
+        System.arraycopy(owner, 0, h, 297, owner.length);
+
+        // 校验和按 8 个空格计算
+        for (int i = 148; i < 156; i++) {
+            h[i] = ' ';
+        }
+        long sum = 0;
+        for (byte b : h) {
+            sum += b & 0xFF;
+        }
+        octal(h, 148, 7, sum);
+        return h;
+    }
+
+    private static void octal(byte[] h, int offset, int length, long value) {
+        String s = Long.toOctalString(value);
+        int digits = length - 1;
+        int pad = digits - s.length();
+        for (int i = 0; i < digits; i++) {
+            h[offset + i] = (byte) (i < pad ? '0' : s.charAt(i - pad));
+        }
+        h[offset + digits] = 0;
+    }
+
+    private void pad(long size) throws IOException {
+        int remainder = (int) (size % RECORD_SIZE);
+        if (remainder != 0) {
+            out.write(new byte[RECORD_SIZE - remainder]);
+        }
+    }
+
+    private static String entryName(String prefix, Path root, Path path) {
+        String relative = root.relativize(path).toString().replace('\\', '/');
+        return relative.isEmpty() ? prefix : prefix + "/" + relative;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 归档条目及其校验值
+     */
+    public static final class Entry {
+        private final String name;
+        private final long size;
+        private final String sha256;
+
+        Entry(String name, long size, String sha256) {
+            this.name = name;
+            this.size = size;
+            this.sha256 = sha256;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+    }
+}
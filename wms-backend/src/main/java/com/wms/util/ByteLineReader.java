@@ -0,0 +1,133 @@
+package com.wms.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * 按字节顺序读取行，并给出每行在文件中的偏移
+ * 行内容留在内部缓冲区中，由调用方按需解码，避免为不需要的行创建字符串。
+ */
+public class ByteLineReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    /**
+     * buffer[0] 对应的文件偏移
+     */
+    private long bufferOffset;
+
+    private int lineStart;
+    private int lineLength;
+    private boolean complete;
+
+    /**
+     * @param in     输入流（不会被关闭）
+     * @param offset 输入流当前位置对应的文件偏移
+     */
+    public ByteLineReader(InputStream in, long offset) {
+        this.in = in;
+        this.bufferOffset = offset;
+    }
+
+    /**
+     * 读取下一行，没有更多数据时返回 false
+     * 文件末尾没有换行符的最后一行也会返回，此时 {@link #isComplete()} 为 false
+     */
+    public boolean next() throws IOException {
+        position = lineStart + lineLength + (complete ? 1 : 0);
+        while (true) {
+            for (int i = position; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    lineStart = position;
+                    lineLength = i - position;
+                    complete = true;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (position >= limit) {
+                    lineStart = position;
+                    lineLength = 0;
+                    complete = false;
+                    return false;
+                }
+                lineStart = position;
+                lineLength = limit - position;
+                complete = false;
+                return true;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * 当前行在文件中的起始偏移
+     */
+    public long getLineOffset() {
+        return bufferOffset + lineStart;
+    }
+
+    /**
+     * 下一行的起始偏移（当前行结束位置，含换行符）
+     */
+    public long getNextOffset() {
+        return bufferOffset + lineStart + lineLength + (complete ? 1 : 0);
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public int getLength() {
+        return lineLength;
+    }
+
+    /**
+     * 当前行第 i 个字节
+     */
+    public byte byteAt(int i) {
+        return buffer[lineStart + i];
+    }
+
+    /**
+     * 解码当前行的前 max 个字节（去掉行尾的 \r）
+     */
+    public String text(Charset charset, int max) {
+        int length = Math.min(lineLength, max);
+        if (length == lineLength && length > 0 && buffer[lineStart + length - 1] == '\r') {
+            length--;
+        }
+        return new String(buffer, lineStart, length, charset);
+    }
+
+    /**
+     * 把未处理的数据移到缓冲区开头并继续读入
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+            bufferOffset += position;
+            lineStart -= position;
+            position = 0;
+            limit = remaining;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+}
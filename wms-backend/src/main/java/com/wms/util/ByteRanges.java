@@ -0,0 +1,116 @@
+package com.wms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP Range 请求头解析（RFC 7233，只支持 bytes 单位）
+ * 支持 a-b、a-、-n 三种写法和多段范围；重叠或相邻的范围会被合并
+ */
+public final class ByteRanges {
+
+    /**
+     * 合并后允许的最大范围数，超过时按整文件返回，避免大量小范围拖慢服务
+     */
+    public static final int MAX_RANGES = 32;
+
+    private ByteRanges() {
+    }
+
+    /**
+     * 一个闭区间字节范围 [start, end]
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        public Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long length() {
+            return end - start + 1;
+        }
+
+        public String contentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+    }
+
+    /**
+     * 解析 Range 头
+     *
+     * @param header Range 请求头
+     * @param size   文件大小
+     * @return null 表示应忽略 Range 头返回整个文件；空列表表示所有范围都无法满足（应返回 416）
+     */
+    public static List<Range> parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<>();
+        for (String part : header.substring(6).split(",")) {
+            String spec = part.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // 后缀范围：最后 n 个字节
+                    long suffix = Long.parseLong(last);
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix > 0 && size > 0) {
+                        ranges.add(new Range(Math.max(0, size - suffix), size - 1));
+                    }
+                    continue;
+                }
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+                if (start < 0 || end < start) {
+                    return null;
+                }
+                if (start < size) {
+                    ranges.add(new Range(start, Math.min(end, size - 1)));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        List<Range> merged = merge(ranges);
+        return merged.size() > MAX_RANGES ? null : merged;
+    }
+
+    private static List<Range> merge(List<Range> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort((a, b) -> Long.compare(a.start, b.start));
+        List<Range> merged = new ArrayList<>();
+        Range current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            Range next = ranges.get(i);
+            if (next.start <= current.end + 1) {
+                current = new Range(current.start, Math.max(current.end, next.end));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
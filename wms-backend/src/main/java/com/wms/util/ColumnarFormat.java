@@ -0,0 +1,160 @@
+package com.wms.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 列式二进制快照格式定义
+ *
+ * 文件结构（大端序）：
+ * <pre>
+ * magic "WMSC" | version(1 byte)
+ * 表名(UTF) | 列数(varint) | 每列: 列名(UTF) + 类型(1 byte)
+ * 批次*: 'B' | 行数(varint) | 压缩后长度(int) | Deflate压缩的列数据
+ * 结尾:  'E' | 总行数(varlong) | 最大ID(varlong) | 最大水位时间(varlong, 毫秒)
+ * </pre>
+ * 批次内按列依次存储：先是空值位图（字符串字典列除外，字典ID 0 表示空值），再是列值。
+ * 整数和时间列存储与上一行的差值（zigzag varint），字典列在批次开头追加本批新增的字典项。
+ */
+public final class ColumnarFormat {
+
+    public static final byte[] MAGIC = {'W', 'M', 'S', 'C'};
+    public static final int VERSION = 1;
+
+    public static final byte BATCH_MARKER = 'B';
+    public static final byte END_MARKER = 'E';
+
+    private ColumnarFormat() {
+    }
+
+    /**
+     * 列类型
+     */
+    public enum Type {
+        /** 64位整数（差值编码） */
+        LONG(1),
+        /** 32位整数 */
+        INT(2),
+        /** 定点小数：scale + 非标度值 */
+        DECIMAL(3),
+        /** 双精度浮点 */
+        DOUBLE(4),
+        /** 时间戳（LocalDateTime，毫秒差值编码） */
+        TIMESTAMP(5),
+        /** 普通字符串 */
+        STRING(6),
+        /** 字典编码字符串（适合工人、产品、材质、规格等重复值） */
+        DICT_STRING(7);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public static Type of(int code) {
+            for (Type t : values()) {
+                if (t.code == code) {
+                    return t;
+                }
+            }
+            throw new IllegalArgumentException("未知列类型: " + code);
+        }
+    }
+
+    /**
+     * 列定义
+     */
+    public static final class Column {
+        private final String name;
+        private final Type type;
+
+        public Column(String name, Type type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Type getType() {
+            return type;
+        }
+    }
+
+    /**
+     * 快照元数据：表名与列
+     */
+    public static final class Schema {
+        private final String table;
+        private final List<Column> columns;
+
+        public Schema(String table, List<Column> columns) {
+            this.table = table;
+            this.columns = Collections.unmodifiableList(columns);
+        }
+
+        public Schema(String table, Column... columns) {
+            this(table, Arrays.asList(columns));
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public List<Column> getColumns() {
+            return columns;
+        }
+
+        public int indexOf(String columnName) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).getName().equals(columnName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // ===== varint 辅助方法 =====
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long result = 0;
+        int shift = 0;
+        while (shift < 64) {
+            int b = in.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+        throw new IOException("varint 格式错误");
+    }
+
+    static void writeZigZag(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readZigZag(DataInput in) throws IOException {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
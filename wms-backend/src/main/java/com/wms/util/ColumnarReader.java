@@ -0,0 +1,219 @@
+package com.wms.util;
+
+import com.wms.util.ColumnarFormat.Column;
+import com.wms.util.ColumnarFormat.Schema;
+import com.wms.util.ColumnarFormat.Type;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 列式快照读取器
+ * 逐批解码 {@link ColumnarWriter} 写出的数据，供分析脚本对接和往返校验使用
+ */
+public class ColumnarReader {
+
+    private final DataInputStream in;
+    private final Schema schema;
+    private final List<List<String>> dictionaries = new ArrayList<>();
+
+    private boolean finished = false;
+    private long totalRows;
+    private long maxId;
+    private long maxWatermark;
+
+    public ColumnarReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        this.schema = readHeader();
+        for (int i = 0; i < schema.getColumns().size(); i++) {
+            dictionaries.add(new ArrayList<>());
+        }
+    }
+
+    private Schema readHeader() throws IOException {
+        byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarFormat.MAGIC)) {
+            throw new IOException("不是有效的列式快照文件");
+        }
+        int version = in.readUnsignedByte();
+        if (version != ColumnarFormat.VERSION) {
+            throw new IOException("不支持的快照版本: " + version);
+        }
+        String table = in.readUTF();
+        int columnCount = (int) ColumnarFormat.readVarLong(in);
+        List<Column> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            String name = in.readUTF();
+            Type type = Type.of(in.readUnsignedByte());
+            columns.add(new Column(name, type));
+        }
+        return new Schema(table, columns);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * 读取下一批数据，读到结尾时返回 null
+     * 每行是与 schema 列顺序一致的数组
+     */
+    public List<Object[]> nextBatch() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int marker = in.readUnsignedByte();
+        if (marker == ColumnarFormat.END_MARKER) {
+            totalRows = ColumnarFormat.readVarLong(in);
+            maxId = ColumnarFormat.readVarLong(in);
+            maxWatermark = ColumnarFormat.readVarLong(in);
+            finished = true;
+            return null;
+        }
+        if (marker != ColumnarFormat.BATCH_MARKER) {
+            throw new IOException("批次标记错误: " + marker);
+        }
+
+        int rows = (int) ColumnarFormat.readVarLong(in);
+        byte[] compressed = new byte[in.readInt()];
+        in.readFully(compressed);
+        DataInputStream body = new DataInputStream(new ByteArrayInputStream(inflate(compressed)));
+
+        List<Column> columns = schema.getColumns();
+        Object[][] values = new Object[rows][columns.size()];
+        for (int c = 0; c < columns.size(); c++) {
+            decodeColumn(body, columns.get(c).getType(), values, c, rows);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * 读取全部剩余行
+     */
+    public List<Object[]> readAll() throws IOException {
+        List<Object[]> all = new ArrayList<>();
+        List<Object[]> batch;
+        while ((batch = nextBatch()) != null) {
+            all.addAll(batch);
+        }
+        return all;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * 结尾记录的最大水位时间（无数据时为 null）
+     */
+    public LocalDateTime getMaxWatermark() {
+        return maxWatermark > 0 ? toLocalDateTime(maxWatermark) : null;
+    }
+
+    private void decodeColumn(DataInputStream body, Type type, Object[][] values, int c, int rows) throws IOException {
+        if (type == Type.DICT_STRING) {
+            List<String> dictionary = dictionaries.get(c);
+            int added = (int) ColumnarFormat.readVarLong(body);
+            for (int i = 0; i < added; i++) {
+                dictionary.add(readString(body));
+            }
+            for (int r = 0; r < rows; r++) {
+                int id = (int) ColumnarFormat.readVarLong(body);
+                values[r][c] = id == 0 ? null : dictionary.get(id - 1);
+            }
+            return;
+        }
+
+        byte[] nulls = new byte[(rows + 7) / 8];
+        body.readFully(nulls);
+
+        long previous = 0;
+        for (int r = 0; r < rows; r++) {
+            if ((nulls[r >> 3] & (1 << (r & 7))) != 0) {
+                continue;
+            }
+            switch (type) {
+                case LONG:
+                    previous += ColumnarFormat.readZigZag(body);
+                    values[r][c] = previous;
+                    break;
+                case TIMESTAMP:
+                    previous += ColumnarFormat.readZigZag(body);
+                    values[r][c] = toLocalDateTime(previous);
+                    break;
+                case INT:
+                    values[r][c] = (int) ColumnarFormat.readZigZag(body);
+                    break;
+                case DECIMAL: {
+                    int scale = (int) ColumnarFormat.readZigZag(body);
+                    byte[] unscaled = new byte[(int) ColumnarFormat.readVarLong(body)];
+                    body.readFully(unscaled);
+                    values[r][c] = new BigDecimal(new BigInteger(unscaled), scale);
+                    break;
+                }
+                case DOUBLE:
+                    values[r][c] = body.readDouble();
+                    break;
+                case STRING:
+                    values[r][c] = readString(body);
+                    break;
+                default:
+                    throw new IOException("不支持的列类型: " + type);
+            }
+        }
+    }
+
+    private static String readString(DataInputStream body) throws IOException {
+        byte[] bytes = new byte[(int) ColumnarFormat.readVarLong(body)];
+        body.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[64 * 1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("批次数据不完整");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("批次解压失败", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,254 @@
+package com.wms.util;
+
+import com.wms.util.ColumnarFormat.Column;
+import com.wms.util.ColumnarFormat.Schema;
+import com.wms.util.ColumnarFormat.Type;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * 列式快照写入器
+ * 按批次缓存行数据，凑满一批后按列编码、压缩并写出，内存占用只与批次大小有关
+ * 格式说明见 {@link ColumnarFormat}
+ */
+public class ColumnarWriter {
+
+    private final DataOutputStream out;
+    private final Schema schema;
+    private final int batchSize;
+    private final int idIndex;
+    private final int watermarkIndex;
+
+    private final Object[][] batch;
+    private int batchRows = 0;
+    private long totalRows = 0;
+    private long maxId = 0;
+    private long maxWatermark = 0;
+
+    // 每个字典列在整个文件内共享的字典：值 -> ID（从1开始）
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final byte[] deflateBuffer = new byte[64 * 1024];
+
+    /**
+     * @param out             输出流（不会被关闭）
+     * @param schema          表结构
+     * @param batchSize       每批行数
+     * @param watermarkColumn 水位时间列名（可为 null）
+     */
+    public ColumnarWriter(OutputStream out, Schema schema, int batchSize, String watermarkColumn) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.schema = schema;
+        this.batchSize = batchSize;
+        this.idIndex = schema.indexOf("id");
+        this.watermarkIndex = watermarkColumn != null ? schema.indexOf(watermarkColumn) : -1;
+        this.batch = new Object[schema.getColumns().size()][batchSize];
+        for (int i = 0; i < schema.getColumns().size(); i++) {
+            dictionaries.add(new HashMap<>());
+        }
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        out.write(ColumnarFormat.MAGIC);
+        out.writeByte(ColumnarFormat.VERSION);
+        out.writeUTF(schema.getTable());
+        ColumnarFormat.writeVarLong(out, schema.getColumns().size());
+        for (Column column : schema.getColumns()) {
+            out.writeUTF(column.getName());
+            out.writeByte(column.getType().getCode());
+        }
+    }
+
+    /**
+     * 写入一行，values 顺序与 schema 列顺序一致
+     */
+    public void writeRow(Object... values) throws IOException {
+        if (values.length != batch.length) {
+            throw new IllegalArgumentException("列数不匹配: 期望 " + batch.length + ", 实际 " + values.length);
+        }
+        for (int c = 0; c < values.length; c++) {
+            batch[c][batchRows] = values[c];
+        }
+        if (idIndex >= 0 && values[idIndex] != null) {
+            maxId = Math.max(maxId, ((Number) values[idIndex]).longValue());
+        }
+        if (watermarkIndex >= 0 && values[watermarkIndex] != null) {
+            maxWatermark = Math.max(maxWatermark, toMillis((LocalDateTime) values[watermarkIndex]));
+        }
+        batchRows++;
+        totalRows++;
+        if (batchRows == batchSize) {
+            flushBatch();
+        }
+    }
+
+    /**
+     * 写出剩余批次和结尾信息，并 flush 输出流
+     */
+    public void finish() throws IOException {
+        if (batchRows > 0) {
+            flushBatch();
+        }
+        out.writeByte(ColumnarFormat.END_MARKER);
+        ColumnarFormat.writeVarLong(out, totalRows);
+        ColumnarFormat.writeVarLong(out, maxId);
+        ColumnarFormat.writeVarLong(out, maxWatermark);
+        out.flush();
+        deflater.end();
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public long getMaxWatermark() {
+        return maxWatermark;
+    }
+
+    private void flushBatch() throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(batchRows * batch.length * 4);
+        DataOutputStream body = new DataOutputStream(raw);
+
+        for (int c = 0; c < batch.length; c++) {
+            encodeColumn(body, schema.getColumns().get(c).getType(), batch[c], dictionaries.get(c));
+            Arrays.fill(batch[c], 0, batchRows, null);
+        }
+        body.flush();
+
+        byte[] compressed = deflate(raw.toByteArray());
+        out.writeByte(ColumnarFormat.BATCH_MARKER);
+        ColumnarFormat.writeVarLong(out, batchRows);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+        batchRows = 0;
+    }
+
+    private void encodeColumn(DataOutputStream body, Type type, Object[] values,
+                              Map<String, Integer> dictionary) throws IOException {
+        if (type == Type.DICT_STRING) {
+            encodeDictionary(body, values, dictionary);
+            return;
+        }
+
+        // 空值位图
+        byte[] nulls = new byte[(batchRows + 7) / 8];
+        for (int r = 0; r < batchRows; r++) {
+            if (values[r] == null) {
+                nulls[r >> 3] |= (byte) (1 << (r & 7));
+            }
+        }
+        body.write(nulls);
+
+        long previous = 0;
+        for (int r = 0; r < batchRows; r++) {
+            Object value = values[r];
+            if (value == null) {
+                continue;
+            }
+            switch (type) {
+                case LONG: {
+                    long v = ((Number) value).longValue();
+                    ColumnarFormat.writeZigZag(body, v - previous);
+                    previous = v;
+                    break;
+                }
+                case TIMESTAMP: {
+                    long v = toMillis((LocalDateTime) value);
+                    ColumnarFormat.writeZigZag(body, v - previous);
+                    previous = v;
+                    break;
+                }
+                case INT:
+                    ColumnarFormat.writeZigZag(body, ((Number) value).intValue());
+                    break;
+                case DECIMAL: {
+                    BigDecimal d = (BigDecimal) value;
+                    ColumnarFormat.writeZigZag(body, d.scale());
+                    byte[] unscaled = d.unscaledValue().toByteArray();
+                    ColumnarFormat.writeVarLong(body, unscaled.length);
+                    body.write(unscaled);
+                    break;
+                }
+                case DOUBLE:
+                    body.writeDouble(((Number) value).doubleValue());
+                    break;
+                case STRING:
+                    writeString(body, value.toString());
+                    break;
+                default:
+                    throw new IllegalStateException("不支持的列类型: " + type);
+            }
+        }
+    }
+
+    /**
+     * 字典列：先写本批新增的字典项，再写每行的字典ID（0 表示空值）
+     */
+    private void encodeDictionary(DataOutputStream body, Object[] values,
+                                  Map<String, Integer> dictionary) throws IOException {
+        int[] ids = new int[batchRows];
+        List<String> added = new ArrayList<>();
+        for (int r = 0; r < batchRows; r++) {
+            if (values[r] == null) {
+                continue;
+            }
+            String s = values[r].toString();
+            Integer id = dictionary.get(s);
+            if (id == null) {
+                id = dictionary.size() + 1;
+                dictionary.put(s, id);
+                added.add(s);
+            }
+            ids[r] = id;
+        }
+
+        ColumnarFormat.writeVarLong(body, added.size());
+        for (String s : added) {
+            writeString(body, s);
+        }
+        for (int id : ids) {
+            ColumnarFormat.writeVarLong(body, id);
+        }
+    }
+
+    private static void writeString(DataOutputStream body, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        ColumnarFormat.writeVarLong(body, bytes.length);
+        body.write(bytes);
+    }
+
+    private byte[] deflate(byte[] input) {
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+        while (!deflater.finished()) {
+            int n = deflater.deflate(deflateBuffer);
+            compressed.write(deflateBuffer, 0, n);
+        }
+        return compressed.toByteArray();
+    }
+
+    static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,57 @@
+package com.wms.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 统计借出连接数的数据源包装
+ * 通过它取得的连接在关闭前计入 {@link #getOpenConnections()}，用于区分某类任务自己占用的连接和其它业务占用的连接。
+ */
+public class CountingDataSource extends DelegatingDataSource {
+
+    private final AtomicInteger open = new AtomicInteger();
+
+    public CountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    /**
+     * 当前借出且尚未关闭的连接数
+     */
+    public int getOpenConnections() {
+        return open.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(super.getConnection(username, password));
+    }
+
+    private Connection track(Connection connection) {
+        open.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                    open.decrementAndGet();
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            });
+    }
+}
@@ -0,0 +1,684 @@
+package com.wms.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wms.dto.DumpManifest;
+import com.wms.dto.DumpManifest.ChunkFile;
+import com.wms.dto.DumpManifest.TableDump;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JDBC 逻辑导出引擎（不依赖 mysqldump）
+ * 从 JDBC 元数据读取表清单，多个连接在同一个一致性快照内并行导出各表；
+ * 每张表用只进游标流式读取，写成多行 INSERT 的 gzip 分片文件，并在 manifest.json 中记录行数和校验值。
+ *
+ * 一致性快照：MySQL 下先 FLUSH TABLES WITH READ LOCK，再让每个工作连接
+ * START TRANSACTION WITH CONSISTENT SNAPSHOT 后立即解锁，加锁时间只有几毫秒。
+ * 没有 RELOAD 权限或不是 MySQL 时，退化为单连接单事务导出以保证一致性（可通过
+ * {@link #setRequireConsistentSnapshot(boolean)} 放宽为非一致的并行导出）。
+ */
+public class DatabaseDumper {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseDumper.class);
+
+    public static final String MANIFEST_FILE = "manifest.json";
+
+    private final DataSource dataSource;
+
+    private int threads = 4;
+    private int rowsPerInsert = 500;
+    private int maxStatementBytes = 1024 * 1024;
+    private long rowsPerChunk = 500_000;
+    private boolean requireConsistentSnapshot = true;
+    private boolean upsert = false;
+    private String since;
+    private Map<String, String> tableFilters = Collections.emptyMap();
+    private IoThrottle throttle;
+
+    public DatabaseDumper(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * 并行导出线程数（每个线程占用一个连接）
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 每条 INSERT 语句包含的最大行数
+     */
+    public void setRowsPerInsert(int rowsPerInsert) {
+        this.rowsPerInsert = Math.max(1, rowsPerInsert);
+    }
+
+    /**
+     * 单条 INSERT 语句的最大字节数（需小于 max_allowed_packet）
+     */
+    public void setMaxStatementBytes(int maxStatementBytes) {
+        this.maxStatementBytes = maxStatementBytes;
+    }
+
+    /**
+     * 每个分片文件的最大行数
+     */
+    public void setRowsPerChunk(long rowsPerChunk) {
+        this.rowsPerChunk = Math.max(1, rowsPerChunk);
+    }
+
+    public void setRequireConsistentSnapshot(boolean requireConsistentSnapshot) {
+        this.requireConsistentSnapshot = requireConsistentSnapshot;
+    }
+
+    /**
+     * 生成覆盖写入语句（MySQL REPLACE INTO / 其它数据库 MERGE INTO），增量导出在已有数据上重放时使用
+     */
+    public void setUpsert(boolean upsert) {
+        this.upsert = upsert;
+    }
+
+    /**
+     * 增量导出的起始水位，记录到清单中
+     */
+    public void setSince(String since) {
+        this.since = since;
+    }
+
+    /**
+     * 按表附加的 WHERE 条件（表名 -> 条件），未配置的表全量导出
+     */
+    public void setTableFilters(Map<String, String> tableFilters) {
+        this.tableFilters = tableFilters != null ? tableFilters : Collections.emptyMap();
+    }
+
+    /**
+     * 分片文件写盘限速（按压缩后的字节计），所有导出线程共享；写盘变慢时结果集读取随之放缓，
+     * 数据库端的读取压力也一起降下来
+     */
+    public void setThrottle(IoThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * 导出全部表到指定目录
+     *
+     * @return 导出清单（同时写入 directory/manifest.json）
+     */
+    public DumpManifest dump(Path directory) throws IOException, SQLException {
+        return dump(directory, null);
+    }
+
+    /**
+     * 导出指定表到目录
+     *
+     * @param tables 要导出的表，为 null 时导出全部表
+     */
+    public DumpManifest dump(Path directory, List<String> tables) throws IOException, SQLException {
+        Files.createDirectories(directory);
+        long start = System.currentTimeMillis();
+
+        DumpManifest manifest = new DumpManifest();
+        manifest.setCreatedAt(LocalDateTime.now().toString());
+
+        Dialect dialect;
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            dialect = new Dialect(metaData);
+            if (tables == null) {
+                tables = listTables(connection);
+            }
+        }
+        manifest.setDatabaseProduct(dialect.product);
+        manifest.setIdentifierQuote(dialect.quote);
+        manifest.setBackslashEscapes(dialect.backslashEscapes);
+        manifest.setUpsert(upsert);
+        manifest.setSince(since);
+
+        List<Connection> connections = new ArrayList<>();
+        try {
+            boolean consistent = openSnapshotConnections(dialect, Math.min(threads, Math.max(1, tables.size())), connections);
+            manifest.setConsistentSnapshot(consistent);
+            manifest.setThreads(connections.size());
+
+            Map<String, TableDump> results = new ConcurrentHashMap<>();
+            ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>(tables);
+            runWorkers(connections, queue, directory, dialect, results);
+
+            for (String table : tables) {
+                manifest.getTables().add(results.get(table));
+            }
+        } finally {
+            for (Connection connection : connections) {
+                closeQuietly(connection);
+            }
+        }
+
+        manifest.setDurationMs(System.currentTimeMillis() - start);
+        new ObjectMapper().writerWithDefaultPrettyPrinter()
+            .writeValue(directory.resolve(MANIFEST_FILE).toFile(), manifest);
+
+        long totalRows = manifest.getTables().stream().mapToLong(TableDump::getRowCount).sum();
+        logger.info("数据库逻辑导出完成: {} 张表, {} 行, {} 线程, 一致性快照={}, 耗时 {} ms",
+            tables.size(), totalRows, manifest.getThreads(), manifest.getConsistentSnapshot(), manifest.getDurationMs());
+        return manifest;
+    }
+
+    /**
+     * 当前连接所在库/模式下的所有普通表
+     */
+    public static List<String> listTables(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (ResultSet rs = connection.getMetaData().getTables(
+            connection.getCatalog(), connection.getSchema(), "%", new String[]{"TABLE"})) {
+            while (rs.next()) {
+                tables.add(rs.getString("TABLE_NAME"));
+            }
+        }
+        Collections.sort(tables);
+        return tables;
+    }
+
+    // ===== 一致性快照 =====
+
+    private boolean openSnapshotConnections(Dialect dialect, int workerCount, List<Connection> connections)
+            throws SQLException {
+        if (workerCount > 1 && dialect.mysql) {
+            try (Connection lock = dataSource.getConnection()) {
+                for (int i = 0; i < workerCount; i++) {
+                    connections.add(dataSource.getConnection());
+                }
+                boolean locked = false;
+                try (Statement statement = lock.createStatement()) {
+                    statement.execute("FLUSH TABLES WITH READ LOCK");
+                    locked = true;
+                    for (Connection connection : connections) {
+                        beginSnapshot(connection, dialect);
+                    }
+                    return true;
+                } catch (SQLException e) {
+                    if (locked) {
+                        throw e;
+                    }
+                    logger.warn("无法获取全局读锁（需要 RELOAD 权限）: {}", e.getMessage());
+                } finally {
+                    if (locked) {
+                        try (Statement statement = lock.createStatement()) {
+                            statement.execute("UNLOCK TABLES");
+                        }
+                    }
+                }
+            }
+            for (Connection connection : connections) {
+                closeQuietly(connection);
+            }
+            connections.clear();
+        }
+
+        if (workerCount > 1 && !requireConsistentSnapshot) {
+            for (int i = 0; i < workerCount; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                beginSnapshot(connection, dialect);
+            }
+            logger.warn("并行导出未使用全局一致性快照，各表可能处于不同时间点");
+            return false;
+        }
+
+        if (workerCount > 1) {
+            logger.warn("无法建立跨连接一致性快照，改为单连接导出");
+        }
+        Connection connection = dataSource.getConnection();
+        connections.add(connection);
+        beginSnapshot(connection, dialect);
+        return true;
+    }
+
+    private static void beginSnapshot(Connection connection, Dialect dialect) throws SQLException {
+        connection.setAutoCommit(false);
+        connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+        if (dialect.mysql) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.debug("结束导出事务失败", e);
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("关闭导出连接失败", e);
+        }
+    }
+
+    // ===== 并行导出 =====
+
+    private void runWorkers(List<Connection> connections, ConcurrentLinkedQueue<String> queue, Path directory,
+                            Dialect dialect, Map<String, TableDump> results) throws IOException, SQLException {
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(connections.size(), r -> {
+            Thread t = new Thread(r, "db-dump-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Connection connection : connections) {
+                futures.add(executor.submit(() -> {
+                    String table;
+                    while ((table = queue.poll()) != null) {
+                        results.put(table, dumpTable(connection, table, directory, dialect));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("数据库导出被中断", e);
+        } catch (ExecutionException e) {
+            queue.clear();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new IOException("数据库导出失败", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private TableDump dumpTable(Connection connection, String table, Path directory, Dialect dialect)
+            throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        TableDump dump = new TableDump();
+        dump.setName(table);
+
+        String schemaFile = table + ".schema.sql";
+        Files.write(directory.resolve(schemaFile),
+            (createTableStatement(connection, table, dialect) + ";\n").getBytes(StandardCharsets.UTF_8));
+        dump.setSchemaFile(schemaFile);
+
+        String sql = "SELECT * FROM " + dialect.quote(table);
+        String filter = tableFilters.get(table);
+        if (filter != null) {
+            sql += " WHERE " + filter;
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement(sql,
+            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(dialect.mysql ? Integer.MIN_VALUE : 1000);
+            try (ResultSet rs = ps.executeQuery();
+                 ChunkWriter writer = new ChunkWriter(directory, table, dialect, rs.getMetaData(), dump)) {
+                while (rs.next()) {
+                    writer.writeRow(rs);
+                }
+            }
+        }
+
+        dump.setDurationMs(System.currentTimeMillis() - start);
+        logger.info("导出表 {}: {} 行, {} 个分片, 耗时 {} ms",
+            table, dump.getRowCount(), dump.getChunks().size(), dump.getDurationMs());
+        return dump;
+    }
+
+    /**
+     * 建表语句：MySQL 直接使用 SHOW CREATE TABLE，其它数据库根据元数据生成（列、非空、主键）
+     */
+    static String createTableStatement(Connection connection, String table, Dialect dialect) throws SQLException {
+        if (dialect.mysql) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SHOW CREATE TABLE " + dialect.quote(table))) {
+                rs.next();
+                return rs.getString(2);
+            }
+        }
+
+        DatabaseMetaData metaData = connection.getMetaData();
+        String escape = metaData.getSearchStringEscape();
+        String tablePattern = escape == null ? table
+            : table.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+        List<String> definitions = new ArrayList<>();
+        try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(), tablePattern, "%")) {
+            while (rs.next()) {
+                String type = rs.getString("TYPE_NAME");
+                int dataType = rs.getInt("DATA_TYPE");
+                int size = rs.getInt("COLUMN_SIZE");
+                int digits = rs.getInt("DECIMAL_DIGITS");
+                if (dataType == Types.VARCHAR || dataType == Types.CHAR || dataType == Types.NVARCHAR
+                    || dataType == Types.VARBINARY || dataType == Types.BINARY) {
+                    type += "(" + size + ")";
+                } else if (dataType == Types.DECIMAL || dataType == Types.NUMERIC) {
+                    type += "(" + size + ", " + digits + ")";
+                }
+                String definition = "  " + dialect.quote(rs.getString("COLUMN_NAME")) + " " + type;
+                if (rs.getInt("NULLABLE") == DatabaseMetaData.columnNoNulls) {
+                    definition += " NOT NULL";
+                }
+                definitions.add(definition);
+            }
+        }
+
+        List<String> primaryKey = new ArrayList<>();
+        try (ResultSet rs = metaData.getPrimaryKeys(connection.getCatalog(), connection.getSchema(), table)) {
+            List<String[]> keys = new ArrayList<>();
+            while (rs.next()) {
+                keys.add(new String[]{rs.getString("COLUMN_NAME"), String.valueOf(rs.getShort("KEY_SEQ"))});
+            }
+            keys.sort((a, b) -> Integer.compare(Integer.parseInt(a[1]), Integer.parseInt(b[1])));
+            for (String[] key : keys) {
+                primaryKey.add(dialect.quote(key[0]));
+            }
+        }
+        if (!primaryKey.isEmpty()) {
+            definitions.add("  PRIMARY KEY (" + String.join(", ", primaryKey) + ")");
+        }
+        return "CREATE TABLE " + dialect.quote(table) + " (\n" + String.join(",\n", definitions) + "\n)";
+    }
+
+    /**
+     * 单表分片写入器：按行数切分 gzip 分片文件，按行数和字节数切分 INSERT 语句
+     */
+    private final class ChunkWriter implements AutoCloseable {
+        private final Path directory;
+        private final String table;
+        private final Dialect dialect;
+        private final TableDump dump;
+        private final RowFormatter formatter;
+        private final String insertPrefix;
+
+        private Writer writer;
+        private MessageDigest digest;
+        private ChunkFile chunk;
+        private int statementRows = 0;
+        private int statementBytes = 0;
+
+        ChunkWriter(Path directory, String table, Dialect dialect, ResultSetMetaData metaData, TableDump dump)
+                throws SQLException {
+            this.directory = directory;
+            this.table = table;
+            this.dialect = dialect;
+            this.dump = dump;
+            this.formatter = new RowFormatter(dialect, metaData);
+            List<String> columns = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 0; i < metaData.getColumnCount(); i++) {
+                columns.add(dialect.quote(metaData.getColumnName(i + 1)));
+            }
+            this.insertPrefix = (upsert ? dialect.upsertKeyword() : "INSERT INTO") + " " + dialect.quote(table)
+                + " (" + String.join(", ", columns) + ") VALUES\n";
+        }
+
+        void writeRow(ResultSet rs) throws IOException, SQLException {
+            String row = formatter.format(rs);
+            byte[] bytes = row.getBytes(StandardCharsets.UTF_8);
+            dump.setRowChecksum(dump.getRowChecksum() + formatter.checksum(bytes));
+
+            if (chunk == null || chunk.getRows() >= rowsPerChunk) {
+                openChunk();
+            } else if (statementRows >= rowsPerInsert || statementBytes + bytes.length > maxStatementBytes) {
+                writer.write(";\n");
+                statementRows = 0;
+                statementBytes = 0;
+            }
+            if (statementRows == 0) {
+                writer.write(insertPrefix);
+            } else {
+                writer.write(",\n");
+            }
+            writer.write(row);
+            statementRows++;
+            statementBytes += bytes.length;
+            chunk.setRows(chunk.getRows() + 1);
+            dump.setRowCount(dump.getRowCount() + 1);
+        }
+
+        private void openChunk() throws IOException {
+            closeChunk();
+            chunk = new ChunkFile();
+            chunk.setFile(String.format("%s.%05d.sql.gz", table, dump.getChunks().size() + 1));
+            chunk.setRows(0L);
+            digest = sha256();
+            OutputStream file = Files.newOutputStream(directory.resolve(chunk.getFile()));
+            if (throttle != null) {
+                file = throttle.wrap(file);
+            }
+            file = new DigestOutputStream(file, digest);
+            writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(file, 64 * 1024), StandardCharsets.UTF_8),
+                64 * 1024);
+            statementRows = 0;
+            statementBytes = 0;
+        }
+
+        private void closeChunk() throws IOException {
+            if (writer == null) {
+                return;
+            }
+            if (statementRows > 0) {
+                writer.write(";\n");
+            }
+            writer.close();
+            writer = null;
+            chunk.setSha256(hex(digest.digest()));
+            dump.getChunks().add(chunk);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeChunk();
+        }
+    }
+
+    /**
+     * 行格式化器：把一行渲染成 VALUES 元组文本并计算行校验值。
+     * 导出和恢复后的校验共用同一套渲染规则，同样的数据得到同样的校验和
+     */
+    static final class RowFormatter {
+        private final Dialect dialect;
+        private final int[] columnTypes;
+        private final StringBuilder tuple = new StringBuilder(256);
+        private final CRC32 crc = new CRC32();
+
+        RowFormatter(Dialect dialect, ResultSetMetaData metaData) throws SQLException {
+            this.dialect = dialect;
+            this.columnTypes = new int[metaData.getColumnCount()];
+            for (int i = 0; i < columnTypes.length; i++) {
+                columnTypes[i] = metaData.getColumnType(i + 1);
+            }
+        }
+
+        String format(ResultSet rs) throws SQLException {
+            tuple.setLength(0);
+            tuple.append('(');
+            for (int i = 0; i < columnTypes.length; i++) {
+                if (i > 0) {
+                    tuple.append(',');
+                }
+                appendValue(rs, i + 1, columnTypes[i]);
+            }
+            tuple.append(')');
+            return tuple.toString();
+        }
+
+        long checksum(byte[] row) {
+            crc.reset();
+            crc.update(row, 0, row.length);
+            return crc.getValue();
+        }
+
+        private void appendValue(ResultSet rs, int index, int type) throws SQLException {
+            switch (type) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                case Types.DECIMAL:
+                case Types.NUMERIC: {
+                    Object value = rs.getObject(index);
+                    if (value == null) {
+                        tuple.append("NULL");
+                    } else if (value instanceof BigDecimal) {
+                        tuple.append(((BigDecimal) value).toPlainString());
+                    } else {
+                        tuple.append(value);
+                    }
+                    return;
+                }
+                case Types.BIT:
+                case Types.BOOLEAN: {
+                    Object value = rs.getObject(index);
+                    if (value == null) {
+                        tuple.append("NULL");
+                    } else if (value instanceof Boolean) {
+                        tuple.append((Boolean) value ? "TRUE" : "FALSE");
+                    } else if (value instanceof byte[]) {
+                        appendHex((byte[]) value);
+                    } else {
+                        tuple.append(value);
+                    }
+                    return;
+                }
+                case Types.BINARY:
+                case Types.VARBINARY:
+                case Types.LONGVARBINARY:
+                case Types.BLOB: {
+                    byte[] value = rs.getBytes(index);
+                    if (value == null) {
+                        tuple.append("NULL");
+                    } else {
+                        appendHex(value);
+                    }
+                    return;
+                }
+                default: {
+                    // 字符串和日期时间按数据库返回的文本导出，避免时区转换
+                    String value = rs.getString(index);
+                    if (value == null) {
+                        tuple.append("NULL");
+                    } else {
+                        dialect.appendString(tuple, value);
+                    }
+                }
+            }
+        }
+
+        private void appendHex(byte[] value) {
+            tuple.append("X'");
+            for (byte b : value) {
+                tuple.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            tuple.append('\'');
+        }
+    }
+
+    /**
+     * 数据库方言差异：标识符引号、字符串转义
+     */
+    static final class Dialect {
+        final String product;
+        final boolean mysql;
+        final String quote;
+        final boolean backslashEscapes;
+
+        Dialect(DatabaseMetaData metaData) throws SQLException {
+            this.product = metaData.getDatabaseProductName();
+            this.mysql = product.toLowerCase().contains("mysql") || product.toLowerCase().contains("mariadb");
+            String q = metaData.getIdentifierQuoteString();
+            this.quote = q == null || q.trim().isEmpty() ? "\"" : q.trim();
+            this.backslashEscapes = mysql;
+        }
+
+        String upsertKeyword() {
+            return mysql ? "REPLACE INTO" : "MERGE INTO";
+        }
+
+        String quote(String identifier) {
+            return quote + identifier.replace(quote, quote + quote) + quote;
+        }
+
+        void appendString(StringBuilder sb, String value) {
+            sb.append('\'');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\'') {
+                    sb.append("''");
+                } else if (backslashEscapes && c == '\\') {
+                    sb.append("\\\\");
+                } else if (backslashEscapes && c == '\0') {
+                    sb.append("\\0");
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('\'');
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
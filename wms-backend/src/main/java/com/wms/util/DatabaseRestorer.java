@@ -0,0 +1,630 @@
+package com.wms.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wms.dto.DumpManifest;
+import com.wms.dto.DumpManifest.ChunkFile;
+import com.wms.dto.DumpManifest.TableDump;
+import com.wms.dto.RestoreReport;
+import com.wms.dto.RestoreReport.TableResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 数据库逻辑导出恢复器
+ * 按顺序重放 {@link DatabaseDumper} 生成的导出目录：第一个为全量导出，之后的增量导出以覆盖写入方式重放，
+ * 并根据删除记录表删除已被删除的行。
+ *
+ * 全量导出的恢复分四个阶段：
+ * 1. 建表：去掉二级索引和外键，只保留主键，先建出空表；
+ * 2. 加载：多个连接并行加载各表分片，每个连接关闭外键/唯一性检查，语句按 JDBC 批量提交，每个分片一个事务，
+ *    执行前校验分片文件的 SHA-256，提交后比对分片行数；
+ * 3. 建索引：按表并行补建二级索引和外键（同一张表的索引合并成一条 ALTER TABLE）；
+ * 4. 校验：重新读取每张表，按导出时相同的规则计算行数和校验和，与清单比对。
+ */
+public class DatabaseRestorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseRestorer.class);
+
+    /**
+     * 删除记录表（由触发器写入，见 sql/backup_incremental_database.sql）
+     */
+    public static final String TOMBSTONE_TABLE = "backup_deletions";
+
+    private final DataSource dataSource;
+
+    private int threads = 4;
+    private int batchSize = 32;
+    private boolean verify = true;
+
+    public DatabaseRestorer(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * 并行加载的连接数
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 每个 JDBC 批次包含的语句数（每条语句本身是多行 INSERT）
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * 是否在全量加载后重新读取各表核对行数和校验和
+     */
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    /**
+     * 恢复一条备份链
+     *
+     * @param dumps        导出目录，第一个必须是全量导出，其后为按时间顺序的增量导出
+     * @param targetSchema 恢复到的库/模式，为空时恢复到数据源当前库
+     */
+    public RestoreReport restore(List<Path> dumps, String targetSchema) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        ObjectMapper mapper = new ObjectMapper();
+        RestoreReport report = new RestoreReport();
+        report.setTargetSchema(targetSchema);
+        report.setThreads(threads);
+
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseDumper.Dialect dialect = new DatabaseDumper.Dialect(connection.getMetaData());
+            useSchema(connection, dialect, targetSchema, true);
+            setConstraintChecks(connection, dialect, false);
+            try {
+                for (int i = 0; i < dumps.size(); i++) {
+                    Path directory = dumps.get(i);
+                    DumpManifest manifest = mapper.readValue(
+                        directory.resolve(DatabaseDumper.MANIFEST_FILE).toFile(), DumpManifest.class);
+                    if (i == 0) {
+                        if (Boolean.TRUE.equals(manifest.getUpsert())) {
+                            throw new IOException("备份链的第一个导出必须是全量导出: " + directory);
+                        }
+                        restoreFull(connection, dialect, directory, manifest, targetSchema, report);
+                    } else {
+                        long incrementStart = System.currentTimeMillis();
+                        restoreIncrement(connection, dialect, directory, manifest, targetSchema, report);
+                        report.setIncrementalMs(report.getIncrementalMs() + System.currentTimeMillis() - incrementStart);
+                    }
+                    logger.info("已恢复{}导出: {}", i == 0 ? "全量" : "增量", directory.getFileName());
+                }
+            } finally {
+                setConstraintChecks(connection, dialect, true);
+            }
+        }
+
+        report.setDurationMs(System.currentTimeMillis() - start);
+        logger.info("数据库恢复完成: {} 个导出, {} 行, {} 线程, 建表 {} ms, 加载 {} ms, 建索引 {} ms, 校验 {} ms, "
+                + "增量 {} ms, 总耗时 {} ms, 校验结果={}", dumps.size(), report.getTotalRows(), threads,
+            report.getPrepareMs(), report.getLoadMs(), report.getIndexMs(), report.getVerifyMs(),
+            report.getIncrementalMs(), report.getDurationMs(), report.getVerified());
+        return report;
+    }
+
+    /**
+     * 删除库/模式（用于清理演练恢复的临时库）
+     */
+    public void dropSchema(String schema) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            DatabaseDumper.Dialect dialect = new DatabaseDumper.Dialect(connection.getMetaData());
+            if (dialect.mysql) {
+                statement.execute("DROP DATABASE IF EXISTS " + dialect.quote(schema));
+            } else {
+                statement.execute("DROP SCHEMA IF EXISTS " + dialect.quote(schema) + " CASCADE");
+            }
+        }
+    }
+
+    // ===== 全量导出 =====
+
+    private void restoreFull(Connection connection, DatabaseDumper.Dialect dialect, Path directory,
+                             DumpManifest manifest, String schema, RestoreReport report)
+            throws IOException, SQLException {
+        // 1. 建表（二级索引和外键延后）
+        long phaseStart = System.currentTimeMillis();
+        Map<String, List<String>> deferred = new LinkedHashMap<>();
+        for (TableDump table : manifest.getTables()) {
+            String createSql = readSchema(directory.resolve(table.getSchemaFile()));
+            TableDefinition definition = TableDefinition.split(createSql, table.getName(), dialect);
+            try (Statement statement = connection.createStatement()) {
+                if (tableExists(connection, table.getName())) {
+                    statement.execute("DROP TABLE " + dialect.quote(table.getName()));
+                }
+                statement.execute(definition.create);
+            }
+            if (!definition.deferred.isEmpty()) {
+                deferred.put(table.getName(), definition.deferred);
+            }
+        }
+        report.setPrepareMs(System.currentTimeMillis() - phaseStart);
+
+        // 2. 并行加载分片，大分片优先，避免最后只剩一个线程在跑
+        phaseStart = System.currentTimeMillis();
+        Map<String, AtomicLong> loadTimes = new ConcurrentHashMap<>();
+        List<ConnectionTask> loads = new ArrayList<>();
+        for (ChunkTask chunk : chunkTasks(directory, manifest)) {
+            loads.add(worker -> {
+                long chunkStart = System.currentTimeMillis();
+                long rows = loadChunk(worker, chunk.path, chunk.chunk.getSha256(), manifest.getBackslashEscapes());
+                if (rows >= 0 && chunk.chunk.getRows() != null && rows != chunk.chunk.getRows()) {
+                    throw new IOException("分片行数不一致: " + chunk.chunk.getFile()
+                        + " 清单 " + chunk.chunk.getRows() + " 行, 实际加载 " + rows + " 行");
+                }
+                loadTimes.computeIfAbsent(chunk.table, t -> new AtomicLong())
+                    .addAndGet(System.currentTimeMillis() - chunkStart);
+            });
+        }
+        runParallel(loads, dialect, schema, "加载");
+        report.setLoadMs(System.currentTimeMillis() - phaseStart);
+
+        // 3. 补建二级索引和外键
+        phaseStart = System.currentTimeMillis();
+        List<ConnectionTask> indexes = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : deferred.entrySet()) {
+            indexes.add(worker -> {
+                try (Statement statement = worker.createStatement()) {
+                    for (String sql : entry.getValue()) {
+                        statement.execute(sql);
+                    }
+                }
+                worker.commit();
+            });
+        }
+        runParallel(indexes, dialect, schema, "建索引");
+        report.setIndexMs(System.currentTimeMillis() - phaseStart);
+
+        // 4. 核对行数和校验和
+        phaseStart = System.currentTimeMillis();
+        Map<String, TableResult> results = new ConcurrentHashMap<>();
+        List<ConnectionTask> checks = new ArrayList<>();
+        for (TableDump table : manifest.getTables()) {
+            TableResult result = new TableResult();
+            result.setName(table.getName());
+            result.setExpectedRows(table.getRowCount());
+            result.setExpectedChecksum(table.getRowChecksum());
+            AtomicLong loadTime = loadTimes.get(table.getName());
+            result.setLoadMs(loadTime != null ? loadTime.get() : 0L);
+            results.put(table.getName(), result);
+            if (verify) {
+                checks.add(worker -> verifyTable(worker, dialect, result));
+            }
+        }
+        runParallel(checks, dialect, schema, "校验");
+        report.setVerifyMs(System.currentTimeMillis() - phaseStart);
+
+        boolean verified = verify;
+        for (TableDump table : manifest.getTables()) {
+            TableResult result = results.get(table.getName());
+            report.getTables().add(result);
+            report.setTotalRows(report.getTotalRows() + table.getRowCount());
+            if (verify && !Boolean.TRUE.equals(result.getVerified())) {
+                verified = false;
+                logger.error("表 {} 校验失败: 清单 {} 行/校验和 {}, 恢复后 {} 行/校验和 {}", result.getName(),
+                    result.getExpectedRows(), result.getExpectedChecksum(),
+                    result.getActualRows(), result.getActualChecksum());
+            }
+        }
+        report.setVerified(verify ? verified : null);
+    }
+
+    private static void verifyTable(Connection connection, DatabaseDumper.Dialect dialect, TableResult result)
+            throws SQLException {
+        long rows = 0;
+        long checksum = 0;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT * FROM " + dialect.quote(result.getName()),
+            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            ps.setFetchSize(dialect.mysql ? Integer.MIN_VALUE : 1000);
+            try (ResultSet rs = ps.executeQuery()) {
+                DatabaseDumper.RowFormatter formatter = new DatabaseDumper.RowFormatter(dialect, rs.getMetaData());
+                while (rs.next()) {
+                    checksum += formatter.checksum(formatter.format(rs).getBytes(StandardCharsets.UTF_8));
+                    rows++;
+                }
+            }
+        }
+        connection.commit();
+        result.setActualRows(rows);
+        result.setActualChecksum(checksum);
+        result.setVerified(rows == result.getExpectedRows() && checksum == result.getExpectedChecksum());
+    }
+
+    // ===== 增量导出 =====
+
+    private void restoreIncrement(Connection connection, DatabaseDumper.Dialect dialect, Path directory,
+                                  DumpManifest manifest, String schema, RestoreReport report)
+            throws IOException, SQLException {
+        for (TableDump table : manifest.getTables()) {
+            if (!tableExists(connection, table.getName())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(readSchema(directory.resolve(table.getSchemaFile())));
+                }
+            }
+            report.setTotalRows(report.getTotalRows() + table.getRowCount());
+        }
+
+        // 同一个增量内各分片的行互不重叠，可以并行重放
+        List<ConnectionTask> loads = new ArrayList<>();
+        for (ChunkTask chunk : chunkTasks(directory, manifest)) {
+            loads.add(worker -> loadChunk(worker, chunk.path, chunk.chunk.getSha256(), manifest.getBackslashEscapes()));
+        }
+        runParallel(loads, dialect, schema, "增量");
+
+        applyTombstones(connection, dialect, manifest);
+    }
+
+    /**
+     * 删除在增量期间被删除的行（按表名 + 主键 id）
+     */
+    private static void applyTombstones(Connection connection, DatabaseDumper.Dialect dialect, DumpManifest manifest)
+            throws SQLException {
+        String tombstoneTable = findTable(connection, TOMBSTONE_TABLE);
+        if (tombstoneTable == null) {
+            return;
+        }
+        // 只处理本次增量窗口内的删除记录，更早的已在之前的导出中生效
+        Timestamp since = manifest.getSince() != null ? Timestamp.valueOf(manifest.getSince()) : null;
+        int deleted = 0;
+        for (TableDump table : manifest.getTables()) {
+            if (TOMBSTONE_TABLE.equalsIgnoreCase(table.getName())) {
+                continue;
+            }
+            String sql = "DELETE FROM " + dialect.quote(table.getName()) + " WHERE id IN (SELECT row_id FROM "
+                + dialect.quote(tombstoneTable) + " WHERE LOWER(table_name) = ?"
+                + (since != null ? " AND deleted_at >= ?)" : ")");
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, table.getName().toLowerCase(Locale.ROOT));
+                if (since != null) {
+                    ps.setTimestamp(2, since);
+                }
+                deleted += ps.executeUpdate();
+            } catch (SQLException e) {
+                // 没有 id 主键的表不参与删除同步
+                logger.debug("跳过表 {} 的删除同步: {}", table.getName(), e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            logger.info("根据删除记录删除 {} 行", deleted);
+        }
+    }
+
+    // ===== 分片加载 =====
+
+    /**
+     * 加载一个分片：先校验整个文件的 SHA-256，通过后再执行语句；语句按批执行，整个分片一个事务
+     * （损坏或被篡改的分片不会执行任何语句，MySQL 上其中的 DDL 也不会被隐式提交）
+     *
+     * @return 加载的行数（驱动未返回更新行数时为 -1）
+     */
+    private long loadChunk(Connection connection, Path file, String sha256, Boolean backslashEscapes)
+            throws IOException, SQLException {
+        if (sha256 != null && !sha256.equals(digestOf(file))) {
+            throw new IOException("分片校验失败: " + file.getFileName());
+        }
+        long rows = 0;
+        boolean rowsKnown = true;
+        try (SqlScriptReader reader = new SqlScriptReader(new BufferedReader(new InputStreamReader(
+                 new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8), 256 * 1024),
+                 Boolean.TRUE.equals(backslashEscapes));
+             Statement statement = connection.createStatement()) {
+            int pending = 0;
+            String sql;
+            while ((sql = reader.next()) != null) {
+                statement.addBatch(sql);
+                if (++pending >= batchSize) {
+                    long n = sum(statement.executeBatch());
+                    rowsKnown &= n >= 0;
+                    rows += Math.max(n, 0);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                long n = sum(statement.executeBatch());
+                rowsKnown &= n >= 0;
+                rows += Math.max(n, 0);
+            }
+        } catch (IOException | SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+        connection.commit();
+        return rowsKnown ? rows : -1;
+    }
+
+    private static String digestOf(Path file) throws IOException {
+        MessageDigest digest = DatabaseDumper.sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return DatabaseDumper.hex(digest.digest());
+    }
+
+    private static long sum(int[] counts) {
+        long total = 0;
+        for (int count : counts) {
+            if (count < 0) {
+                return -1;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    private static List<ChunkTask> chunkTasks(Path directory, DumpManifest manifest) throws IOException {
+        List<ChunkTask> tasks = new ArrayList<>();
+        for (TableDump table : manifest.getTables()) {
+            for (ChunkFile chunk : table.getChunks()) {
+                Path path = directory.resolve(chunk.getFile());
+                tasks.add(new ChunkTask(table.getName(), chunk, path, Files.size(path)));
+            }
+        }
+        tasks.sort((a, b) -> Long.compare(b.size, a.size));
+        return tasks;
+    }
+
+    private static final class ChunkTask {
+        final String table;
+        final ChunkFile chunk;
+        final Path path;
+        final long size;
+
+        ChunkTask(String table, ChunkFile chunk, Path path, long size) {
+            this.table = table;
+            this.chunk = chunk;
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    // ===== 并行执行 =====
+
+    private interface ConnectionTask {
+        void run(Connection connection) throws IOException, SQLException;
+    }
+
+    /**
+     * 用多个独立连接并行执行任务，每个连接关闭约束检查、手动提交
+     */
+    private void runParallel(List<ConnectionTask> tasks, DatabaseDumper.Dialect dialect, String schema, String phase)
+            throws IOException, SQLException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        int workerCount = Math.min(threads, tasks.size());
+        ConcurrentLinkedQueue<ConnectionTask> queue = new ConcurrentLinkedQueue<>(tasks);
+        List<Connection> connections = new ArrayList<>();
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread t = new Thread(r, "db-restore-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                useSchema(connection, dialect, schema, false);
+                setConstraintChecks(connection, dialect, false);
+                connection.setAutoCommit(false);
+            }
+
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Connection connection : connections) {
+                futures.add(executor.submit(() -> {
+                    ConnectionTask task;
+                    while ((task = queue.poll()) != null) {
+                        task.run(connection);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("数据库恢复被中断（" + phase + "）", e);
+        } catch (ExecutionException e) {
+            queue.clear();
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new IOException("数据库恢复失败（" + phase + "）", cause);
+        } finally {
+            executor.shutdownNow();
+            for (Connection connection : connections) {
+                closeQuietly(connection, dialect);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection, DatabaseDumper.Dialect dialect) {
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            if (dialect.mysql) {
+                setConstraintChecks(connection, dialect, true);
+            }
+        } catch (SQLException e) {
+            logger.debug("重置恢复连接失败", e);
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("关闭恢复连接失败", e);
+        }
+    }
+
+    // ===== 库和表 =====
+
+    private static void useSchema(Connection connection, DatabaseDumper.Dialect dialect, String schema,
+                                  boolean create) throws SQLException {
+        if (schema == null || schema.trim().isEmpty()) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            if (dialect.mysql) {
+                if (create) {
+                    statement.execute("CREATE DATABASE IF NOT EXISTS " + dialect.quote(schema));
+                }
+                connection.setCatalog(schema);
+            } else {
+                if (create) {
+                    statement.execute("CREATE SCHEMA IF NOT EXISTS " + dialect.quote(schema));
+                }
+                connection.setSchema(schema);
+            }
+        }
+    }
+
+    /**
+     * MySQL 按会话关闭外键和唯一性检查；其它数据库（H2）关闭整个库的引用完整性检查
+     */
+    private static void setConstraintChecks(Connection connection, DatabaseDumper.Dialect dialect, boolean enabled)
+            throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (dialect.mysql) {
+                statement.execute("SET FOREIGN_KEY_CHECKS = " + (enabled ? 1 : 0));
+                statement.execute("SET UNIQUE_CHECKS = " + (enabled ? 1 : 0));
+            } else {
+                statement.execute("SET REFERENTIAL_INTEGRITY " + (enabled ? "TRUE" : "FALSE"));
+            }
+        }
+    }
+
+    static boolean tableExists(Connection connection, String table) throws SQLException {
+        return findTable(connection, table) != null;
+    }
+
+    /**
+     * 按名称（忽略大小写）查找当前库/模式下的表，返回实际表名
+     */
+    private static String findTable(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getTables(connection.getCatalog(), connection.getSchema(), null,
+            new String[]{"TABLE"})) {
+            while (rs.next()) {
+                String name = rs.getString("TABLE_NAME");
+                if (table.equalsIgnoreCase(name)) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String readSchema(Path file) throws IOException {
+        String sql = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim();
+        return sql.endsWith(";") ? sql.substring(0, sql.length() - 1) : sql;
+    }
+
+    /**
+     * 建表语句拆分：二级索引、唯一键和外键从 CREATE TABLE 中移出，加载完数据后再用 ALTER TABLE 补建。
+     * 空表加载完再一次性建索引，比边插入边维护索引快得多
+     */
+    static final class TableDefinition {
+        final String create;
+        final List<String> deferred;
+
+        private TableDefinition(String create, List<String> deferred) {
+            this.create = create;
+            this.deferred = deferred;
+        }
+
+        static TableDefinition split(String createSql, String table, DatabaseDumper.Dialect dialect) {
+            int open = createSql.indexOf("(\n");
+            int close = createSql.lastIndexOf("\n)");
+            if (open < 0 || close < open) {
+                return new TableDefinition(createSql, Collections.emptyList());
+            }
+
+            List<String> kept = new ArrayList<>();
+            List<String> indexes = new ArrayList<>();
+            List<String> foreignKeys = new ArrayList<>();
+            boolean primaryKey = false;
+            boolean autoIncrement = false;
+            for (String line : createSql.substring(open + 2, close).split("\n")) {
+                String definition = line.trim();
+                if (definition.endsWith(",")) {
+                    definition = definition.substring(0, definition.length() - 1);
+                }
+                if (definition.isEmpty()) {
+                    continue;
+                }
+                String upper = definition.toUpperCase(Locale.ROOT);
+                if (upper.startsWith("KEY ") || upper.startsWith("INDEX ") || upper.startsWith("UNIQUE ")
+                    || upper.startsWith("FULLTEXT ") || upper.startsWith("SPATIAL ")) {
+                    indexes.add("ADD " + definition);
+                } else if (upper.startsWith("CONSTRAINT ") && upper.contains(" FOREIGN KEY ")) {
+                    foreignKeys.add("ADD " + definition);
+                } else {
+                    primaryKey |= upper.startsWith("PRIMARY KEY");
+                    autoIncrement |= upper.contains("AUTO_INCREMENT");
+                    kept.add("  " + definition);
+                }
+            }
+            // 自增列必须带索引，没有主键时不拆分
+            if ((indexes.isEmpty() && foreignKeys.isEmpty()) || (autoIncrement && !primaryKey)) {
+                return new TableDefinition(createSql, Collections.emptyList());
+            }
+
+            List<String> deferred = new ArrayList<>();
+            if (!indexes.isEmpty()) {
+                deferred.add("ALTER TABLE " + dialect.quote(table) + " " + String.join(", ", indexes));
+            }
+            if (!foreignKeys.isEmpty()) {
+                deferred.add("ALTER TABLE " + dialect.quote(table) + " " + String.join(", ", foreignKeys));
+            }
+            String create = createSql.substring(0, open + 2) + String.join(",\n", kept) + createSql.substring(close);
+            return new TableDefinition(create, deferred);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.wms.util;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 磁盘读写限速（令牌桶）
+ * 每秒补充 rate × factor 个令牌，最多积攒 {@link #BURST_SECONDS} 秒的量；令牌不足时允许透支，
+ * 由调用线程睡眠到还清为止，因此一次大块读写也能被正确限速。
+ * factor 由自适应调节在 (0, 1] 之间调整，rate 为 0 表示不限速。
+ */
+public class IoThrottle {
+
+    private static final double BURST_SECONDS = 0.25;
+
+    private volatile long bytesPerSecond;
+    private volatile double factor = 1.0;
+
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    /**
+     * @param bytesPerSecond 每秒允许的字节数，0 表示不限速
+     */
+    public IoThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+    }
+
+    /**
+     * 申请 n 个字节的额度，额度不足时阻塞
+     */
+    public void acquire(long n) throws InterruptedIOException {
+        if (n <= 0) {
+            return;
+        }
+        bytes.addAndGet(n);
+        double rate = getEffectiveRate();
+        if (rate <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(rate * BURST_SECONDS, tokens + (now - lastRefill) * rate / 1_000_000_000.0);
+            lastRefill = now;
+            tokens -= n;
+            waitNanos = tokens < 0 ? (long) (-tokens * 1_000_000_000.0 / rate) : 0;
+        }
+        if (waitNanos > 0) {
+            throttledNanos.addAndGet(waitNanos);
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("限速等待被中断");
+            }
+        }
+    }
+
+    public InputStream wrap(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    acquire(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                acquire(n);
+                return n;
+            }
+        };
+    }
+
+    public OutputStream wrap(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                acquire(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                acquire(len);
+                out.write(b, off, len);
+            }
+        };
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(0, bytesPerSecond);
+    }
+
+    public double getFactor() {
+        return factor;
+    }
+
+    /**
+     * 设置限速系数（自适应退让），取值 (0, 1]
+     */
+    public void setFactor(double factor) {
+        this.factor = Math.max(0.01, Math.min(1.0, factor));
+    }
+
+    /**
+     * 当前实际限速（字节/秒），0 表示不限速
+     */
+    public double getEffectiveRate() {
+        return bytesPerSecond * factor;
+    }
+
+    /**
+     * 累计通过的字节数
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * 累计因限速等待的时间（纳秒）
+     */
+    public long getThrottledNanos() {
+        return throttledNanos.get();
+    }
+}
@@ -1,6 +1,7 @@
 package com.wms.util;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Set;
 
 /**
  * IP地址工具类
@@ -58,5 +59,40 @@ public class IpUtil {
         ip = request.getRemoteAddr();
         return ip != null ? ip.trim() : "unknown";
     }
-}
 
+    /**
+     * 获取可信的客户端IP（用于登录限流等安全场景）
+     * 只有直连地址是可信代理时才读取 X-Forwarded-For，并从右往左跳过可信代理，取第一个不可信的地址；
+     * 客户端自己填写的 X-Forwarded-For 在最左边，无法借此伪造或轮换IP。
+     *
+     * @param request        HTTP请求对象
+     * @param trustedProxies 可信代理地址（如本机的 Nginx）
+     * @return 客户端IP地址
+     */
+    public static String getClientIp(HttpServletRequest request, Set<String> trustedProxies) {
+        if (request == null) {
+            return "unknown";
+        }
+        String remote = request.getRemoteAddr();
+        if (remote == null) {
+            return "unknown";
+        }
+        remote = remote.trim();
+        if (!trustedProxies.contains(remote)) {
+            return remote;
+        }
+
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || forwarded.trim().isEmpty()) {
+            return remote;
+        }
+        String[] hops = forwarded.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !"unknown".equalsIgnoreCase(hop) && !trustedProxies.contains(hop)) {
+                return hop;
+            }
+        }
+        return remote;
+    }
+}
@@ -5,11 +5,13 @@ import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
@@ -20,6 +22,18 @@ public class JwtUtil {
     @Value("${jwt.expiration:86400000}")
     private Long expiration;
     
+    /**
+     * 签名密钥和解析器只在启动时构建一次（JwtParser 线程安全）
+     */
+    private SecretKey key;
+    private JwtParser parser;
+    
+    @PostConstruct
+    public void init() {
+        key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(key).build();
+    }
+    
     public String generateToken(String username, String role) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("username", username);
@@ -28,11 +42,10 @@ public class JwtUtil {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
         
-        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-        
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(username)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .signWith(key, SignatureAlgorithm.HS512)
@@ -41,7 +54,7 @@ public class JwtUtil {
     
     public String getUsernameFromToken(String token) {
         try {
-            Claims claims = getClaimsFromToken(token);
+            Claims claims = parseClaims(token);
             return claims.getSubject();
         } catch (Exception e) {
             return null;
@@ -50,43 +63,29 @@ public class JwtUtil {
     
     public String getRoleFromToken(String token) {
         try {
-            Claims claims = getClaimsFromToken(token);
+            Claims claims = parseClaims(token);
             return (String) claims.get("role");
         } catch (Exception e) {
             return null;
         }
     }
     
+    /**
+     * 校验签名和有效期（解析一次）
+     */
     public boolean validateToken(String token) {
         try {
-            getClaimsFromToken(token);
-            return !isTokenExpired(token);
+            parseClaims(token);
+            return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
     
-    private boolean isTokenExpired(String token) {
-        try {
-            Date expiration = getExpirationDateFromToken(token);
-            return expiration.before(new Date());
-        } catch (Exception e) {
-            return true;
-        }
-    }
-    
-    private Date getExpirationDateFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims.getExpiration();
-    }
-    
-    private Claims getClaimsFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-        
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * 校验签名并返回声明，Token 无效或已过期时抛出 JwtException
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 }
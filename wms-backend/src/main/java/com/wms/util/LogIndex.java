@@ -0,0 +1,244 @@
+package com.wms.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 日志文件的旁路索引
+ * 按分钟分桶，记录每个桶第一条日志的字节偏移、桶内出现过的级别位图和日志条数。
+ * 查询时只需二分找到时间范围对应的桶、跳过没有目标级别的桶，再直接定位到偏移处读取。
+ * 索引只覆盖以换行结尾的完整行，文件追加后从 indexedBytes 处继续增量建立。
+ */
+public class LogIndex {
+
+    private static final int MAGIC = 0x574C4931; // "WLI1"
+    private static final int HEADER_SCAN_BYTES = 128;
+
+    private final String fingerprint;
+    private long indexedBytes;
+
+    private int size;
+    private int[] minutes = new int[64];
+    private long[] offsets = new long[64];
+    private byte[] masks = new byte[64];
+    private int[] counts = new int[64];
+
+    /**
+     * 当前桶的分钟文本（yyyy-MM-dd HH:mm），同一分钟内的行不再解析时间
+     */
+    private final byte[] currentMinute = new byte[16];
+    private boolean hasCurrentMinute;
+
+    public LogIndex(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 已建立索引的字节数（下一次增量从这里开始）
+     */
+    public long getIndexedBytes() {
+        return indexedBytes;
+    }
+
+    public int getBucketCount() {
+        return size;
+    }
+
+    /**
+     * 从 indexedBytes 处读取新增内容并更新索引
+     *
+     * @param in 位置已在 indexedBytes 处的输入流
+     * @return 本次索引的字节数
+     */
+    public long update(InputStream in) throws IOException {
+        long start = indexedBytes;
+        ByteLineReader reader = new ByteLineReader(in, indexedBytes);
+        while (reader.next() && reader.isComplete()) {
+            addLine(reader);
+            indexedBytes = reader.getNextOffset();
+        }
+        return indexedBytes - start;
+    }
+
+    private void addLine(ByteLineReader reader) {
+        if (!isHeader(reader)) {
+            return;
+        }
+        boolean sameMinute = hasCurrentMinute;
+        for (int i = 0; i < 16 && sameMinute; i++) {
+            sameMinute = reader.byteAt(i) == currentMinute[i];
+        }
+        String head = reader.text(StandardCharsets.ISO_8859_1, HEADER_SCAN_BYTES);
+        if (!sameMinute) {
+            LocalDateTime time = LogLines.timestamp(head);
+            if (time == null) {
+                return;
+            }
+            for (int i = 0; i < 16; i++) {
+                currentMinute[i] = reader.byteAt(i);
+            }
+            hasCurrentMinute = true;
+            int minute = (int) (time.toEpochSecond(ZoneOffset.UTC) / 60);
+            // 时间偶尔回拨时并入上一个桶，保证桶按分钟有序
+            if (size == 0 || minute > minutes[size - 1]) {
+                addBucket(minute, reader.getLineOffset());
+            }
+        }
+        int level = LogLines.level(head);
+        if (level >= 0) {
+            masks[size - 1] |= (byte) (1 << level);
+        }
+        counts[size - 1]++;
+    }
+
+    private static boolean isHeader(ByteLineReader reader) {
+        return reader.getLength() > 20 && reader.byteAt(4) == '-' && reader.byteAt(10) == ' '
+            && reader.byteAt(19) == ' ' && reader.byteAt(0) >= '0' && reader.byteAt(0) <= '9';
+    }
+
+    private void addBucket(int minute, long offset) {
+        if (size == minutes.length) {
+            int capacity = size * 2;
+            minutes = Arrays.copyOf(minutes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            masks = Arrays.copyOf(masks, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        minutes[size] = minute;
+        offsets[size] = offset;
+        masks[size] = 0;
+        counts[size] = 0;
+        size++;
+    }
+
+    /**
+     * 第一个桶的时间（分钟），没有索引时返回 Integer.MAX_VALUE
+     */
+    public int getFirstMinute() {
+        return size > 0 ? minutes[0] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 需要读取的区间：时间范围内且包含目标级别（或更严重级别）的桶，相邻的桶合并成一个区间
+     *
+     * @param from  起始时间，为空表示不限
+     * @param to    结束时间，为空表示不限
+     * @param level 最低级别在 LogLines.LEVELS 中的下标
+     * @return 每个元素为 {起始偏移, 结束偏移}
+     */
+    public List<long[]> regions(LocalDateTime from, LocalDateTime to, int level) {
+        List<long[]> regions = new ArrayList<>();
+        // 回拨的日志只会并入分钟更大的桶，因此时间不早于 from 的日志都在 lowerBound 之后的桶里
+        int first = from == null ? 0 : lowerBound((int) (from.toEpochSecond(ZoneOffset.UTC) / 60));
+        int lastMinute = to == null ? Integer.MAX_VALUE : (int) (to.toEpochSecond(ZoneOffset.UTC) / 60);
+        int levelMask = (1 << (level + 1)) - 1;
+        for (int i = first; i < size && minutes[i] <= lastMinute; i++) {
+            if ((masks[i] & levelMask) == 0) {
+                continue;
+            }
+            long end = i + 1 < size ? offsets[i + 1] : indexedBytes;
+            long[] last = regions.isEmpty() ? null : regions.get(regions.size() - 1);
+            if (last != null && last[1] == offsets[i]) {
+                last[1] = end;
+            } else {
+                regions.add(new long[]{offsets[i], end});
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * 时间范围和级别内的日志条数上限（按桶统计，实际条数可能更少）
+     */
+    public long estimate(LocalDateTime from, LocalDateTime to, int level) {
+        int first = from == null ? 0 : lowerBound((int) (from.toEpochSecond(ZoneOffset.UTC) / 60));
+        int lastMinute = to == null ? Integer.MAX_VALUE : (int) (to.toEpochSecond(ZoneOffset.UTC) / 60);
+        int levelMask = (1 << (level + 1)) - 1;
+        long total = 0;
+        for (int i = first; i < size && minutes[i] <= lastMinute; i++) {
+            if ((masks[i] & levelMask) != 0) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    private int lowerBound(int minute) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (minutes[mid] < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // ===== 持久化 =====
+
+    public void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(fingerprint);
+            out.writeLong(indexedBytes);
+            out.writeBoolean(hasCurrentMinute);
+            out.write(currentMinute);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(minutes[i]);
+                out.writeLong(offsets[i]);
+                out.writeByte(masks[i]);
+                out.writeInt(counts[i]);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取索引文件，格式不符或指纹不一致时返回 null（需要重建）
+     */
+    public static LogIndex load(Path file, String fingerprint) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || !fingerprint.equals(in.readUTF())) {
+                return null;
+            }
+            LogIndex index = new LogIndex(fingerprint);
+            index.indexedBytes = in.readLong();
+            index.hasCurrentMinute = in.readBoolean();
+            in.readFully(index.currentMinute);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                index.addBucket(in.readInt(), in.readLong());
+                index.masks[i] = in.readByte();
+                index.counts[i] = in.readInt();
+            }
+            return index;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
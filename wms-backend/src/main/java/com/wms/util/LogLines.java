@@ -0,0 +1,128 @@
+package com.wms.util;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * 应用日志行解析
+ * 对应 logging.pattern.file：%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n
+ * 不以时间戳开头的行（异常堆栈等）属于上一条日志。
+ */
+public final class LogLines {
+
+    public static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 日志级别，按严重程度从高到低排列
+     */
+    public static final String[] LEVELS = {"ERROR", "WARN", "INFO", "DEBUG", "TRACE"};
+
+    private static final int TIMESTAMP_LENGTH = 19;
+
+    private LogLines() {
+    }
+
+    /**
+     * 解析行首时间戳，不是日志头部行时返回 null
+     */
+    public static LocalDateTime timestamp(String line) {
+        if (line.length() < TIMESTAMP_LENGTH + 1 || line.charAt(4) != '-' || line.charAt(10) != ' '
+                || line.charAt(TIMESTAMP_LENGTH) != ' ' || !Character.isDigit(line.charAt(0))) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(line.substring(0, TIMESTAMP_LENGTH), TIMESTAMP);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 日志级别在 {@link #LEVELS} 中的下标，无法识别时返回 -1
+     */
+    public static int level(String line) {
+        int start = levelStart(line);
+        if (start < 0) {
+            return -1;
+        }
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (line.startsWith(LEVELS[i], start)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 日志记录器名称（%logger{36} 缩写后的形式），无法识别时返回空串
+     */
+    public static String logger(String line) {
+        int start = levelStart(line);
+        if (start < 0) {
+            return "";
+        }
+        int from = line.indexOf(' ', start);
+        while (from >= 0 && from < line.length() && line.charAt(from) == ' ') {
+            from++;
+        }
+        if (from < 0 || from >= line.length()) {
+            return "";
+        }
+        int end = line.indexOf(" - ", from);
+        return end < 0 ? "" : line.substring(from, end);
+    }
+
+    /**
+     * 把级别名称转换为 {@link #LEVELS} 下标，为空时返回最低级别（不过滤）
+     */
+    public static int parseLevel(String level) {
+        if (level == null || level.trim().isEmpty()) {
+            return LEVELS.length - 1;
+        }
+        String name = level.trim().toUpperCase(Locale.ROOT);
+        if ("WARNING".equals(name)) {
+            name = "WARN";
+        }
+        for (int i = 0; i < LEVELS.length; i++) {
+            if (LEVELS[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("未知的日志级别: " + level);
+    }
+
+    /**
+     * 解析查询参数中的时间：yyyy-MM-dd HH:mm:ss、yyyy-MM-ddTHH:mm:ss 或 yyyy-MM-dd（当天 0 点）
+     */
+    public static LocalDateTime parseTime(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String text = value.trim().replace('T', ' ');
+        try {
+            if (text.length() == 10) {
+                return LocalDateTime.parse(text + " 00:00:00", TIMESTAMP);
+            }
+            if (text.length() == 16) {
+                text = text + ":00";
+            }
+            return LocalDateTime.parse(text.length() > TIMESTAMP_LENGTH ? text.substring(0, TIMESTAMP_LENGTH) : text,
+                TIMESTAMP);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("时间格式错误: " + value);
+        }
+    }
+
+    /**
+     * 级别字段的起始位置：跳过时间戳和 [线程名]
+     */
+    private static int levelStart(String line) {
+        if (line.length() <= TIMESTAMP_LENGTH + 1 || line.charAt(TIMESTAMP_LENGTH + 1) != '[') {
+            return -1;
+        }
+        int close = line.indexOf("] ", TIMESTAMP_LENGTH + 2);
+        return close < 0 ? -1 : close + 2;
+    }
+}
@@ -0,0 +1,294 @@
+package com.wms.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 并行分块 gzip 输出流（类似 pigz）
+ * 数据按固定大小分块，每块在线程池中独立压缩成一个完整的 gzip 成员，再按顺序写入文件。
+ * 多成员 gzip 是标准格式，gzip / tar -xzf / GZIPInputStream 都可以直接解压。
+ * 同时在途的块数有上限，内存占用约为 块大小 × 2 × 线程数。
+ * 顺序写出的压缩数据经 {@link DigestOutputStream} 同时计算整个文件的 SHA-256，不需要写完后再读一遍。
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /**
+     * 存储块成员长度：gzip头(10) + 存储块头(5) + 数据 + CRC32/ISIZE(8)
+     */
+    private static final int STORED_MEMBER_OVERHEAD = 23;
+
+    private final FileChannel channel;
+    private final MessageDigest digest = DatabaseDumper.sha256();
+    private final OutputStream sink;
+    private final ExecutorService executor;
+    private int level;
+    private final int blockSize;
+    private final int maxInFlight;
+
+    private byte[] block;
+    private int blockLength = 0;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private long uncompressedBytes = 0;
+    private IoThrottle throttle;
+    private boolean closed = false;
+    private boolean rewritten = false;
+    private String sha256;
+
+    /**
+     * @param channel   目标文件通道（关闭本流时不会关闭通道）
+     * @param executor  压缩线程池
+     * @param threads   压缩线程数，用于限制在途块数
+     * @param level     压缩级别 1-9
+     * @param blockSize 分块大小（字节）
+     */
+    public ParallelGzipOutputStream(FileChannel channel, ExecutorService executor, int threads,
+                                    int level, int blockSize) {
+        this.channel = channel;
+        this.sink = new DigestOutputStream(Channels.newOutputStream(channel), digest);
+        this.executor = executor;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.maxInFlight = Math.max(2, threads * 2);
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[blockLength++] = (byte) b;
+        uncompressedBytes++;
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        uncompressedBytes += len;
+        while (len > 0) {
+            int n = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * 写盘限速（按压缩后的字节计），为空表示不限速
+     */
+    public void setThrottle(IoThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    /**
+     * 修改之后写入数据的压缩级别（已是压缩格式的数据可用 {@link Deflater#NO_COMPRESSION} 直接存储）
+     * 当前未满的块先按原级别提交
+     */
+    public void setLevel(int level) throws IOException {
+        if (level == this.level) {
+            return;
+        }
+        if (blockLength > 0) {
+            submitBlock();
+        }
+        this.level = level;
+    }
+
+    /**
+     * 提交当前未满的块，并等待所有在途块写入文件
+     *
+     * @return 写入后的文件位置
+     */
+    public long drain() throws IOException {
+        if (blockLength > 0) {
+            submitBlock();
+        }
+        while (!pending.isEmpty()) {
+            writeHead();
+        }
+        return channel.position();
+    }
+
+    /**
+     * 以不压缩的存储块写入一个独立的 gzip 成员，返回其在文件中的起始位置。
+     * 同样长度的数据生成的成员长度固定，之后可以用 {@link #rewriteStoredMember} 原地改写
+     */
+    public long writeStoredMember(byte[] data) throws IOException {
+        long position = drain();
+        writeFully(storedMember(data), -1);
+        uncompressedBytes += data.length;
+        return position;
+    }
+
+    /**
+     * 原地改写之前由 {@link #writeStoredMember} 写入的成员，data 长度必须与原来一致
+     * 改写后顺序计算的摘要不再对应文件内容，{@link #getSha256()} 返回 null
+     */
+    public void rewriteStoredMember(long position, byte[] data) throws IOException {
+        rewritten = true;
+        writeFully(storedMember(data), position);
+    }
+
+    /**
+     * 写入文件的压缩数据的 SHA-256（十六进制），关闭后可用；改写过已写出的成员时为 null
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * 已写入的未压缩字节数
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        drain();
+        channel.force(false);
+        sha256 = rewritten ? null : DatabaseDumper.hex(digest.digest());
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        final int blockLevel = level;
+        pending.addLast(executor.submit(() -> compress(data, length, blockLevel)));
+        block = new byte[blockSize];
+        blockLength = 0;
+        while (pending.size() >= maxInFlight) {
+            writeHead();
+        }
+    }
+
+    private void writeHead() throws IOException {
+        Future<byte[]> head = pending.removeFirst();
+        try {
+            writeFully(head.get(), -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelPending();
+            throw new InterruptedIOException("压缩被中断");
+        } catch (ExecutionException e) {
+            cancelPending();
+            throw new IOException("块压缩失败", e.getCause());
+        }
+    }
+
+    private void cancelPending() {
+        for (Future<byte[]> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    private void writeFully(byte[] data, long position) throws IOException {
+        if (throttle != null) {
+            throttle.acquire(data.length);
+        }
+        if (position < 0) {
+            sink.write(data);
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    /**
+     * 将一块数据压缩为完整的 gzip 成员
+     */
+    static byte[] compress(byte[] data, int length, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 3 + 64);
+            writeGzipHeader(out);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            writeGzipTrailer(out, data, 0, length);
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 生成只含一个存储块（BTYPE=00）的 gzip 成员，长度 = data.length + 23
+     */
+    static byte[] storedMember(byte[] data) {
+        if (data.length > 0xFFFF) {
+            throw new IllegalArgumentException("存储块最大 65535 字节");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + STORED_MEMBER_OVERHEAD);
+        writeGzipHeader(out);
+        out.write(0x01);
+        out.write(data.length & 0xFF);
+        out.write((data.length >>> 8) & 0xFF);
+        out.write(~data.length & 0xFF);
+        out.write((~data.length >>> 8) & 0xFF);
+        out.write(data, 0, data.length);
+        writeGzipTrailer(out, data, 0, data.length);
+        return out.toByteArray();
+    }
+
+    private static void writeGzipHeader(ByteArrayOutputStream out) {
+        // ID1 ID2 CM=deflate FLG=0 MTIME=0 XFL=0 OS=unknown
+        out.write(0x1f);
+        out.write(0x8b);
+        out.write(Deflater.DEFLATED);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        out.write(0);
+        out.write(0xff);
+    }
+
+    private static void writeGzipTrailer(ByteArrayOutputStream out, byte[] data, int off, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, off, length);
+        writeIntLE(out, (int) crc.getValue());
+        writeIntLE(out, length);
+    }
+
+    private static void writeIntLE(ByteArrayOutputStream out, int v) {
+        out.write(v & 0xFF);
+        out.write((v >>> 8) & 0xFF);
+        out.write((v >>> 16) & 0xFF);
+        out.write((v >>> 24) & 0xFF);
+    }
+}
@@ -0,0 +1,113 @@
+package com.wms.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 从文件末尾向前逐行读取（按块倒读）
+ * 只按 '\n' 切分，UTF-8 多字节字符中不会出现该字节，因此跨块的中文不会被截断；
+ * 只读取需要的尾部数据，读取量与返回的行数成正比，与文件大小无关。
+ */
+public class ReverseLineReader {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+
+    /**
+     * buffer[0, length) 对应文件中的 [bufferStart, bufferStart + length)
+     */
+    private byte[] buffer = new byte[BLOCK_SIZE];
+    private long bufferStart;
+    private int length;
+    private long lineStart;
+    private long bytesRead;
+
+    /**
+     * @param channel 文件通道（不会被关闭）
+     * @param end     从该偏移处向前读（通常为文件大小），末尾的换行符会被忽略
+     */
+    public ReverseLineReader(FileChannel channel, long end) throws IOException {
+        this.channel = channel;
+        this.bufferStart = end;
+        this.lineStart = end;
+        if (end > 0) {
+            fill();
+            if (length > 0 && buffer[length - 1] == '\n') {
+                length--;
+            }
+        }
+    }
+
+    /**
+     * 返回上一行（不含换行符），已到文件开头时返回 null
+     */
+    public String readLine() throws IOException {
+        if (length == 0 && bufferStart == 0) {
+            return null;
+        }
+        while (true) {
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer[i] == '\n') {
+                    String line = decode(i + 1, length);
+                    lineStart = bufferStart + i + 1;
+                    length = i;
+                    return line;
+                }
+            }
+            if (bufferStart == 0) {
+                String line = decode(0, length);
+                lineStart = 0;
+                length = 0;
+                return line;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * 最近一次 readLine 返回的行在文件中的起始偏移
+     */
+    public long getLineStart() {
+        return lineStart;
+    }
+
+    /**
+     * 实际从磁盘读取的字节数
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * 在缓冲区前面补读一块
+     */
+    private void fill() throws IOException {
+        int n = (int) Math.min(BLOCK_SIZE, bufferStart);
+        if (length + n > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + n));
+        }
+        System.arraycopy(buffer, 0, buffer, n, length);
+        ByteBuffer target = ByteBuffer.wrap(buffer, 0, n);
+        long position = bufferStart - n;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + target.position());
+            if (read < 0) {
+                throw new IOException("文件在读取过程中被截断");
+            }
+        }
+        bufferStart -= n;
+        length += n;
+        bytesRead += n;
+    }
+
+    private String decode(int from, int to) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+}
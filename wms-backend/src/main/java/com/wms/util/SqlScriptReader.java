@@ -0,0 +1,110 @@
+package com.wms.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * SQL 脚本语句读取器
+ * 按分号切分语句，正确跳过字符串和带引号标识符中的分号、换行；支持 -- 行注释
+ */
+public class SqlScriptReader implements Closeable {
+
+    private final Reader reader;
+    private final boolean backslashEscapes;
+    private final StringBuilder statement = new StringBuilder(64 * 1024);
+    private int pushback = -1;
+
+    /**
+     * @param reader           脚本来源
+     * @param backslashEscapes 字符串中的反斜杠是否为转义符（MySQL 默认开启）
+     */
+    public SqlScriptReader(Reader reader, boolean backslashEscapes) {
+        this.reader = reader;
+        this.backslashEscapes = backslashEscapes;
+    }
+
+    /**
+     * 读取下一条语句（不含结尾分号），读完返回 null
+     */
+    public String next() throws IOException {
+        statement.setLength(0);
+        int c;
+        while ((c = read()) != -1) {
+            if (c == ';') {
+                String sql = statement.toString().trim();
+                if (!sql.isEmpty()) {
+                    return sql;
+                }
+                statement.setLength(0);
+                continue;
+            }
+            if (c == '-' && statement.toString().trim().isEmpty()) {
+                int next = read();
+                if (next == '-') {
+                    skipLine();
+                    continue;
+                }
+                statement.append((char) c);
+                if (next != -1) {
+                    pushback = next;
+                }
+                continue;
+            }
+            statement.append((char) c);
+            if (c == '\'' || c == '"' || c == '`') {
+                readQuoted((char) c);
+            }
+        }
+        String sql = statement.toString().trim();
+        return sql.isEmpty() ? null : sql;
+    }
+
+    private void readQuoted(char quote) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == '\\' && quote == '\'' && backslashEscapes) {
+                int escaped = read();
+                if (escaped != -1) {
+                    statement.append((char) escaped);
+                }
+                continue;
+            }
+            if (c == quote) {
+                // 连续两个引号表示引号本身
+                int next = read();
+                if (next == quote) {
+                    statement.append((char) next);
+                    continue;
+                }
+                if (next != -1) {
+                    pushback = next;
+                }
+                return;
+            }
+        }
+        throw new IOException("SQL 脚本不完整：引号未闭合");
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = read()) != -1 && c != '\n') {
+            // 跳过注释
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushback != -1) {
+            int c = pushback;
+            pushback = -1;
+            return c;
+        }
+        return reader.read();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,17 @@
+-- 操作日志按天汇总：审计写入时按 (日期, 用户, 模块, 操作) 累加，统计/趋势/模块列表只读这张表
+CREATE TABLE IF NOT EXISTS audit_log_daily (
+    stat_date DATE         NOT NULL COMMENT '日期',
+    username  VARCHAR(255) NOT NULL COMMENT '用户名',
+    module    VARCHAR(255) NOT NULL COMMENT '模块',
+    action    VARCHAR(255) NOT NULL COMMENT '操作',
+    cnt       BIGINT       NOT NULL DEFAULT 0 COMMENT '操作次数',
+    PRIMARY KEY (stat_date, username, module, action),
+    KEY idx_audit_daily_user (username, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='操作日志按天汇总';
+
+-- 回填历史数据（在启用新版本之前执行一次，之后由审计写入路径维护）
+INSERT INTO audit_log_daily (stat_date, username, module, action, cnt)
+SELECT DATE(created_at), username, module, action, COUNT(*)
+FROM audit_logs
+GROUP BY DATE(created_at), username, module, action
+ON DUPLICATE KEY UPDATE cnt = VALUES(cnt);
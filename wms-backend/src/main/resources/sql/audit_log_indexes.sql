@@ -0,0 +1,6 @@
+-- 操作日志查询索引：按 (created_at, id) 倒序游标分页，等值条件在前、时间在后
+-- username/module/action 过滤后仍按索引顺序读取，不需要排序，也不会扫描页前面的数据
+CREATE INDEX idx_audit_created ON audit_logs (created_at, id);
+CREATE INDEX idx_audit_user_created ON audit_logs (username, created_at, id);
+CREATE INDEX idx_audit_module_created ON audit_logs (module, created_at, id);
+CREATE INDEX idx_audit_action_created ON audit_logs (action, created_at, id);
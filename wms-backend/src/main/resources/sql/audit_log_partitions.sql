@@ -0,0 +1,12 @@
+-- 操作日志按月分区：保留期之外的月份由 AuditArchiveService 导出为列式归档文件后 DROP PARTITION
+-- 分区列必须包含在主键中，因此主键改为 (id, created_at)
+ALTER TABLE audit_logs DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at);
+
+-- 执行前把日期改为当前月份的第一天：之前的数据放在 p_history，之后每月的分区由应用自动从 pmax 拆出。
+-- p_history 中的月份过了保留期后按时间范围分批删除，整个分区都过了保留期时直接删除分区。
+-- 删除分区不会触发 trg_audit_logs_backup_delete，已归档的行可能仍留在增量备份链中，直到下一次全量备份。
+ALTER TABLE audit_logs PARTITION BY RANGE COLUMNS (created_at) (
+    PARTITION p_history VALUES LESS THAN ('2026-10-01'),
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,3 @@
+-- 备份下载：保存备份文件的 SHA-256，用作 ETag 和 Digest 头（旧记录在第一次下载时补算）
+ALTER TABLE backup_records
+    ADD COLUMN sha256 CHAR(64) NULL COMMENT '备份文件SHA-256' AFTER size;
@@ -0,0 +1,71 @@
+-- 数据库增量备份：备份链字段和删除记录
+
+ALTER TABLE backup_records
+    ADD COLUMN parent_backup_id BIGINT NULL COMMENT '数据库增量备份的上一个备份ID' AFTER base_backup_id,
+    ADD COLUMN watermark DATETIME NULL COMMENT '数据库导出开始时间（增量水位）' AFTER parent_backup_id;
+
+-- 被删除的行由触发器记录，增量备份按 deleted_at 导出，恢复时据此删除对应的行
+CREATE TABLE IF NOT EXISTS backup_deletions (
+    id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(64) NOT NULL,
+    row_id BIGINT NOT NULL,
+    deleted_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_backup_deletions_deleted_at (deleted_at),
+    INDEX idx_backup_deletions_table_row (table_name, row_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='增量备份删除记录';
+
+DROP TRIGGER IF EXISTS trg_assembly_defects_backup_delete;
+CREATE TRIGGER trg_assembly_defects_backup_delete AFTER DELETE ON assembly_defects
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('assembly_defects', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_assembly_records_backup_delete;
+CREATE TRIGGER trg_assembly_records_backup_delete AFTER DELETE ON assembly_records
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('assembly_records', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_assembly_rules_backup_delete;
+CREATE TRIGGER trg_assembly_rules_backup_delete AFTER DELETE ON assembly_rules
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('assembly_rules', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_assembly_rule_items_backup_delete;
+CREATE TRIGGER trg_assembly_rule_items_backup_delete AFTER DELETE ON assembly_rule_items
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('assembly_rule_items', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_audit_logs_backup_delete;
+CREATE TRIGGER trg_audit_logs_backup_delete AFTER DELETE ON audit_logs
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('audit_logs', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_auto_storage_rules_backup_delete;
+CREATE TRIGGER trg_auto_storage_rules_backup_delete AFTER DELETE ON auto_storage_rules
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('auto_storage_rules', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_backup_records_backup_delete;
+CREATE TRIGGER trg_backup_records_backup_delete AFTER DELETE ON backup_records
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('backup_records', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_blank_inventory_backup_delete;
+CREATE TRIGGER trg_blank_inventory_backup_delete AFTER DELETE ON blank_inventory
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('blank_inventory', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_finished_product_inventory_backup_delete;
+CREATE TRIGGER trg_finished_product_inventory_backup_delete AFTER DELETE ON finished_product_inventory
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('finished_product_inventory', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_inventory_items_backup_delete;
+CREATE TRIGGER trg_inventory_items_backup_delete AFTER DELETE ON inventory_items
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('inventory_items', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_inventory_logs_backup_delete;
+CREATE TRIGGER trg_inventory_logs_backup_delete AFTER DELETE ON inventory_logs
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('inventory_logs', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_piece_works_backup_delete;
+CREATE TRIGGER trg_piece_works_backup_delete AFTER DELETE ON piece_works
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('piece_works', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_price_tables_backup_delete;
+CREATE TRIGGER trg_price_tables_backup_delete AFTER DELETE ON price_tables
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('price_tables', OLD.id);
+
+DROP TRIGGER IF EXISTS trg_users_backup_delete;
+CREATE TRIGGER trg_users_backup_delete AFTER DELETE ON users
+    FOR EACH ROW INSERT INTO backup_deletions (table_name, row_id) VALUES ('users', OLD.id);
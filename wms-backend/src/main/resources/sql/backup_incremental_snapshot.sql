@@ -0,0 +1,3 @@
+-- 文件增量快照：记录增量快照对应的基准备份
+ALTER TABLE backup_records
+    ADD COLUMN base_backup_id BIGINT NULL COMMENT '增量快照的基准备份ID' AFTER size;
@@ -0,0 +1,13 @@
+-- Token 吊销记录：退出登录时按 jti 吊销单个 Token，禁用/删除用户、重置密码、修改角色时按用户吊销此前签发的全部 Token
+-- 各节点启动时加载未过期的记录，之后按 id 增量同步；过期记录由 TokenRevocationService 定时删除
+CREATE TABLE IF NOT EXISTS token_revocations (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    jti        VARCHAR(64)  NULL COMMENT '被吊销的 Token 编号（按用户吊销时为空）',
+    username   VARCHAR(255) NULL COMMENT '按用户吊销时的用户名',
+    not_before BIGINT       NULL COMMENT '按用户吊销时，签发时间早于该时刻（毫秒）的 Token 均失效',
+    expires_at DATETIME     NOT NULL COMMENT '记录失效时间（相关 Token 都已自然过期）',
+    created_at DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id),
+    KEY idx_token_revocations_created (created_at),
+    KEY idx_token_revocations_expires (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='Token 吊销记录';
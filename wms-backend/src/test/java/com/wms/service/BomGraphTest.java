@@ -0,0 +1,220 @@
+package com.wms.service;
+
+import com.wms.dto.AssemblyRuleView;
+import com.wms.entity.AssemblyRule;
+import com.wms.entity.AssemblyRuleItem;
+import com.wms.entity.AutoStorageRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多级 BOM 图测试（纯内存，不需要 Spring 上下文）
+ */
+class BomGraphTest {
+
+    private long nextId = 1;
+
+    /**
+     * 组装规则，components 依次为 零件名, 单件用量
+     */
+    private AssemblyRuleView rule(String product, Object... components) {
+        return rule(product, true, components);
+    }
+
+    private AssemblyRuleView disabledRule(String product, Object... components) {
+        return rule(product, false, components);
+    }
+
+    private AssemblyRuleView rule(String product, boolean enabled, Object[] components) {
+        AssemblyRule rule = new AssemblyRule();
+        rule.setId(nextId++);
+        rule.setProductName(product);
+        rule.setIsEnabled(enabled);
+        List<AssemblyRuleItem> items = new ArrayList<>();
+        for (int i = 0; i < components.length; i += 2) {
+            AssemblyRuleItem item = new AssemblyRuleItem();
+            item.setComponentName((String) components[i]);
+            item.setQuantity((Integer) components[i + 1]);
+            items.add(item);
+        }
+        rule.setItems(items);
+        return new AssemblyRuleView(rule);
+    }
+
+    private static AutoStorageRule blankRule(String part, String blank, String ratio, int blanksPerPiece) {
+        AutoStorageRule rule = new AutoStorageRule();
+        rule.setTargetLocation(part);
+        rule.setBlankProductName(blank);
+        rule.setStorageRatio(ratio);
+        rule.setBlankQuantityPerUnit(blanksPerPiece);
+        rule.setIsFinishedProduct(true);
+        rule.setIsEnabled(true);
+        return rule;
+    }
+
+    private static Map<String, Long> map(Object... entries) {
+        Map<String, Long> map = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], ((Number) entries[i + 1]).longValue());
+        }
+        return map;
+    }
+
+    /**
+     * 阀门 = 阀体 + 2 中头盖组件 + 4 螺栓；中头盖组件 = 中头盖 + 2 螺栓 + 垫片
+     */
+    private BomGraph valveGraph(AutoStorageRule... storageRules) {
+        return new BomGraph(1, Arrays.asList(
+            rule("阀门", "阀体", 1, "中头盖组件", 2, "螺栓", 4),
+            rule("中头盖组件", "中头盖", 1, "螺栓", 2, "垫片", 1)
+        ), Arrays.asList(storageRules));
+    }
+
+    @Test
+    void testFlattensToLeafDemandPerUnit() {
+        BomGraph graph = valveGraph();
+
+        assertEquals(map("阀体", 1, "中头盖", 2, "螺栓", 8, "垫片", 2), graph.getLeafDemand("阀门"));
+        assertEquals(map("中头盖", 1, "螺栓", 2, "垫片", 1), graph.getLeafDemand("中头盖组件"));
+        assertTrue(graph.isAssembly("中头盖组件"));
+        assertFalse(graph.isAssembly("螺栓"));
+        assertEquals(Arrays.asList("阀门", "中头盖组件"), graph.getAssemblyOrder("阀门"));
+        assertTrue(graph.getErrors().isEmpty());
+        assertEquals(1, graph.getRuleVersion());
+    }
+
+    @Test
+    void testSharedSubAssemblyIsOrderedAfterAllParents() {
+        // 顶层 -> 左、右；左 -> 右；右 -> 底
+        BomGraph graph = new BomGraph(1, Arrays.asList(
+            rule("顶层", "左", 1, "右", 1),
+            rule("左", "右", 2),
+            rule("右", "底", 3)
+        ), Collections.emptyList());
+
+        assertEquals(Arrays.asList("顶层", "左", "右"), graph.getAssemblyOrder("顶层"));
+        assertEquals(map("底", 9), graph.getLeafDemand("顶层"));
+        // 右 的需求来自两个父项：1 + 2 = 3
+        assertEquals(3L, graph.netRequirements("顶层", 1, name -> 0L).get("右"));
+    }
+
+    @Test
+    void testDisabledRuleIsTreatedAsLeafPart() {
+        AssemblyRuleView sub = disabledRule("中头盖组件", "中头盖", 1);
+        AssemblyRuleView top = rule("阀门", "中头盖组件", 2);
+        BomGraph graph = new BomGraph(1, Arrays.asList(top, sub), Collections.emptyList());
+
+        assertFalse(graph.isEnabled(sub.getId()));
+        assertTrue(graph.isEnabled(top.getId()));
+        assertEquals("中头盖组件", graph.productOf(sub.getId()));
+        assertFalse(graph.isAssembly("中头盖组件"));
+        assertEquals(map("中头盖组件", 2), graph.getLeafDemand("阀门"));
+    }
+
+    @Test
+    void testCyclesAreReportedWithoutAffectingOtherProducts() {
+        BomGraph graph = new BomGraph(1, Arrays.asList(
+            rule("A", "B", 1),
+            rule("B", "A", 1, "螺栓", 1),
+            rule("C", "A", 1),
+            rule("自身", "自身", 1),
+            rule("D", "螺栓", 2)
+        ), Collections.emptyList());
+
+        assertNotNull(graph.errorOf("A"));
+        assertTrue(graph.errorOf("A").contains("A -> B -> A") || graph.errorOf("A").contains("B -> A -> B"));
+        assertNotNull(graph.errorOf("B"));
+        assertNotNull(graph.errorOf("C"));
+        assertTrue(graph.errorOf("自身").contains("自身 -> 自身"));
+        assertTrue(graph.getLeafDemand("A").isEmpty());
+        assertTrue(graph.getAssemblyOrder("C").isEmpty());
+
+        assertNull(graph.errorOf("D"));
+        assertEquals(map("螺栓", 2), graph.getLeafDemand("D"));
+    }
+
+    @Test
+    void testNetRequirementsUseSubAssemblyStockLevelByLevel() {
+        BomGraph graph = valveGraph();
+
+        Map<String, Long> total = graph.netRequirements("阀门", 10, name -> 0L);
+        assertEquals(map("阀体", 10, "中头盖组件", 20, "中头盖", 20, "螺栓", 80, "垫片", 20), total);
+
+        // 已有 3 个中头盖组件：只需再组装 17 个
+        Map<String, Long> stock = map("中头盖组件", 3);
+        Map<String, Long> net = graph.netRequirements("阀门", 10, name -> stock.getOrDefault(name, 0L));
+        assertEquals(20L, net.get("中头盖组件"));
+        assertEquals(17L, net.get("中头盖"));
+        assertEquals(40L + 34L, net.get("螺栓"));
+        assertEquals(17L, net.get("垫片"));
+        assertFalse(net.containsKey("阀门"));
+
+        // 子装配件库存足够时不再展开到下一层
+        Map<String, Long> plenty = graph.netRequirements("阀门", 10, name -> "中头盖组件".equals(name) ? 100L : 0L);
+        assertFalse(plenty.containsKey("中头盖"));
+        assertEquals(40L, plenty.get("螺栓"));
+    }
+
+    @Test
+    void testMaxBuildable() {
+        BomGraph graph = valveGraph();
+        Map<String, Long> stock = map("阀体", 10, "中头盖组件", 3, "中头盖", 5, "螺栓", 100, "垫片", 100);
+
+        // n 个阀门需要 2n - 3 个中头盖：n <= 4
+        assertEquals(4, graph.maxBuildable("阀门", name -> stock.getOrDefault(name, 0L)));
+        assertTrue(graph.isBuildable("阀门", 4, name -> stock.getOrDefault(name, 0L)));
+        assertFalse(graph.isBuildable("阀门", 5, name -> stock.getOrDefault(name, 0L)));
+
+        stock.put("阀体", 0L);
+        assertEquals(0, graph.maxBuildable("阀门", name -> stock.getOrDefault(name, 0L)));
+
+        // 二分查找的边界：恰好 1000 个
+        BomGraph simple = new BomGraph(1, Collections.singletonList(rule("P", "x", 3)), Collections.emptyList());
+        assertEquals(1000, simple.maxBuildable("P", name -> 3000L));
+        assertEquals(999, simple.maxBuildable("P", name -> 2999L));
+
+        assertEquals(BomGraph.MAX_BUILDABLE, graph.maxBuildable("阀门", name -> Long.MAX_VALUE / 4));
+    }
+
+    @Test
+    void testBlanksForRoundsUpPieceworkQuantity() {
+        // 2:1 表示 2 件计件入库 1 个零件，每件消耗 3 个毛坯
+        BomGraph graph = valveGraph(blankRule("中头盖", "中头盖毛坯", "2:1", 3));
+        BomGraph.BlankSource source = graph.blankSourceOf("中头盖");
+        assertEquals("中头盖毛坯", source.getBlankProductName());
+        assertEquals(18, source.blanksFor(3));
+        assertEquals(0, source.blanksFor(0));
+
+        // 1:3 表示 1 件计件入库 3 个零件：4 个零件需要 2 件计件
+        BomGraph.BlankSource split = valveGraph(blankRule("中头盖", "毛坯", "1:3", 1)).blankSourceOf("中头盖");
+        assertEquals(2, split.blanksFor(4));
+        assertEquals(1, split.blanksFor(3));
+
+        // 比例无效时按 1:1
+        BomGraph.BlankSource invalid = valveGraph(blankRule("中头盖", "毛坯", "abc", 2)).blankSourceOf("中头盖");
+        assertEquals(10, invalid.blanksFor(5));
+        BomGraph.BlankSource zero = valveGraph(blankRule("中头盖", "毛坯", "0:1", 2)).blankSourceOf("中头盖");
+        assertEquals(10, zero.blanksFor(5));
+    }
+
+    @Test
+    void testFirstBlankRuleWinsAndNonFinishedRulesAreIgnored() {
+        AutoStorageRule semi = blankRule("垫片", "垫片毛坯", "1:1", 1);
+        semi.setIsFinishedProduct(false);
+        BomGraph graph = valveGraph(
+            blankRule("中头盖", "高优先级毛坯", "1:1", 1),
+            blankRule("中头盖", "低优先级毛坯", "1:1", 1),
+            semi);
+
+        assertEquals("高优先级毛坯", graph.blankSourceOf("中头盖").getBlankProductName());
+        assertNull(graph.blankSourceOf("垫片"));
+    }
+}
@@ -2,6 +2,17 @@ package com.wms.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -54,4 +65,96 @@ class LoginRateLimiterTest {
         assertEquals(3, rateLimiter.getRemainingAttempts("user1"));
         assertEquals(5, rateLimiter.getRemainingAttempts("user2"));
     }
+
+    @Test
+    void testIpLockAcrossUsernames() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1000, 5, 10, System::currentTimeMillis);
+        for (int i = 0; i < 10; i++) {
+            limiter.recordFailure("user" + i, "10.0.0.1");
+        }
+        assertTrue(limiter.isIpLocked("10.0.0.1"));
+        assertFalse(limiter.isIpLocked("10.0.0.2"));
+        assertFalse(limiter.isLocked("user0"));
+        assertTrue(limiter.getRemainingIpLockTime("10.0.0.1") > 0);
+    }
+
+    @Test
+    void testSlidingWindowExpiresOldFailures() {
+        AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+        LoginRateLimiter limiter = new LoginRateLimiter(1000, 5, 50, now::get);
+        limiter.recordFailure("testuser");
+        limiter.recordFailure("testuser");
+        now.addAndGet(TimeUnit.MINUTES.toMillis(10));
+        limiter.recordFailure("testuser");
+        assertEquals(2, limiter.getRemainingAttempts("testuser"));
+
+        // 前两次失败滑出 15 分钟窗口
+        now.addAndGet(TimeUnit.MINUTES.toMillis(6));
+        assertEquals(4, limiter.getRemainingAttempts("testuser"));
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(15));
+        limiter.sweep();
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    void testLockExpires() {
+        AtomicLong now = new AtomicLong(TimeUnit.DAYS.toMillis(1));
+        LoginRateLimiter limiter = new LoginRateLimiter(1000, 5, 50, now::get);
+        for (int i = 0; i < 5; i++) {
+            limiter.recordFailure("testuser");
+        }
+        assertTrue(limiter.isLocked("testuser"));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(15));
+        assertFalse(limiter.isLocked("testuser"));
+        assertEquals(5, limiter.getRemainingAttempts("testuser"));
+    }
+
+    @Test
+    void testCapacityKeepsLockedEntries() {
+        LoginRateLimiter limiter = new LoginRateLimiter(100, 5, 1000, System::currentTimeMillis);
+        for (int i = 0; i < 5; i++) {
+            limiter.recordFailure("victim");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            limiter.recordFailure("random" + i);
+        }
+        assertTrue(limiter.size() <= 100);
+        assertTrue(limiter.isLocked("victim"));
+    }
+
+    /**
+     * 多线程并发记录失败：共享账号的计数不丢失，随机用户名不会让记录数超过容量
+     */
+    @Test
+    void testConcurrentFailures() throws Exception {
+        int threads = 8;
+        int perThread = 2000;
+        LoginRateLimiter limiter = new LoginRateLimiter(500, Integer.MAX_VALUE, Integer.MAX_VALUE,
+            System::currentTimeMillis);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    limiter.recordFailure("shared", "10.0.0.1");
+                    limiter.recordFailure("random" + random.nextInt(1_000_000), "10.0.0." + random.nextInt(256));
+                    limiter.isLocked("shared");
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // 淘汰只在插入后触发，并发插入期间可能短暂多出几条
+        assertTrue(limiter.size() <= 500 + threads, "size=" + limiter.size());
+        assertEquals(threads * perThread, limiter.failureCount("shared"));
+    }
 }
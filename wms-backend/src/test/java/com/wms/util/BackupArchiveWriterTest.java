@@ -0,0 +1,54 @@
+package com.wms.util;
+
+import com.wms.service.DownloadService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 备份包写入测试
+ */
+class BackupArchiveWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSha256IsComputedWhileWriting() throws Exception {
+        Path source = Files.createDirectories(tempDir.resolve("src"));
+        byte[] random = new byte[3 * 1024 * 1024];
+        new Random(42).nextBytes(random);
+        Files.write(source.resolve("random.bin"), random);
+        Files.write(source.resolve("text.txt"), "仓库管理\n".getBytes(StandardCharsets.UTF_8));
+
+        Path archive = tempDir.resolve("backup.tar.gz");
+        String sha256;
+        try (BackupArchiveWriter writer = new BackupArchiveWriter(archive, 3, 1)) {
+            writer.addDirectory("files", source);
+            assertNull(writer.getSha256());
+            writer.finish();
+            sha256 = writer.getSha256();
+        }
+
+        assertNotNull(sha256);
+        assertEquals(DownloadService.sha256(archive), sha256);
+    }
+
+    @Test
+    void testStreamEntryLeavesSha256ToCaller() throws Exception {
+        Path archive = tempDir.resolve("stream.tar.gz");
+        try (BackupArchiveWriter writer = new BackupArchiveWriter(archive, 2, 1)) {
+            writer.addStream("dump.sql", new ByteArrayInputStream("SELECT 1;".getBytes(StandardCharsets.UTF_8)));
+            writer.finish();
+            // 流式条目的头部在写完数据后回填，写入时计算的摘要与文件不符
+            assertNull(writer.getSha256());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.wms.util;
+
+import com.wms.util.ByteRanges.Range;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Range 请求头解析测试
+ */
+class ByteRangesTest {
+
+    private static void assertRange(Range range, long start, long end) {
+        assertEquals(start, range.getStart());
+        assertEquals(end, range.getEnd());
+    }
+
+    @Test
+    void testClosedRange() {
+        List<Range> ranges = ByteRanges.parse("bytes=0-499", 1000);
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), 0, 499);
+        assertEquals(500, ranges.get(0).length());
+        assertEquals("bytes 0-499/1000", ranges.get(0).contentRange(1000));
+    }
+
+    @Test
+    void testEndClampedToSize() {
+        List<Range> ranges = ByteRanges.parse("bytes=900-5000", 1000);
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), 900, 999);
+    }
+
+    @Test
+    void testOpenRange() {
+        List<Range> ranges = ByteRanges.parse("bytes=600-", 1000);
+        assertEquals(1, ranges.size());
+        assertRange(ranges.get(0), 600, 999);
+    }
+
+    @Test
+    void testSuffixRange() {
+        assertRange(ByteRanges.parse("bytes=-100", 1000).get(0), 900, 999);
+        // 后缀长度超过文件大小时返回整个文件
+        assertRange(ByteRanges.parse("bytes=-5000", 1000).get(0), 0, 999);
+    }
+
+    @Test
+    void testOverlappingAndAdjacentRangesAreMerged() {
+        List<Range> ranges = ByteRanges.parse("bytes=500-599, 0-99, 100-199, 550-700, 900-", 1000);
+        assertEquals(3, ranges.size());
+        assertRange(ranges.get(0), 0, 199);
+        assertRange(ranges.get(1), 500, 700);
+        assertRange(ranges.get(2), 900, 999);
+    }
+
+    @Test
+    void testTooManyRangesFallBackToWholeFile() {
+        StringBuilder header = new StringBuilder("bytes=");
+        for (int i = 0; i <= ByteRanges.MAX_RANGES; i++) {
+            header.append(i > 0 ? "," : "").append(i * 10).append('-').append(i * 10 + 4);
+        }
+        assertNull(ByteRanges.parse(header.toString(), 10_000));
+
+        // 按合并后的范围数判断：首尾相接的范围合并成一段
+        StringBuilder adjacent = new StringBuilder("bytes=");
+        for (int i = 0; i <= ByteRanges.MAX_RANGES; i++) {
+            adjacent.append(i > 0 ? "," : "").append(i * 10).append('-').append(i * 10 + 9);
+        }
+        List<Range> merged = ByteRanges.parse(adjacent.toString(), 10_000);
+        assertEquals(1, merged.size());
+        assertRange(merged.get(0), 0, ByteRanges.MAX_RANGES * 10 + 9);
+    }
+
+    @Test
+    void testUnsatisfiableReturnsEmptyList() {
+        List<Range> ranges = ByteRanges.parse("bytes=1000-1999", 1000);
+        assertNotNull(ranges);
+        assertTrue(ranges.isEmpty());
+
+        assertTrue(ByteRanges.parse("bytes=-0", 1000).isEmpty());
+        assertTrue(ByteRanges.parse("bytes=-10", 0).isEmpty());
+    }
+
+    @Test
+    void testInvalidHeaderIsIgnored() {
+        assertNull(ByteRanges.parse(null, 1000));
+        assertNull(ByteRanges.parse("items=0-10", 1000));
+        assertNull(ByteRanges.parse("bytes=abc-10", 1000));
+        assertNull(ByteRanges.parse("bytes=500-100", 1000));
+        assertNull(ByteRanges.parse("bytes=100", 1000));
+        // 一段无效时整个请求头都忽略
+        assertNull(ByteRanges.parse("bytes=0-10,x-y", 1000));
+    }
+}
@@ -0,0 +1,113 @@
+package com.wms.util;
+
+import com.wms.util.ColumnarFormat.Column;
+import com.wms.util.ColumnarFormat.Schema;
+import com.wms.util.ColumnarFormat.Type;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列式快照格式往返测试
+ */
+class ColumnarFormatTest {
+
+    private static final Schema SCHEMA = new Schema("piece_works",
+        new Column("id", Type.LONG),
+        new Column("worker_name", Type.DICT_STRING),
+        new Column("quantity", Type.INT),
+        new Column("unit_price", Type.DECIMAL),
+        new Column("factor", Type.DOUBLE),
+        new Column("updated_time", Type.TIMESTAMP),
+        new Column("remarks", Type.STRING)
+    );
+
+    private static final String[] WORKERS = {"张三", "李四", "王五"};
+
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 3, 1, 8, 30, 15, 123_000_000);
+
+    private static Object[] row(int i) {
+        return new Object[]{
+            (long) (i + 1),
+            i % 7 == 0 ? null : WORKERS[i % WORKERS.length],
+            i % 5 == 0 ? null : i * 3 - 10,
+            new BigDecimal("1.25").add(BigDecimal.valueOf(i, 2)),
+            i % 4 == 0 ? null : i / 3.0,
+            BASE_TIME.plusSeconds(i * 37L),
+            i % 2 == 0 ? "备注" + i : null
+        };
+    }
+
+    @Test
+    void testRoundTripAcrossBatches() throws IOException {
+        int rows = 25;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarWriter writer = new ColumnarWriter(out, SCHEMA, 4, "updated_time");
+        for (int i = 0; i < rows; i++) {
+            writer.writeRow(row(i));
+        }
+        writer.finish();
+        assertEquals(rows, writer.getTotalRows());
+
+        ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("piece_works", reader.getSchema().getTable());
+        assertEquals(SCHEMA.getColumns().size(), reader.getSchema().getColumns().size());
+        assertEquals(Type.DICT_STRING, reader.getSchema().getColumns().get(1).getType());
+
+        List<Object[]> decoded = reader.readAll();
+        assertEquals(rows, decoded.size());
+        for (int i = 0; i < rows; i++) {
+            assertArrayEquals(row(i), decoded.get(i));
+        }
+
+        assertTrue(reader.isFinished());
+        assertEquals(rows, reader.getTotalRows());
+        assertEquals(rows, reader.getMaxId());
+        assertEquals(BASE_TIME.plusSeconds((rows - 1) * 37L), reader.getMaxWatermark());
+        assertNull(reader.nextBatch());
+    }
+
+    @Test
+    void testEmptySnapshot() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ColumnarWriter(out, SCHEMA, 16, "updated_time").finish();
+
+        ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(reader.readAll().isEmpty());
+        assertEquals(0, reader.getTotalRows());
+        assertNull(reader.getMaxWatermark());
+    }
+
+    @Test
+    void testDictionaryKeepsSnapshotSmall() throws IOException {
+        int rows = 10_000;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarWriter writer = new ColumnarWriter(out, SCHEMA, 4096, "updated_time");
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            Object[] values = row(i);
+            writer.writeRow(values);
+            for (Object v : values) {
+                csv.append(v).append(',');
+            }
+            csv.append('\n');
+        }
+        writer.finish();
+
+        assertTrue(out.size() * 4 < csv.toString().getBytes().length,
+            "列式快照应明显小于等价CSV: " + out.size());
+    }
+
+    @Test
+    void testRejectsInvalidFile() {
+        byte[] garbage = "id,name\n1,a\n".getBytes();
+        assertThrows(IOException.class, () -> new ColumnarReader(new ByteArrayInputStream(garbage)));
+    }
+}
@@ -0,0 +1,187 @@
+package com.wms.util;
+
+import com.wms.dto.DumpManifest;
+import com.wms.dto.DumpManifest.ChunkFile;
+import com.wms.dto.DumpManifest.TableDump;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JDBC 逻辑导出测试（H2 内存数据库）
+ */
+class DatabaseDumperTest {
+
+    private static final int ROWS = 2500;
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcDataSource source;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        source = dataSource("dump_source_" + System.nanoTime());
+        try (Connection connection = source.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE piece_works (id BIGINT PRIMARY KEY, worker_name VARCHAR(50) NOT NULL, "
+                + "quantity INT, unit_price DECIMAL(10, 2), work_date TIMESTAMP, remarks VARCHAR(200))");
+            statement.execute("CREATE TABLE inventory_logs (id BIGINT PRIMARY KEY, product_name VARCHAR(100), "
+                + "quantity_change INT)");
+            statement.execute("CREATE TABLE empty_table (id BIGINT PRIMARY KEY)");
+
+            try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO piece_works VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int i = 1; i <= ROWS; i++) {
+                    ps.setLong(1, i);
+                    ps.setString(2, i % 3 == 0 ? "张三" : "O'Brien");
+                    if (i % 10 == 0) {
+                        ps.setNull(3, java.sql.Types.INTEGER);
+                    } else {
+                        ps.setInt(3, i);
+                    }
+                    ps.setBigDecimal(4, new BigDecimal("1.50").add(BigDecimal.valueOf(i, 2)));
+                    ps.setTimestamp(5, Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 8, 0).plusMinutes(i)));
+                    ps.setString(6, i % 7 == 0 ? "含分号; 和换行\n以及 \\ 反斜杠" : null);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            statement.execute("INSERT INTO inventory_logs VALUES (1, '轴承', -5), (2, '螺栓', 20)");
+        }
+    }
+
+    @Test
+    void testParallelDumpWritesChunksAndManifest() throws Exception {
+        DatabaseDumper dumper = new DatabaseDumper(source);
+        dumper.setThreads(3);
+        dumper.setRowsPerInsert(100);
+        dumper.setRowsPerChunk(1000);
+        dumper.setRequireConsistentSnapshot(false);
+
+        Path directory = tempDir.resolve("dump");
+        DumpManifest manifest = dumper.dump(directory);
+
+        assertTrue(Files.exists(directory.resolve(DatabaseDumper.MANIFEST_FILE)));
+        assertEquals(3, manifest.getTables().size());
+        assertEquals(3, manifest.getThreads());
+        assertFalse(manifest.getConsistentSnapshot());
+
+        TableDump pieceWorks = table(manifest, "PIECE_WORKS");
+        assertEquals(ROWS, pieceWorks.getRowCount());
+        assertEquals(3, pieceWorks.getChunks().size());
+        for (ChunkFile chunk : pieceWorks.getChunks()) {
+            assertTrue(Files.exists(directory.resolve(chunk.getFile())));
+            assertEquals(64, chunk.getSha256().length());
+        }
+        assertEquals(0, table(manifest, "EMPTY_TABLE").getRowCount());
+        assertTrue(table(manifest, "EMPTY_TABLE").getChunks().isEmpty());
+
+        // 多行 INSERT：每条语句最多 100 行
+        String firstChunk = readChunk(directory.resolve(pieceWorks.getChunks().get(0).getFile()));
+        int inserts = firstChunk.split("INSERT INTO", -1).length - 1;
+        assertEquals(10, inserts);
+    }
+
+    @Test
+    void testConsistentDumpFallsBackToSingleConnection() throws Exception {
+        DatabaseDumper dumper = new DatabaseDumper(source);
+        dumper.setThreads(4);
+
+        DumpManifest manifest = dumper.dump(tempDir.resolve("dump"));
+
+        assertTrue(manifest.getConsistentSnapshot());
+        assertEquals(1, manifest.getThreads());
+        assertEquals(ROWS, table(manifest, "PIECE_WORKS").getRowCount());
+    }
+
+    @Test
+    void testDumpReplaysIntoEmptyDatabase() throws Exception {
+        DatabaseDumper dumper = new DatabaseDumper(source);
+        dumper.setRowsPerInsert(250);
+        dumper.setRowsPerChunk(800);
+        Path directory = tempDir.resolve("dump");
+        DumpManifest manifest = dumper.dump(directory);
+
+        JdbcDataSource target = dataSource("dump_target_" + System.nanoTime());
+        try (Connection connection = target.getConnection(); Statement statement = connection.createStatement()) {
+            for (TableDump table : manifest.getTables()) {
+                statement.execute(stripSemicolon(new String(
+                    Files.readAllBytes(directory.resolve(table.getSchemaFile())), StandardCharsets.UTF_8)));
+                for (ChunkFile chunk : table.getChunks()) {
+                    try (SqlScriptReader reader = new SqlScriptReader(new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(Files.newInputStream(directory.resolve(chunk.getFile()))),
+                        StandardCharsets.UTF_8)), manifest.getBackslashEscapes())) {
+                        String sql;
+                        while ((sql = reader.next()) != null) {
+                            statement.execute(sql);
+                        }
+                    }
+                }
+            }
+
+            try (Connection sourceConnection = source.getConnection()) {
+                String summary = "SELECT COUNT(*), SUM(quantity), SUM(unit_price), COUNT(remarks), "
+                    + "MAX(work_date), SUM(CASE WHEN worker_name = '张三' THEN 1 ELSE 0 END) FROM piece_works";
+                assertArrayEquals(row(sourceConnection, summary), row(connection, summary));
+                String remarks = "SELECT remarks FROM piece_works WHERE id = 7";
+                assertArrayEquals(row(sourceConnection, remarks), row(connection, remarks));
+                assertArrayEquals(new Object[]{2L}, row(connection, "SELECT COUNT(*) FROM inventory_logs"));
+            }
+        }
+    }
+
+    private static JdbcDataSource dataSource(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+
+    private static TableDump table(DumpManifest manifest, String name) {
+        return manifest.getTables().stream()
+            .filter(t -> t.getName().equalsIgnoreCase(name))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("缺少表: " + name));
+    }
+
+    private static String readChunk(Path file) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String stripSemicolon(String sql) {
+        sql = sql.trim();
+        return sql.endsWith(";") ? sql.substring(0, sql.length() - 1) : sql;
+    }
+
+    private static Object[] row(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            assertTrue(rs.next());
+            Object[] values = new Object[rs.getMetaData().getColumnCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            return values;
+        }
+    }
+}
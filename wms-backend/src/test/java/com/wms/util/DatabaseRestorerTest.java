@@ -0,0 +1,163 @@
+package com.wms.util;
+
+import com.wms.dto.DumpManifest;
+import com.wms.dto.RestoreReport;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据库恢复测试（H2 内存数据库）
+ */
+class DatabaseRestorerTest {
+
+    private static final int ROWS = 3000;
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcDataSource source;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        source = dataSource("restore_source_" + System.nanoTime());
+        try (Connection connection = source.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE piece_works (id BIGINT PRIMARY KEY, worker_name VARCHAR(50), "
+                + "quantity INT, updated_time TIMESTAMP)");
+            statement.execute("CREATE TABLE backup_deletions (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "table_name VARCHAR(64), row_id BIGINT, deleted_at TIMESTAMP)");
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO piece_works VALUES (?, ?, ?, ?)")) {
+                for (int i = 1; i <= ROWS; i++) {
+                    ps.setLong(1, i);
+                    ps.setString(2, i % 2 == 0 ? "张三" : "李四");
+                    ps.setInt(3, i);
+                    ps.setObject(4, LocalDateTime.of(2024, 1, 1, 8, 0));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    @Test
+    void testParallelRestoreVerifiesManifest() throws Exception {
+        Path dump = fullDump();
+
+        JdbcDataSource target = dataSource("restore_target_" + System.nanoTime());
+        DatabaseRestorer restorer = new DatabaseRestorer(target);
+        restorer.setThreads(3);
+        restorer.setBatchSize(4);
+        RestoreReport report = restorer.restore(Collections.singletonList(dump), "restored");
+
+        assertTrue(report.getVerified());
+        assertEquals(ROWS, report.getTotalRows());
+        assertEquals(2, report.getTables().size());
+        assertNotNull(report.getLoadMs());
+        try (Connection connection = target.getConnection()) {
+            connection.setSchema("restored");
+            assertEquals(ROWS, count(connection, "SELECT COUNT(*) FROM piece_works"));
+        }
+    }
+
+    @Test
+    void testCorruptedChunkIsRejected() throws Exception {
+        Path dump = fullDump();
+        Path chunk;
+        try (java.util.stream.Stream<Path> files = Files.list(dump)) {
+            chunk = files.filter(p -> p.getFileName().toString().endsWith(".sql.gz")).sorted().findFirst().get();
+        }
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(chunk))) {
+            out.write("INSERT INTO PIECE_WORKS VALUES (1, 'x', 1, NULL);".getBytes());
+        }
+
+        JdbcDataSource target = dataSource("restore_target_" + System.nanoTime());
+        DatabaseRestorer restorer = new DatabaseRestorer(target);
+        IOException e = assertThrows(IOException.class,
+            () -> restorer.restore(Collections.singletonList(dump), null));
+        assertTrue(e.getMessage().contains("分片校验失败"));
+        // 校验在执行语句之前，被篡改分片中的语句一条都没有执行
+        try (Connection connection = target.getConnection()) {
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM piece_works WHERE worker_name = 'x'"));
+        }
+    }
+
+    @Test
+    void testIncrementalChainReplaysUpsertsAndDeletes() throws Exception {
+        Path full = fullDump();
+
+        try (Connection connection = source.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("UPDATE piece_works SET quantity = -1, updated_time = TIMESTAMP '2024-06-02 00:00:00' "
+                + "WHERE id = 5");
+            statement.execute("INSERT INTO piece_works VALUES (9001, '王五', 7, TIMESTAMP '2024-06-02 00:00:00')");
+            statement.execute("DELETE FROM piece_works WHERE id = 6");
+            statement.execute("INSERT INTO backup_deletions (table_name, row_id, deleted_at) "
+                + "VALUES ('piece_works', 6, TIMESTAMP '2024-06-02 00:00:00')");
+        }
+
+        DatabaseDumper dumper = new DatabaseDumper(source);
+        dumper.setUpsert(true);
+        dumper.setSince("2024-06-01 00:00:00");
+        Map<String, String> filters = new HashMap<>();
+        filters.put("PIECE_WORKS", "(updated_time >= TIMESTAMP '2024-06-01 00:00:00' OR updated_time IS NULL)");
+        filters.put("BACKUP_DELETIONS", "(deleted_at >= TIMESTAMP '2024-06-01 00:00:00')");
+        dumper.setTableFilters(filters);
+        Path increment = tempDir.resolve("incr");
+        DumpManifest manifest = dumper.dump(increment);
+        assertEquals(2, manifest.getTables().stream().filter(t -> t.getName().equals("PIECE_WORKS"))
+            .findFirst().get().getRowCount());
+
+        JdbcDataSource target = dataSource("restore_target_" + System.nanoTime());
+        new DatabaseRestorer(target).restore(Arrays.asList(full, increment), null);
+
+        try (Connection connection = target.getConnection(); Connection sourceConnection = source.getConnection()) {
+            assertEquals(count(sourceConnection, "SELECT COUNT(*) FROM piece_works"),
+                count(connection, "SELECT COUNT(*) FROM piece_works"));
+            assertEquals(count(sourceConnection, "SELECT SUM(quantity) FROM piece_works"),
+                count(connection, "SELECT SUM(quantity) FROM piece_works"));
+            assertEquals(0, count(connection, "SELECT COUNT(*) FROM piece_works WHERE id = 6"));
+            assertEquals(-1, count(connection, "SELECT quantity FROM piece_works WHERE id = 5"));
+        }
+    }
+
+    private Path fullDump() throws Exception {
+        DatabaseDumper dumper = new DatabaseDumper(source);
+        dumper.setRowsPerInsert(100);
+        dumper.setRowsPerChunk(700);
+        Path directory = tempDir.resolve("full");
+        dumper.dump(directory);
+        return directory;
+    }
+
+    private static JdbcDataSource dataSource(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+
+    private static long count(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+}